@@ -1,12 +1,19 @@
 package it.unicam.cs.pa.jbudget105053.controller;
 
 import it.unicam.cs.pa.jbudget105053.model.*;
+import it.unicam.cs.pa.jbudget105053.persistence.DirtyTracker;
 import it.unicam.cs.pa.jbudget105053.persistence.ExportManager;
+import it.unicam.cs.pa.jbudget105053.persistence.ExportPreparation;
+import it.unicam.cs.pa.jbudget105053.persistence.ExportTask;
 import it.unicam.cs.pa.jbudget105053.persistence.ImportManager;
+import it.unicam.cs.pa.jbudget105053.persistence.MutationJournal;
 
 import java.io.IOException;
 import java.text.ParseException;
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
 import java.util.function.Predicate;
 
@@ -17,6 +24,11 @@ import java.util.function.Predicate;
  * @author Tommaso Catervi
  */
 public interface Controller {
+    /**
+     * Message of the exception thrown when the data is recovered without a {@link MutationJournal}.
+     */
+    String MESSAGE_NO_JOURNAL = "Non e' stato impostato alcun journal da cui recuperare i dati.";
+
     /**
      * Allows to add a new {@link Account} to the ledger.
      *
@@ -53,6 +65,13 @@ public interface Controller {
      */
     void removeAccount(Account account);
 
+    /**
+     * Allows to remove all the given accounts from the ledger in a single operation.
+     *
+     * @param accounts the accounts to remove.
+     */
+    void removeAccounts(Collection<? extends Account> accounts);
+
     /**
      * Getter method for the list of all the accounts contained in the ledger.
      *
@@ -69,6 +88,14 @@ public interface Controller {
      */
     List<Account> getAccounts(Predicate<Account> predicate);
 
+    /**
+     * Returns the {@link Account} of the ledger with the given ID.
+     *
+     * @param ID the ID of the {@link Account} to search for.
+     * @return the {@link Account} with the given ID, or null if there is none.
+     */
+    Account getAccountByID(int ID);
+
     /**
      * Creates a new {@link Movement} with the given parameters and returns it.
      *
@@ -98,6 +125,14 @@ public interface Controller {
      */
     List<Movement> getMovements();
 
+    /**
+     * Returns the {@link Movement} of the ledger with the given ID.
+     *
+     * @param ID the ID of the {@link Movement} to search for.
+     * @return the {@link Movement} with the given ID, or null if there is none.
+     */
+    Movement getMovementByID(int ID);
+
     /**
      * Creates a new {@link Transaction} with the given parameters and returns it.
      *
@@ -123,6 +158,14 @@ public interface Controller {
      */
     void addTransaction(Transaction t);
 
+    /**
+     * Allows to add all the given transactions to the ledger in a single operation.
+     * If one of the transactions cannot be added, none of them is added.
+     *
+     * @param transactions the transactions to add.
+     */
+    void addTransactions(Collection<? extends Transaction> transactions);
+
     /**
      * Allows to remove a {@link Transaction} from the transactions list of the ledger.
      *
@@ -146,6 +189,31 @@ public interface Controller {
      */
     List<Transaction> getTransactions(Predicate<Transaction> predicate);
 
+    /**
+     * Returns the list of the transactions of the ledger dated between the given dates, both included,
+     * in chronological order.
+     *
+     * @param from the first date of the period.
+     * @param to   the last date of the period.
+     * @return the list of the transactions of the period.
+     */
+    List<Transaction> getTransactions(LocalDate from, LocalDate to);
+
+    /**
+     * Returns an iterator over all the transactions of the ledger, from the most recent to the oldest one.
+     *
+     * @return the iterator over the transactions in reverse chronological order.
+     */
+    Iterator<Transaction> descendingTransactions();
+
+    /**
+     * Returns the {@link Transaction} of the ledger with the given ID.
+     *
+     * @param ID the ID of the {@link Transaction} to search for.
+     * @return the {@link Transaction} with the given ID, or null if there is none.
+     */
+    Transaction getTransactionByID(int ID);
+
     /**
      * Allows to create a new {@link Tag} with the given parameters and then adds it
      * to the tags list of the ledger.
@@ -188,6 +256,79 @@ public interface Controller {
      */
     List<Tag> getTags();
 
+    /**
+     * Returns the {@link Tag} of the ledger with the given ID.
+     *
+     * @param ID the ID of the {@link Tag} to search for.
+     * @return the {@link Tag} with the given ID, or null if there is none.
+     */
+    Tag getTagByID(int ID);
+
+    /**
+     * Returns the list of the transactions of the ledger whose tags satisfy the given {@link TagExpression}.
+     *
+     * @param expression the {@link TagExpression} to evaluate.
+     * @return the list of the matching transactions.
+     */
+    List<Transaction> getTransactions(TagExpression expression);
+
+    /**
+     * Returns the list of the movements of the ledger whose tags satisfy the given {@link TagExpression}.
+     *
+     * @param expression the {@link TagExpression} to evaluate.
+     * @return the list of the matching movements.
+     */
+    List<Movement> getMovements(TagExpression expression);
+
+    /**
+     * Returns a lazy cursor over the movements of the ledger satisfying the given {@link LedgerQuery}.
+     *
+     * @param query the {@link LedgerQuery} to answer.
+     * @return the cursor over the matching movements.
+     */
+    QueryCursor<Movement> queryMovements(LedgerQuery query);
+
+    /**
+     * Returns a lazy cursor over the transactions of the ledger with at least one movement satisfying the
+     * given {@link LedgerQuery}.
+     *
+     * @param query the {@link LedgerQuery} to answer.
+     * @return the cursor over the matching transactions.
+     */
+    QueryCursor<Transaction> queryTransactions(LedgerQuery query);
+
+    /**
+     * Computes the given {@link Report} on the movements of the ledger.
+     *
+     * @param report the {@link Report} to compute.
+     * @return the table of the cells of the report.
+     */
+    ReportTable computeReport(Report report);
+
+    /**
+     * Returns the daily, monthly or yearly totals of all the accounts or of all the tags of the ledger.
+     *
+     * @param key         {@code ACCOUNT} or {@code TAG}.
+     * @param granularity the length of the periods.
+     * @return the table of the totals, keyed by the ID and then by the period.
+     */
+    ReportTable getRollups(Report.Key key, Granularity granularity);
+
+    /**
+     * Returns the {@link BudgetTracker} keeping the spending of the budgets of the ledger up to date.
+     *
+     * @return the {@link BudgetTracker} of the ledger.
+     */
+    BudgetTracker getBudgetTracker();
+
+    /**
+     * Returns the number of movements of the ledger carrying the given {@link Tag}.
+     *
+     * @param tag the {@link Tag} to search for.
+     * @return the number of movements carrying the {@link Tag}.
+     */
+    int countMovements(Tag tag);
+
     /**
      * Exports all data of the application into file(s) in a given path.
      *
@@ -196,6 +337,17 @@ public interface Controller {
      */
     void exportData(String path) throws IOException;
 
+    /**
+     * Starts the preparation of the export of all data of the application into file(s) in a given path.
+     * The returned {@link ExportPreparation} must be stepped by the thread that changes the ledger, and its
+     * {@link ExportTask} completes the export on any thread.
+     *
+     * @param path the path where to save data.
+     * @return the {@link ExportPreparation} of the export.
+     * @throws IOException if something goes wrong.
+     */
+    ExportPreparation prepareExport(String path) throws IOException;
+
     /**
      * Imports data into the application from file(s) in a given path.
      *
@@ -205,6 +357,16 @@ public interface Controller {
      */
     void importData(String path) throws IOException, ParseException;
 
+    /**
+     * Recovers the data of the application from the last save in the given path and from the
+     * mutations recorded since then by the {@link MutationJournal}.
+     *
+     * @param path the path from which the last saved data is loaded, or null if there is none.
+     * @throws IOException    if something goes wrong.
+     * @throws ParseException if something goes wrong.
+     */
+    void recoverData(String path) throws IOException, ParseException;
+
     /**
      * Resets the ledger.
      */
@@ -226,6 +388,21 @@ public interface Controller {
      */
     void setImportManager(ImportManager importManager);
 
+    /**
+     * Setter method for the {@link MutationJournal} that will record all the mutations of the ledger.
+     *
+     * @param journal the {@link MutationJournal} to set.
+     */
+    void setJournal(MutationJournal journal);
+
+    /**
+     * Setter method for the {@link DirtyTracker} that will be informed of the parts of the ledger
+     * changed by each mutation.
+     *
+     * @param tracker the {@link DirtyTracker} to set.
+     */
+    void setDirtyTracker(DirtyTracker tracker);
+
     /**
      * Getter method for the boolean value that allows to know if data has been
      * saved or not.
@@ -233,4 +410,12 @@ public interface Controller {
      * @return true if the data has been saved, false otherwise.
      */
     boolean getIsSaved();
+
+    /**
+     * Getter method for the version of the ledger, that is the number of changes made to it, which allows
+     * to know if the ledger changed since a given moment.
+     *
+     * @return the version of the ledger.
+     */
+    long getVersion();
 }
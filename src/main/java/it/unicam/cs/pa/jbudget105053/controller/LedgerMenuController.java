@@ -1,15 +1,28 @@
 package it.unicam.cs.pa.jbudget105053.controller;
 
+import it.unicam.cs.pa.jbudget105053.persistence.DeferredExporter;
+import it.unicam.cs.pa.jbudget105053.persistence.DirtyTracker;
 import it.unicam.cs.pa.jbudget105053.persistence.ExportManager;
+import it.unicam.cs.pa.jbudget105053.persistence.ExportPreparation;
+import it.unicam.cs.pa.jbudget105053.persistence.ExportTask;
 import it.unicam.cs.pa.jbudget105053.persistence.ImportManager;
+import it.unicam.cs.pa.jbudget105053.persistence.LedgerSnapshot;
+import it.unicam.cs.pa.jbudget105053.persistence.MutationJournal;
+import it.unicam.cs.pa.jbudget105053.persistence.SnapshotWriter;
 import it.unicam.cs.pa.jbudget105053.model.*;
 import it.unicam.cs.pa.jbudget105053.persistence.TextFileExporter;
 import it.unicam.cs.pa.jbudget105053.persistence.TextFileImporter;
 
 import java.io.IOException;
 import java.text.ParseException;
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 
 /**
@@ -19,10 +32,31 @@ import java.util.function.Predicate;
  * @author Tommaso Catervi
  */
 public class LedgerMenuController implements Controller {
-    private final Ledger ledger = new LedgerMenu();
+    private final Ledger ledger;
+    private final ReportEngine reportEngine = new ReportEngine();
     private ExportManager exportManager;
     private ImportManager importManager;
-    private boolean isSaved = true;
+    private volatile boolean isSaved = true;
+    private final AtomicLong version = new AtomicLong();
+    private MutationJournal journal;
+    private DirtyTracker tracker;
+    private boolean recording = true;
+
+    /**
+     * Constructs a {@link LedgerMenuController} that manages an {@link IndexedLedger}.
+     */
+    public LedgerMenuController() {
+        this(new IndexedLedger());
+    }
+
+    /**
+     * Constructs a {@link LedgerMenuController} that manages the given {@link Ledger}.
+     *
+     * @param ledger the value used to set the {@code ledger} field of the {@link LedgerMenuController}.
+     */
+    public LedgerMenuController(Ledger ledger) {
+        this.ledger = ledger;
+    }
 
     /**
      * Allows to add a new {@link Account} with the given parameters to the {@link Ledger}.
@@ -34,7 +68,11 @@ public class LedgerMenuController implements Controller {
      */
     @Override
     public void addAccount(AccountType accountType, String name, double initialBalance) {
-        ledger.addAccount(accountType, name, initialBalance);
+        int ID = Indexer.getInstance().generateAccountID();
+        ledger.addAccountWithID(ID, accountType, name, initialBalance);
+        record(j -> j.recordAddAccount(ledger.getAccountByID(ID)));
+        track(DirtyTracker::markAccounts);
+        version.incrementAndGet();
         isSaved = false;
     }
 
@@ -50,6 +88,9 @@ public class LedgerMenuController implements Controller {
     @Override
     public void addAccountWithID(int ID, AccountType accountType, String name, double initialBalance) {
         ledger.addAccountWithID(ID, accountType, name, initialBalance);
+        record(j -> j.recordAddAccount(ledger.getAccountByID(ID)));
+        track(DirtyTracker::markAccounts);
+        version.incrementAndGet();
         isSaved = false;
     }
 
@@ -65,6 +106,9 @@ public class LedgerMenuController implements Controller {
     @Override
     public void modifyAccount(Account a, AccountType accountType, String name, double initialBalance) {
         ledger.modifyAccount(a, accountType, name, initialBalance);
+        record(j -> j.recordModifyAccount(a));
+        track(DirtyTracker::markAccounts);
+        version.incrementAndGet();
         isSaved = false;
     }
 
@@ -76,7 +120,25 @@ public class LedgerMenuController implements Controller {
      */
     @Override
     public void removeAccount(Account account) {
+        track(d -> markSegments(d, List.of(account)));
         ledger.removeAccount(account);
+        record(j -> j.recordRemoveAccounts(List.of(account)));
+        version.incrementAndGet();
+        isSaved = false;
+    }
+
+    /**
+     * Allows to remove all the given accounts from the {@link Ledger} in a single operation.
+     * {@code isSaved} is set to false.
+     *
+     * @param accounts the accounts to remove.
+     */
+    @Override
+    public void removeAccounts(Collection<? extends Account> accounts) {
+        track(d -> markSegments(d, accounts));
+        ledger.removeAccounts(accounts);
+        record(j -> j.recordRemoveAccounts(accounts));
+        version.incrementAndGet();
         isSaved = false;
     }
 
@@ -102,6 +164,17 @@ public class LedgerMenuController implements Controller {
         return ledger.getAccounts(predicate);
     }
 
+    /**
+     * Returns the {@link Account} of the {@link Ledger} with the given ID.
+     *
+     * @param ID the ID of the {@link Account} to search for.
+     * @return the {@link Account} with the given ID, or null if there is none.
+     */
+    @Override
+    public Account getAccountByID(int ID) {
+        return ledger.getAccountByID(ID);
+    }
+
     /**
      * Allows to create a new {@link Movement} with the given parameters and by generating its ID with
      * the class {@link Indexer} and then returns it.
@@ -141,6 +214,17 @@ public class LedgerMenuController implements Controller {
         return ledger.getMovements();
     }
 
+    /**
+     * Returns the {@link Movement} of the {@link Ledger} with the given ID.
+     *
+     * @param ID the ID of the {@link Movement} to search for.
+     * @return the {@link Movement} with the given ID, or null if there is none.
+     */
+    @Override
+    public Movement getMovementByID(int ID) {
+        return ledger.getMovementByID(ID);
+    }
+
     /**
      * Allows to create a new {@link Transaction} with the given parameter and by generating its ID with
      * the class {@link Indexer} and then returns it.
@@ -175,6 +259,24 @@ public class LedgerMenuController implements Controller {
     @Override
     public void addTransaction(Transaction t) {
         ledger.addTransaction(t);
+        record(j -> j.recordAddTransactions(List.of(t)));
+        track(d -> d.markSegment(t.getEpochDay()));
+        version.incrementAndGet();
+        isSaved = false;
+    }
+
+    /**
+     * Allows to add all the given transactions to the {@link Ledger} in a single operation.
+     * {@code isSaved} is set to false.
+     *
+     * @param transactions the transactions to add.
+     */
+    @Override
+    public void addTransactions(Collection<? extends Transaction> transactions) {
+        ledger.addTransactions(transactions);
+        record(j -> j.recordAddTransactions(transactions));
+        track(d -> transactions.forEach(t -> d.markSegment(t.getEpochDay())));
+        version.incrementAndGet();
         isSaved = false;
     }
 
@@ -187,6 +289,9 @@ public class LedgerMenuController implements Controller {
     @Override
     public void removeTransaction(Transaction t) {
         ledger.removeTransaction(t);
+        record(j -> j.recordRemoveTransaction(t));
+        track(d -> d.markSegment(t.getEpochDay()));
+        version.incrementAndGet();
         isSaved = false;
     }
 
@@ -212,6 +317,41 @@ public class LedgerMenuController implements Controller {
         return ledger.getTransactions(predicate);
     }
 
+    /**
+     * Returns the list of the transactions of the {@link Ledger} dated between the given dates,
+     * both included, in chronological order.
+     *
+     * @param from the first date of the period.
+     * @param to   the last date of the period.
+     * @return the list of the transactions of the period.
+     */
+    @Override
+    public List<Transaction> getTransactions(LocalDate from, LocalDate to) {
+        return ledger.getTransactions(from, to);
+    }
+
+    /**
+     * Returns an iterator over all the transactions of the {@link Ledger}, from the most recent
+     * to the oldest one.
+     *
+     * @return the iterator over the transactions in reverse chronological order.
+     */
+    @Override
+    public Iterator<Transaction> descendingTransactions() {
+        return ledger.descendingTransactions();
+    }
+
+    /**
+     * Returns the {@link Transaction} of the {@link Ledger} with the given ID.
+     *
+     * @param ID the ID of the {@link Transaction} to search for.
+     * @return the {@link Transaction} with the given ID, or null if there is none.
+     */
+    @Override
+    public Transaction getTransactionByID(int ID) {
+        return ledger.getTransactionByID(ID);
+    }
+
     /**
      * Allows to add a new {@link Tag} with the given parameters to the {@link Ledger}.
      * {@code isSaved} is set to false.
@@ -221,7 +361,11 @@ public class LedgerMenuController implements Controller {
      */
     @Override
     public void addTag(String name, String description) {
-        ledger.addTag(name, description);
+        int ID = Indexer.getInstance().generateTagID();
+        ledger.addTagWithID(ID, name, description);
+        record(j -> j.recordAddTag(ledger.getTagByID(ID)));
+        track(DirtyTracker::markTags);
+        version.incrementAndGet();
         isSaved = false;
     }
 
@@ -237,6 +381,9 @@ public class LedgerMenuController implements Controller {
     @Override
     public void addTagWithID(int ID, String name, String description) {
         ledger.addTagWithID(ID, name, description);
+        record(j -> j.recordAddTag(ledger.getTagByID(ID)));
+        track(DirtyTracker::markTags);
+        version.incrementAndGet();
         isSaved = false;
     }
 
@@ -251,6 +398,9 @@ public class LedgerMenuController implements Controller {
     @Override
     public void modifyTag(Tag t, String name, String description) {
         ledger.modifyTag(t, name, description);
+        record(j -> j.recordModifyTag(t));
+        track(DirtyTracker::markTags);
+        version.incrementAndGet();
         isSaved = false;
     }
 
@@ -262,7 +412,14 @@ public class LedgerMenuController implements Controller {
      */
     @Override
     public void removeTag(Tag t) {
+        track(d -> {
+            ledger.getTransactions(TagExpression.of(t)).forEach(tr -> d.markSegment(tr.getEpochDay()));
+            ledger.getMovements(TagExpression.of(t)).forEach(m -> d.markSegment(m.getEpochDay()));
+            d.markTags();
+        });
         ledger.removeTag(t);
+        record(j -> j.recordRemoveTag(t));
+        version.incrementAndGet();
         isSaved = false;
     }
 
@@ -276,9 +433,109 @@ public class LedgerMenuController implements Controller {
         return ledger.getTags();
     }
 
+    /**
+     * Returns the {@link Tag} of the {@link Ledger} with the given ID.
+     *
+     * @param ID the ID of the {@link Tag} to search for.
+     * @return the {@link Tag} with the given ID, or null if there is none.
+     */
+    @Override
+    public Tag getTagByID(int ID) {
+        return ledger.getTagByID(ID);
+    }
+
+    /**
+     * Returns the list of the transactions of the ledger whose tags satisfy the given {@link TagExpression}.
+     *
+     * @param expression the {@link TagExpression} to evaluate.
+     * @return the list of the matching transactions.
+     */
+    @Override
+    public List<Transaction> getTransactions(TagExpression expression) {
+        return ledger.getTransactions(expression);
+    }
+
+    /**
+     * Returns the list of the movements of the ledger whose tags satisfy the given {@link TagExpression}.
+     *
+     * @param expression the {@link TagExpression} to evaluate.
+     * @return the list of the matching movements.
+     */
+    @Override
+    public List<Movement> getMovements(TagExpression expression) {
+        return ledger.getMovements(expression);
+    }
+
+    /**
+     * Returns a lazy cursor over the movements of the ledger satisfying the given {@link LedgerQuery}.
+     *
+     * @param query the {@link LedgerQuery} to answer.
+     * @return the cursor over the matching movements.
+     */
+    @Override
+    public QueryCursor<Movement> queryMovements(LedgerQuery query) {
+        return ledger.queryMovements(query);
+    }
+
+    /**
+     * Returns a lazy cursor over the transactions of the ledger with at least one movement satisfying the
+     * given {@link LedgerQuery}.
+     *
+     * @param query the {@link LedgerQuery} to answer.
+     * @return the cursor over the matching transactions.
+     */
+    @Override
+    public QueryCursor<Transaction> queryTransactions(LedgerQuery query) {
+        return ledger.queryTransactions(query);
+    }
+
+    /**
+     * Computes the given {@link Report} on the movements of the {@link Ledger} through the {@code reportEngine}.
+     *
+     * @param report the {@link Report} to compute.
+     * @return the table of the cells of the report.
+     */
+    @Override
+    public ReportTable computeReport(Report report) {
+        return reportEngine.compute(ledger, report);
+    }
+
+    /**
+     * Returns the daily, monthly or yearly totals of all the accounts or of all the tags of the {@link Ledger}.
+     *
+     * @param key         {@code ACCOUNT} or {@code TAG}.
+     * @param granularity the length of the periods.
+     * @return the table of the totals, keyed by the ID and then by the period.
+     */
+    @Override
+    public ReportTable getRollups(Report.Key key, Granularity granularity) {
+        return ledger.getRollups(key, granularity);
+    }
+
+    /**
+     * Returns the {@link BudgetTracker} keeping the spending of the budgets of the {@link Ledger} up to date.
+     *
+     * @return the {@link BudgetTracker} of the {@link Ledger}.
+     */
+    @Override
+    public BudgetTracker getBudgetTracker() {
+        return ledger.getBudgetTracker();
+    }
+
+    /**
+     * Returns the number of movements of the ledger carrying the given {@link Tag}.
+     *
+     * @param tag the {@link Tag} to search for.
+     * @return the number of movements carrying the {@link Tag}.
+     */
+    @Override
+    public int countMovements(Tag tag) {
+        return ledger.countMovements(tag);
+    }
+
     /**
      * Allows to save all data of the application into file(s) in a specific path
-     * with the appropriate {@link ExportManager}.
+     * with the configured {@link ExportManager}, or with a {@link TextFileExporter} if none was set.
      * {@code isSaved} is set to true.
      *
      * @param path the path where to save data.
@@ -286,14 +543,78 @@ public class LedgerMenuController implements Controller {
      */
     @Override
     public void exportData(String path) throws IOException {
-        setExportManager(new TextFileExporter(this));
+        if (Objects.isNull(exportManager))
+            setExportManager(new TextFileExporter(this));
         this.exportManager.exportAll(path);
+        if (Objects.nonNull(journal)) journal.checkpoint();
         isSaved = true;
     }
 
+    /**
+     * Allows to prepare the save of all data of the application into file(s) in a specific path.
+     * If the configured {@link ExportManager}, or the {@link TextFileExporter} used if none was set,
+     * is also a {@link SnapshotWriter}, the steps take a {@link LedgerSnapshot} of the ledger, which the
+     * {@link ExportTask} then writes; if it is a {@link DeferredExporter}, its own preparation is used.
+     * In both cases, once the save has been written, the changes it contains are removed from the
+     * {@code journal}. Otherwise the data is saved at once as in {@link #exportData(String)}.
+     *
+     * @param path the path where to save data.
+     * @return the {@link ExportPreparation} of the save.
+     * @throws IOException if something goes wrong.
+     */
+    @Override
+    public ExportPreparation prepareExport(String path) throws IOException {
+        Objects.requireNonNull(path);
+        if (Objects.isNull(exportManager))
+            setExportManager(new TextFileExporter(this));
+        ExportPreparation preparation;
+        if (exportManager instanceof SnapshotWriter)
+            preparation = ExportPreparation.of(LedgerSnapshot.copier(this), (SnapshotWriter) exportManager, path);
+        else if (exportManager instanceof DeferredExporter)
+            preparation = ((DeferredExporter) exportManager).prepareExport(path);
+        else {
+            exportData(path);
+            return ExportPreparation.done(version.get());
+        }
+        return Objects.isNull(journal) ? preparation : checkpoint(preparation, journal);
+    }
+
+    /**
+     * Returns an {@link ExportPreparation} which, once the save prepared by the given one has been written,
+     * removes from the given {@link MutationJournal} the changes it contains. The journal is marked when
+     * the preparation completes, as no change can be made during the step that completes it.
+     *
+     * @param preparation the {@link ExportPreparation} of the save.
+     * @param journal     the {@link MutationJournal} of the ledger.
+     * @return the {@link ExportPreparation} of the save, which checkpoints the journal.
+     */
+    private ExportPreparation checkpoint(ExportPreparation preparation, MutationJournal journal) {
+        return new ExportPreparation() {
+            private long mark;
+
+            @Override
+            public boolean step(int count) throws IOException {
+                boolean prepared = preparation.step(count);
+                if (prepared) mark = journal.mark();
+                return prepared;
+            }
+
+            @Override
+            public ExportTask getTask() {
+                ExportTask task = preparation.getTask();
+                long mark = this.mark;
+                return () -> {
+                    long saved = task.run();
+                    journal.checkpoint(mark);
+                    return saved;
+                };
+            }
+        };
+    }
+
     /**
      * Allows to load data from specific file(s) in the given path with the
-     * appropriate {@link ImportManager}.
+     * configured {@link ImportManager}, or with a {@link TextFileImporter} if none was set.
      * {@code isSaved} is set to true.
      *
      * @param path the path from which the data is loaded.
@@ -302,11 +623,49 @@ public class LedgerMenuController implements Controller {
      */
     @Override
     public void importData(String path) throws IOException, ParseException {
-        setImportManager(new TextFileImporter(this));
-        this.importManager.importAll(path);
+        if (Objects.isNull(importManager))
+            setImportManager(new TextFileImporter(this));
+        recording = false;
+        try {
+            this.importManager.importAll(path);
+        } finally {
+            recording = true;
+        }
+        version.incrementAndGet();
+        if (Objects.nonNull(journal)) journal.checkpoint();
         isSaved = true;
     }
 
+    /**
+     * Allows to recover the data of the application after a crash: the {@link Ledger} is reset, the
+     * last saved data is loaded from the given path (if it is not null) and then all the mutations
+     * recorded by the {@link MutationJournal} since that save are applied again.
+     * {@code isSaved} is set to false if some mutation was recovered.
+     *
+     * @param path the path from which the last saved data is loaded, or null if there is none.
+     * @throws IOException    if something goes wrong.
+     * @throws ParseException if something goes wrong.
+     */
+    @Override
+    public void recoverData(String path) throws IOException, ParseException {
+        Objects.requireNonNull(journal, MESSAGE_NO_JOURNAL);
+        ledger.resetLedger();
+        recording = false;
+        int recovered;
+        try {
+            if (Objects.nonNull(path)) {
+                if (Objects.isNull(importManager))
+                    setImportManager(new TextFileImporter(this));
+                this.importManager.importAll(path);
+            }
+            recovered = journal.replay(this);
+        } finally {
+            recording = true;
+        }
+        isSaved = recovered == 0;
+        version.incrementAndGet();
+    }
+
     /**
      * Resets the {@link Ledger} and all its data.
      * {@code isSaved} is set to true.
@@ -314,9 +673,43 @@ public class LedgerMenuController implements Controller {
     @Override
     public void resetLedger() {
         ledger.resetLedger();
+        record(MutationJournal::recordReset);
+        version.incrementAndGet();
+        track(DirtyTracker::markAll);
         isSaved = true;
     }
 
+    /**
+     * Passes the {@code journal} to the given action, which records a mutation of the {@link Ledger}.
+     * Nothing is recorded if no {@link MutationJournal} was set or while data is being loaded.
+     *
+     * @param action the action recording the mutation.
+     */
+    private void record(Consumer<MutationJournal> action) {
+        if (Objects.nonNull(journal) && recording) action.accept(journal);
+    }
+
+    /**
+     * Passes the {@code tracker} to the given action, which marks the changed parts of the {@link Ledger}.
+     * Nothing is marked if no {@link DirtyTracker} was set.
+     *
+     * @param action the action marking the changed parts.
+     */
+    private void track(Consumer<DirtyTracker> action) {
+        if (Objects.nonNull(tracker)) action.accept(tracker);
+    }
+
+    /**
+     * Marks as changed the segments of all the transactions with a movement of one of the given accounts.
+     *
+     * @param tracker  the {@link DirtyTracker} to inform.
+     * @param accounts the accounts about to be removed.
+     */
+    private void markSegments(DirtyTracker tracker, Collection<? extends Account> accounts) {
+        accounts.forEach(a -> a.getMovementsList().forEach(m -> tracker.markSegment(m.getEpochDay())));
+        tracker.markAccounts();
+    }
+
     /**
      * Setter method for the {@code exportManager} field of the {@link LedgerMenuController}.
      *
@@ -337,6 +730,26 @@ public class LedgerMenuController implements Controller {
         this.importManager = importManager;
     }
 
+    /**
+     * Setter method for the {@code journal} field of the {@link LedgerMenuController}.
+     *
+     * @param journal the {@link MutationJournal} to set, or null to stop recording the mutations.
+     */
+    @Override
+    public void setJournal(MutationJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Setter method for the {@code tracker} field of the {@link LedgerMenuController}.
+     *
+     * @param tracker the {@link DirtyTracker} to set, or null to stop tracking the changes.
+     */
+    @Override
+    public void setDirtyTracker(DirtyTracker tracker) {
+        this.tracker = tracker;
+    }
+
     /**
      * Getter method for the {@code isSaved} field of the {@link LedgerMenuController}.
      *
@@ -346,4 +759,14 @@ public class LedgerMenuController implements Controller {
     public boolean getIsSaved() {
         return isSaved;
     }
+
+    /**
+     * Getter method for the {@code version} field of the {@link LedgerMenuController}.
+     *
+     * @return the number of changes made to the {@link Ledger}.
+     */
+    @Override
+    public long getVersion() {
+        return version.get();
+    }
 }
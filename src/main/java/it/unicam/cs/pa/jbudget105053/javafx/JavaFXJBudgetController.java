@@ -1,11 +1,14 @@
 package it.unicam.cs.pa.jbudget105053.javafx;
 
+import it.unicam.cs.pa.jbudget105053.persistence.AutosaveService;
 import it.unicam.cs.pa.jbudget105053.persistence.ExportManager;
 import it.unicam.cs.pa.jbudget105053.persistence.ImportManager;
 import it.unicam.cs.pa.jbudget105053.controller.Controller;
 import it.unicam.cs.pa.jbudget105053.controller.LedgerMenuController;
 import it.unicam.cs.pa.jbudget105053.model.*;
+import javafx.application.Platform;
 import javafx.beans.property.SimpleObjectProperty;
+import javafx.collections.FXCollections;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.stage.DirectoryChooser;
@@ -13,7 +16,6 @@ import javafx.stage.DirectoryChooser;
 import java.io.File;
 import java.io.IOException;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.Collection;
 import java.util.Objects;
 
@@ -25,7 +27,9 @@ import java.util.Objects;
  * @author Tommaso Catervi
  */
 public class JavaFXJBudgetController implements JavaFXController {
+    private static final long AUTOSAVE_DELAY = 2000;
     private final Controller controller = new LedgerMenuController();
+    private final AutosaveService autosave = new AutosaveService(controller, Platform::runLater, AUTOSAVE_DELAY);
 
     /**
      * The string error message for trying to remove or modify an {@link Account} or create a {@link Transaction}
@@ -65,6 +69,13 @@ public class JavaFXJBudgetController implements JavaFXController {
      */
     public static final String MESSAGE_ASK_EXIT_CONFIRMATION = "Sei sicuro di voler uscire dall'app? :(";
 
+    /**
+     * Constructs a new {@link JavaFXJBudgetController}, whose saves are reported by {@link #saveCompleted}.
+     */
+    public JavaFXJBudgetController() {
+        autosave.setListener(this::saveCompleted);
+    }
+
     // All buttons
     @FXML
     Button exportButton;
@@ -176,7 +187,7 @@ public class JavaFXJBudgetController implements JavaFXController {
      * saving it, false otherwise.
      */
     private boolean controlIsSaved() {
-        if (!controller.getIsSaved())
+        if (!controller.getIsSaved() && !autosave.isSaved())
             return createConfirmationAlert(MESSAGE_NOT_SAVED);
         return true;
     }
@@ -208,22 +219,42 @@ public class JavaFXJBudgetController implements JavaFXController {
 
     /**
      * Allows to save all data of the application to a default path or a chosen path
-     * depending on what the user chose.
+     * depending on what the user chose. The data is written in the background by the
+     * {@code autosave} service, so the window is never blocked.
      */
     @FXML
     public void exportAction() {
         try {
             if (useDefaultPathRadioButton.isSelected())
-                controller.exportData(controlDefaultPath());
+                autosave.save(controlDefaultPath());
             else
-                controller.exportData(getPath());
+                autosave.save(getPath());
         } catch (NullPointerException e) {
             createErrorAlert(e.getMessage());
-        } catch (IOException e) {
-            createErrorAlert(ExportManager.MESSAGE_FAILED_EXPORT);
         }
     }
 
+    /**
+     * Reports the end of a save made by the {@code autosave} service, showing an error
+     * if it failed. This method is called on the JavaFX application thread.
+     *
+     * @param failure the exception that made the save fail, or null if it succeeded.
+     */
+    private void saveCompleted(IOException failure) {
+        if (Objects.nonNull(failure))
+            createErrorAlert(ExportManager.MESSAGE_FAILED_EXPORT);
+    }
+
+    /**
+     * Requests the {@code autosave} service to save the data in the default path, if the user chose one.
+     * Bursts of changes are saved only once.
+     */
+    private void requestAutosave() {
+        if (useDefaultPathRadioButton.isSelected() && Objects.nonNull(defaultPathTextField.getText())
+                && !defaultPathTextField.getText().isEmpty())
+            autosave.requestSave(defaultPathTextField.getText());
+    }
+
     /**
      * Controls that the text value of {@code defaultPathTextField} is not null
      * and returns it.
@@ -479,11 +510,12 @@ public class JavaFXJBudgetController implements JavaFXController {
 
     /**
      * Refreshes the transactions table content.
+     * The table gets its own modifiable copy of the list of the ledger, which is unmodifiable,
+     * so that it can be sorted by clicking the headers of the columns.
      */
     private void refreshTransaction() {
         populateTransactionTableView();
-        transactionListTableView.getItems().clear();
-        transactionListTableView.getItems().addAll(controller.getTransactions());
+        transactionListTableView.setItems(FXCollections.observableArrayList(controller.getTransactions()));
     }
 
     /**
@@ -493,7 +525,7 @@ public class JavaFXJBudgetController implements JavaFXController {
     private void populateTransactionTableView() {
         transactionIDColumn.setCellValueFactory(trans -> new SimpleObjectProperty<>(trans.getValue().getID()));
         transactionAmountColumn.setCellValueFactory(trans -> new SimpleObjectProperty<>("\u20ac " + trans.getValue().getTotalAmount()));
-        transactionDateColumn.setCellValueFactory(trans -> new SimpleObjectProperty<>(new SimpleDateFormat("dd-MM-yyyy").format(trans.getValue().getDate())));
+        transactionDateColumn.setCellValueFactory(trans -> new SimpleObjectProperty<>(EpochDays.format(trans.getValue().getEpochDay())));
         transactionTagColumn.setCellValueFactory(trans -> new SimpleObjectProperty<>(trans.getValue().getTag().toString()));
     }
 
@@ -514,7 +546,7 @@ public class JavaFXJBudgetController implements JavaFXController {
         movementIDColumn.setCellValueFactory(mov -> new SimpleObjectProperty<>(mov.getValue().getID()));
         movementTypeColumn.setCellValueFactory(mov -> new SimpleObjectProperty<>(mov.getValue().getMovementType()));
         movementAmountColumn.setCellValueFactory(mov -> new SimpleObjectProperty<>("\u20ac " + mov.getValue().getAmount()));
-        movementDateColumn.setCellValueFactory(mov -> new SimpleObjectProperty<>(new SimpleDateFormat("dd-MM-yyyy").format(mov.getValue().getMovementDate())));
+        movementDateColumn.setCellValueFactory(mov -> new SimpleObjectProperty<>(EpochDays.format(mov.getValue().getEpochDay())));
         movementAccountColumn.setCellValueFactory(mov -> new SimpleObjectProperty<>(mov.getValue().getAccount()));
         movementTagColumn.setCellValueFactory(mov -> new SimpleObjectProperty<>(mov.getValue().getTag().toString()));
     }
@@ -544,14 +576,14 @@ public class JavaFXJBudgetController implements JavaFXController {
     }
 
     /**
-     * Refresh the content of all tables.
+     * Refresh the content of all tables and requests to save the changes in the default path.
      * The movements table is cleared instead.
-     * isSaved is set to false.
      */
     private void refreshAll() {
         refreshTransaction();
         refreshAccount();
         refreshTag();
         movementsListTableView.getItems().clear();
+        requestAutosave();
     }
 }
\ No newline at end of file
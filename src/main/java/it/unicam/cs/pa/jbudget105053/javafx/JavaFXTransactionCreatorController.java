@@ -8,7 +8,6 @@ import javafx.fxml.FXML;
 import javafx.scene.control.*;
 
 import java.io.IOException;
-import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.Objects;
 
@@ -234,7 +233,7 @@ public class JavaFXTransactionCreatorController implements JavaFXEditor, JavaFXC
         movementIDColumn.setCellValueFactory(mov -> new SimpleObjectProperty<>(mov.getValue().getID()));
         movementTypeColumn.setCellValueFactory(mov -> new SimpleObjectProperty<>(mov.getValue().getMovementType()));
         movementAmountColumn.setCellValueFactory(mov -> new SimpleObjectProperty<>(mov.getValue().getAmount()));
-        movementDateColumn.setCellValueFactory(mov -> new SimpleObjectProperty<>(new SimpleDateFormat("dd-MM-yyyy").format(mov.getValue().getMovementDate())));
+        movementDateColumn.setCellValueFactory(mov -> new SimpleObjectProperty<>(EpochDays.format(mov.getValue().getEpochDay())));
         movementTransactionColumn.setCellValueFactory(mov -> new SimpleObjectProperty<>(mov.getValue().getTransaction().getID()));
         movementAccountColumn.setCellValueFactory(mov -> new SimpleObjectProperty<>(mov.getValue().getAccount().getName()));
         movementTagColumn.setCellValueFactory(mov -> new SimpleObjectProperty<>(mov.getValue().getTag().toString()));
@@ -273,7 +272,7 @@ public class JavaFXTransactionCreatorController implements JavaFXEditor, JavaFXC
     private Date controlData() {
         if (Objects.isNull(transactionDatePicker.getValue()))
             throw new NullPointerException(MESSAGE_WRONG_DATE);
-        return java.sql.Date.valueOf(transactionDatePicker.getValue());
+        return EpochDays.toDate((int) transactionDatePicker.getValue().toEpochDay());
     }
 
     /**
@@ -284,8 +283,8 @@ public class JavaFXTransactionCreatorController implements JavaFXEditor, JavaFXC
     @FXML
     private void updateDate() {
         if (!Objects.isNull(getNewTransaction()))
-            if (!java.sql.Date.valueOf(transactionDatePicker.getValue()).equals(getNewTransaction().getDate())) {
-                getNewTransaction().setDate(java.sql.Date.valueOf(transactionDatePicker.getValue()));
+            if (transactionDatePicker.getValue().toEpochDay() != getNewTransaction().getEpochDay()) {
+                getNewTransaction().setDate(EpochDays.toDate((int) transactionDatePicker.getValue().toEpochDay()));
                 refreshTransactionMovements();
             }
     }
@@ -1,5 +1,6 @@
 package it.unicam.cs.pa.jbudget105053.model;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.function.Predicate;
 
@@ -46,6 +47,16 @@ public interface Account extends HasID {
      */
     String MESSAGE_ACCOUNT_DOES_NOT_EXIST = "L'account passato non e' contenuto nella lista.";
 
+    /**
+     * The string error message for when a null date is passed.
+     */
+    String MESSAGE_NULL_DATE = "La data passata e' nulla, ergo non valida.";
+
+    /**
+     * The string error message for when the start of a period is after its end.
+     */
+    String MESSAGE_WRONG_PERIOD = "La data iniziale del periodo e' successiva a quella finale.";
+
     /**
      * Getter method for the {@code name} field of the {@link Account}.
      *
@@ -97,12 +108,31 @@ public interface Account extends HasID {
     void setInitialBalance(double initialBalance);
 
     /**
-     * Getter method for the {@code balance} field of the {@link Account}.
+     * Returns the current balance of the {@link Account}.
      *
-     * @return the {@code balance} field of the {@link Account}.
+     * @return the current balance of the {@link Account}.
      */
     double getBalance();
 
+    /**
+     * Returns the balance the {@link Account} had at the end of the given day, that is the
+     * initial balance plus the variation of all the movements dated on or before that day.
+     *
+     * @param date the day to consider.
+     * @return the balance of the {@link Account} at the end of the given day.
+     */
+    double getBalanceAt(LocalDate date);
+
+    /**
+     * Returns the total variation of the movements of the {@link Account} dated between the two
+     * given days, both included.
+     *
+     * @param from the first day of the period.
+     * @param to   the last day of the period.
+     * @return the total variation of the movements in the given period.
+     */
+    double getVariation(LocalDate from, LocalDate to);
+
     /**
      * Getter method for the movements list of the {@link Account}.
      *
@@ -125,4 +155,12 @@ public interface Account extends HasID {
      * @param movement the movement to be added.
      */
     void addMovement(Movement movement);
+
+    /**
+     * Allows to remove a {@link Movement} from the {@code movementsList}.
+     *
+     * @param movement the movement to be removed.
+     * @return true if the movement was contained in the {@code movementsList}, false otherwise.
+     */
+    boolean removeMovement(Movement movement);
 }
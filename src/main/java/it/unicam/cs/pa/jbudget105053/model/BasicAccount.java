@@ -1,6 +1,6 @@
 package it.unicam.cs.pa.jbudget105053.model;
 
-import java.time.Instant;
+import java.time.LocalDate;
 import java.util.*;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
@@ -10,6 +10,9 @@ import java.util.stream.Collectors;
  * It allows to get the main information from the account: ID, type of the account, name and initial balance.
  * It also allows to calculate the current balance and it is possible to view the entire list of movements
  * associated with this account as well as a list of all movements that satisfy a particular predicate.
+ * The initial balance and the variations are kept in cents, so balances are exact.
+ * The methods that read or change the balance and the movements are synchronized, so the balance
+ * can be read while another thread adds movements to this account.
  *
  * @author Tommaso Catervi
  */
@@ -17,9 +20,10 @@ public class BasicAccount implements Account {
     private final int ID;
     private AccountType accountType;
     private String name;
-    private double initialBalance;
-    private double balance;
-    private final List<Movement> movementsList = new LinkedList<>();
+    private long initialBalance;
+    private final Set<Movement> movementsSet = new LinkedHashSet<>();
+    private List<Movement> movementsView;
+    private final DailyVariationIndex variationIndex = new DailyVariationIndex();
 
     /**
      * Constructs a {@link BasicAccount} with the given parameters after having controlled them.
@@ -33,7 +37,7 @@ public class BasicAccount implements Account {
         this.ID = controlID(ID);
         this.accountType = controlType(accountType);
         this.name = controlName(name).toUpperCase();
-        this.initialBalance = controlInitialBalance(initialBalance);
+        this.initialBalance = Money.toCents(controlInitialBalance(initialBalance));
     }
 
     /**
@@ -140,8 +144,8 @@ public class BasicAccount implements Account {
      * @return the initialBalance of this {@link BasicAccount}.
      */
     @Override
-    public double getInitialBalance() {
-        return initialBalance;
+    public synchronized double getInitialBalance() {
+        return Money.toAmount(initialBalance);
     }
 
     /**
@@ -150,89 +154,133 @@ public class BasicAccount implements Account {
      * @param initialBalance the new initial balance to set.
      */
     @Override
-    public void setInitialBalance(double initialBalance) {
-        this.initialBalance = controlInitialBalance(initialBalance);
+    public synchronized void setInitialBalance(double initialBalance) {
+        this.initialBalance = Money.toCents(controlInitialBalance(initialBalance));
     }
 
     /**
-     * Getter method for the {@code balance} field of this {@link BasicAccount}.
-     * Returns the balance after having calculated it using the private method
-     * {@code generateBalance()}.
+     * Returns the current balance of this {@link BasicAccount}.
+     * The balance is equal to the {@code initialBalance} incremented or decremented with the
+     * total variation of the movements dated up to today, depending on the {@link AccountType}
+     * of this {@link BasicAccount}.
+     * The total variation up to today is read from the {@code variationIndex} in logarithmic time,
+     * so the movements dated in the future are counted as soon as their day comes.
      *
      * @return the balance of this {@link BasicAccount}.
      */
     @Override
-    public double getBalance() {
-        generateBalance();
-        return balance;
+    public synchronized double getBalance() {
+        return applyVariation(variationIndex.sumUpTo(EpochDays.today()));
+    }
+
+    /**
+     * Returns the balance this {@link BasicAccount} had at the end of the given day.
+     * The total variation up to that day is read from the {@code variationIndex} in
+     * logarithmic time.
+     *
+     * @param date the day to consider.
+     * @return the balance of this {@link BasicAccount} at the end of the given day.
+     */
+    @Override
+    public synchronized double getBalanceAt(LocalDate date) {
+        return applyVariation(variationIndex.sumUpTo(controlDate(date).toEpochDay()));
     }
 
     /**
-     * Calculates the current value of the {@code balance} field in the {@link BasicAccount}.
-     * The value of the {@code balance} field is being set equal to the value of {@code initialBalance}
-     * and then incremented or decremented with the total variation of the movements depending on the
-     * {@link AccountType} of this {@link BasicAccount}.
+     * Returns the balance obtained by incrementing or decrementing the {@code initialBalance}
+     * with the given variation, depending on the {@link AccountType} of this {@link BasicAccount}.
+     *
+     * @param variation the variation in cents.
+     * @return the resulting balance.
      */
-    private void generateBalance() {
-        balance = initialBalance;
-        if (accountType == AccountType.ASSET)
-            balance += calculateMovementsTotalVariation();
+    private double applyVariation(long variation) {
         if (accountType == AccountType.LIABILITY)
-            balance -= calculateMovementsTotalVariation();
+            return Money.toAmount(initialBalance - variation);
+        return Money.toAmount(initialBalance + variation);
+    }
+
+    /**
+     * Returns the total variation of the movements of this {@link BasicAccount} dated between
+     * the two given days, both included. It is read from the {@code variationIndex} in
+     * logarithmic time.
+     *
+     * @param from the first day of the period.
+     * @param to   the last day of the period.
+     * @return the total variation of the movements in the given period.
+     */
+    @Override
+    public synchronized double getVariation(LocalDate from, LocalDate to) {
+        if (controlDate(from).isAfter(controlDate(to)))
+            throw new IllegalArgumentException(Account.MESSAGE_WRONG_PERIOD);
+        return Money.toAmount(variationIndex.sumBetween(from.toEpochDay(), to.toEpochDay()));
     }
 
     /**
-     * Calculates the current total variation of the movements of this {@link BasicAccount}.
+     * Controls that the given date is not null.
      *
-     * @return the current total variation of the movements.
+     * @param date the value to control.
+     * @return the controlled date.
      */
-    private double calculateMovementsTotalVariation() {
-        double variation = 0;
-        for (Movement movement : movementsList) {
-            if (movement.getMovementDate().compareTo(Date.from(Instant.now())) < 0) {
-                if (movement.getMovementType().equals(MovementType.INCREMENT))
-                    variation += movement.getAmount();
-                if (movement.getMovementType().equals(MovementType.DECREMENT))
-                    variation -= movement.getAmount();
-            }
-        }
-        return variation;
+    private LocalDate controlDate(LocalDate date) {
+        if (Objects.isNull(date))
+            throw new NullPointerException(Account.MESSAGE_NULL_DATE);
+        return date;
     }
 
     /**
-     * Getter method for the list {@code movementList} which contains all the {@link Movement}
-     * associated with this {@link BasicAccount}.
+     * Returns an unmodifiable list of all the {@link Movement} associated with this
+     * {@link BasicAccount}, in the order they were added.
      *
-     * @return the {@code movementsList} of this {@link BasicAccount}.
+     * @return the movements list of this {@link BasicAccount}.
      */
     @Override
-    public List<Movement> getMovementsList() {
-        return movementsList;
+    public synchronized List<Movement> getMovementsList() {
+        if (Objects.isNull(movementsView))
+            movementsView = Collections.unmodifiableList(new ArrayList<>(movementsSet));
+        return movementsView;
     }
 
     /**
-     * Returns the List {@code movementList} after filtering it according to the
-     * {@link Predicate} {@code p}.
+     * Returns the list of all the movements of this {@link BasicAccount} after filtering it
+     * according to the {@link Predicate} {@code p}.
      *
-     * @return the filtered {@code movementsList}.
+     * @return the filtered movements list.
      */
     @Override
-    public List<Movement> getMovementsList(Predicate<Movement> p) {
-        return movementsList.stream().filter(p).collect(Collectors.toList());
+    public synchronized List<Movement> getMovementsList(Predicate<Movement> p) {
+        return movementsSet.stream().filter(p).collect(Collectors.toList());
     }
 
     /**
-     * Allows to add a new {@link Movement} to the {@code movementsList} in
-     * the {@link BasicAccount} as long as it is not null and it is not already
-     * contained in the {@code movementsList}.
+     * Allows to add a new {@link Movement} to this {@link BasicAccount} as long as it is not
+     * null and it is not already associated with this {@link BasicAccount}.
+     * Its variation is added to the {@code variationIndex} on its day, so it only counts in the
+     * balance from that day on.
      *
      * @param movement the new {@link Movement} to add.
      */
     @Override
-    public void addMovement(Movement movement) {
-        if (movementsList.contains(controlMovement(movement)))
+    public synchronized void addMovement(Movement movement) {
+        if (!movementsSet.add(controlMovement(movement)))
             throw new IllegalArgumentException(MovementException.MESSAGE_MOVEMENT_ALREADY_EXISTS);
-        movementsList.add(movement);
+        movementsView = null;
+        variationIndex.add(movement.getEpochDay(), movement.getSignedCents());
+    }
+
+    /**
+     * Allows to remove a {@link Movement} from this {@link BasicAccount}, taking its variation
+     * back from the {@code variationIndex}.
+     *
+     * @param movement the {@link Movement} to remove.
+     * @return true if the {@link Movement} was associated with this {@link BasicAccount}, false otherwise.
+     */
+    @Override
+    public synchronized boolean removeMovement(Movement movement) {
+        if (!movementsSet.remove(controlMovement(movement)))
+            return false;
+        movementsView = null;
+        variationIndex.add(movement.getEpochDay(), -movement.getSignedCents());
+        return true;
     }
 
     /**
@@ -1,7 +1,8 @@
 package it.unicam.cs.pa.jbudget105053.model;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Objects;
 
@@ -9,16 +10,18 @@ import java.util.Objects;
  * This class implements the interface {@link Movement} and has the responsibility of managing a single basic
  * movement. It allows to get the information related to the movement: ID, type of movement, money amount, date,
  * associated account, associated transaction and the list of all the tags associated with the movement.
- * Each movement derives its date from the transaction it is associated with.
+ * Each movement derives its date from the transaction it is associated with and keeps it as an epoch day.
+ * The tags list is only allocated when the first {@link Tag} is added. The amount is kept in cents
+ * and its sign encodes the {@link MovementType}.
  *
  * @author Tommaso Catervi
  */
 public class BasicMovement implements Movement {
+    private static final int NO_DAY = Integer.MIN_VALUE;
     private final int ID;
-    private final MovementType movementType;
-    private final double amount;
-    private Date movementDate;
-    private final List<Tag> tagsList = new LinkedList<>();
+    private final long signedCents;
+    private int movementDay = NO_DAY;
+    private List<Tag> tagsList;
     private Transaction transaction;
     private final Account account;
 
@@ -32,8 +35,7 @@ public class BasicMovement implements Movement {
      */
     public BasicMovement(int ID, MovementType movementType, double amount, Account account) {
         this.ID = controlID(ID);
-        this.movementType = controlType(movementType);
-        this.amount = controlAmount(amount);
+        this.signedCents = Money.toSignedCents(controlType(movementType), controlAmount(amount));
         this.account = controlAccount(account);
     }
 
@@ -63,13 +65,13 @@ public class BasicMovement implements Movement {
     }
 
     /**
-     * Controls that the given amount is not smaller than or equal to zero.
+     * Controls that the given amount is not smaller than a cent.
      *
      * @param amount the value to control.
      * @return the controlled amount.
      */
     private double controlAmount(double amount) {
-        if (amount <= 0)
+        if (Money.toCents(amount) <= 0)
             throw new IllegalArgumentException(MovementException.MESSAGE_NEGATIVE_AMOUNT);
         return amount;
     }
@@ -109,33 +111,54 @@ public class BasicMovement implements Movement {
     }
 
     /**
-     * Getter method for the {@code movementType} field in the {@link BasicMovement}.
+     * Returns the type of this {@link BasicMovement}, given by the sign of its amount.
      *
      * @return the type of this {@link BasicMovement}.
      */
     @Override
     public MovementType getMovementType() {
-        return movementType;
+        return signedCents < 0 ? MovementType.DECREMENT : MovementType.INCREMENT;
     }
 
     /**
-     * Getter method for the {@code amount} field in the {@link BasicMovement}.
+     * Returns the positive amount of this {@link BasicMovement}.
      *
      * @return the amount of this {@link BasicMovement}.
      */
     @Override
     public double getAmount() {
-        return amount;
+        return Money.toAmount(Math.abs(signedCents));
+    }
+
+    /**
+     * Getter method for the {@code signedCents} field in the {@link BasicMovement}.
+     *
+     * @return the signed amount in cents of this {@link BasicMovement}.
+     */
+    @Override
+    public long getSignedCents() {
+        return signedCents;
     }
 
     /**
-     * Getter method for the {@code movementDate} field in the {@link BasicMovement}.
+     * Returns the date of this {@link BasicMovement}, set to the start of the {@code movementDay},
+     * or null if the {@link BasicMovement} has not been added to a {@link Transaction} yet.
      *
      * @return the date of this {@link BasicMovement}.
      */
     @Override
     public Date getMovementDate() {
-        return movementDate;
+        return movementDay == NO_DAY ? null : EpochDays.toDate(movementDay);
+    }
+
+    /**
+     * Getter method for the {@code movementDay} field in the {@link BasicMovement}.
+     *
+     * @return the epoch day of this {@link BasicMovement}.
+     */
+    @Override
+    public int getEpochDay() {
+        return movementDay;
     }
 
     /**
@@ -146,7 +169,7 @@ public class BasicMovement implements Movement {
      */
     @Override
     public List<Tag> getTag() {
-        return tagsList;
+        return Objects.isNull(tagsList) ? Collections.emptyList() : tagsList;
     }
 
     /**
@@ -157,8 +180,10 @@ public class BasicMovement implements Movement {
      */
     @Override
     public void addTag(Tag t) {
-        if (tagsList.contains(controlTag(t)))
+        if (getTag().contains(controlTag(t)))
             throw new IllegalArgumentException(Tag.MESSAGE_TAG_ALREADY_EXISTS);
+        if (Objects.isNull(tagsList))
+            tagsList = new ArrayList<>(1);
         tagsList.add(t);
     }
 
@@ -170,7 +195,7 @@ public class BasicMovement implements Movement {
      */
     @Override
     public void removeTag(Tag t) {
-        if (!tagsList.contains(controlTag(t)))
+        if (!getTag().contains(controlTag(t)))
             throw new IllegalArgumentException(Tag.MESSAGE_TAG_DOES_NOT_EXIST);
         tagsList.remove(t);
     }
@@ -209,13 +234,13 @@ public class BasicMovement implements Movement {
     }
 
     /**
-     * Setter method for the {@code movementDate} field in the {@link BasicMovement}.
+     * Setter method for the {@code movementDay} field in the {@link BasicMovement}.
      *
      * @param movementDate the new date to set.
      */
     @Override
     public void setDate(Date movementDate) {
-        this.movementDate = controlDate(movementDate);
+        this.movementDay = EpochDays.toEpochDay(controlDate(movementDate));
     }
 
     /**
@@ -241,7 +266,8 @@ public class BasicMovement implements Movement {
     }
 
     /**
-     * Two {@link BasicMovement} objects are equal if they have the same {@code ID}.
+     * A {@link BasicMovement} is equal to any {@link Movement} with the same {@code ID}, so that
+     * it is also equal to the views handed out by a {@link MovementStore}.
      *
      * @param o the object compared to this.
      * @return true if this object is equal to the given object, false otherwise.
@@ -249,9 +275,8 @@ public class BasicMovement implements Movement {
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
-        BasicMovement that = (BasicMovement) o;
-        return ID == that.ID;
+        if (!(o instanceof Movement)) return false;
+        return ID == ((Movement) o).getID();
     }
 
     @Override
@@ -268,7 +293,7 @@ public class BasicMovement implements Movement {
     @Override
     public String getTagsID() {
         String stringIDs = "";
-        for (Tag t : tagsList) {
+        for (Tag t : getTag()) {
             stringIDs = stringIDs.concat(t.getID() + ",");
         }
         return stringIDs;
@@ -277,8 +302,8 @@ public class BasicMovement implements Movement {
     @Override
     public String toString() {
         return ID + ") " +
-                "Tipo: " + movementType +
-                ", Importo: \u20ac" + amount +
+                "Tipo: " + getMovementType() +
+                ", Importo: \u20ac" + getAmount() +
                 ", " + "Account: " + account.getName();
     }
 }
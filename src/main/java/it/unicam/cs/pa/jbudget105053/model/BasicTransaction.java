@@ -1,6 +1,5 @@
 package it.unicam.cs.pa.jbudget105053.model;
 
-import java.text.SimpleDateFormat;
 import java.util.*;
 
 /**
@@ -8,26 +7,29 @@ import java.util.*;
  * It allows to get the information related to the transaction: ID, date, total money amount, list of all the
  * movements associated with the transaction and the list of all the tags associated to the transaction.
  * The value obtainable with the method {@code getTotalAmount()} represents the total variation of the movements
- * of the transaction.
+ * of the transaction. Transactions without tags do not allocate a tags list, and the movements are kept in an
+ * array list sized for a single {@link Movement}, since most transactions have one or two. The date is kept
+ * as an epoch day, so only the day of the given dates is retained.
  *
  * @author Tommaso Catervi
  */
 public class BasicTransaction implements Transaction {
     private final int ID;
-    private final List<Movement> movementsList = new LinkedList<>();
-    private final List<Tag> tagsList = new LinkedList<>();
-    private Date transactionDate;
+    private final List<Movement> movementsList = new ArrayList<>(1);
+    private List<Tag> tagsList;
+    private int transactionDay;
     private double totalAmount;
+    private boolean stored;
 
     /**
      * Constructs a {@link BasicTransaction} with the given parameters after having controlled them.
      *
      * @param ID   the value used to set the {@code ID} field of the {@link BasicTransaction}.
-     * @param date the value used to set the {@code transactionDate} field of the {@link BasicTransaction}.
+     * @param date the value used to set the {@code transactionDay} field of the {@link BasicTransaction}.
      */
     public BasicTransaction(int ID, Date date) {
         this.ID = controlID(ID);
-        this.transactionDate = controlDate(date);
+        this.transactionDay = EpochDays.toEpochDay(controlDate(date));
     }
 
     /**
@@ -107,7 +109,7 @@ public class BasicTransaction implements Transaction {
         if (!movementsList.contains(controlMovement(movement)))
             throw new IllegalArgumentException(MovementException.MESSAGE_MOVEMENT_DOES_NOT_EXIST);
         movementsList.remove(movement);
-        movement.getAccount().getMovementsList().remove(movement);
+        movement.getAccount().removeMovement(movement);
     }
 
     /**
@@ -130,7 +132,7 @@ public class BasicTransaction implements Transaction {
      */
     @Override
     public List<Tag> getTag() {
-        return tagsList;
+        return Objects.isNull(tagsList) ? Collections.emptyList() : tagsList;
     }
 
     /**
@@ -143,12 +145,14 @@ public class BasicTransaction implements Transaction {
      */
     @Override
     public void addTag(Tag t) {
-        if (tagsList.contains(controlTag(t)))
+        if (getTag().contains(controlTag(t)))
             throw new IllegalArgumentException(Tag.MESSAGE_TAG_ALREADY_EXISTS);
-        tagsList.add(t);
         movementsList.forEach(m -> {
             if (!m.getTag().contains(t)) m.addTag(t);
         });
+        if (Objects.isNull(tagsList))
+            tagsList = new ArrayList<>(1);
+        tagsList.add(t);
     }
 
     /**
@@ -161,10 +165,12 @@ public class BasicTransaction implements Transaction {
      */
     @Override
     public void removeTag(Tag t) {
-        if (!tagsList.contains(controlTag(t)))
+        if (!getTag().contains(controlTag(t)))
             throw new IllegalArgumentException(Tag.MESSAGE_TAG_DOES_NOT_EXIST);
+        movementsList.forEach(m -> {
+            if (m.getTag().contains(t)) m.removeTag(t);
+        });
         tagsList.remove(t);
-        movementsList.forEach(m -> m.getTag().removeIf(tag -> tag.equals(t)));
     }
 
     /**
@@ -188,33 +194,68 @@ public class BasicTransaction implements Transaction {
     @Override
     public String getTagsID() {
         String stringIDs = "";
-        for (Tag t : tagsList) {
+        for (Tag t : getTag()) {
             stringIDs = stringIDs.concat(t.getID() + ",");
         }
         return stringIDs;
     }
 
     /**
-     * Getter method for the {@code transactionDate} field in the {@link BasicTransaction}.
+     * Returns the date of this {@link BasicTransaction}, set to the start of the {@code transactionDay}.
      *
      * @return the date of this {@link BasicTransaction}.
      */
     @Override
     public Date getDate() {
-        return transactionDate;
+        return EpochDays.toDate(transactionDay);
     }
 
     /**
-     * Setter method for the {@code transactionDate} field in the {@link BasicTransaction}.
+     * Getter method for the {@code transactionDay} field in the {@link BasicTransaction}.
+     *
+     * @return the epoch day of this {@link BasicTransaction}.
+     */
+    @Override
+    public int getEpochDay() {
+        return transactionDay;
+    }
+
+    /**
+     * Setter method for the {@code transactionDay} field in the {@link BasicTransaction}.
      * When the date is changed, all movements associated with this {@link BasicTransaction}
-     * gets their date changed to the same date too.
+     * gets their date changed to the same date too. Movements already added to their
+     * {@link Account} are added to it again so that its balance takes the new date into account.
+     * The date of the movements is changed first, so if one of them refuses the change, like the movements
+     * stored in an {@link IndexedLedger}, the date of this {@link BasicTransaction} is left unchanged.
+     * The date of a {@link BasicTransaction} stored in an {@link IndexedLedger} cannot be changed even if
+     * it has no movements, because the ledger indexes it by date.
      *
      * @param d the new date to set.
      */
     @Override
     public void setDate(Date d) {
-        transactionDate = controlDate(d);
-        movementsList.forEach(m -> m.setDate(d));
+        if (stored)
+            throw new IllegalStateException(Transaction.MESSAGE_STORED_TRANSACTION);
+        int day = EpochDays.toEpochDay(controlDate(d));
+        movementsList.forEach(m -> {
+            boolean registered = m.getAccount().removeMovement(m);
+            try {
+                m.setDate(d);
+            } finally {
+                if (registered) m.getAccount().addMovement(m);
+            }
+        });
+        transactionDay = day;
+    }
+
+    /**
+     * Setter method for the {@code stored} field in the {@link BasicTransaction}. It is meant for the
+     * {@link IndexedLedger}, which marks the transactions it indexes by date.
+     *
+     * @param stored true if this {@link BasicTransaction} is stored in an {@link IndexedLedger}, false otherwise.
+     */
+    void setStored(boolean stored) {
+        this.stored = stored;
     }
 
     /**
@@ -233,18 +274,14 @@ public class BasicTransaction implements Transaction {
     /**
      * Calculates the current value of the {@code totalAmount} field in the {@link BasicTransaction}
      * which is the total variation of all the movements of the {@link BasicTransaction}.
-     * It is being set to zero and then incremented or decremented with the {@code amount} of each
-     * {@link Movement} contained in the {@code movementList} depending on the {@link MovementType} of
-     * the {@link Movement}.
+     * It is the exact sum of the signed amounts in cents of the movements contained in the
+     * {@code movementList}, whose sign already tells increments from decrements.
      */
     private void generateTotalAmount() {
-        totalAmount = 0;
-        for (Movement movement : movementsList) {
-            if (movement.getMovementType().equals(MovementType.INCREMENT))
-                totalAmount += movement.getAmount();
-            if (movement.getMovementType().equals(MovementType.DECREMENT))
-                totalAmount -= movement.getAmount();
-        }
+        long total = 0;
+        for (Movement movement : movementsList)
+            total += movement.getSignedCents();
+        totalAmount = Money.toAmount(total);
     }
 
     /**
@@ -269,7 +306,7 @@ public class BasicTransaction implements Transaction {
     @Override
     public String toString() {
         return ID + ") Data: " +
-                new SimpleDateFormat("dd-MM-yyyy").format(transactionDate) +
+                EpochDays.format(transactionDay) +
                 ", Variazione totale: \u20ac" + getTotalAmount();
     }
 }
@@ -0,0 +1,159 @@
+package it.unicam.cs.pa.jbudget105053.model;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * This class has the responsibility to describe a budget: a limit to the sum of the decrements of an
+ * {@link Account} or of the movements carrying a {@link Tag} in each period of a given {@link Granularity},
+ * for example 300 a month for the tag of the groceries. A budget also has the thresholds, as fractions of the
+ * limit, at which the listeners of the {@link BudgetTracker} are notified; by default the limit itself.
+ * A {@link Budget} is immutable: the {@code with} methods return a copy with the given value changed.
+ *
+ * @author Tommaso Catervi
+ */
+public final class Budget {
+    /**
+     * The string error message for when a limit is not valid.
+     */
+    public static final String MESSAGE_WRONG_LIMIT = "Il limite del budget deve essere maggiore di zero.";
+
+    /**
+     * The string error message for when a threshold is not valid.
+     */
+    public static final String MESSAGE_WRONG_THRESHOLDS = "Le soglie del budget devono essere maggiori di zero.";
+
+    private final Report.Key key;
+    private final int targetID;
+    private final Granularity granularity;
+    private final long limitCents;
+    private final double[] thresholds;
+
+    /**
+     * Constructs a new {@link Budget} with the given parameters.
+     *
+     * @param key         {@code ACCOUNT} or {@code TAG}.
+     * @param targetID    the ID of the {@link Account} or of the {@link Tag}.
+     * @param granularity the length of the periods.
+     * @param limitCents  the limit of each period in cents.
+     * @param thresholds  the sorted thresholds, as fractions of the limit.
+     */
+    private Budget(Report.Key key, int targetID, Granularity granularity, long limitCents, double[] thresholds) {
+        this.key = key;
+        this.targetID = targetID;
+        this.granularity = Objects.requireNonNull(granularity);
+        if (limitCents <= 0)
+            throw new IllegalArgumentException(MESSAGE_WRONG_LIMIT);
+        this.limitCents = limitCents;
+        this.thresholds = thresholds;
+    }
+
+    /**
+     * Returns a budget limiting the decrements of the given {@link Account} in each period.
+     *
+     * @param account     the {@link Account} of the budget.
+     * @param granularity the length of the periods.
+     * @param limit       the limit of each period.
+     * @return the new {@link Budget}.
+     */
+    public static Budget forAccount(Account account, Granularity granularity, double limit) {
+        if (Objects.isNull(account))
+            throw new NullPointerException(Account.MESSAGE_NULL_ACCOUNT);
+        return new Budget(Report.Key.ACCOUNT, account.getID(), granularity, Money.toCents(limit), new double[]{1});
+    }
+
+    /**
+     * Returns a budget limiting the decrements carrying the given {@link Tag} in each period.
+     *
+     * @param tag         the {@link Tag} of the budget.
+     * @param granularity the length of the periods.
+     * @param limit       the limit of each period.
+     * @return the new {@link Budget}.
+     */
+    public static Budget forTag(Tag tag, Granularity granularity, double limit) {
+        if (Objects.isNull(tag))
+            throw new NullPointerException(Tag.MESSAGE_NULL_TAG);
+        return new Budget(Report.Key.TAG, tag.getID(), granularity, Money.toCents(limit), new double[]{1});
+    }
+
+    /**
+     * Returns a copy of this {@link Budget} with the given thresholds, as fractions of the limit: for example
+     * 0.8 to be notified when 80% of the limit is spent and 1 when the whole limit is.
+     *
+     * @param thresholds the thresholds, greater than zero.
+     * @return the changed copy.
+     */
+    public Budget withThresholds(double... thresholds) {
+        if (thresholds.length == 0)
+            throw new IllegalArgumentException(MESSAGE_WRONG_THRESHOLDS);
+        double[] sorted = thresholds.clone();
+        Arrays.sort(sorted);
+        if (!(sorted[0] > 0) || Double.isInfinite(sorted[sorted.length - 1]))
+            throw new IllegalArgumentException(MESSAGE_WRONG_THRESHOLDS);
+        return new Budget(key, targetID, granularity, limitCents, sorted);
+    }
+
+    /**
+     * Returns the amount in cents at which the given threshold is reached.
+     *
+     * @param threshold the position of the threshold.
+     * @return the amount of the threshold in cents.
+     */
+    long thresholdInCents(int threshold) {
+        return (long) Math.ceil(limitCents * thresholds[threshold]);
+    }
+
+    /**
+     * Getter method for the {@code key} field in the {@link Budget}.
+     *
+     * @return {@code ACCOUNT} or {@code TAG}.
+     */
+    public Report.Key getKey() {
+        return key;
+    }
+
+    /**
+     * Getter method for the {@code targetID} field in the {@link Budget}.
+     *
+     * @return the ID of the {@link Account} or of the {@link Tag}.
+     */
+    public int getTargetID() {
+        return targetID;
+    }
+
+    /**
+     * Getter method for the {@code granularity} field in the {@link Budget}.
+     *
+     * @return the length of the periods.
+     */
+    public Granularity getGranularity() {
+        return granularity;
+    }
+
+    /**
+     * Returns the limit of each period.
+     *
+     * @return the limit.
+     */
+    public double getLimit() {
+        return Money.toAmount(limitCents);
+    }
+
+    /**
+     * Getter method for the {@code limitCents} field in the {@link Budget}.
+     *
+     * @return the limit of each period in cents.
+     */
+    public long getLimitCents() {
+        return limitCents;
+    }
+
+    /**
+     * Getter method for the {@code thresholds} field in the {@link Budget}.
+     *
+     * @return a copy of the thresholds, in ascending order.
+     */
+    public double[] getThresholds() {
+        return thresholds.clone();
+    }
+}
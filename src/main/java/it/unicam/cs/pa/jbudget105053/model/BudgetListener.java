@@ -0,0 +1,21 @@
+package it.unicam.cs.pa.jbudget105053.model;
+
+import java.time.LocalDate;
+
+/**
+ * This interface is implemented by all the classes that have the responsibility to react when the spending
+ * of a {@link Budget} crosses one of its thresholds, in either direction.
+ */
+@FunctionalInterface
+public interface BudgetListener {
+    /**
+     * Called by the {@link BudgetTracker} after the ledger has been modified, once for each threshold crossed
+     * by the change.
+     *
+     * @param budget    the {@link Budget} whose threshold was crossed.
+     * @param period    the first day of the period whose spending changed.
+     * @param threshold the crossed threshold, as a fraction of the limit.
+     * @param reached   true if the spending has reached the threshold, false if it has gone back below it.
+     */
+    void thresholdCrossed(Budget budget, LocalDate period, double threshold, boolean reached);
+}
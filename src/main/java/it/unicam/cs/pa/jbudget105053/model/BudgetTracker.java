@@ -0,0 +1,320 @@
+package it.unicam.cs.pa.jbudget105053.model;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * This class has the responsibility to keep the spending of the budgets of a {@link Ledger} up to date and to
+ * notify the {@link BudgetListener}s when it crosses a threshold.
+ * The spending of a {@link Budget} in a period is the sum of the decrements of its {@link Account}, or of the
+ * movements carrying its {@link Tag}, dated in that period. It is kept for each period in a hash map and updated
+ * by the {@link Ledger} every time a {@link Movement} is added or removed, so reading the spending of a period
+ * takes constant time and a change costs the number of budgets of the {@link Account} and of the tags of the
+ * {@link Movement}. When a {@link Budget} is added, its spending is read from the rollups of the {@link Ledger}.
+ * The thresholds crossed while the {@link Ledger} is modified are notified once the change is complete, so a
+ * listener always sees the {@link Ledger} in a consistent state.
+ * Every {@link Ledger} owns a {@link BudgetTracker} and calls its {@code add} and {@code remove} methods as it
+ * is modified, and then {@code fireEvents()}. The methods are synchronized, so a {@link Ledger} modified by
+ * many threads can share its tracker, passing the lock that keeps its movements still while a new
+ * {@link Budget} reads them.
+ *
+ * @author Tommaso Catervi
+ */
+public final class BudgetTracker {
+    /**
+     * The string error message for when a null {@link Budget} is passed.
+     */
+    public static final String MESSAGE_NULL_BUDGET = "Il budget passato e' nullo, ergo non valido.";
+
+    /**
+     * The string error message for when a {@link Budget} is not tracked.
+     */
+    public static final String MESSAGE_BUDGET_DOES_NOT_EXIST = "Il budget passato non e' tra quelli del ledger.";
+
+    private final Ledger ledger;
+    private final Lock seedLock;
+    private final Map<Budget, Map<Integer, long[]>> spending = new LinkedHashMap<>();
+    private final Map<Integer, List<Budget>> accountBudgets = new HashMap<>();
+    private final Map<Integer, List<Budget>> tagBudgets = new HashMap<>();
+    private final List<BudgetListener> listeners = new CopyOnWriteArrayList<>();
+    private final List<Runnable> pending = new ArrayList<>();
+
+    /**
+     * Constructs a new {@link BudgetTracker} for the given {@link Ledger}, which is modified by a single thread.
+     *
+     * @param ledger the {@link Ledger} whose movements are tracked.
+     */
+    public BudgetTracker(Ledger ledger) {
+        this(ledger, null);
+    }
+
+    /**
+     * Constructs a new {@link BudgetTracker} for the given {@link Ledger}, whose movements are not changed
+     * while the given lock is held.
+     *
+     * @param ledger   the {@link Ledger} whose movements are tracked.
+     * @param seedLock the lock held while the spending of a new {@link Budget} is read from the {@link Ledger},
+     *                 or null if the {@link Ledger} is modified by a single thread.
+     */
+    public BudgetTracker(Ledger ledger, Lock seedLock) {
+        this.ledger = Objects.requireNonNull(ledger);
+        this.seedLock = seedLock;
+    }
+
+    /**
+     * Allows to add the given {@link Budget}, whose {@link Account} or {@link Tag} must be stored in the
+     * {@link Ledger}. Its spending in each period is read from the rollups of the {@link Ledger}, without
+     * notifying the thresholds already crossed.
+     *
+     * @param budget the {@link Budget} to add.
+     */
+    public void addBudget(Budget budget) {
+        controlBudget(budget);
+        if (Objects.nonNull(seedLock)) seedLock.lock();
+        try {
+            seed(budget);
+        } finally {
+            if (Objects.nonNull(seedLock)) seedLock.unlock();
+        }
+    }
+
+    /**
+     * Reads the spending of the given {@link Budget} from the rollups of the {@link Ledger} and starts tracking it.
+     *
+     * @param budget the {@link Budget} to add.
+     */
+    private synchronized void seed(Budget budget) {
+        boolean account = budget.getKey() == Report.Key.ACCOUNT;
+        if (account && Objects.isNull(ledger.getAccountByID(budget.getTargetID())))
+            throw new IllegalArgumentException(Account.MESSAGE_ACCOUNT_DOES_NOT_EXIST);
+        if (!account && Objects.isNull(ledger.getTagByID(budget.getTargetID())))
+            throw new IllegalArgumentException(Tag.MESSAGE_TAG_DOES_NOT_EXIST);
+        if (spending.containsKey(budget)) return;
+        Map<Integer, long[]> periods = new HashMap<>();
+        ReportTable rollups = ledger.getRollups(budget.getKey(), budget.getGranularity());
+        for (int i = 0; i < rollups.size(); i++)
+            if (rollups.getKey(i, budget.getKey()) == budget.getTargetID() && rollups.getDecrementsInCents(i) > 0)
+                periods.put(rollups.getKey(i, Report.Key.PERIOD), new long[]{rollups.getDecrementsInCents(i)});
+        spending.put(budget, periods);
+        (account ? accountBudgets : tagBudgets).computeIfAbsent(budget.getTargetID(), k -> new ArrayList<>()).add(budget);
+    }
+
+    /**
+     * Allows to remove the given {@link Budget}.
+     *
+     * @param budget the {@link Budget} to remove.
+     */
+    public synchronized void removeBudget(Budget budget) {
+        if (Objects.isNull(spending.remove(controlBudget(budget))))
+            throw new IllegalArgumentException(MESSAGE_BUDGET_DOES_NOT_EXIST);
+        Map<Integer, List<Budget>> budgets = budget.getKey() == Report.Key.ACCOUNT ? accountBudgets : tagBudgets;
+        List<Budget> list = budgets.get(budget.getTargetID());
+        list.remove(budget);
+        if (list.isEmpty()) budgets.remove(budget.getTargetID());
+    }
+
+    /**
+     * Returns an unmodifiable list of all the budgets, in the order they were added.
+     *
+     * @return the list of the budgets.
+     */
+    public synchronized List<Budget> getBudgets() {
+        return Collections.unmodifiableList(new ArrayList<>(spending.keySet()));
+    }
+
+    /**
+     * Returns in constant time the spending of the given {@link Budget} in the period containing the given day.
+     *
+     * @param budget the {@link Budget} to read.
+     * @param day    a day of the period.
+     * @return the sum of the decrements of the period in cents.
+     */
+    public synchronized long getSpentInCents(Budget budget, LocalDate day) {
+        Map<Integer, long[]> periods = spending.get(controlBudget(budget));
+        if (Objects.isNull(periods))
+            throw new IllegalArgumentException(MESSAGE_BUDGET_DOES_NOT_EXIST);
+        long[] spent = periods.get(budget.getGranularity().keyOf(Math.toIntExact(Objects.requireNonNull(day).toEpochDay())));
+        return Objects.isNull(spent) ? 0 : spent[0];
+    }
+
+    /**
+     * Returns in constant time the amount of the given {@link Budget} still available in the period containing
+     * the given day, which is negative if the limit has been exceeded.
+     *
+     * @param budget the {@link Budget} to read.
+     * @param day    a day of the period.
+     * @return the limit minus the spending of the period.
+     */
+    public double getRemaining(Budget budget, LocalDate day) {
+        return Money.toAmount(budget.getLimitCents() - getSpentInCents(budget, day));
+    }
+
+    /**
+     * Allows to add a {@link BudgetListener}, notified when the spending of a {@link Budget} crosses one of
+     * its thresholds.
+     *
+     * @param listener the {@link BudgetListener} to add.
+     */
+    public void addListener(BudgetListener listener) {
+        listeners.add(Objects.requireNonNull(listener));
+    }
+
+    /**
+     * Allows to remove a {@link BudgetListener}.
+     *
+     * @param listener the {@link BudgetListener} to remove.
+     */
+    public void removeListener(BudgetListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Adds all the movements of the given {@link Transaction} to the spending of their budgets.
+     * It is called by the {@link Ledger} after having added the {@link Transaction}.
+     *
+     * @param t the added {@link Transaction}.
+     */
+    public synchronized void addTransaction(Transaction t) {
+        t.getMovements().forEach(m -> update(m, 1));
+    }
+
+    /**
+     * Removes all the movements of the given {@link Transaction} from the spending of their budgets.
+     * It is called by the {@link Ledger} when it removes the {@link Transaction}.
+     *
+     * @param t the removed {@link Transaction}.
+     */
+    public synchronized void removeTransaction(Transaction t) {
+        t.getMovements().forEach(m -> update(m, -1));
+    }
+
+    /**
+     * Removes the given {@link Movement} from the spending of its budgets.
+     * It is called by the {@link Ledger} when it removes the {@link Movement} together with its {@link Account}.
+     *
+     * @param m the removed {@link Movement}.
+     */
+    public synchronized void removeMovement(Movement m) {
+        update(m, -1);
+    }
+
+    /**
+     * Removes the budgets of the given {@link Account}, which has been removed from the {@link Ledger}.
+     *
+     * @param a the removed {@link Account}.
+     */
+    public synchronized void removeAccount(Account a) {
+        List<Budget> budgets = accountBudgets.remove(a.getID());
+        if (Objects.nonNull(budgets)) budgets.forEach(spending::remove);
+    }
+
+    /**
+     * Removes the budgets of the given {@link Tag}, which has been removed from the {@link Ledger}.
+     *
+     * @param tag the removed {@link Tag}.
+     */
+    public synchronized void removeTag(Tag tag) {
+        List<Budget> budgets = tagBudgets.remove(tag.getID());
+        if (Objects.nonNull(budgets)) budgets.forEach(spending::remove);
+    }
+
+    /**
+     * Adds the decrement of the given {@link Movement} to the spending of the budgets of its {@link Account}
+     * and of its tags, or removes it, and records the thresholds crossed.
+     *
+     * @param m    the {@link Movement} to add or remove.
+     * @param sign 1 to add the {@link Movement}, -1 to remove it.
+     */
+    private void update(Movement m, int sign) {
+        if (spending.isEmpty() || m.getMovementType() != MovementType.DECREMENT) return;
+        long cents = -m.getSignedCents() * sign;
+        int day = m.getEpochDay();
+        List<Budget> budgets = accountBudgets.get(m.getAccount().getID());
+        if (Objects.nonNull(budgets)) budgets.forEach(b -> spend(b, day, cents));
+        if (tagBudgets.isEmpty()) return;
+        for (Tag t : m.getTag()) {
+            budgets = tagBudgets.get(t.getID());
+            if (Objects.nonNull(budgets)) budgets.forEach(b -> spend(b, day, cents));
+        }
+    }
+
+    /**
+     * Adds the given amount to the spending of the given {@link Budget} in the period of the given day, and
+     * records a notification for each threshold crossed.
+     *
+     * @param budget the {@link Budget} to update.
+     * @param day    the epoch day of the {@link Movement}.
+     * @param cents  the amount to add in cents, negative for a removed {@link Movement}.
+     */
+    private void spend(Budget budget, int day, long cents) {
+        int period = budget.getGranularity().keyOf(day);
+        Map<Integer, long[]> periods = spending.get(budget);
+        long[] spent = periods.computeIfAbsent(period, k -> new long[1]);
+        long before = spent[0];
+        spent[0] += cents;
+        if (spent[0] == 0) periods.remove(period);
+        if (listeners.isEmpty()) return;
+        double[] thresholds = budget.getThresholds();
+        for (int i = 0; i < thresholds.length; i++) {
+            long limit = budget.thresholdInCents(i);
+            boolean reached = before < limit && spent[0] >= limit;
+            if (reached || (before >= limit && spent[0] < limit)) {
+                double threshold = thresholds[i];
+                pending.add(() -> {
+                    if (tracks(budget))
+                        listeners.forEach(l -> l.thresholdCrossed(budget, budget.getGranularity().firstDayOf(period),
+                                threshold, reached));
+                });
+            }
+        }
+    }
+
+    /**
+     * Notifies the listeners of the thresholds crossed by the last change of the {@link Ledger}, skipping the
+     * ones of the budgets removed in the meantime.
+     */
+    public void fireEvents() {
+        List<Runnable> events;
+        synchronized (this) {
+            if (pending.isEmpty()) return;
+            events = new ArrayList<>(pending);
+            pending.clear();
+        }
+        events.forEach(Runnable::run);
+    }
+
+    /**
+     * Returns true if the given {@link Budget} is still tracked.
+     *
+     * @param budget the {@link Budget} to search for.
+     * @return true if the {@link Budget} is tracked, false otherwise.
+     */
+    private synchronized boolean tracks(Budget budget) {
+        return spending.containsKey(budget);
+    }
+
+    /**
+     * Removes all the budgets and their spending, keeping the listeners.
+     * It is called by the {@link Ledger} when it is reset.
+     */
+    public synchronized void clear() {
+        spending.clear();
+        accountBudgets.clear();
+        tagBudgets.clear();
+        pending.clear();
+    }
+
+    /**
+     * Controls that the given {@link Budget} is not null.
+     *
+     * @param budget the value to control.
+     * @return the controlled {@link Budget}.
+     */
+    private Budget controlBudget(Budget budget) {
+        if (Objects.isNull(budget))
+            throw new NullPointerException(MESSAGE_NULL_BUDGET);
+        return budget;
+    }
+}
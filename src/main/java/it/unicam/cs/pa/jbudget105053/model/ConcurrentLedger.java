@@ -0,0 +1,744 @@
+package it.unicam.cs.pa.jbudget105053.model;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * This class implements the interface {@link Ledger} and has the responsibility to manage all data of the
+ * application while it is modified by many threads at the same time.
+ * Accounts, tags, transactions and movements are stored in concurrent maps sorted by ID. Each {@link Account}
+ * has its own lock: adding or removing a {@link Transaction} only locks the accounts of its movements, always
+ * in ascending order of ID so that two transactions sharing some accounts can never wait for each other, and
+ * transactions touching different accounts proceed in parallel. The rare operations that change the structure
+ * of the ledger, that is removing accounts or tags and resetting the ledger, lock the whole ledger.
+ * The getter methods return immutable lists taken from a single {@link View} of the whole ledger, which is
+ * copied by the first reader after a modification while the whole ledger is locked, so all the lists read
+ * from the same {@link View} are consistent with each other. Reading only blocks to copy a {@link View} that
+ * is out of date, and the lookups by ID never block.
+ * The {@link BudgetTracker} is updated while the accounts are locked, and reads the spending of a new
+ * {@link Budget} while the whole ledger is locked.
+ *
+ * @author Tommaso Catervi
+ */
+public class ConcurrentLedger implements Ledger {
+    private final ConcurrentMap<Integer, Account> accountsMap = new ConcurrentSkipListMap<>();
+    private final ConcurrentMap<String, Account> accountsByName = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Integer, Tag> tagsMap = new ConcurrentSkipListMap<>();
+    private final ConcurrentMap<String, Tag> tagsByName = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Integer, Transaction> transactionsMap = new ConcurrentSkipListMap<>();
+    private final ConcurrentMap<Integer, Movement> movementsMap = new ConcurrentSkipListMap<>();
+    private final ConcurrentMap<Integer, ReentrantLock> accountLocks = new ConcurrentHashMap<>();
+    private final ReentrantReadWriteLock structureLock = new ReentrantReadWriteLock();
+    private final AtomicLong version = new AtomicLong();
+    private volatile View view;
+    private final BudgetTracker budgetTracker = new BudgetTracker(this, structureLock.writeLock());
+
+    /**
+     * Allows to create and add a new {@link Account} to the {@code accountsMap}.
+     * The value of the {@code ID} field is generated by the class {@link Indexer}.
+     *
+     * @param accountType    the value used to set the {@code accountType} field in the {@link Account}.
+     * @param name           the value used to set the {@code name} field in the {@link Account}.
+     * @param initialBalance the value used to set the {@code initialBalance} field in the {@link Account}.
+     */
+    @Override
+    public void addAccount(AccountType accountType, String name, double initialBalance) {
+        storeAccount(new BasicAccount(Indexer.getInstance().generateAccountID(), accountType, name, initialBalance));
+    }
+
+    /**
+     * Allows to create and add a new {@link Account} to the {@code accountsMap} without automatically
+     * generating its ID.
+     *
+     * @param ID             the value used to set the {@code ID} field in the {@link Account}.
+     * @param accountType    the value used to set the {@code accountType} field in the {@link Account}.
+     * @param name           the value used to set the {@code name} field in the {@link Account}.
+     * @param initialBalance the value used to set the {@code initialBalance} field in the {@link Account}.
+     */
+    @Override
+    public void addAccountWithID(int ID, AccountType accountType, String name, double initialBalance) {
+        storeAccount(new BasicAccount(ID, accountType, name, initialBalance));
+        Indexer.getInstance().observeAccountID(ID);
+    }
+
+    /**
+     * Atomically adds the given {@link Account} as long as no other {@link Account} with the same
+     * ID or name is already stored.
+     *
+     * @param a the {@link Account} to store.
+     */
+    private void storeAccount(Account a) {
+        structureLock.readLock().lock();
+        try {
+            if (accountsByName.putIfAbsent(a.getName(), a) != null)
+                throw new IllegalArgumentException(Account.MESSAGE_ACCOUNT_ALREADY_EXISTS);
+            if (accountsMap.putIfAbsent(a.getID(), a) != null) {
+                accountsByName.remove(a.getName(), a);
+                throw new IllegalArgumentException(Account.MESSAGE_ACCOUNT_ALREADY_EXISTS);
+            }
+            version.incrementAndGet();
+        } finally {
+            structureLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Allows to modify the given {@link Account} with the given parameters while holding its lock, as long
+     * as the new name does not belong to another {@link Account} of this ledger.
+     * The new name is claimed atomically in the name index before the {@link Account} is modified, so that
+     * the {@link Account} can still be found by its new name and two accounts can never take the same one.
+     *
+     * @param a              the {@link Account} to modify.
+     * @param accountType    the new {@link AccountType} to set.
+     * @param name           the new name to set.
+     * @param initialBalance the new initial balance to set.
+     */
+    @Override
+    public void modifyAccount(Account a, AccountType accountType, String name, double initialBalance) {
+        structureLock.readLock().lock();
+        ReentrantLock lock = lockOf(a.getID());
+        lock.lock();
+        try {
+            String oldName = a.getName();
+            String newName = Objects.isNull(name) ? null : name.toUpperCase();
+            boolean renamed = accountsByName.get(oldName) == a && Objects.nonNull(newName) && !newName.equals(oldName);
+            if (renamed) {
+                Account named = accountsByName.putIfAbsent(newName, a);
+                if (Objects.nonNull(named) && named != a)
+                    throw new IllegalArgumentException(Account.MESSAGE_ACCOUNT_ALREADY_EXISTS);
+            }
+            try {
+                a.setAccountType(accountType);
+                a.setInitialBalance(initialBalance);
+                a.setName(name);
+            } catch (RuntimeException e) {
+                if (renamed) accountsByName.remove(newName, a);
+                throw e;
+            }
+            if (renamed) accountsByName.remove(oldName, a);
+            version.incrementAndGet();
+        } finally {
+            lock.unlock();
+            structureLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Allows to remove an {@link Account} as long as the given parameter is not null and is
+     * stored in this ledger. All the movements of the {@link Account} are removed from their
+     * transaction, and the transactions left with zero movements are removed too.
+     * The whole ledger is locked during the removal.
+     *
+     * @param account the {@link Account} to be removed.
+     */
+    @Override
+    public void removeAccount(Account account) {
+        removeAccounts(List.of(controlAccount(account)));
+    }
+
+    /**
+     * Allows to remove all the given accounts as long as none of them is null and all of them
+     * are stored in this ledger. The whole ledger is locked during the removal.
+     *
+     * @param accounts the accounts to be removed.
+     */
+    @Override
+    public void removeAccounts(Collection<? extends Account> accounts) {
+        structureLock.writeLock().lock();
+        try {
+            Set<Account> toRemove = new LinkedHashSet<>();
+            for (Account account : accounts) {
+                Account stored = accountsMap.get(controlAccount(account).getID());
+                if (Objects.isNull(stored) || !stored.equals(account))
+                    stored = accountsByName.get(account.getName());
+                if (Objects.isNull(stored) || !stored.equals(account))
+                    throw new IllegalArgumentException(Account.MESSAGE_ACCOUNT_DOES_NOT_EXIST);
+                toRemove.add(stored);
+            }
+            Set<Transaction> touched = new LinkedHashSet<>();
+            for (Account a : toRemove) {
+                for (Movement m : a.getMovementsList()) {
+                    movementsMap.remove(m.getID());
+                    m.getTransaction().getMovements().remove(m);
+                    touched.add(m.getTransaction());
+                    budgetTracker.removeMovement(m);
+                }
+                accountsMap.remove(a.getID());
+                accountsByName.remove(a.getName(), a);
+                accountLocks.remove(a.getID());
+                budgetTracker.removeAccount(a);
+            }
+            touched.forEach(t -> {
+                if (t.getMovements().isEmpty()) transactionsMap.remove(t.getID(), t);
+            });
+            version.incrementAndGet();
+        } finally {
+            structureLock.writeLock().unlock();
+        }
+        budgetTracker.fireEvents();
+    }
+
+    /**
+     * Controls that the given {@link Account} is not null.
+     *
+     * @param account the value to control.
+     * @return the controlled {@link Account}.
+     */
+    private Account controlAccount(Account account) {
+        if (Objects.isNull(account))
+            throw new NullPointerException(Account.MESSAGE_NULL_ACCOUNT);
+        return account;
+    }
+
+    /**
+     * Returns an immutable snapshot of all the accounts of this {@link ConcurrentLedger},
+     * in ascending order of ID.
+     *
+     * @return the list of all the accounts of the {@link ConcurrentLedger}.
+     */
+    @Override
+    public List<Account> getAccounts() {
+        return view().accounts;
+    }
+
+    /**
+     * Returns the list of all the accounts after filtering it according to the
+     * {@link Predicate} {@code p}.
+     *
+     * @return the filtered accounts list.
+     */
+    @Override
+    public List<Account> getAccounts(Predicate<Account> p) {
+        return getAccounts().stream().filter(p).collect(Collectors.toList());
+    }
+
+    /**
+     * Returns the {@link Account} with the given ID without blocking.
+     *
+     * @param ID the ID of the {@link Account} to search for.
+     * @return the {@link Account} with the given ID, or null if there is none.
+     */
+    @Override
+    public Account getAccountByID(int ID) {
+        return accountsMap.get(ID);
+    }
+
+    /**
+     * Allows to add a new {@link Transaction} as long as the given parameter is not null and is not
+     * already stored in this ledger. The accounts of its movements are locked in ascending order of ID
+     * while the movements are added to them, so transactions on different accounts are added in parallel.
+     *
+     * @param transaction the {@link Transaction} to add.
+     */
+    @Override
+    public void addTransaction(Transaction transaction) {
+        addTransactions(List.of(controlTransaction(transaction)));
+    }
+
+    /**
+     * Allows to add all the given transactions in a single operation, as long as none of them is null or
+     * already stored in this ledger, in which case none is added. The accounts of all their movements are
+     * locked once, in ascending order of ID, for the whole batch.
+     * The whole batch is controlled before any of its elements is stored: the accounts of the movements
+     * must be stored in this ledger, and the IDs of the transactions and of the movements must be unique
+     * in the batch. The IDs are then claimed in the maps, and if another thread has stored one of them in
+     * the meantime all the claimed IDs are released, so either all the transactions are added or none is.
+     *
+     * @param transactions the transactions to add.
+     */
+    @Override
+    public void addTransactions(Collection<? extends Transaction> transactions) {
+        List<Movement> movements = new ArrayList<>();
+        for (Transaction t : transactions)
+            movements.addAll(controlTransaction(t).getMovements());
+        structureLock.readLock().lock();
+        List<ReentrantLock> locks = Collections.emptyList();
+        try {
+            locks = lockAccounts(movements);
+            controlBatch(transactions, movements);
+            claim(transactions, movements);
+            int lastMovementID = 0;
+            for (Movement m : movements) {
+                m.getAccount().addMovement(m);
+                lastMovementID = Math.max(lastMovementID, m.getID());
+            }
+            if (lastMovementID > 0) Indexer.getInstance().observeMovementID(lastMovementID);
+            transactions.forEach(t -> Indexer.getInstance().observeTransactionID(t.getID()));
+            transactions.forEach(budgetTracker::addTransaction);
+            version.incrementAndGet();
+        } finally {
+            unlock(locks);
+            structureLock.readLock().unlock();
+        }
+        budgetTracker.fireEvents();
+    }
+
+    /**
+     * Controls that the accounts of the given movements are stored in this ledger and that no ID of the given
+     * transactions and movements is already stored or repeated in the batch.
+     * It is called while the accounts of the movements are locked, so they cannot be removed meanwhile.
+     *
+     * @param transactions the transactions of the batch.
+     * @param movements    the movements of the transactions of the batch.
+     */
+    private void controlBatch(Collection<? extends Transaction> transactions, Collection<Movement> movements) {
+        IDBitmap transactionIDs = new IDBitmap();
+        for (Transaction t : transactions) {
+            if (transactionsMap.containsKey(t.getID()) || transactionIDs.contains(t.getID()))
+                throw new IllegalArgumentException(Transaction.MESSAGE_TRANSACTION_ALREADY_EXISTS);
+            transactionIDs.add(t.getID());
+        }
+        IDBitmap movementIDs = new IDBitmap();
+        for (Movement m : movements) {
+            if (accountsMap.get(m.getAccount().getID()) != m.getAccount())
+                throw new IllegalArgumentException(Account.MESSAGE_ACCOUNT_DOES_NOT_EXIST);
+            if (movementsMap.containsKey(m.getID()) || movementIDs.contains(m.getID()))
+                throw new IllegalArgumentException(MovementException.MESSAGE_MOVEMENT_ALREADY_EXISTS);
+            movementIDs.add(m.getID());
+        }
+    }
+
+    /**
+     * Stores the given transactions and movements in their maps, as long as no other thread has stored an
+     * element with the same ID after the batch was controlled. In that case the elements already stored are
+     * removed again before throwing the exception.
+     *
+     * @param transactions the transactions to store.
+     * @param movements    the movements to store.
+     */
+    private void claim(Collection<? extends Transaction> transactions, Collection<Movement> movements) {
+        List<Transaction> claimedTransactions = new ArrayList<>(transactions.size());
+        List<Movement> claimedMovements = new ArrayList<>(movements.size());
+        try {
+            for (Transaction t : transactions) {
+                if (transactionsMap.putIfAbsent(t.getID(), t) != null)
+                    throw new IllegalArgumentException(Transaction.MESSAGE_TRANSACTION_ALREADY_EXISTS);
+                claimedTransactions.add(t);
+            }
+            for (Movement m : movements) {
+                if (movementsMap.putIfAbsent(m.getID(), m) != null)
+                    throw new IllegalArgumentException(MovementException.MESSAGE_MOVEMENT_ALREADY_EXISTS);
+                claimedMovements.add(m);
+            }
+        } catch (IllegalArgumentException e) {
+            claimedMovements.forEach(m -> movementsMap.remove(m.getID(), m));
+            claimedTransactions.forEach(t -> transactionsMap.remove(t.getID(), t));
+            throw e;
+        }
+    }
+
+    /**
+     * Allows to remove a {@link Transaction} as long as the given parameter is not null and is stored
+     * in this ledger. The accounts of its movements are locked in ascending order of ID while the
+     * movements are removed from them.
+     *
+     * @param t the {@link Transaction} to remove.
+     */
+    @Override
+    public void removeTransaction(Transaction t) {
+        controlTransaction(t);
+        structureLock.readLock().lock();
+        List<ReentrantLock> locks = Collections.emptyList();
+        try {
+            Transaction stored = transactionsMap.get(t.getID());
+            if (Objects.isNull(stored))
+                throw new IllegalArgumentException(Transaction.MESSAGE_TRANSACTION_DOES_NOT_EXIST);
+            locks = lockAccounts(stored.getMovements());
+            if (!transactionsMap.remove(stored.getID(), stored))
+                throw new IllegalArgumentException(Transaction.MESSAGE_TRANSACTION_DOES_NOT_EXIST);
+            for (Movement m : stored.getMovements()) {
+                m.getAccount().removeMovement(m);
+                movementsMap.remove(m.getID());
+            }
+            budgetTracker.removeTransaction(stored);
+            version.incrementAndGet();
+        } finally {
+            unlock(locks);
+            structureLock.readLock().unlock();
+        }
+        budgetTracker.fireEvents();
+    }
+
+    /**
+     * Locks the accounts of the given movements in ascending order of ID, each one once.
+     *
+     * @param movements the movements whose accounts must be locked.
+     * @return the acquired locks, in the order they were acquired.
+     */
+    private List<ReentrantLock> lockAccounts(Collection<Movement> movements) {
+        int[] IDs = movements.stream().mapToInt(m -> m.getAccount().getID()).distinct().sorted().toArray();
+        List<ReentrantLock> locks = new ArrayList<>(IDs.length);
+        try {
+            for (int ID : IDs) {
+                ReentrantLock lock = lockOf(ID);
+                lock.lock();
+                locks.add(lock);
+            }
+        } catch (RuntimeException e) {
+            unlock(locks);
+            throw e;
+        }
+        return locks;
+    }
+
+    /**
+     * Releases the given locks in the opposite order they were acquired.
+     *
+     * @param locks the locks to release.
+     */
+    private void unlock(List<ReentrantLock> locks) {
+        for (int i = locks.size() - 1; i >= 0; i--)
+            locks.get(i).unlock();
+    }
+
+    /**
+     * Returns the lock of the {@link Account} with the given ID, creating it if needed.
+     *
+     * @param accountID the ID of the {@link Account}.
+     * @return the lock of the {@link Account}.
+     */
+    private ReentrantLock lockOf(int accountID) {
+        return accountLocks.computeIfAbsent(accountID, k -> new ReentrantLock());
+    }
+
+    /**
+     * Controls that the given {@link Transaction} is not null.
+     *
+     * @param transaction the value to control.
+     * @return the controlled {@link Transaction}.
+     */
+    private Transaction controlTransaction(Transaction transaction) {
+        if (Objects.isNull(transaction))
+            throw new NullPointerException(Transaction.MESSAGE_NULL_TRANSACTION);
+        return transaction;
+    }
+
+    /**
+     * Returns an immutable snapshot of all the transactions of this {@link ConcurrentLedger},
+     * in ascending order of ID.
+     *
+     * @return the list of all transactions of this {@link ConcurrentLedger}.
+     */
+    @Override
+    public List<Transaction> getTransactions() {
+        return view().transactions;
+    }
+
+    /**
+     * Returns the list of all the transactions after filtering it according to
+     * the {@link Predicate} {@code p}.
+     *
+     * @return the filtered transactions list.
+     */
+    @Override
+    public List<Transaction> getTransactions(Predicate<Transaction> p) {
+        return getTransactions().stream().filter(p).collect(Collectors.toList());
+    }
+
+    /**
+     * Returns the {@link Transaction} with the given ID without blocking.
+     *
+     * @param ID the ID of the {@link Transaction} to search for.
+     * @return the {@link Transaction} with the given ID, or null if there is none.
+     */
+    @Override
+    public Transaction getTransactionByID(int ID) {
+        return transactionsMap.get(ID);
+    }
+
+    /**
+     * Returns an immutable snapshot of all the movements of this {@link ConcurrentLedger},
+     * in ascending order of ID.
+     *
+     * @return the list of all movements of this {@link ConcurrentLedger}.
+     */
+    @Override
+    public List<Movement> getMovements() {
+        return view().movements;
+    }
+
+    /**
+     * Returns the {@link Movement} with the given ID without blocking.
+     *
+     * @param ID the ID of the {@link Movement} to search for.
+     * @return the {@link Movement} with the given ID, or null if there is none.
+     */
+    @Override
+    public Movement getMovementByID(int ID) {
+        return movementsMap.get(ID);
+    }
+
+    /**
+     * Returns an immutable snapshot of all the tags of this {@link ConcurrentLedger},
+     * in ascending order of ID.
+     *
+     * @return the list of all tags of this {@link ConcurrentLedger}.
+     */
+    @Override
+    public List<Tag> getTags() {
+        return view().tags;
+    }
+
+    /**
+     * Returns the {@link Tag} with the given ID without blocking.
+     *
+     * @param ID the ID of the {@link Tag} to search for.
+     * @return the {@link Tag} with the given ID, or null if there is none.
+     */
+    @Override
+    public Tag getTagByID(int ID) {
+        return tagsMap.get(ID);
+    }
+
+    /**
+     * Allows to create and add a new {@link Tag} to the {@code tagsMap}.
+     * The value of the {@code ID} field is generated by the class {@link Indexer}.
+     *
+     * @param name        the value used to set the {@code name} field in the {@link Tag}.
+     * @param description the value used to set the {@code description} field in the {@link Tag}.
+     */
+    @Override
+    public void addTag(String name, String description) {
+        storeTag(new BasicTag(Indexer.getInstance().generateTagID(), name, description));
+    }
+
+    /**
+     * Allows to create and add a new {@link Tag} to the {@code tagsMap} without automatically
+     * generating its ID.
+     *
+     * @param ID          the value used to set the {@code ID} field in the {@link Tag}.
+     * @param name        the value used to set the {@code name} field in the {@link Tag}.
+     * @param description the value used to set the {@code description} field in the {@link Tag}.
+     */
+    @Override
+    public void addTagWithID(int ID, String name, String description) {
+        storeTag(new BasicTag(ID, name, description));
+        Indexer.getInstance().observeTagID(ID);
+    }
+
+    /**
+     * Atomically adds the given {@link Tag} as long as no other {@link Tag} with the same
+     * ID or name is already stored.
+     *
+     * @param t the {@link Tag} to store.
+     */
+    private void storeTag(Tag t) {
+        structureLock.readLock().lock();
+        try {
+            if (tagsByName.putIfAbsent(t.getName(), t) != null)
+                throw new IllegalArgumentException(Tag.MESSAGE_TAG_ALREADY_EXISTS);
+            if (tagsMap.putIfAbsent(t.getID(), t) != null) {
+                tagsByName.remove(t.getName(), t);
+                throw new IllegalArgumentException(Tag.MESSAGE_TAG_ALREADY_EXISTS);
+            }
+            version.incrementAndGet();
+        } finally {
+            structureLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Allows to modify the given {@link Tag} with the given parameters, as long as the new name
+     * does not belong to another {@link Tag} of this ledger.
+     * The whole ledger is locked during the modification.
+     *
+     * @param t           the {@link Tag} to modify.
+     * @param name        the new name to set.
+     * @param description the new description to set.
+     */
+    @Override
+    public void modifyTag(Tag t, String name, String description) {
+        structureLock.writeLock().lock();
+        try {
+            Tag named = Objects.isNull(name) ? null : tagsByName.get(name.toUpperCase());
+            if (Objects.nonNull(named) && named.getID() != t.getID())
+                throw new IllegalArgumentException(Tag.MESSAGE_TAG_ALREADY_EXISTS);
+            String oldName = t.getName();
+            t.setName(name);
+            t.setDescription(description);
+            if (tagsByName.remove(oldName, t))
+                tagsByName.put(t.getName(), t);
+            version.incrementAndGet();
+        } finally {
+            structureLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Allows to remove a {@link Tag} as long as the given parameter is not null and is stored in
+     * this ledger. The {@link Tag} is also removed from all transactions and movements.
+     * The whole ledger is locked during the removal.
+     *
+     * @param tag the {@link Tag} to remove.
+     */
+    @Override
+    public void removeTag(Tag tag) {
+        controlTag(tag);
+        structureLock.writeLock().lock();
+        try {
+            Tag stored = tagsMap.get(tag.getID());
+            if (Objects.isNull(stored) || !stored.equals(tag))
+                stored = tagsByName.get(tag.getName());
+            if (Objects.isNull(stored) || !stored.equals(tag))
+                throw new IllegalArgumentException(Tag.MESSAGE_TAG_DOES_NOT_EXIST);
+            tagsMap.remove(stored.getID());
+            tagsByName.remove(stored.getName(), stored);
+            for (Transaction t : transactionsMap.values())
+                if (t.getTag().contains(stored)) t.removeTag(stored);
+            for (Movement m : movementsMap.values())
+                if (m.getTag().contains(stored)) m.removeTag(stored);
+            budgetTracker.removeTag(stored);
+            version.incrementAndGet();
+        } finally {
+            structureLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Controls that the given {@link Tag} is not null.
+     *
+     * @param t the {@link Tag} to control.
+     * @return the controlled {@link Tag}.
+     */
+    private Tag controlTag(Tag t) {
+        if (Objects.isNull(t))
+            throw new NullPointerException(Tag.MESSAGE_NULL_TAG);
+        return t;
+    }
+
+    /**
+     * Returns the list of the transactions whose tags satisfy the given {@link TagExpression},
+     * scanning a snapshot of the transactions.
+     *
+     * @param expression the {@link TagExpression} to evaluate.
+     * @return the list of the matching transactions.
+     */
+    @Override
+    public List<Transaction> getTransactions(TagExpression expression) {
+        TagExpression e = controlExpression(expression);
+        return getTransactions(t -> e.matches(t.getTag()));
+    }
+
+    /**
+     * Returns the list of the movements whose tags satisfy the given {@link TagExpression},
+     * scanning a snapshot of the movements.
+     *
+     * @param expression the {@link TagExpression} to evaluate.
+     * @return the list of the matching movements.
+     */
+    @Override
+    public List<Movement> getMovements(TagExpression expression) {
+        TagExpression e = controlExpression(expression);
+        return getMovements().stream().filter(m -> e.matches(m.getTag())).collect(Collectors.toList());
+    }
+
+    /**
+     * Returns the number of movements carrying the given {@link Tag}, scanning a snapshot of the movements.
+     *
+     * @param tag the {@link Tag} to search for.
+     * @return the number of movements carrying the {@link Tag}.
+     */
+    @Override
+    public int countMovements(Tag tag) {
+        Tag t = controlTag(tag);
+        return (int) getMovements().stream().filter(m -> m.getTag().contains(t)).count();
+    }
+
+    /**
+     * Controls that the given {@link TagExpression} is not null.
+     *
+     * @param expression the value to control.
+     * @return the controlled {@link TagExpression}.
+     */
+    private TagExpression controlExpression(TagExpression expression) {
+        if (Objects.isNull(expression))
+            throw new NullPointerException(TagExpression.MESSAGE_NULL_EXPRESSION);
+        return expression;
+    }
+
+    /**
+     * Returns the {@link BudgetTracker} of this ledger, which is updated while the accounts of the added or
+     * removed movements are locked.
+     *
+     * @return the {@link BudgetTracker} of this ledger.
+     */
+    @Override
+    public BudgetTracker getBudgetTracker() {
+        return budgetTracker;
+    }
+
+    /**
+     * Resets this ledger by emptying all its maps and resetting the ID generators
+     * of the class {@link Indexer}. The whole ledger is locked during the reset.
+     */
+    @Override
+    public void resetLedger() {
+        structureLock.writeLock().lock();
+        try {
+            accountsMap.clear();
+            accountsByName.clear();
+            tagsMap.clear();
+            tagsByName.clear();
+            transactionsMap.clear();
+            movementsMap.clear();
+            accountLocks.clear();
+            budgetTracker.clear();
+            Indexer.getInstance().resetAll();
+            version.incrementAndGet();
+        } finally {
+            structureLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the {@link View} of the current version of this ledger. When the last {@link View} is out of
+     * date, a new one is copied while the whole ledger is locked, so no modification is half done while
+     * the maps are copied and all the readers of the same version share the same {@link View}.
+     * A thread that is modifying the ledger cannot wait for the whole ledger, so it gets a {@link View}
+     * copied without locking, which is not published.
+     *
+     * @return the {@link View} of the current version.
+     */
+    private View view() {
+        View v = view;
+        if (Objects.nonNull(v) && v.version == version.get()) return v;
+        if (structureLock.getReadHoldCount() > 0) return new View(version.get());
+        structureLock.writeLock().lock();
+        try {
+            v = view;
+            if (Objects.isNull(v) || v.version != version.get()) {
+                v = new View(version.get());
+                view = v;
+            }
+            return v;
+        } finally {
+            structureLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * An immutable copy of all the elements of the ledger at a certain version, in ascending order of ID.
+     */
+    private final class View {
+        private final long version;
+        private final List<Account> accounts;
+        private final List<Tag> tags;
+        private final List<Transaction> transactions;
+        private final List<Movement> movements;
+
+        private View(long version) {
+            this.version = version;
+            this.accounts = List.copyOf(accountsMap.values());
+            this.tags = List.copyOf(tagsMap.values());
+            this.transactions = List.copyOf(transactionsMap.values());
+            this.movements = List.copyOf(movementsMap.values());
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package it.unicam.cs.pa.jbudget105053.model;
+
+/**
+ * This class has the responsibility to keep the total variation of a set of movements for each
+ * day and to answer cumulative queries on it.
+ * The variations are stored in a Fenwick tree whose positions are the epoch days between
+ * {@code firstDay} and {@code firstDay + capacity - 1}, so adding a variation and computing the total
+ * variation up to a certain day both take logarithmic time. The covered range grows automatically
+ * when a variation falls outside of it. The variations are amounts in cents, so the sums are exact.
+ *
+ * @author Tommaso Catervi
+ */
+final class DailyVariationIndex {
+    private static final int INITIAL_CAPACITY = 1024;
+    private long firstDay;
+    private long[] tree = new long[0];
+    private long total;
+
+    /**
+     * Adds the given variation to the given day.
+     *
+     * @param epochDay  the day of the variation, counted from the epoch.
+     * @param variation the variation to add.
+     */
+    void add(long epochDay, long variation) {
+        if (tree.length == 0)
+            resize(epochDay - INITIAL_CAPACITY / 2, INITIAL_CAPACITY);
+        else if (epochDay < firstDay || epochDay >= firstDay + capacity())
+            grow(epochDay);
+        total += variation;
+        for (int i = (int) (epochDay - firstDay) + 1; i < tree.length; i += i & -i)
+            tree[i] += variation;
+    }
+
+    /**
+     * Returns the total variation of all the days up to the given one, included.
+     *
+     * @param epochDay the last day to consider, counted from the epoch.
+     * @return the total variation up to the given day.
+     */
+    long sumUpTo(long epochDay) {
+        if (tree.length == 0 || epochDay < firstDay) return 0;
+        if (epochDay >= firstDay + capacity() - 1) return total;
+        long sum = 0;
+        for (int i = (int) (epochDay - firstDay) + 1; i > 0; i -= i & -i)
+            sum += tree[i];
+        return sum;
+    }
+
+    /**
+     * Returns the total variation of all the days between the two given ones, both included.
+     *
+     * @param fromEpochDay the first day to consider.
+     * @param toEpochDay   the last day to consider.
+     * @return the total variation between the given days.
+     */
+    long sumBetween(long fromEpochDay, long toEpochDay) {
+        return sumUpTo(toEpochDay) - sumUpTo(fromEpochDay - 1);
+    }
+
+    /**
+     * Returns the number of days covered by the tree.
+     *
+     * @return the capacity of the tree.
+     */
+    private int capacity() {
+        return tree.length - 1;
+    }
+
+    /**
+     * Doubles the covered range until it contains the given day, extending it towards that day.
+     *
+     * @param epochDay the day to cover.
+     */
+    private void grow(long epochDay) {
+        long newFirstDay = firstDay;
+        long newCapacity = capacity();
+        while (epochDay < newFirstDay || epochDay >= newFirstDay + newCapacity) {
+            if (epochDay < newFirstDay) newFirstDay -= newCapacity;
+            newCapacity *= 2;
+        }
+        resize(newFirstDay, Math.toIntExact(newCapacity));
+    }
+
+    /**
+     * Rebuilds the tree so that it covers {@code newCapacity} days starting from {@code newFirstDay},
+     * keeping all the variations already stored.
+     *
+     * @param newFirstDay the first day covered by the new tree.
+     * @param newCapacity the number of days covered by the new tree.
+     */
+    private void resize(long newFirstDay, int newCapacity) {
+        long[] newTree = new long[newCapacity + 1];
+        int offset = (int) (firstDay - newFirstDay);
+        for (int i = 1; i < tree.length; i++)
+            newTree[i + offset] = sumUpTo(firstDay + i - 1) - sumUpTo(firstDay + i - 2);
+        for (int i = 1; i <= newCapacity; i++) {
+            int parent = i + (i & -i);
+            if (parent <= newCapacity) newTree[parent] += newTree[i];
+        }
+        firstDay = newFirstDay;
+        tree = newTree;
+    }
+}
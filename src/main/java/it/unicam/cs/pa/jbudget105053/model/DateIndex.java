@@ -0,0 +1,287 @@
+package it.unicam.cs.pa.jbudget105053.model;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.PrimitiveIterator;
+import java.util.TreeMap;
+
+/**
+ * This class has the responsibility to keep the transactions and the movements of a ledger ordered by date.
+ * The IDs of the elements of each day are kept in a bucket, that is a sorted array of primitive ints, and the
+ * buckets are kept in a tree ordered by day, so the elements of a range of dates are found in logarithmic time
+ * in the number of days and visited in chronological order, or in the reverse one, at a constant cost each.
+ * Adding a batch of elements sorts their keys, made of the epoch day in the upper 32 bits and of the ID in the
+ * lower ones, and then merges each run of keys of the same day into its bucket at once. Since the IDs are
+ * generated in ascending order, the merge is almost always an append.
+ * The number of movements of each day is also kept in a {@link DailyVariationIndex}, so the number of movements
+ * in a range of dates is known in logarithmic time without visiting them.
+ * The index records the date an element has when it is added, so the date of a {@link Transaction} must be set
+ * before the {@link Transaction} is added to the ledger. The iterators returned must not be used after the index
+ * has been modified.
+ *
+ * @author Tommaso Catervi
+ */
+final class DateIndex {
+    private final DayBuckets transactions = new DayBuckets();
+    private final DayBuckets movements = new DayBuckets();
+    private DailyVariationIndex movementCounts = new DailyVariationIndex();
+
+    /**
+     * Returns the key of the element with the given epoch day and ID.
+     *
+     * @param epochDay the epoch day of the element.
+     * @param ID       the ID of the element.
+     * @return the key of the element.
+     */
+    static long key(int epochDay, int ID) {
+        return ((long) epochDay << 32) | (ID & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Adds the given transactions and all their movements to the index. The keys of the whole batch are
+     * sorted first, so each bucket is reached once per batch.
+     *
+     * @param batch the transactions to add.
+     */
+    void addTransactions(Collection<? extends Transaction> batch) {
+        long[] transactionKeys = new long[batch.size()];
+        int transactionCount = 0;
+        int movementCount = 0;
+        for (Transaction t : batch) {
+            transactionKeys[transactionCount++] = key(t.getEpochDay(), t.getID());
+            movementCount += t.getMovements().size();
+        }
+        long[] movementKeys = new long[movementCount];
+        movementCount = 0;
+        for (Transaction t : batch)
+            for (Movement m : t.getMovements())
+                movementKeys[movementCount++] = key(m.getEpochDay(), m.getID());
+        Arrays.sort(transactionKeys);
+        Arrays.sort(movementKeys);
+        transactions.addAll(transactionKeys);
+        movements.addAll(movementKeys);
+        for (int from = 0, to; from < movementKeys.length; from = to) {
+            int day = (int) (movementKeys[from] >> 32);
+            to = from + 1;
+            while (to < movementKeys.length && (int) (movementKeys[to] >> 32) == day) to++;
+            movementCounts.add(day, to - from);
+        }
+    }
+
+    /**
+     * Removes the given {@link Transaction} and all its movements from the index.
+     *
+     * @param t the {@link Transaction} to remove.
+     */
+    void removeTransaction(Transaction t) {
+        transactions.remove(t.getEpochDay(), t.getID());
+        t.getMovements().forEach(this::removeMovement);
+    }
+
+    /**
+     * Removes the given {@link Movement} from the index.
+     *
+     * @param m the {@link Movement} to remove.
+     */
+    void removeMovement(Movement m) {
+        if (movements.remove(m.getEpochDay(), m.getID()))
+            movementCounts.add(m.getEpochDay(), -1);
+    }
+
+    /**
+     * Returns the IDs of the transactions dated between the given days, included, in chronological order.
+     *
+     * @param fromDay the first epoch day of the range.
+     * @param toDay   the last epoch day of the range.
+     * @return the iterator over the IDs of the range.
+     */
+    PrimitiveIterator.OfInt getTransactionIDs(int fromDay, int toDay) {
+        return transactions.between(fromDay, toDay);
+    }
+
+    /**
+     * Returns the IDs of the movements dated between the given days, included, in chronological order.
+     *
+     * @param fromDay the first epoch day of the range.
+     * @param toDay   the last epoch day of the range.
+     * @return the iterator over the IDs of the range.
+     */
+    PrimitiveIterator.OfInt getMovementIDs(int fromDay, int toDay) {
+        return movements.between(fromDay, toDay);
+    }
+
+    /**
+     * Returns the IDs of all the transactions from the most recent to the oldest one.
+     *
+     * @return the iterator over the IDs in reverse chronological order.
+     */
+    PrimitiveIterator.OfInt descendingTransactionIDs() {
+        return transactions.descending();
+    }
+
+    /**
+     * Returns the number of movements dated between the given days, included, in logarithmic time.
+     *
+     * @param fromDay the first epoch day of the range.
+     * @param toDay   the last epoch day of the range.
+     * @return the number of movements of the range.
+     */
+    long countMovements(int fromDay, int toDay) {
+        return movementCounts.sumBetween(fromDay, toDay);
+    }
+
+    /**
+     * Removes all the elements from the index.
+     */
+    void clear() {
+        transactions.clear();
+        movements.clear();
+        movementCounts = new DailyVariationIndex();
+    }
+
+    /**
+     * The IDs of a kind of elements, kept in a sorted array for each day.
+     */
+    private static final class DayBuckets {
+        private final TreeMap<Integer, Bucket> days = new TreeMap<>();
+
+        /**
+         * Adds the elements with the given sorted keys, merging each run of keys of the same day into
+         * its bucket.
+         *
+         * @param keys the sorted keys of the elements to add.
+         */
+        void addAll(long[] keys) {
+            for (int from = 0, to; from < keys.length; from = to) {
+                int day = (int) (keys[from] >> 32);
+                to = from + 1;
+                while (to < keys.length && (int) (keys[to] >> 32) == day) to++;
+                days.computeIfAbsent(day, d -> new Bucket()).merge(keys, from, to);
+            }
+        }
+
+        /**
+         * Removes the element with the given day and ID.
+         *
+         * @param day the epoch day of the element.
+         * @param ID  the ID of the element.
+         * @return true if the element was in the index, false otherwise.
+         */
+        boolean remove(int day, int ID) {
+            Bucket bucket = days.get(day);
+            if (Objects.isNull(bucket) || !bucket.remove(ID)) return false;
+            if (bucket.size == 0) days.remove(day);
+            return true;
+        }
+
+        /**
+         * Returns the IDs of the elements dated between the given days, in chronological order.
+         *
+         * @param fromDay the first epoch day of the range.
+         * @param toDay   the last epoch day of the range.
+         * @return the iterator over the IDs of the range.
+         */
+        PrimitiveIterator.OfInt between(int fromDay, int toDay) {
+            if (fromDay > toDay) return new BucketIterator(Collections.emptyIterator(), false);
+            return new BucketIterator(days.subMap(fromDay, true, toDay, true).values().iterator(), false);
+        }
+
+        /**
+         * Returns the IDs of all the elements in reverse chronological order.
+         *
+         * @return the iterator over the IDs.
+         */
+        PrimitiveIterator.OfInt descending() {
+            return new BucketIterator(days.descendingMap().values().iterator(), true);
+        }
+
+        /**
+         * Removes all the elements.
+         */
+        void clear() {
+            days.clear();
+        }
+    }
+
+    /**
+     * The sorted IDs of the elements of a day.
+     */
+    private static final class Bucket {
+        private int[] IDs = new int[2];
+        private int size;
+
+        /**
+         * Merges the IDs of the given sorted keys into this bucket. When all the new IDs are greater than
+         * the ones already stored, which is the common case, they are simply appended.
+         *
+         * @param keys the sorted keys.
+         * @param from the first key to merge, included.
+         * @param to   the last key to merge, excluded.
+         */
+        void merge(long[] keys, int from, int to) {
+            int count = to - from;
+            if (size == 0 || IDs[size - 1] < (int) keys[from]) {
+                if (size + count > IDs.length) IDs = Arrays.copyOf(IDs, Math.max(IDs.length * 2, size + count));
+                for (int k = from; k < to; k++) IDs[size++] = (int) keys[k];
+                return;
+            }
+            int[] merged = new int[Math.max(IDs.length, size + count)];
+            int i = 0, k = from, n = 0;
+            while (i < size && k < to)
+                merged[n++] = IDs[i] < (int) keys[k] ? IDs[i++] : (int) keys[k++];
+            while (i < size) merged[n++] = IDs[i++];
+            while (k < to) merged[n++] = (int) keys[k++];
+            IDs = merged;
+            size = n;
+        }
+
+        /**
+         * Removes the given ID from this bucket.
+         *
+         * @param ID the ID to remove.
+         * @return true if the ID was in the bucket, false otherwise.
+         */
+        boolean remove(int ID) {
+            int i = Arrays.binarySearch(IDs, 0, size, ID);
+            if (i < 0) return false;
+            System.arraycopy(IDs, i + 1, IDs, i, size - i - 1);
+            size--;
+            return true;
+        }
+    }
+
+    /**
+     * The iterator over the IDs of a sequence of buckets, visited forwards or backwards.
+     */
+    private static final class BucketIterator implements PrimitiveIterator.OfInt {
+        private final Iterator<Bucket> buckets;
+        private final boolean descending;
+        private Bucket current;
+        private int next;
+
+        private BucketIterator(Iterator<Bucket> buckets, boolean descending) {
+            this.buckets = buckets;
+            this.descending = descending;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (Objects.isNull(current) || (descending ? next < 0 : next >= current.size)) {
+                if (!buckets.hasNext()) return false;
+                current = buckets.next();
+                next = descending ? current.size - 1 : 0;
+            }
+            return true;
+        }
+
+        @Override
+        public int nextInt() {
+            if (!hasNext()) throw new NoSuchElementException();
+            return descending ? current.IDs[next--] : current.IDs[next++];
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package it.unicam.cs.pa.jbudget105053.model;
+
+import java.text.ParseException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+
+/**
+ * This class has the responsibility to convert, format and parse the dates of the application,
+ * which are kept inside the model as epoch days, that is the number of days since 01-01-1970.
+ * The dates are written in the format {@code dd-MM-yyyy}. Formatting is thread-safe and allocation-free
+ * for the days between 1970 and 2099, whose strings are built once and then cached, and parsing reads
+ * the digits directly from the given characters, so neither needs a formatter per value.
+ *
+ * @author Tommaso Catervi
+ */
+public final class EpochDays {
+    /**
+     * The string error message for when a string does not contain a valid date.
+     */
+    public static final String MESSAGE_WRONG_DATE = "La data passata non e' nel formato gg-mm-aaaa, ergo non valida.";
+
+    /**
+     * The pattern of the dates written and read by this class.
+     */
+    public static final String PATTERN = "dd-MM-yyyy";
+
+    /**
+     * The pattern of the dates written by the previous versions of the application.
+     */
+    public static final String ISO_PATTERN = "yyyy-MM-dd";
+
+    private static final int FIRST_CACHED_DAY = 0;
+    private static final int LAST_CACHED_DAY = (int) LocalDate.of(2099, 12, 31).toEpochDay();
+    private static final String[] CACHE = new String[LAST_CACHED_DAY - FIRST_CACHED_DAY + 1];
+    private static final int[] DAYS_IN_MONTH = {31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31};
+
+    /**
+     * The constructor is private because this class only has static methods.
+     */
+    private EpochDays() {
+    }
+
+    /**
+     * Returns the epoch day of the given date in the default time zone. The instant is read through
+     * {@code getTime()}, because subclasses like {@link java.sql.Date} do not support {@code toInstant()}.
+     *
+     * @param date the date to convert.
+     * @return the number of days between the epoch and the given date.
+     */
+    public static int toEpochDay(Date date) {
+        return (int) Instant.ofEpochMilli(date.getTime()).atZone(ZoneId.systemDefault()).toLocalDate().toEpochDay();
+    }
+
+    /**
+     * Returns a new {@link Date} set to the start of the given epoch day in the default time zone.
+     *
+     * @param epochDay the day to convert.
+     * @return the corresponding date.
+     */
+    public static Date toDate(int epochDay) {
+        return Date.from(LocalDate.ofEpochDay(epochDay).atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+
+    /**
+     * Returns the epoch day of today in the default time zone.
+     *
+     * @return the epoch day of today.
+     */
+    public static int today() {
+        return (int) LocalDate.now().toEpochDay();
+    }
+
+    /**
+     * Returns the string of the given epoch day in the format {@code dd-MM-yyyy}.
+     *
+     * @param epochDay the day to format.
+     * @return the formatted day.
+     */
+    public static String format(int epochDay) {
+        if (epochDay < FIRST_CACHED_DAY || epochDay > LAST_CACHED_DAY)
+            return render(epochDay);
+        String s = CACHE[epochDay - FIRST_CACHED_DAY];
+        if (s == null) {
+            s = render(epochDay);
+            CACHE[epochDay - FIRST_CACHED_DAY] = s;
+        }
+        return s;
+    }
+
+    /**
+     * Returns the string of the given {@link Date} in the format {@code dd-MM-yyyy}.
+     *
+     * @param date the date to format.
+     * @return the formatted date.
+     */
+    public static String format(Date date) {
+        return format(toEpochDay(date));
+    }
+
+    /**
+     * Builds the string of the given epoch day.
+     *
+     * @param epochDay the day to format.
+     * @return the formatted day.
+     */
+    private static String render(int epochDay) {
+        LocalDate date = LocalDate.ofEpochDay(epochDay);
+        char[] chars = new char[10];
+        writeDigits(chars, 0, date.getDayOfMonth(), 2);
+        chars[2] = '-';
+        writeDigits(chars, 3, date.getMonthValue(), 2);
+        chars[5] = '-';
+        writeDigits(chars, 6, date.getYear(), 4);
+        return new String(chars);
+    }
+
+    /**
+     * Writes the given non-negative value in the given number of digits, starting at the given position.
+     *
+     * @param chars  the destination.
+     * @param from   the position of the first digit.
+     * @param value  the value to write.
+     * @param digits the number of digits to write.
+     */
+    private static void writeDigits(char[] chars, int from, int value, int digits) {
+        for (int i = from + digits - 1; i >= from; i--) {
+            chars[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    /**
+     * Returns the epoch day of the date written in the format {@code dd-MM-yyyy} in the given string.
+     *
+     * @param s the string to parse.
+     * @return the epoch day of the date.
+     * @throws ParseException if the string does not contain a valid date.
+     */
+    public static int parse(CharSequence s) throws ParseException {
+        return parse(s, 0, s.length());
+    }
+
+    /**
+     * Returns the epoch day of the date written in the format {@code dd-MM-yyyy} between
+     * {@code from}, included, and {@code to}, excluded, in the given characters.
+     * The date is read digit by digit, without creating any object.
+     *
+     * @param s    the characters to parse.
+     * @param from the position of the first character of the date.
+     * @param to   the position after the last character of the date.
+     * @return the epoch day of the date.
+     * @throws ParseException if the characters do not contain a valid date.
+     */
+    public static int parse(CharSequence s, int from, int to) throws ParseException {
+        if (to - from != PATTERN.length() || s.charAt(from + 2) != '-' || s.charAt(from + 5) != '-')
+            throw new ParseException(MESSAGE_WRONG_DATE, from);
+        int day = readDigits(s, from, 2);
+        int month = readDigits(s, from + 3, 2);
+        int year = readDigits(s, from + 6, 4);
+        if (month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month))
+            throw new ParseException(MESSAGE_WRONG_DATE, from);
+        return toEpochDay(year, month, day);
+    }
+
+    /**
+     * Returns the epoch day of the date written in the format {@code yyyy-MM-dd} between
+     * {@code from}, included, and {@code to}, excluded, in the given characters, like the dates
+     * of the files saved by the previous versions of the application.
+     *
+     * @param s    the characters to parse.
+     * @param from the position of the first character of the date.
+     * @param to   the position after the last character of the date.
+     * @return the epoch day of the date.
+     * @throws ParseException if the characters do not contain a valid date.
+     */
+    public static int parseISO(CharSequence s, int from, int to) throws ParseException {
+        if (to - from != ISO_PATTERN.length() || s.charAt(from + 4) != '-' || s.charAt(from + 7) != '-')
+            throw new ParseException(MESSAGE_WRONG_DATE, from);
+        int year = readDigits(s, from, 4);
+        int month = readDigits(s, from + 5, 2);
+        int day = readDigits(s, from + 8, 2);
+        if (month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month))
+            throw new ParseException(MESSAGE_WRONG_DATE, from);
+        return toEpochDay(year, month, day);
+    }
+
+    /**
+     * Reads a non-negative value written in the given number of digits.
+     *
+     * @param s      the characters to read.
+     * @param from   the position of the first digit.
+     * @param digits the number of digits to read.
+     * @return the value read.
+     * @throws ParseException if one of the characters is not a digit.
+     */
+    private static int readDigits(CharSequence s, int from, int digits) throws ParseException {
+        int value = 0;
+        for (int i = from; i < from + digits; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9')
+                throw new ParseException(MESSAGE_WRONG_DATE, i);
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Returns the number of days of the given month.
+     *
+     * @param year  the year of the month.
+     * @param month the month, from 1 to 12.
+     * @return the number of days of the month.
+     */
+    private static int daysInMonth(int year, int month) {
+        boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+        return month == 2 && leap ? 29 : DAYS_IN_MONTH[month - 1];
+    }
+
+    /**
+     * Returns the epoch day of the given date of the proleptic Gregorian calendar.
+     *
+     * @param year  the year.
+     * @param month the month, from 1 to 12.
+     * @param day   the day of the month.
+     * @return the epoch day of the date.
+     */
+    static int toEpochDay(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = Math.floorDiv(y, 400);
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+}
@@ -0,0 +1,40 @@
+package it.unicam.cs.pa.jbudget105053.model;
+
+import java.time.LocalDate;
+
+/**
+ * This enumeration defines the length of the periods in which the movements are grouped by reports:
+ * a {@code DAY}, a {@code MONTH} or a {@code YEAR}.
+ * Each period is identified by an integer key, which follows the order of the periods: the epoch day
+ * for a {@code DAY}, twelve times the year plus the month counted from 0 for a {@code MONTH}, and the
+ * year for a {@code YEAR}.
+ */
+public enum Granularity {
+    DAY,
+    MONTH,
+    YEAR;
+
+    /**
+     * Returns the key of the period containing the given epoch day.
+     *
+     * @param epochDay the day, counted from the epoch.
+     * @return the key of the period of the day.
+     */
+    public int keyOf(int epochDay) {
+        if (this == DAY) return epochDay;
+        LocalDate date = LocalDate.ofEpochDay(epochDay);
+        return this == MONTH ? date.getYear() * 12 + date.getMonthValue() - 1 : date.getYear();
+    }
+
+    /**
+     * Returns the first day of the period with the given key.
+     *
+     * @param key the key of the period.
+     * @return the first day of the period.
+     */
+    public LocalDate firstDayOf(int key) {
+        if (this == DAY) return LocalDate.ofEpochDay(key);
+        return this == MONTH ? LocalDate.of(Math.floorDiv(key, 12), Math.floorMod(key, 12) + 1, 1)
+                : LocalDate.of(key, 1, 1);
+    }
+}
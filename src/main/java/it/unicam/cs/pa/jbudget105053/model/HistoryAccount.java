@@ -0,0 +1,171 @@
+package it.unicam.cs.pa.jbudget105053.model;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * This class extends {@link BasicAccount} and has the responsibility to represent an {@link Account} of a
+ * {@link MappedLedger}, whose movements are partly stored in the rows of the mapped file.
+ * The movements of the file are not added to the {@link Account}: only their variations are summed in a
+ * {@link DailyVariationIndex}, which is added to the balances computed by {@link BasicAccount} for the
+ * movements added in memory. The list of the movements creates the movements of the file only when
+ * they are requested.
+ *
+ * @author Tommaso Catervi
+ */
+final class HistoryAccount extends BasicAccount {
+    private final MappedLedger ledger;
+    private final int rowsReference;
+    private final int rowsCount;
+    private final DailyVariationIndex history = new DailyVariationIndex();
+    private RowExclusions excluded = RowExclusions.NONE;
+
+    /**
+     * Constructs a new {@link HistoryAccount} with the given parameters.
+     *
+     * @param ID             the value used to set the {@code ID} field in the {@link Account}.
+     * @param accountType    the value used to set the {@code accountType} field in the {@link Account}.
+     * @param name           the value used to set the {@code name} field in the {@link Account}.
+     * @param initialBalance the value used to set the {@code initialBalance} field in the {@link Account}.
+     * @param ledger         the {@link MappedLedger} whose file stores the movements of the {@link Account}.
+     * @param rowsReference  the position, in the pool of the file, of the rows of the movements.
+     * @param rowsCount      the number of the rows of the movements stored in the file.
+     */
+    HistoryAccount(int ID, AccountType accountType, String name, double initialBalance,
+                   MappedLedger ledger, int rowsReference, int rowsCount) {
+        super(ID, accountType, name, initialBalance);
+        this.ledger = ledger;
+        this.rowsReference = rowsReference;
+        this.rowsCount = rowsCount;
+    }
+
+    /**
+     * Adds the variation of a movement stored in the file to the history of this {@link Account}.
+     *
+     * @param epochDay the day of the movement.
+     * @param cents    the signed amount of the movement, in cents.
+     */
+    synchronized void addHistory(int epochDay, long cents) {
+        history.add(epochDay, cents);
+    }
+
+    /**
+     * Removes a movement stored in the file from the history of this {@link Account}, so that it is
+     * no longer listed and its variation is no longer counted.
+     *
+     * @param movementRow the row of the movement in the file.
+     * @param epochDay    the day of the movement.
+     * @param cents       the signed amount of the movement, in cents.
+     */
+    synchronized void removeHistory(int movementRow, int epochDay, long cents) {
+        int position = findPosition(movementRow);
+        if (position < 0 || excluded.contains(position)) return;
+        history.add(epochDay, -cents);
+        excluded = excluded.with(position);
+    }
+
+    /**
+     * Returns the rows of the movements of this {@link Account} which are still stored in the file.
+     *
+     * @return the rows of the movements, in ascending order.
+     */
+    synchronized int[] getHistoryRows() {
+        int[] rows = new int[rowsCount - excluded.size()];
+        for (int i = 0; i < rows.length; i++)
+            rows[i] = ledger.getPoolValue(rowsReference + excluded.toPosition(i));
+        return rows;
+    }
+
+    /**
+     * Returns the position, among the rows of the movements of this {@link Account}, of the given row.
+     * The rows are stored in ascending order, so they are searched by bisection.
+     *
+     * @param movementRow the row to search for.
+     * @return the position of the row, or -1 if it is not a row of this {@link Account}.
+     */
+    private int findPosition(int movementRow) {
+        int low = 0;
+        int high = rowsCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int row = ledger.getPoolValue(rowsReference + middle);
+            if (row < movementRow) low = middle + 1;
+            else if (row > movementRow) high = middle - 1;
+            else return middle;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the variation of the given history in the sign of the balance of this {@link Account}.
+     *
+     * @param cents the variation in cents.
+     * @return the variation to add to the balance.
+     */
+    private long signed(long cents) {
+        return getAccountType() == AccountType.LIABILITY ? -cents : cents;
+    }
+
+    /**
+     * Returns the current balance, including the movements stored in the file up to today.
+     *
+     * @return the current balance of the {@link Account}.
+     */
+    @Override
+    public synchronized double getBalance() {
+        return Money.toAmount(Money.toCents(super.getBalance()) + signed(history.sumUpTo(EpochDays.today())));
+    }
+
+    /**
+     * Returns the balance at the end of the given day, including the movements stored in the file.
+     *
+     * @param date the day of the balance.
+     * @return the balance of the {@link Account} at the given day.
+     */
+    @Override
+    public synchronized double getBalanceAt(LocalDate date) {
+        double balance = super.getBalanceAt(date);
+        return Money.toAmount(Money.toCents(balance) + signed(history.sumUpTo(date.toEpochDay())));
+    }
+
+    /**
+     * Returns the variation between the given days, included, including the movements stored in the file.
+     *
+     * @param from the first day of the period.
+     * @param to   the last day of the period.
+     * @return the variation of the {@link Account} in the period.
+     */
+    @Override
+    public synchronized double getVariation(LocalDate from, LocalDate to) {
+        double variation = super.getVariation(from, to);
+        return Money.toAmount(Money.toCents(variation) + history.sumBetween(from.toEpochDay(), to.toEpochDay()));
+    }
+
+    /**
+     * Returns an unmodifiable list of the movements stored in the file, created only when requested,
+     * followed by the movements added in memory.
+     *
+     * @return the list of the movements of the {@link Account}.
+     */
+    @Override
+    public synchronized List<Movement> getMovementsList() {
+        return new LazyRowList<>(excluded, rowsCount,
+                position -> ledger.getMovementAtRow(ledger.getPoolValue(rowsReference + position)),
+                super.getMovementsList());
+    }
+
+    /**
+     * Returns the list of the movements of the {@link Account} after filtering it according to the
+     * {@link Predicate} {@code p}.
+     *
+     * @param p the predicate to satisfy.
+     * @return the filtered movements list.
+     */
+    @Override
+    public synchronized List<Movement> getMovementsList(Predicate<Movement> p) {
+        return getMovementsList().stream().filter(p).collect(Collectors.toCollection(ArrayList::new));
+    }
+}
@@ -0,0 +1,488 @@
+package it.unicam.cs.pa.jbudget105053.model;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * This class has the responsibility to store a set of IDs as a compressed bitmap.
+ * The IDs are split in chunks of 65536 values sharing the same 16 high bits. Each chunk is stored
+ * in a sorted array of its 16 low bits while it holds few IDs, and in a plain 65536-bit bitmap once
+ * it becomes dense, so that the IDs generated by the {@link Indexer} take at most two bytes each.
+ * Adding, removing and searching an ID take logarithmic time at worst, the cardinality is always known
+ * and the intersection, union and difference of two bitmaps are computed chunk by chunk.
+ *
+ * @author Tommaso Catervi
+ */
+public final class IDBitmap {
+    private static final int ARRAY_LIMIT = 4096;
+    private char[] keys = new char[4];
+    private Chunk[] chunks = new Chunk[4];
+    private int size;
+    private int cardinality;
+
+    /**
+     * Adds the given ID to this {@link IDBitmap}.
+     *
+     * @param ID the ID to add.
+     * @return true if the ID was not already contained, false otherwise.
+     */
+    public boolean add(int ID) {
+        char key = (char) (ID >>> 16);
+        int i = indexOf(key);
+        if (i < 0) {
+            i = -i - 1;
+            insertChunk(i, key, new ArrayChunk());
+        }
+        int before = chunks[i].cardinality();
+        chunks[i] = chunks[i].add((char) ID);
+        if (chunks[i].cardinality() == before) return false;
+        cardinality++;
+        return true;
+    }
+
+    /**
+     * Removes the given ID from this {@link IDBitmap}.
+     *
+     * @param ID the ID to remove.
+     * @return true if the ID was contained, false otherwise.
+     */
+    public boolean remove(int ID) {
+        int i = indexOf((char) (ID >>> 16));
+        if (i < 0) return false;
+        int before = chunks[i].cardinality();
+        chunks[i] = chunks[i].remove((char) ID);
+        if (chunks[i].cardinality() == before) return false;
+        cardinality--;
+        if (chunks[i].cardinality() == 0) removeChunk(i);
+        return true;
+    }
+
+    /**
+     * Returns true if this {@link IDBitmap} contains the given ID.
+     *
+     * @param ID the ID to search for.
+     * @return true if the ID is contained, false otherwise.
+     */
+    public boolean contains(int ID) {
+        int i = indexOf((char) (ID >>> 16));
+        return i >= 0 && chunks[i].contains((char) ID);
+    }
+
+    /**
+     * Returns the number of IDs contained in this {@link IDBitmap} in constant time.
+     *
+     * @return the number of IDs contained.
+     */
+    public int cardinality() {
+        return cardinality;
+    }
+
+    /**
+     * Returns true if this {@link IDBitmap} contains no ID.
+     *
+     * @return true if this {@link IDBitmap} is empty, false otherwise.
+     */
+    public boolean isEmpty() {
+        return cardinality == 0;
+    }
+
+    /**
+     * Removes all the IDs from this {@link IDBitmap}.
+     */
+    public void clear() {
+        keys = new char[4];
+        chunks = new Chunk[4];
+        size = 0;
+        cardinality = 0;
+    }
+
+    /**
+     * Performs the given action on each ID of this {@link IDBitmap}, in ascending order.
+     *
+     * @param action the action to perform.
+     */
+    public void forEach(IntConsumer action) {
+        for (int i = 0; i < size; i++)
+            chunks[i].forEach(keys[i] << 16, action);
+    }
+
+    /**
+     * Returns an array with all the IDs of this {@link IDBitmap}, in ascending order.
+     *
+     * @return the array of the IDs.
+     */
+    public int[] toArray() {
+        int[] array = new int[cardinality];
+        int[] position = new int[1];
+        forEach(ID -> array[position[0]++] = ID);
+        return array;
+    }
+
+    /**
+     * Returns a new {@link IDBitmap} with the same IDs of this one.
+     *
+     * @return a copy of this {@link IDBitmap}.
+     */
+    public IDBitmap copy() {
+        IDBitmap copy = new IDBitmap();
+        copy.keys = Arrays.copyOf(keys, keys.length);
+        copy.chunks = new Chunk[chunks.length];
+        for (int i = 0; i < size; i++)
+            copy.chunks[i] = chunks[i].copy();
+        copy.size = size;
+        copy.cardinality = cardinality;
+        return copy;
+    }
+
+    /**
+     * Returns a new {@link IDBitmap} with the IDs contained in both the given bitmaps.
+     *
+     * @param a the first bitmap.
+     * @param b the second bitmap.
+     * @return the intersection of the two bitmaps.
+     */
+    public static IDBitmap and(IDBitmap a, IDBitmap b) {
+        IDBitmap result = new IDBitmap();
+        int i = 0, j = 0;
+        while (i < a.size && j < b.size) {
+            if (a.keys[i] < b.keys[j]) i++;
+            else if (a.keys[i] > b.keys[j]) j++;
+            else {
+                result.appendChunk(a.keys[i], a.chunks[i].and(b.chunks[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns a new {@link IDBitmap} with the IDs contained in at least one of the given bitmaps.
+     *
+     * @param a the first bitmap.
+     * @param b the second bitmap.
+     * @return the union of the two bitmaps.
+     */
+    public static IDBitmap or(IDBitmap a, IDBitmap b) {
+        IDBitmap result = new IDBitmap();
+        int i = 0, j = 0;
+        while (i < a.size || j < b.size) {
+            if (j == b.size || (i < a.size && a.keys[i] < b.keys[j])) {
+                result.appendChunk(a.keys[i], a.chunks[i].copy());
+                i++;
+            } else if (i == a.size || a.keys[i] > b.keys[j]) {
+                result.appendChunk(b.keys[j], b.chunks[j].copy());
+                j++;
+            } else {
+                result.appendChunk(a.keys[i], a.chunks[i].or(b.chunks[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns a new {@link IDBitmap} with the IDs contained in the first bitmap but not in the second one.
+     *
+     * @param a the bitmap to subtract from.
+     * @param b the bitmap to subtract.
+     * @return the difference of the two bitmaps.
+     */
+    public static IDBitmap andNot(IDBitmap a, IDBitmap b) {
+        IDBitmap result = new IDBitmap();
+        int j = 0;
+        for (int i = 0; i < a.size; i++) {
+            while (j < b.size && b.keys[j] < a.keys[i]) j++;
+            if (j < b.size && b.keys[j] == a.keys[i])
+                result.appendChunk(a.keys[i], a.chunks[i].andNot(b.chunks[j]));
+            else
+                result.appendChunk(a.keys[i], a.chunks[i].copy());
+        }
+        return result;
+    }
+
+    /**
+     * Returns the position of the chunk with the given key, or {@code -(insertion point) - 1}
+     * if there is none.
+     *
+     * @param key the key to search for.
+     * @return the position of the chunk.
+     */
+    private int indexOf(char key) {
+        return Arrays.binarySearch(keys, 0, size, key);
+    }
+
+    /**
+     * Inserts a chunk with the given key at the given position.
+     *
+     * @param i     the position of the new chunk.
+     * @param key   the key of the new chunk.
+     * @param chunk the new chunk.
+     */
+    private void insertChunk(int i, char key, Chunk chunk) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            chunks = Arrays.copyOf(chunks, size * 2);
+        }
+        System.arraycopy(keys, i, keys, i + 1, size - i);
+        System.arraycopy(chunks, i, chunks, i + 1, size - i);
+        keys[i] = key;
+        chunks[i] = chunk;
+        size++;
+    }
+
+    /**
+     * Appends a chunk with a key greater than all the present ones, as long as it is not empty.
+     *
+     * @param key   the key of the chunk.
+     * @param chunk the chunk to append.
+     */
+    private void appendChunk(char key, Chunk chunk) {
+        if (chunk.cardinality() == 0) return;
+        insertChunk(size, key, chunk);
+        cardinality += chunk.cardinality();
+    }
+
+    /**
+     * Removes the chunk at the given position.
+     *
+     * @param i the position of the chunk to remove.
+     */
+    private void removeChunk(int i) {
+        System.arraycopy(keys, i + 1, keys, i, size - i - 1);
+        System.arraycopy(chunks, i + 1, chunks, i, size - i - 1);
+        chunks[--size] = null;
+    }
+
+    /**
+     * A set of the 16 low bits of the IDs that share the same 16 high bits.
+     * The methods that modify or combine chunks return the chunk holding the result,
+     * which may be of a different kind.
+     */
+    private abstract static class Chunk {
+        abstract int cardinality();
+
+        abstract boolean contains(char value);
+
+        abstract Chunk add(char value);
+
+        abstract Chunk remove(char value);
+
+        abstract Chunk copy();
+
+        abstract void forEach(int base, IntConsumer action);
+
+        abstract BitmapChunk toBitmap();
+
+        Chunk and(Chunk other) {
+            ArrayChunk result = new ArrayChunk();
+            forEach(0, value -> {
+                if (other.contains((char) value)) result.append((char) value);
+            });
+            return result;
+        }
+
+        Chunk or(Chunk other) {
+            BitmapChunk result = toBitmap();
+            other.forEach(0, value -> result.add((char) value));
+            return result.optimize();
+        }
+
+        Chunk andNot(Chunk other) {
+            ArrayChunk result = new ArrayChunk();
+            forEach(0, value -> {
+                if (!other.contains((char) value)) result.append((char) value);
+            });
+            return result.cardinality() > ARRAY_LIMIT ? result.toBitmap() : result;
+        }
+    }
+
+    /**
+     * A chunk that stores its values in a sorted array.
+     */
+    private static final class ArrayChunk extends Chunk {
+        private char[] values = new char[4];
+        private int count;
+
+        @Override
+        int cardinality() {
+            return count;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return Arrays.binarySearch(values, 0, count, value) >= 0;
+        }
+
+        @Override
+        Chunk add(char value) {
+            int i = Arrays.binarySearch(values, 0, count, value);
+            if (i >= 0) return this;
+            if (count == ARRAY_LIMIT) return toBitmap().add(value);
+            i = -i - 1;
+            if (count == values.length)
+                values = Arrays.copyOf(values, Math.min(count * 2, ARRAY_LIMIT));
+            System.arraycopy(values, i, values, i + 1, count - i);
+            values[i] = value;
+            count++;
+            return this;
+        }
+
+        /**
+         * Appends a value greater than all the present ones.
+         *
+         * @param value the value to append.
+         */
+        void append(char value) {
+            if (count == values.length)
+                values = Arrays.copyOf(values, count * 2);
+            values[count++] = value;
+        }
+
+        @Override
+        Chunk remove(char value) {
+            int i = Arrays.binarySearch(values, 0, count, value);
+            if (i < 0) return this;
+            System.arraycopy(values, i + 1, values, i, count - i - 1);
+            count--;
+            return this;
+        }
+
+        @Override
+        Chunk copy() {
+            ArrayChunk copy = new ArrayChunk();
+            copy.values = Arrays.copyOf(values, Math.max(count, 4));
+            copy.count = count;
+            return copy;
+        }
+
+        @Override
+        void forEach(int base, IntConsumer action) {
+            for (int i = 0; i < count; i++)
+                action.accept(base | values[i]);
+        }
+
+        @Override
+        BitmapChunk toBitmap() {
+            BitmapChunk bitmap = new BitmapChunk();
+            for (int i = 0; i < count; i++)
+                bitmap.add(values[i]);
+            return bitmap;
+        }
+    }
+
+    /**
+     * A chunk that stores its values as the bits of 1024 words.
+     */
+    private static final class BitmapChunk extends Chunk {
+        private final long[] words = new long[1024];
+        private int count;
+
+        @Override
+        int cardinality() {
+            return count;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        @Override
+        Chunk add(char value) {
+            long before = words[value >>> 6];
+            words[value >>> 6] = before | (1L << value);
+            if (before != words[value >>> 6]) count++;
+            return this;
+        }
+
+        @Override
+        Chunk remove(char value) {
+            clear(value);
+            return count < ARRAY_LIMIT / 2 ? toArray() : this;
+        }
+
+        /**
+         * Clears the bit of the given value without changing the kind of the chunk.
+         *
+         * @param value the value to clear.
+         */
+        private void clear(char value) {
+            long before = words[value >>> 6];
+            words[value >>> 6] = before & ~(1L << value);
+            if (before != words[value >>> 6]) count--;
+        }
+
+        @Override
+        Chunk copy() {
+            BitmapChunk copy = new BitmapChunk();
+            System.arraycopy(words, 0, copy.words, 0, words.length);
+            copy.count = count;
+            return copy;
+        }
+
+        @Override
+        void forEach(int base, IntConsumer action) {
+            for (int w = 0; w < words.length; w++) {
+                long word = words[w];
+                while (word != 0) {
+                    action.accept(base | (w << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+
+        @Override
+        BitmapChunk toBitmap() {
+            return (BitmapChunk) copy();
+        }
+
+        @Override
+        Chunk and(Chunk other) {
+            if (!(other instanceof BitmapChunk)) return other.and(this);
+            BitmapChunk result = new BitmapChunk();
+            long[] otherWords = ((BitmapChunk) other).words;
+            for (int w = 0; w < words.length; w++) {
+                result.words[w] = words[w] & otherWords[w];
+                result.count += Long.bitCount(result.words[w]);
+            }
+            return result.optimize();
+        }
+
+        @Override
+        Chunk andNot(Chunk other) {
+            BitmapChunk result = other instanceof BitmapChunk ? new BitmapChunk() : (BitmapChunk) copy();
+            if (other instanceof BitmapChunk) {
+                long[] otherWords = ((BitmapChunk) other).words;
+                for (int w = 0; w < words.length; w++) {
+                    result.words[w] = words[w] & ~otherWords[w];
+                    result.count += Long.bitCount(result.words[w]);
+                }
+            } else {
+                other.forEach(0, value -> result.clear((char) value));
+            }
+            return result.optimize();
+        }
+
+        /**
+         * Returns this chunk, or an equivalent array chunk if it holds few values.
+         *
+         * @return the smallest equivalent chunk.
+         */
+        Chunk optimize() {
+            return count <= ARRAY_LIMIT ? toArray() : this;
+        }
+
+        /**
+         * Returns an array chunk with the same values of this chunk.
+         *
+         * @return the equivalent array chunk.
+         */
+        private ArrayChunk toArray() {
+            ArrayChunk array = new ArrayChunk();
+            forEach(0, value -> array.append((char) value));
+            return array;
+        }
+    }
+}
@@ -0,0 +1,852 @@
+package it.unicam.cs.pa.jbudget105053.model;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * This class implements the interface {@link Ledger} and has the responsibility to manage all
+ * data of the application by storing accounts, tags and transactions in insertion-ordered
+ * hash maps keyed by their ID, and movements in a columnar {@link MovementStore}.
+ * When a {@link Transaction} is added, its movements are copied into the store and replaced, in the
+ * {@link Transaction} and in their {@link Account}, by the flyweight views of the store, so the
+ * original {@link Movement} objects should no longer be used. The views are read-only, so the date and the tags of
+ * a stored {@link Transaction} cannot be changed: it must be removed and added again, which keeps all the indexes
+ * up to date.
+ * Unlike {@link LedgerMenu}, checking whether an element is already stored, looking it up by ID and
+ * removing it take constant time, so loading a large ledger costs time proportional to its size.
+ * The lists returned by the getter methods are unmodifiable snapshots that are rebuilt only after
+ * the ledger has been modified.
+ * An inverted {@link TagIndex} keeps, for each {@link Tag}, the IDs of the transactions and movements
+ * carrying it, so tag queries and tag removals only visit the elements involved. For this reason the
+ * tags of a {@link Transaction} and of its movements must be set before the {@link Transaction} is added.
+ * A {@link DateIndex} keeps the transactions and the movements ordered by date, so the transactions of a
+ * period are found without scanning the whole ledger; for the same reason the date of a {@link Transaction}
+ * must be set before it is added.
+ * A {@link LedgerQuery} is answered through the cheapest of these indexes, and only its candidates are visited.
+ * A {@link RollupIndex} keeps the daily, monthly and yearly totals of each {@link Account} and {@link Tag},
+ * updated with each change at a cost proportional to the movements involved, and a {@link BudgetTracker}
+ * keeps the spending of the budgets in the same way.
+ *
+ * @author Tommaso Catervi
+ */
+public class IndexedLedger implements Ledger {
+    private final Map<Integer, Account> accountsMap = new LinkedHashMap<>();
+    private final Map<String, Account> accountsByName = new HashMap<>();
+    private final Map<Integer, Tag> tagsMap = new LinkedHashMap<>();
+    private final Map<String, Tag> tagsByName = new HashMap<>();
+    private final Map<Integer, Transaction> transactionsMap = new LinkedHashMap<>();
+    private final MovementStore movementStore = new MovementStore(accountsMap::get, transactionsMap::get);
+    private final TagIndex tagIndex = new TagIndex();
+    private final DateIndex dateIndex = new DateIndex();
+    private final RollupIndex rollupIndex = new RollupIndex();
+    private final BudgetTracker budgetTracker = new BudgetTracker(this);
+    private List<Account> accountsView;
+    private List<Tag> tagsView;
+    private List<Transaction> transactionsView;
+    private List<Movement> movementsView;
+
+    /**
+     * Allows to create and add a new {@link Account} to the {@code accountsMap}.
+     * The value of the {@code ID} field is generated by the class {@link Indexer}.
+     *
+     * @param accountType    the value used to set the {@code accountType} field in the {@link Account}.
+     * @param name           the value used to set the {@code name} field in the {@link Account}.
+     * @param initialBalance the value used to set the {@code initialBalance} field in the {@link Account}.
+     */
+    @Override
+    public void addAccount(AccountType accountType, String name, double initialBalance) {
+        storeAccount(new BasicAccount(Indexer.getInstance().generateAccountID(), accountType, name, initialBalance));
+    }
+
+    /**
+     * Allows to create and add a new {@link Account} to the {@code accountsMap} without automatically
+     * generating its ID.
+     *
+     * @param ID             the value used to set the {@code ID} field in the {@link Account}.
+     * @param accountType    the value used to set the {@code accountType} field in the {@link Account}.
+     * @param name           the value used to set the {@code name} field in the {@link Account}.
+     * @param initialBalance the value used to set the {@code initialBalance} field in the {@link Account}.
+     */
+    @Override
+    public void addAccountWithID(int ID, AccountType accountType, String name, double initialBalance) {
+        storeAccount(new BasicAccount(ID, accountType, name, initialBalance));
+        Indexer.getInstance().observeAccountID(ID);
+    }
+
+    /**
+     * Adds the given {@link Account} to the {@code accountsMap} as long as no other {@link Account}
+     * with the same ID or name is already stored.
+     *
+     * @param a the {@link Account} to store.
+     */
+    private void storeAccount(Account a) {
+        if (accountsMap.containsKey(a.getID()) || accountsByName.containsKey(a.getName()))
+            throw new IllegalArgumentException(Account.MESSAGE_ACCOUNT_ALREADY_EXISTS);
+        accountsMap.put(a.getID(), a);
+        accountsByName.put(a.getName(), a);
+        accountsView = null;
+    }
+
+    /**
+     * Allows to modify the given {@link Account} with the given parameters, as long as the new name
+     * does not belong to another {@link Account} of this ledger.
+     * The name index is updated so that the {@link Account} can still be found by its new name.
+     *
+     * @param a              the {@link Account} to modify.
+     * @param accountType    the new {@link AccountType} to set.
+     * @param name           the new name to set.
+     * @param initialBalance the new initial balance to set.
+     */
+    @Override
+    public void modifyAccount(Account a, AccountType accountType, String name, double initialBalance) {
+        Account named = Objects.isNull(name) ? null : accountsByName.get(name.toUpperCase());
+        if (Objects.nonNull(named) && named.getID() != a.getID())
+            throw new IllegalArgumentException(Account.MESSAGE_ACCOUNT_ALREADY_EXISTS);
+        String oldName = a.getName();
+        a.setAccountType(accountType);
+        a.setName(name);
+        a.setInitialBalance(initialBalance);
+        if (accountsByName.get(oldName) == a) {
+            accountsByName.remove(oldName);
+            accountsByName.put(a.getName(), a);
+        }
+    }
+
+    /**
+     * Allows to remove an {@link Account} from the {@code accountsMap} as long as
+     * the given parameter is not null and is stored in this ledger.
+     * When an {@link Account} is removed, all movements associated with that
+     * {@link Account} are removed from the {@code movementStore} and from the movements
+     * list of their transaction. All transactions resulting with zero movements after
+     * this computation are removed too.
+     * The movements to remove are reached through the movements list of the {@link Account},
+     * so the cost is proportional to the number of movements of the {@link Account}.
+     *
+     * @param account the {@link Account} to be removed.
+     */
+    @Override
+    public void removeAccount(Account account) {
+        Account stored = findStoredAccount(controlAccount(account));
+        if (Objects.isNull(stored))
+            throw new IllegalArgumentException(Account.MESSAGE_ACCOUNT_DOES_NOT_EXIST);
+        unlinkAccounts(List.of(stored));
+    }
+
+    /**
+     * Allows to remove all the given accounts from the {@code accountsMap} as long as none of
+     * them is null and all of them are stored in this ledger.
+     * All movements associated with the given accounts are removed in a single pass, and each
+     * {@link Transaction} resulting with zero movements is removed once at the end.
+     *
+     * @param accounts the accounts to be removed.
+     */
+    @Override
+    public void removeAccounts(Collection<? extends Account> accounts) {
+        Set<Account> toRemove = new LinkedHashSet<>();
+        for (Account account : accounts) {
+            Account stored = findStoredAccount(controlAccount(account));
+            if (Objects.isNull(stored))
+                throw new IllegalArgumentException(Account.MESSAGE_ACCOUNT_DOES_NOT_EXIST);
+            toRemove.add(stored);
+        }
+        unlinkAccounts(toRemove);
+    }
+
+    /**
+     * Removes the given stored accounts together with their movements, and then removes
+     * every {@link Transaction} left with zero movements.
+     *
+     * @param accounts the stored accounts to remove.
+     */
+    private void unlinkAccounts(Collection<Account> accounts) {
+        Set<Transaction> touched = new LinkedHashSet<>();
+        for (Account a : accounts) {
+            for (Movement m : a.getMovementsList()) {
+                Transaction t = m.getTransaction();
+                tagIndex.removeMovement(m);
+                dateIndex.removeMovement(m);
+                rollupIndex.removeMovement(m);
+                budgetTracker.removeMovement(m);
+                t.getMovements().remove(m);
+                touched.add(t);
+                movementStore.remove(m.getID());
+            }
+            accountsMap.remove(a.getID());
+            accountsByName.remove(a.getName());
+            rollupIndex.removeAccount(a);
+            budgetTracker.removeAccount(a);
+        }
+        touched.forEach(t -> {
+            if (t.getMovements().isEmpty()) {
+                transactionsMap.remove(t.getID());
+                setStored(t, false);
+                tagIndex.removeTransaction(t);
+                dateIndex.removeTransaction(t);
+            }
+        });
+        invalidateViews();
+        budgetTracker.fireEvents();
+    }
+
+    /**
+     * Returns the stored {@link Account} equal to the given one, that is the one with
+     * the same ID or, if there is none, the one with the same name.
+     *
+     * @param account the {@link Account} to search for.
+     * @return the stored {@link Account}, or null if there is none.
+     */
+    private Account findStoredAccount(Account account) {
+        Account stored = accountsMap.get(account.getID());
+        if (Objects.isNull(stored))
+            stored = accountsByName.get(account.getName());
+        return account.equals(stored) ? stored : null;
+    }
+
+    /**
+     * Controls that the given {@link Account} is not null.
+     *
+     * @param account the value to control.
+     * @return the controlled {@link Account}.
+     */
+    private Account controlAccount(Account account) {
+        if (Objects.isNull(account))
+            throw new NullPointerException(Account.MESSAGE_NULL_ACCOUNT);
+        return account;
+    }
+
+    /**
+     * Returns an unmodifiable list of all the accounts associated with this
+     * {@link IndexedLedger}, in the order they were added.
+     *
+     * @return the list of all the accounts of the {@link IndexedLedger}.
+     */
+    @Override
+    public List<Account> getAccounts() {
+        if (Objects.isNull(accountsView))
+            accountsView = Collections.unmodifiableList(new ArrayList<>(accountsMap.values()));
+        return accountsView;
+    }
+
+    /**
+     * Returns the list of all the accounts after filtering it according to the
+     * {@link Predicate} {@code p}.
+     *
+     * @return the filtered accounts list.
+     */
+    @Override
+    public List<Account> getAccounts(Predicate<Account> p) {
+        return accountsMap.values().stream().filter(p).collect(Collectors.toList());
+    }
+
+    /**
+     * Returns the {@link Account} with the given ID in constant time.
+     *
+     * @param ID the ID of the {@link Account} to search for.
+     * @return the {@link Account} with the given ID, or null if there is none.
+     */
+    @Override
+    public Account getAccountByID(int ID) {
+        return accountsMap.get(ID);
+    }
+
+    /**
+     * Allows to add a new {@link Transaction} to the {@code transactionsMap} as long as
+     * the given parameter is not null and is not already stored in this ledger.
+     * When a {@link Transaction} is added, all its movements are copied into the {@code movementStore},
+     * replaced in the {@link Transaction} by their views and added to the {@link Account} they are
+     * associated with.
+     *
+     * @param transaction the {@link Transaction} to add.
+     */
+    @Override
+    public void addTransaction(Transaction transaction) {
+        addTransactions(List.of(controlTransaction(transaction)));
+    }
+
+    /**
+     * Allows to add all the given transactions in a single operation. All the transactions and their
+     * movements, including the {@link Account} of each {@link Movement}, are controlled before any of them
+     * is added, so either all of them are added or none is.
+     * The {@code movementStore} is grown once for the whole batch, the views are invalidated once and
+     * the {@link Indexer} only observes the greatest IDs. The indexes read each {@link Movement} before it
+     * is replaced by its view, so they do not look up its slot in the {@code movementStore}.
+     *
+     * @param transactions the transactions to add.
+     */
+    @Override
+    public void addTransactions(Collection<? extends Transaction> transactions) {
+        IDBitmap transactionIDs = new IDBitmap();
+        IDBitmap movementIDs = new IDBitmap();
+        int movements = 0;
+        for (Transaction t : transactions) {
+            int ID = controlTransaction(t).getID();
+            if (transactionsMap.containsKey(ID) || transactionIDs.contains(ID))
+                throw new IllegalArgumentException(Transaction.MESSAGE_TRANSACTION_ALREADY_EXISTS);
+            transactionIDs.add(ID);
+            for (Movement m : t.getMovements()) {
+                if (accountsMap.get(m.getAccount().getID()) != m.getAccount())
+                    throw new IllegalArgumentException(Account.MESSAGE_ACCOUNT_DOES_NOT_EXIST);
+                if (movementStore.contains(m.getID()) || movementIDs.contains(m.getID()))
+                    throw new IllegalArgumentException(MovementException.MESSAGE_MOVEMENT_ALREADY_EXISTS);
+                movementIDs.add(m.getID());
+                movements++;
+            }
+        }
+        movementStore.reserve(movements);
+        dateIndex.addTransactions(transactions);
+        int lastTransactionID = 0;
+        int lastMovementID = 0;
+        for (Transaction t : transactions) {
+            tagIndex.addTransaction(t);
+            rollupIndex.addTransaction(t);
+            budgetTracker.addTransaction(t);
+            for (ListIterator<Movement> i = t.getMovements().listIterator(); i.hasNext(); ) {
+                Movement m = movementStore.add(i.next());
+                i.set(m);
+                lastMovementID = Math.max(lastMovementID, m.getID());
+            }
+            transactionsMap.put(t.getID(), t);
+            setStored(t, true);
+            lastTransactionID = Math.max(lastTransactionID, t.getID());
+            t.getMovements().forEach(mov -> mov.getAccount().addMovement(mov));
+        }
+        invalidateViews();
+        if (lastMovementID > 0) Indexer.getInstance().observeMovementID(lastMovementID);
+        if (lastTransactionID > 0) Indexer.getInstance().observeTransactionID(lastTransactionID);
+        budgetTracker.fireEvents();
+    }
+
+    /**
+     * Allows to remove a {@link Transaction} from the {@code transactionsMap} as long as
+     * the given parameter is not null and is stored in this ledger.
+     * When a {@link Transaction} is removed, each {@link Movement} associated with that
+     * {@link Transaction} is removed from the {@code movementStore} and from the movements
+     * list of the {@link Account} it is associated with, and its view is replaced in the
+     * {@link Transaction} by a detached copy, so the removed {@link Transaction} can still be read or added again.
+     * The movements are reached through the movements list of the {@link Transaction}, so the
+     * cost is proportional to the number of its movements.
+     *
+     * @param t the {@link Transaction} to remove.
+     */
+    @Override
+    public void removeTransaction(Transaction t) {
+        Transaction stored = transactionsMap.get(controlTransaction(t).getID());
+        if (Objects.isNull(stored))
+            throw new IllegalArgumentException(Transaction.MESSAGE_TRANSACTION_DOES_NOT_EXIST);
+        tagIndex.removeTransaction(stored);
+        dateIndex.removeTransaction(stored);
+        rollupIndex.removeTransaction(stored);
+        budgetTracker.removeTransaction(stored);
+        for (ListIterator<Movement> i = stored.getMovements().listIterator(); i.hasNext(); ) {
+            Movement m = i.next();
+            m.getAccount().removeMovement(m);
+            i.set(movementStore.detach(m.getID()));
+        }
+        transactionsMap.remove(stored.getID());
+        setStored(stored, false);
+        invalidateViews();
+        budgetTracker.fireEvents();
+    }
+
+    /**
+     * Marks the given {@link Transaction} as stored in this ledger or not, so that its date cannot be
+     * changed while it is indexed by date.
+     *
+     * @param t      the {@link Transaction} to mark.
+     * @param stored true if the {@link Transaction} is stored, false otherwise.
+     */
+    private void setStored(Transaction t, boolean stored) {
+        if (t instanceof BasicTransaction) ((BasicTransaction) t).setStored(stored);
+    }
+
+    /**
+     * Controls that the given {@link Transaction} is not null.
+     *
+     * @param transaction the value to control.
+     * @return the controlled {@link Transaction}.
+     */
+    private Transaction controlTransaction(Transaction transaction) {
+        if (transaction == null)
+            throw new NullPointerException(Transaction.MESSAGE_NULL_TRANSACTION);
+        return transaction;
+    }
+
+    /**
+     * Returns an unmodifiable list of all the transactions associated with this
+     * {@link IndexedLedger}, in the order they were added.
+     *
+     * @return the list of all transactions of this {@link IndexedLedger}.
+     */
+    @Override
+    public List<Transaction> getTransactions() {
+        if (Objects.isNull(transactionsView))
+            transactionsView = Collections.unmodifiableList(new ArrayList<>(transactionsMap.values()));
+        return transactionsView;
+    }
+
+    /**
+     * Returns the list of all the transactions after filtering it according to
+     * the {@link Predicate} {@code p}.
+     *
+     * @return the filtered transactions list.
+     */
+    @Override
+    public List<Transaction> getTransactions(Predicate<Transaction> p) {
+        return transactionsMap.values().stream().filter(p).collect(Collectors.toList());
+    }
+
+    /**
+     * Returns the {@link Transaction} with the given ID in constant time.
+     *
+     * @param ID the ID of the {@link Transaction} to search for.
+     * @return the {@link Transaction} with the given ID, or null if there is none.
+     */
+    @Override
+    public Transaction getTransactionByID(int ID) {
+        return transactionsMap.get(ID);
+    }
+
+    /**
+     * Returns the list of the transactions dated between the given dates, both included, in chronological
+     * order. The transactions are found through the {@link DateIndex}, so the cost is logarithmic in the
+     * size of the ledger plus the number of transactions returned.
+     *
+     * @param from the first date of the period.
+     * @param to   the last date of the period.
+     * @return the list of the transactions of the period.
+     */
+    @Override
+    public List<Transaction> getTransactions(LocalDate from, LocalDate to) {
+        controlPeriod(from, to);
+        List<Transaction> result = new ArrayList<>();
+        dateIndex.getTransactionIDs(Math.toIntExact(from.toEpochDay()), Math.toIntExact(to.toEpochDay()))
+                .forEachRemaining((int ID) -> result.add(transactionsMap.get(ID)));
+        return result;
+    }
+
+    /**
+     * Returns a lazy iterator over all the transactions, from the most recent to the oldest one, read
+     * from the {@link DateIndex}. Transactions with the same date are returned in descending order of ID.
+     *
+     * @return the iterator over the transactions in reverse chronological order.
+     */
+    @Override
+    public Iterator<Transaction> descendingTransactions() {
+        PrimitiveIterator.OfInt IDs = dateIndex.descendingTransactionIDs();
+        return new Iterator<Transaction>() {
+            @Override
+            public boolean hasNext() {
+                return IDs.hasNext();
+            }
+
+            @Override
+            public Transaction next() {
+                return transactionsMap.get(IDs.nextInt());
+            }
+        };
+    }
+
+    /**
+     * Returns an unmodifiable list of all the movements associated with this
+     * {@link IndexedLedger}, in the order they were added.
+     *
+     * @return the list of all movements of this {@link IndexedLedger}.
+     */
+    @Override
+    public List<Movement> getMovements() {
+        if (Objects.isNull(movementsView))
+            movementsView = Collections.unmodifiableList(movementStore.getMovements());
+        return movementsView;
+    }
+
+    /**
+     * Returns the {@link Movement} with the given ID in constant time.
+     *
+     * @param ID the ID of the {@link Movement} to search for.
+     * @return the {@link Movement} with the given ID, or null if there is none.
+     */
+    @Override
+    public Movement getMovementByID(int ID) {
+        return movementStore.get(ID);
+    }
+
+    /**
+     * Returns an unmodifiable list of all the tags associated with this
+     * {@link IndexedLedger}, in the order they were added.
+     *
+     * @return the list of all tags of this {@link IndexedLedger}.
+     */
+    @Override
+    public List<Tag> getTags() {
+        if (Objects.isNull(tagsView))
+            tagsView = Collections.unmodifiableList(new ArrayList<>(tagsMap.values()));
+        return tagsView;
+    }
+
+    /**
+     * Returns the {@link Tag} with the given ID in constant time.
+     *
+     * @param ID the ID of the {@link Tag} to search for.
+     * @return the {@link Tag} with the given ID, or null if there is none.
+     */
+    @Override
+    public Tag getTagByID(int ID) {
+        return tagsMap.get(ID);
+    }
+
+    /**
+     * Allows to create and add a new {@link Tag} to the {@code tagsMap}.
+     * The value of the {@code ID} field is generated by the class {@link Indexer}.
+     *
+     * @param name        the value used to set the {@code name} field in the {@link Tag}.
+     * @param description the value used to set the {@code description} field in the {@link Tag}.
+     */
+    @Override
+    public void addTag(String name, String description) {
+        storeTag(new BasicTag(Indexer.getInstance().generateTagID(), name, description));
+    }
+
+    /**
+     * Allows to create and add a new {@link Tag} to the {@code tagsMap} without automatically
+     * generating its ID.
+     *
+     * @param ID          the value used to set the {@code ID} field in the {@link Tag}.
+     * @param name        the value used to set the {@code name} field in the {@link Tag}.
+     * @param description the value used to set the {@code description} field in the {@link Tag}.
+     */
+    @Override
+    public void addTagWithID(int ID, String name, String description) {
+        storeTag(new BasicTag(ID, name, description));
+        Indexer.getInstance().observeTagID(ID);
+    }
+
+    /**
+     * Adds the given {@link Tag} to the {@code tagsMap} as long as no other {@link Tag}
+     * with the same ID or name is already stored.
+     *
+     * @param t the {@link Tag} to store.
+     */
+    private void storeTag(Tag t) {
+        if (tagsMap.containsKey(t.getID()) || tagsByName.containsKey(t.getName()))
+            throw new IllegalArgumentException(Tag.MESSAGE_TAG_ALREADY_EXISTS);
+        tagsMap.put(t.getID(), t);
+        tagsByName.put(t.getName(), t);
+        tagsView = null;
+    }
+
+    /**
+     * Allows to modify the given {@link Tag} with the given parameters, as long as the new name
+     * does not belong to another {@link Tag} of this ledger.
+     * The name index is updated so that the {@link Tag} can still be found by its new name.
+     *
+     * @param t           the {@link Tag} to modify.
+     * @param name        the new name to set.
+     * @param description the new description to set.
+     */
+    @Override
+    public void modifyTag(Tag t, String name, String description) {
+        Tag named = Objects.isNull(name) ? null : tagsByName.get(name.toUpperCase());
+        if (Objects.nonNull(named) && named.getID() != t.getID())
+            throw new IllegalArgumentException(Tag.MESSAGE_TAG_ALREADY_EXISTS);
+        String oldName = t.getName();
+        t.setName(name);
+        t.setDescription(description);
+        if (tagsByName.get(oldName) == t) {
+            tagsByName.remove(oldName);
+            tagsByName.put(t.getName(), t);
+        }
+    }
+
+    /**
+     * Allows to remove a {@link Tag} from the {@code tagsMap} as long as the given parameter
+     * is not null and is stored in this ledger.
+     * The given {@link Tag} is also removed from all transactions and movements carrying it,
+     * which are reached through the {@link TagIndex} without scanning the whole ledger. The rollups of the
+     * {@link Tag} are discarded, and the movements left without tags are counted in the rollups of
+     * {@code Report.NONE}.
+     *
+     * @param tag the {@link Tag} to remove.
+     */
+    @Override
+    public void removeTag(Tag tag) {
+        Tag stored = findStoredTag(controlTag(tag));
+        if (Objects.isNull(stored))
+            throw new IllegalArgumentException(Tag.MESSAGE_TAG_DOES_NOT_EXIST);
+        tagsMap.remove(stored.getID());
+        tagsByName.remove(stored.getName());
+        tagsView = null;
+        tagIndex.getMovementIDs(stored).forEach(ID -> {
+            movementStore.removeTag(ID, stored);
+            if (movementStore.get(ID).getTag().isEmpty()) rollupIndex.untagged(movementStore.get(ID));
+        });
+        tagIndex.getTransactionIDs(stored).forEach(ID -> {
+            Transaction t = transactionsMap.get(ID);
+            if (t.getTag().contains(stored)) t.removeTag(stored);
+        });
+        tagIndex.removeTag(stored);
+        rollupIndex.removeTag(stored);
+        budgetTracker.removeTag(stored);
+    }
+
+    /**
+     * Returns the list of the transactions whose tags satisfy the given {@link TagExpression},
+     * in ascending order of ID. The expression is evaluated on the {@link TagIndex}.
+     *
+     * @param expression the {@link TagExpression} to evaluate.
+     * @return the list of the matching transactions.
+     */
+    @Override
+    public List<Transaction> getTransactions(TagExpression expression) {
+        List<Transaction> result = new ArrayList<>();
+        tagIndex.getTransactionIDs(controlExpression(expression)).forEach(ID -> result.add(transactionsMap.get(ID)));
+        return result;
+    }
+
+    /**
+     * Returns the list of the movements whose tags satisfy the given {@link TagExpression},
+     * in ascending order of ID. The expression is evaluated on the {@link TagIndex}.
+     *
+     * @param expression the {@link TagExpression} to evaluate.
+     * @return the list of the matching movements.
+     */
+    @Override
+    public List<Movement> getMovements(TagExpression expression) {
+        List<Movement> result = new ArrayList<>();
+        tagIndex.getMovementIDs(controlExpression(expression)).forEach(ID -> result.add(movementStore.get(ID)));
+        return result;
+    }
+
+    /**
+     * Returns the number of movements carrying the given {@link Tag} in constant time.
+     *
+     * @param tag the {@link Tag} to search for.
+     * @return the number of movements carrying the {@link Tag}.
+     */
+    @Override
+    public int countMovements(Tag tag) {
+        return tagIndex.getMovementIDs(controlTag(tag)).cardinality();
+    }
+
+    /**
+     * Returns the daily, monthly or yearly totals of all the accounts or of all the tags, read from the
+     * {@link RollupIndex} without visiting the movements. The table is rebuilt from the cells only after the
+     * ledger has been modified. Modifying an {@link Account} leaves its totals unchanged, since they are kept
+     * by ID and only depend on its movements.
+     *
+     * @param key         {@code ACCOUNT} or {@code TAG}.
+     * @param granularity the length of the periods.
+     * @return the table of the totals, keyed by the ID and then by the period.
+     */
+    @Override
+    public ReportTable getRollups(Report.Key key, Granularity granularity) {
+        return rollupIndex.getTable(Report.controlRollupKey(key), Objects.requireNonNull(granularity));
+    }
+
+    /**
+     * Returns the {@link BudgetTracker} of this ledger, which is updated together with the {@link RollupIndex}
+     * and seeds the spending of a new {@link Budget} from it.
+     *
+     * @return the {@link BudgetTracker} of this ledger.
+     */
+    @Override
+    public BudgetTracker getBudgetTracker() {
+        return budgetTracker;
+    }
+
+    /**
+     * Returns a lazy cursor over the movements satisfying the given {@link LedgerQuery}. The candidates,
+     * and the order in which they are visited, are chosen by {@code plan()}.
+     *
+     * @param query the {@link LedgerQuery} to answer.
+     * @return the cursor over the matching movements.
+     */
+    @Override
+    public QueryCursor<Movement> queryMovements(LedgerQuery query) {
+        Plan plan = plan(QueryCursor.controlQuery(query));
+        return QueryCursor.ofMovements(plan.plan, plan.candidates, query);
+    }
+
+    /**
+     * Returns a lazy cursor over the transactions with at least one movement satisfying the given
+     * {@link LedgerQuery}. The candidates are chosen by {@code plan()}.
+     *
+     * @param query the {@link LedgerQuery} to answer.
+     * @return the cursor over the matching transactions.
+     */
+    @Override
+    public QueryCursor<Transaction> queryTransactions(LedgerQuery query) {
+        Plan plan = plan(QueryCursor.controlQuery(query));
+        return QueryCursor.ofTransactions(plan.plan, plan.candidates, query);
+    }
+
+    /**
+     * Chooses the cheapest way to find the candidate movements of the given {@link LedgerQuery}, that is the
+     * one returning the fewest candidates. The cost of the accounts is the number of their movements, known
+     * in constant time per {@link Account}, the cost of the range of dates is counted by the {@link DateIndex}
+     * in logarithmic time, while the {@link TagExpression} is evaluated on the {@link TagIndex}, whose result
+     * is exact. When the accounts are cheaper than a {@link TagExpression} already computed, their movements
+     * are intersected with its result. The candidates found through the dates are visited in chronological
+     * order, the ones found through the other indexes in ascending order of ID.
+     * The other criteria are checked on each candidate by the {@link QueryCursor}.
+     *
+     * @param query the {@link LedgerQuery} to answer.
+     * @return the chosen plan.
+     */
+    private Plan plan(LedgerQuery query) {
+        QueryPlan best = QueryPlan.SCAN;
+        long cost = movementStore.size();
+        if (query.hasAccounts()) {
+            long accountsCost = 0;
+            for (int ID : query.getAccountIDs()) {
+                Account a = accountsMap.get(ID);
+                if (Objects.nonNull(a)) accountsCost += a.getMovementsList().size();
+            }
+            if (accountsCost < cost) {
+                best = QueryPlan.ACCOUNT;
+                cost = accountsCost;
+            }
+        }
+        if (query.hasDates()) {
+            long datesCost = dateIndex.countMovements(query.getFromDay(), query.getToDay());
+            if (datesCost < cost) {
+                best = QueryPlan.DATE;
+                cost = datesCost;
+            }
+        }
+        IDBitmap tagged = null;
+        if (query.hasTags()) {
+            tagged = tagIndex.getMovementIDs(query.getTagExpression());
+            if (tagged.cardinality() < cost) best = QueryPlan.TAG;
+        }
+        if (best == QueryPlan.ACCOUNT) {
+            IDBitmap candidates = new IDBitmap();
+            for (int ID : query.getAccountIDs()) {
+                Account a = accountsMap.get(ID);
+                if (Objects.nonNull(a)) a.getMovementsList().forEach(m -> candidates.add(m.getID()));
+            }
+            return new Plan(best, movementsOf(Objects.isNull(tagged) ? candidates : IDBitmap.and(candidates, tagged)));
+        }
+        if (best == QueryPlan.DATE) {
+            PrimitiveIterator.OfInt IDs = dateIndex.getMovementIDs(query.getFromDay(), query.getToDay());
+            return new Plan(best, new Iterator<Movement>() {
+                @Override
+                public boolean hasNext() {
+                    return IDs.hasNext();
+                }
+
+                @Override
+                public Movement next() {
+                    return movementStore.get(IDs.nextInt());
+                }
+            });
+        }
+        return new Plan(best, best == QueryPlan.TAG ? movementsOf(tagged) : getMovements().iterator());
+    }
+
+    /**
+     * Returns an iterator over the movements with the given IDs, resolved only when they are reached.
+     *
+     * @param IDs the IDs of the movements.
+     * @return the iterator over the movements, in ascending order of ID.
+     */
+    private Iterator<Movement> movementsOf(IDBitmap IDs) {
+        return QueryCursor.movementsOf(IDs.toArray(), this);
+    }
+
+    /**
+     * The way chosen to find the candidate movements of a {@link LedgerQuery}, with the candidates it found.
+     */
+    private static final class Plan {
+        private final QueryPlan plan;
+        private final Iterator<Movement> candidates;
+
+        private Plan(QueryPlan plan, Iterator<Movement> candidates) {
+            this.plan = plan;
+            this.candidates = candidates;
+        }
+    }
+
+    /**
+     * Controls that the given dates are not null and that the first one is not after the second one.
+     *
+     * @param from the first date of the period.
+     * @param to   the last date of the period.
+     */
+    private void controlPeriod(LocalDate from, LocalDate to) {
+        if (Objects.isNull(from) || Objects.isNull(to))
+            throw new NullPointerException(Account.MESSAGE_NULL_DATE);
+        if (from.isAfter(to))
+            throw new IllegalArgumentException(Account.MESSAGE_WRONG_PERIOD);
+    }
+
+    /**
+     * Controls that the given {@link TagExpression} is not null.
+     *
+     * @param expression the value to control.
+     * @return the controlled {@link TagExpression}.
+     */
+    private TagExpression controlExpression(TagExpression expression) {
+        if (Objects.isNull(expression))
+            throw new NullPointerException(TagExpression.MESSAGE_NULL_EXPRESSION);
+        return expression;
+    }
+
+    /**
+     * Returns the stored {@link Tag} equal to the given one, that is the one with
+     * the same ID or, if there is none, the one with the same name.
+     *
+     * @param tag the {@link Tag} to search for.
+     * @return the stored {@link Tag}, or null if there is none.
+     */
+    private Tag findStoredTag(Tag tag) {
+        Tag stored = tagsMap.get(tag.getID());
+        if (Objects.isNull(stored))
+            stored = tagsByName.get(tag.getName());
+        return tag.equals(stored) ? stored : null;
+    }
+
+    /**
+     * Controls that the given {@link Tag} is not null.
+     *
+     * @param t the {@link Tag} to control.
+     */
+    private Tag controlTag(Tag t) {
+        if (t == null)
+            throw new NullPointerException(Tag.MESSAGE_NULL_TAG);
+        return t;
+    }
+
+    /**
+     * Discards the cached snapshots of all the lists so that they are rebuilt
+     * the next time they are requested.
+     */
+    private void invalidateViews() {
+        accountsView = null;
+        tagsView = null;
+        transactionsView = null;
+        movementsView = null;
+    }
+
+    /**
+     * Resets this ledger by emptying all its maps and resetting the ID generators
+     * of the class {@link Indexer}.
+     */
+    @Override
+    public void resetLedger() {
+        accountsMap.clear();
+        accountsByName.clear();
+        tagsMap.clear();
+        tagsByName.clear();
+        transactionsMap.values().forEach(t -> setStored(t, false));
+        transactionsMap.clear();
+        movementStore.clear();
+        tagIndex.clear();
+        dateIndex.clear();
+        rollupIndex.clear();
+        budgetTracker.clear();
+        invalidateViews();
+        Indexer.getInstance().resetAll();
+    }
+}
@@ -1,20 +1,26 @@
 package it.unicam.cs.pa.jbudget105053.model;
 
-import java.util.List;
-import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * This class has the responsibility to manage all IDs of all the accounts, tags,
  * transactions and movements of the application.
+ * Each generator is an atomic counter that always holds the next free ID, so IDs can be
+ * generated, observed and reserved in blocks from many threads at the same time.
  *
  * @author Tommaso Catervi
  */
 public final class Indexer {
-    private int ACCOUNT_ID_GENERATOR = 1;
-    private int TAG_ID_GENERATOR = 1;
-    private int TRANSACTION_ID_GENERATOR = 1;
-    private int MOVEMENT_ID_GENERATOR = 1;
-    private static Indexer indexer;
+    /**
+     * The string error message for when a block of less than one ID is requested.
+     */
+    public static final String MESSAGE_WRONG_BLOCK_SIZE = "Il numero di ID da riservare deve essere maggiore di zero.";
+
+    private static final Indexer INDEXER = new Indexer();
+    private final AtomicInteger accountIDGenerator = new AtomicInteger(1);
+    private final AtomicInteger tagIDGenerator = new AtomicInteger(1);
+    private final AtomicInteger transactionIDGenerator = new AtomicInteger(1);
+    private final AtomicInteger movementIDGenerator = new AtomicInteger(1);
 
     /**
      * Constructs an {@link Indexer} with no parameters.
@@ -26,15 +32,12 @@ public final class Indexer {
     }
 
     /**
-     * Returns the only instance of this singleton class after
-     * having initialised it if it is null.
+     * Returns the only instance of this singleton class.
      *
      * @return the instance of Indexer.
      */
     public static Indexer getInstance() {
-        if (Objects.isNull(indexer))
-            indexer = new Indexer();
-        return indexer;
+        return INDEXER;
     }
 
     /**
@@ -43,7 +46,7 @@ public final class Indexer {
      * @return the latest account ID.
      */
     public int generateAccountID() {
-        return ACCOUNT_ID_GENERATOR++;
+        return accountIDGenerator.getAndIncrement();
     }
 
     /**
@@ -52,7 +55,7 @@ public final class Indexer {
      * @return the latest tag ID.
      */
     public int generateTagID() {
-        return TAG_ID_GENERATOR++;
+        return tagIDGenerator.getAndIncrement();
     }
 
     /**
@@ -61,7 +64,7 @@ public final class Indexer {
      * @return the latest transaction ID.
      */
     public int generateTransactionID() {
-        return TRANSACTION_ID_GENERATOR++;
+        return transactionIDGenerator.getAndIncrement();
     }
 
     /**
@@ -70,67 +73,100 @@ public final class Indexer {
      * @return the latest movement ID.
      */
     public int generateMovementID() {
-        return MOVEMENT_ID_GENERATOR++;
+        return movementIDGenerator.getAndIncrement();
+    }
+
+    /**
+     * Reserves a block of {@code count} contiguous IDs for the construction of transactions
+     * and returns the first one. No other call will return an ID of the block.
+     *
+     * @param count the number of IDs to reserve.
+     * @return the first ID of the reserved block.
+     */
+    public int reserveTransactionIDs(int count) {
+        return transactionIDGenerator.getAndAdd(controlBlockSize(count));
+    }
+
+    /**
+     * Reserves a block of {@code count} contiguous IDs for the construction of movements
+     * and returns the first one. No other call will return an ID of the block.
+     *
+     * @param count the number of IDs to reserve.
+     * @return the first ID of the reserved block.
+     */
+    public int reserveMovementIDs(int count) {
+        return movementIDGenerator.getAndAdd(controlBlockSize(count));
+    }
+
+    /**
+     * Controls that the given block size is greater than zero.
+     *
+     * @param count the value to control.
+     * @return the controlled block size.
+     */
+    private int controlBlockSize(int count) {
+        if (count < 1)
+            throw new IllegalArgumentException(MESSAGE_WRONG_BLOCK_SIZE);
+        return count;
     }
 
     /**
-     * Upgrades the {@code ACCOUNT_ID_GENERATOR} with the highest ID + 1
-     * between all the accounts of an accounts list.
+     * Notifies the {@link Indexer} that an {@link Account} with the given ID exists, so that
+     * the {@code accountIDGenerator} is moved past it if needed.
      *
-     * @param list the list to iterate.
+     * @param ID the ID in use.
      */
-    public void fixAccountID(List<? extends Account> list) {
-        ACCOUNT_ID_GENERATOR = getFixedID(list);
+    public void observeAccountID(int ID) {
+        observe(accountIDGenerator, ID);
     }
 
     /**
-     * Upgrades the {@code TAG_ID_GENERATOR} with the highest ID + 1
-     * between all the tags of a tag list.
+     * Notifies the {@link Indexer} that a {@link Tag} with the given ID exists, so that
+     * the {@code tagIDGenerator} is moved past it if needed.
      *
-     * @param list the list to iterate.
+     * @param ID the ID in use.
      */
-    public void fixTagID(List<? extends Tag> list) {
-        TAG_ID_GENERATOR = getFixedID(list);
+    public void observeTagID(int ID) {
+        observe(tagIDGenerator, ID);
     }
 
     /**
-     * Upgrades the {@code TRANSACTION_ID_GENERATOR} with the highest ID + 1
-     * between all the transactions of a transactions list.
+     * Notifies the {@link Indexer} that a {@link Transaction} with the given ID exists, so that
+     * the {@code transactionIDGenerator} is moved past it if needed.
      *
-     * @param list the list to iterate.
+     * @param ID the ID in use.
      */
-    public void fixTransactionID(List<? extends Transaction> list) {
-        TRANSACTION_ID_GENERATOR = getFixedID(list);
+    public void observeTransactionID(int ID) {
+        observe(transactionIDGenerator, ID);
     }
 
     /**
-     * Upgrades the {@code MOVEMENT_ID_GENERATOR} with the highest ID + 1
-     * between all the movements of a movements list.
+     * Notifies the {@link Indexer} that a {@link Movement} with the given ID exists, so that
+     * the {@code movementIDGenerator} is moved past it if needed.
      *
-     * @param list the list to iterate.
+     * @param ID the ID in use.
      */
-    public void fixMovementID(List<? extends Movement> list) {
-        MOVEMENT_ID_GENERATOR = getFixedID(list);
+    public void observeMovementID(int ID) {
+        observe(movementIDGenerator, ID);
     }
 
     /**
-     * Returns the highest ID between the IDs of all the elements of the given
-     * list plus one.
+     * Atomically sets the given generator to the given ID + 1 if it is currently lower.
      *
-     * @param list the list of objects extending {@link HasID} to iterate.
-     * @return the highest ID + 1.
+     * @param generator the generator to update.
+     * @param ID        the ID in use.
      */
-    private int getFixedID(List<? extends HasID> list) {
-        return list.stream().mapToInt(HasID::getID).max().orElse(0) + 1;
+    private void observe(AtomicInteger generator, int ID) {
+        generator.accumulateAndGet(ID + 1, Math::max);
     }
 
     /**
      * Resets all ID counters to 1.
      */
     public void resetAll() {
-        ACCOUNT_ID_GENERATOR = 1;
-        TAG_ID_GENERATOR = 1;
-        TRANSACTION_ID_GENERATOR = 1;
-        MOVEMENT_ID_GENERATOR = 1;
+        accountIDGenerator.set(1);
+        tagIDGenerator.set(1);
+        transactionIDGenerator.set(1);
+        movementIDGenerator.set(1);
     }
 }
@@ -0,0 +1,62 @@
+package it.unicam.cs.pa.jbudget105053.model;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.function.IntFunction;
+
+/**
+ * This class has the responsibility to present, as an unmodifiable list, a sequence of rows stored
+ * in a file followed by a list of elements kept in memory. The element of a row is only created when
+ * it is requested, by the given function, so the memory used by the list does not depend on the number
+ * of rows. The rows excluded by the given {@link RowExclusions} are skipped.
+ *
+ * @param <T> the type of the elements of the list.
+ * @author Tommaso Catervi
+ */
+final class LazyRowList<T> extends AbstractList<T> implements RandomAccess {
+    private final RowExclusions excluded;
+    private final int rows;
+    private final IntFunction<T> atRow;
+    private final List<T> tail;
+
+    /**
+     * Constructs a new {@link LazyRowList} with the given parameters.
+     *
+     * @param excluded the positions of the rows to skip.
+     * @param rows     the number of rows, including the excluded ones.
+     * @param atRow    the function creating the element of the row in the given position.
+     * @param tail     the elements which follow the rows.
+     */
+    LazyRowList(RowExclusions excluded, int rows, IntFunction<T> atRow, List<T> tail) {
+        this.excluded = excluded;
+        this.rows = rows;
+        this.atRow = atRow;
+        this.tail = tail;
+    }
+
+    /**
+     * Returns the element in the given position of the list, creating it if it is stored in a row.
+     *
+     * @param index the position of the element.
+     * @return the element in the given position.
+     */
+    @Override
+    public T get(int index) {
+        Objects.checkIndex(index, size());
+        int visibleRows = rows - excluded.size();
+        if (index < visibleRows) return atRow.apply(excluded.toPosition(index));
+        return tail.get(index - visibleRows);
+    }
+
+    /**
+     * Returns the number of elements of the list.
+     *
+     * @return the number of rows which are not excluded plus the number of elements kept in memory.
+     */
+    @Override
+    public int size() {
+        return rows - excluded.size() + tail.size();
+    }
+}
@@ -1,7 +1,9 @@
 package it.unicam.cs.pa.jbudget105053.model;
 
-import java.util.List;
+import java.time.LocalDate;
+import java.util.*;
 import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 /**
  * This interface is implemented by all the classes that have the responsibility to manage all
@@ -12,6 +14,22 @@ import java.util.function.Predicate;
  * list of all transactions or accounts that satisfy a particular predicate.
  */
 public interface Ledger {
+    /**
+     * The string error message for when a null {@link LedgerQuery} is passed.
+     */
+    String MESSAGE_NULL_QUERY = "La query passata e' nulla, ergo non valida.";
+
+    /**
+     * The string error message for when the totals are requested by a key other than the account or the tag.
+     */
+    String MESSAGE_WRONG_ROLLUP_KEY = "I totali sono disponibili solo per account e per tag.";
+
+    /**
+     * The order of the transactions by date and then by ID.
+     */
+    Comparator<Transaction> CHRONOLOGICAL_ORDER = Comparator.comparingInt(Transaction::getEpochDay)
+            .thenComparingInt(Transaction::getID);
+
     /**
      * Allows to create a new {@link Account} with the given parameters and then adds
      * it to the accounts list.
@@ -50,6 +68,13 @@ public interface Ledger {
      */
     void removeAccount(Account a);
 
+    /**
+     * Allows to remove all the given accounts from the accounts list in a single operation.
+     *
+     * @param accounts the accounts to remove.
+     */
+    void removeAccounts(Collection<? extends Account> accounts);
+
     /**
      * Getter method for the accounts list.
      *
@@ -66,6 +91,14 @@ public interface Ledger {
      */
     List<Account> getAccounts(Predicate<Account> p);
 
+    /**
+     * Returns the {@link Account} with the given ID.
+     *
+     * @param ID the ID of the {@link Account} to search for.
+     * @return the {@link Account} with the given ID, or null if there is none.
+     */
+    Account getAccountByID(int ID);
+
     /**
      * Allows to add a new {@link Transaction} to the transactions list.
      *
@@ -73,6 +106,17 @@ public interface Ledger {
      */
     void addTransaction(Transaction t);
 
+    /**
+     * Allows to add all the given transactions to the transactions list in a single operation.
+     * The whole batch is controlled before any {@link Transaction} is added: none of the transactions
+     * can be null or have the ID of another one, none of their movements can have the ID of another one
+     * and all of them must be associated with an {@link Account} of the ledger. If one of the
+     * transactions cannot be added, none of them is added.
+     *
+     * @param transactions the transactions to add.
+     */
+    void addTransactions(Collection<? extends Transaction> transactions);
+
     /**
      * Allows to remove a {@link Transaction} from the transactions list.
      *
@@ -96,6 +140,47 @@ public interface Ledger {
      */
     List<Transaction> getTransactions(Predicate<Transaction> p);
 
+    /**
+     * Returns the list of the transactions dated between the given dates, both included, in chronological
+     * order; transactions with the same date are sorted by ID.
+     * This implementation sorts all the transactions; a {@link Ledger} with a date index should override it.
+     *
+     * @param from the first date of the period.
+     * @param to   the last date of the period.
+     * @return the list of the transactions of the period.
+     */
+    default List<Transaction> getTransactions(LocalDate from, LocalDate to) {
+        if (Objects.isNull(from) || Objects.isNull(to))
+            throw new NullPointerException(Account.MESSAGE_NULL_DATE);
+        if (from.isAfter(to))
+            throw new IllegalArgumentException(Account.MESSAGE_WRONG_PERIOD);
+        long fromDay = from.toEpochDay();
+        long toDay = to.toEpochDay();
+        return getTransactions().stream().filter(t -> t.getEpochDay() >= fromDay && t.getEpochDay() <= toDay)
+                .sorted(CHRONOLOGICAL_ORDER).collect(Collectors.toList());
+    }
+
+    /**
+     * Returns an iterator over all the transactions, from the most recent to the oldest one; transactions
+     * with the same date are returned in descending order of ID.
+     * This implementation sorts all the transactions; a {@link Ledger} with a date index should override it.
+     *
+     * @return the iterator over the transactions in reverse chronological order.
+     */
+    default Iterator<Transaction> descendingTransactions() {
+        List<Transaction> sorted = new ArrayList<>(getTransactions());
+        sorted.sort(CHRONOLOGICAL_ORDER.reversed());
+        return Collections.unmodifiableList(sorted).iterator();
+    }
+
+    /**
+     * Returns the {@link Transaction} with the given ID.
+     *
+     * @param ID the ID of the {@link Transaction} to search for.
+     * @return the {@link Transaction} with the given ID, or null if there is none.
+     */
+    Transaction getTransactionByID(int ID);
+
     /**
      * Getter method for the movements list.
      *
@@ -103,6 +188,14 @@ public interface Ledger {
      */
     List<Movement> getMovements();
 
+    /**
+     * Returns the {@link Movement} with the given ID.
+     *
+     * @param ID the ID of the {@link Movement} to search for.
+     * @return the {@link Movement} with the given ID, or null if there is none.
+     */
+    Movement getMovementByID(int ID);
+
     /**
      * Getter method for the tags list.
      *
@@ -110,6 +203,14 @@ public interface Ledger {
      */
     List<Tag> getTags();
 
+    /**
+     * Returns the {@link Tag} with the given ID.
+     *
+     * @param ID the ID of the {@link Tag} to search for.
+     * @return the {@link Tag} with the given ID, or null if there is none.
+     */
+    Tag getTagByID(int ID);
+
     /**
      * Allows to create a new {@link Tag} and then adds it to the tags list.
      *
@@ -144,6 +245,79 @@ public interface Ledger {
      */
     void removeTag(Tag t);
 
+    /**
+     * Returns the list of the transactions whose tags satisfy the given {@link TagExpression}.
+     *
+     * @param expression the {@link TagExpression} to evaluate.
+     * @return the list of the matching transactions.
+     */
+    List<Transaction> getTransactions(TagExpression expression);
+
+    /**
+     * Returns the list of the movements whose tags satisfy the given {@link TagExpression}.
+     *
+     * @param expression the {@link TagExpression} to evaluate.
+     * @return the list of the matching movements.
+     */
+    List<Movement> getMovements(TagExpression expression);
+
+    /**
+     * Returns the number of movements carrying the given {@link Tag}.
+     *
+     * @param tag the {@link Tag} to search for.
+     * @return the number of movements carrying the {@link Tag}.
+     */
+    int countMovements(Tag tag);
+
+    /**
+     * Returns a lazy cursor over the movements satisfying the given {@link LedgerQuery}.
+     * This implementation visits all the movements; a {@link Ledger} with indexes should override it so
+     * that only the candidates returned by its cheapest index are visited.
+     *
+     * @param query the {@link LedgerQuery} to answer.
+     * @return the cursor over the matching movements.
+     */
+    default QueryCursor<Movement> queryMovements(LedgerQuery query) {
+        return QueryCursor.ofMovements(QueryPlan.SCAN, getMovements().iterator(), QueryCursor.controlQuery(query));
+    }
+
+    /**
+     * Returns a lazy cursor over the transactions with at least one movement satisfying the given
+     * {@link LedgerQuery}.
+     * This implementation visits all the movements; a {@link Ledger} with indexes should override it so
+     * that only the candidates returned by its cheapest index are visited.
+     *
+     * @param query the {@link LedgerQuery} to answer.
+     * @return the cursor over the matching transactions.
+     */
+    default QueryCursor<Transaction> queryTransactions(LedgerQuery query) {
+        return QueryCursor.ofTransactions(QueryPlan.SCAN, getMovements().iterator(), QueryCursor.controlQuery(query));
+    }
+
+    /**
+     * Returns the daily, monthly or yearly totals of all the accounts or of all the tags, as a {@link ReportTable}
+     * keyed by the ID and then by the period: for each of them the sum of the increments, the sum of the
+     * decrements and the number of the movements.
+     * This implementation computes the totals from all the movements; a {@link Ledger} should override it to
+     * keep them up to date as it is modified.
+     *
+     * @param key         {@code ACCOUNT} or {@code TAG}.
+     * @param granularity the length of the periods.
+     * @return the table of the totals.
+     */
+    default ReportTable getRollups(Report.Key key, Granularity granularity) {
+        return new ReportEngine().compute(this, Report.by(Report.controlRollupKey(key), Report.Key.PERIOD)
+                .withGranularity(granularity));
+    }
+
+    /**
+     * Returns the {@link BudgetTracker} keeping the spending of the budgets of the ledger up to date.
+     * The ledger updates it every time a {@link Movement} is added or removed.
+     *
+     * @return the {@link BudgetTracker} of the ledger.
+     */
+    BudgetTracker getBudgetTracker();
+
     /**
      * Resets the ledger.
      */
@@ -1,8 +1,13 @@
 package it.unicam.cs.pa.jbudget105053.model;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
@@ -13,6 +18,7 @@ import java.util.stream.Collectors;
  * add and remove transactions.
  * It is also possible to view the entire list of stored accounts, tags, transactions and movements
  * as well as a list of all transactions and accounts that satisfy a particular predicate.
+ * A {@link BudgetTracker} keeps the spending of the budgets up to date as transactions are added and removed.
  *
  * @author Tommaso Catervi
  */
@@ -21,6 +27,7 @@ public class LedgerMenu implements Ledger {
     private final List<Tag> tagsList = new LinkedList<>();
     private final List<Transaction> transactionsList = new LinkedList<>();
     private final List<Movement> movementsList = new LinkedList<>();
+    private final BudgetTracker budgetTracker = new BudgetTracker(this);
 
     /**
      * Allows to create and add a new {@link Account} to the {@code accountList}.
@@ -53,7 +60,7 @@ public class LedgerMenu implements Ledger {
         if (accountsList.contains(a))
             throw new IllegalArgumentException(Account.MESSAGE_ACCOUNT_ALREADY_EXISTS);
         accountsList.add(a);
-        Indexer.getInstance().fixAccountID(accountsList);
+        Indexer.getInstance().observeAccountID(ID);
     }
 
     /**
@@ -86,9 +93,43 @@ public class LedgerMenu implements Ledger {
         if (!accountsList.contains(controlAccount(account)))
             throw new IllegalArgumentException(Account.MESSAGE_ACCOUNT_DOES_NOT_EXIST);
         movementsList.removeIf(m -> m.getAccount().equals(account));
-        transactionsList.forEach(t -> t.getMovements().removeIf(m -> m.getAccount().equals(account)));
+        transactionsList.forEach(t -> t.getMovements().removeIf(m -> {
+            if (!m.getAccount().equals(account)) return false;
+            budgetTracker.removeMovement(m);
+            return true;
+        }));
         transactionsList.removeIf(t -> t.getMovements().isEmpty());
         accountsList.removeIf(a -> a.equals(account));
+        budgetTracker.removeAccount(account);
+        budgetTracker.fireEvents();
+    }
+
+    /**
+     * Allows to remove all the given accounts from the {@code accountList} as long as none
+     * of them is null and all of them are contained in the {@code accountList}.
+     * The movements associated with the given accounts and the transactions resulting with
+     * zero movements are removed with a single pass over each list.
+     *
+     * @param accounts the accounts to be removed.
+     */
+    @Override
+    public void removeAccounts(Collection<? extends Account> accounts) {
+        Set<Account> toRemove = new HashSet<>();
+        for (Account account : accounts) {
+            if (!accountsList.contains(controlAccount(account)))
+                throw new IllegalArgumentException(Account.MESSAGE_ACCOUNT_DOES_NOT_EXIST);
+            toRemove.add(account);
+        }
+        movementsList.removeIf(m -> toRemove.contains(m.getAccount()));
+        transactionsList.forEach(t -> t.getMovements().removeIf(m -> {
+            if (!toRemove.contains(m.getAccount())) return false;
+            budgetTracker.removeMovement(m);
+            return true;
+        }));
+        transactionsList.removeIf(t -> t.getMovements().isEmpty());
+        accountsList.removeIf(toRemove::contains);
+        toRemove.forEach(budgetTracker::removeAccount);
+        budgetTracker.fireEvents();
     }
 
     /**
@@ -125,6 +166,17 @@ public class LedgerMenu implements Ledger {
         return accountsList.stream().filter(p).collect(Collectors.toList());
     }
 
+    /**
+     * Returns the {@link Account} with the given ID by searching the {@code accountList}.
+     *
+     * @param ID the ID of the {@link Account} to search for.
+     * @return the {@link Account} with the given ID, or null if there is none.
+     */
+    @Override
+    public Account getAccountByID(int ID) {
+        return findByID(accountsList, ID);
+    }
+
     /**
      * Allows to add a new {@link Transaction} to the {@code transactionList} as long as
      * the given parameter is not null and does not already exist in the {@code transactionList}.
@@ -137,11 +189,62 @@ public class LedgerMenu implements Ledger {
     public void addTransaction(Transaction transaction) {
         if (transactionsList.contains(controlTransaction(transaction)))
             throw new IllegalArgumentException(Transaction.MESSAGE_TRANSACTION_ALREADY_EXISTS);
-        movementsList.addAll(transaction.getMovements());
-        Indexer.getInstance().fixMovementID(movementsList);
-        transactionsList.add(transaction);
-        Indexer.getInstance().fixTransactionID(transactionsList);
-        transaction.getMovements().forEach(mov -> mov.getAccount().addMovement(mov));
+        append(List.of(transaction));
+    }
+
+    /**
+     * Allows to add all the given transactions to the {@code transactionList} as long as none of
+     * them is null or already exists in the {@code transactionList}, none of their movements already
+     * exists and all of them are associated with an {@link Account} of the {@code accountList}.
+     * The whole batch is controlled before any {@link Transaction} is added, so either all of them
+     * are added or none is, and then they are appended in a single pass.
+     *
+     * @param transactions the transactions to add.
+     */
+    @Override
+    public void addTransactions(Collection<? extends Transaction> transactions) {
+        IDBitmap transactionIDs = new IDBitmap();
+        transactionsList.forEach(t -> transactionIDs.add(t.getID()));
+        IDBitmap movementIDs = new IDBitmap();
+        movementsList.forEach(m -> movementIDs.add(m.getID()));
+        Set<Account> accounts = Collections.newSetFromMap(new IdentityHashMap<>());
+        accounts.addAll(accountsList);
+        for (Transaction t : transactions) {
+            if (!transactionIDs.add(controlTransaction(t).getID()))
+                throw new IllegalArgumentException(Transaction.MESSAGE_TRANSACTION_ALREADY_EXISTS);
+            for (Movement m : t.getMovements()) {
+                if (!accounts.contains(m.getAccount()))
+                    throw new IllegalArgumentException(Account.MESSAGE_ACCOUNT_DOES_NOT_EXIST);
+                if (!movementIDs.add(m.getID()))
+                    throw new IllegalArgumentException(MovementException.MESSAGE_MOVEMENT_ALREADY_EXISTS);
+            }
+        }
+        append(transactions);
+    }
+
+    /**
+     * Appends the given transactions, already controlled, to the {@code transactionList} and their movements
+     * to the {@code movementsList} and to the accounts they are associated with, in a single pass.
+     * The {@link Indexer} only observes the greatest IDs.
+     *
+     * @param transactions the transactions to append.
+     */
+    private void append(Collection<? extends Transaction> transactions) {
+        int lastTransactionID = 0;
+        int lastMovementID = 0;
+        for (Transaction t : transactions) {
+            transactionsList.add(t);
+            lastTransactionID = Math.max(lastTransactionID, t.getID());
+            for (Movement m : t.getMovements()) {
+                movementsList.add(m);
+                m.getAccount().addMovement(m);
+                lastMovementID = Math.max(lastMovementID, m.getID());
+            }
+            budgetTracker.addTransaction(t);
+        }
+        if (lastMovementID > 0) Indexer.getInstance().observeMovementID(lastMovementID);
+        if (lastTransactionID > 0) Indexer.getInstance().observeTransactionID(lastTransactionID);
+        budgetTracker.fireEvents();
     }
 
     /**
@@ -159,9 +262,11 @@ public class LedgerMenu implements Ledger {
     public void removeTransaction(Transaction t) {
         if (!transactionsList.contains(controlTransaction(t)))
             throw new IllegalArgumentException(Transaction.MESSAGE_TRANSACTION_DOES_NOT_EXIST);
-        accountsList.forEach(a -> a.getMovementsList().removeIf(m -> m.getTransaction().equals(t)));
+        accountsList.forEach(a -> a.getMovementsList(m -> m.getTransaction().equals(t)).forEach(a::removeMovement));
         movementsList.removeIf(m -> m.getTransaction().equals(t));
+        budgetTracker.removeTransaction(transactionsList.get(transactionsList.indexOf(t)));
         transactionsList.remove(t);
+        budgetTracker.fireEvents();
     }
 
     /**
@@ -198,6 +303,17 @@ public class LedgerMenu implements Ledger {
         return transactionsList.stream().filter(p).collect(Collectors.toList());
     }
 
+    /**
+     * Returns the {@link Transaction} with the given ID by searching the {@code transactionList}.
+     *
+     * @param ID the ID of the {@link Transaction} to search for.
+     * @return the {@link Transaction} with the given ID, or null if there is none.
+     */
+    @Override
+    public Transaction getTransactionByID(int ID) {
+        return findByID(transactionsList, ID);
+    }
+
     /**
      * Getter method for the list {@code movementsList} which contains all the
      * movements associated with this {@link LedgerMenu}.
@@ -209,6 +325,17 @@ public class LedgerMenu implements Ledger {
         return movementsList;
     }
 
+    /**
+     * Returns the {@link Movement} with the given ID by searching the {@code movementsList}.
+     *
+     * @param ID the ID of the {@link Movement} to search for.
+     * @return the {@link Movement} with the given ID, or null if there is none.
+     */
+    @Override
+    public Movement getMovementByID(int ID) {
+        return findByID(movementsList, ID);
+    }
+
     /**
      * Getter method for the list {@code tagList} which contains all the tags
      * associated with this {@link LedgerMenu}.
@@ -220,6 +347,29 @@ public class LedgerMenu implements Ledger {
         return tagsList;
     }
 
+    /**
+     * Returns the {@link Tag} with the given ID by searching the {@code tagList}.
+     *
+     * @param ID the ID of the {@link Tag} to search for.
+     * @return the {@link Tag} with the given ID, or null if there is none.
+     */
+    @Override
+    public Tag getTagByID(int ID) {
+        return findByID(tagsList, ID);
+    }
+
+    /**
+     * Returns the first element of the given list with the given ID.
+     *
+     * @param list the list of objects extending {@link HasID} to search.
+     * @param ID   the ID to search for.
+     * @param <T>  the type of the elements of the list.
+     * @return the element with the given ID, or null if there is none.
+     */
+    private <T extends HasID> T findByID(List<T> list, int ID) {
+        return list.stream().filter(e -> e.getID() == ID).findFirst().orElse(null);
+    }
+
     /**
      * Allows to create and add a new {@link Tag} to the {@code tagList} and returns it.
      * The value of the {@code ID} field is generated by the class {@link Indexer}.
@@ -249,7 +399,7 @@ public class LedgerMenu implements Ledger {
         if (tagsList.contains(t))
             throw new IllegalArgumentException(Tag.MESSAGE_TAG_ALREADY_EXISTS);
         tagsList.add(t);
-        Indexer.getInstance().fixTagID(tagsList);
+        Indexer.getInstance().observeTagID(ID);
     }
 
     /**
@@ -283,6 +433,55 @@ public class LedgerMenu implements Ledger {
         movementsList.forEach(m -> {
             if (m.getTag().contains(tag)) m.removeTag(tag);
         });
+        budgetTracker.removeTag(tag);
+    }
+
+    /**
+     * Returns the list of the transactions whose tags satisfy the given {@link TagExpression}.
+     *
+     * @param expression the {@link TagExpression} to evaluate.
+     * @return the list of the matching transactions.
+     */
+    @Override
+    public List<Transaction> getTransactions(TagExpression expression) {
+        TagExpression e = controlExpression(expression);
+        return getTransactions(t -> e.matches(t.getTag()));
+    }
+
+    /**
+     * Returns the list of the movements whose tags satisfy the given {@link TagExpression}.
+     *
+     * @param expression the {@link TagExpression} to evaluate.
+     * @return the list of the matching movements.
+     */
+    @Override
+    public List<Movement> getMovements(TagExpression expression) {
+        TagExpression e = controlExpression(expression);
+        return movementsList.stream().filter(m -> e.matches(m.getTag())).collect(Collectors.toList());
+    }
+
+    /**
+     * Returns the number of movements carrying the given {@link Tag}.
+     *
+     * @param tag the {@link Tag} to search for.
+     * @return the number of movements carrying the {@link Tag}.
+     */
+    @Override
+    public int countMovements(Tag tag) {
+        Tag t = controlTag(tag);
+        return (int) movementsList.stream().filter(m -> m.getTag().contains(t)).count();
+    }
+
+    /**
+     * Controls that the given {@link TagExpression} is not null.
+     *
+     * @param expression the value to control.
+     * @return the controlled {@link TagExpression}.
+     */
+    private TagExpression controlExpression(TagExpression expression) {
+        if (Objects.isNull(expression))
+            throw new NullPointerException(TagExpression.MESSAGE_NULL_EXPRESSION);
+        return expression;
     }
 
     /**
@@ -296,6 +495,17 @@ public class LedgerMenu implements Ledger {
         return t;
     }
 
+    /**
+     * Returns the {@link BudgetTracker} of this ledger, which is updated every time a {@link Transaction} is
+     * added or removed.
+     *
+     * @return the {@link BudgetTracker} of this ledger.
+     */
+    @Override
+    public BudgetTracker getBudgetTracker() {
+        return budgetTracker;
+    }
+
     /**
      * Resets this ledger by emptying all its lists and resetting the ID generators
      * of the class {@link Indexer}.
@@ -306,6 +516,7 @@ public class LedgerMenu implements Ledger {
         tagsList.clear();
         transactionsList.clear();
         movementsList.clear();
+        budgetTracker.clear();
         Indexer.getInstance().resetAll();
     }
 }
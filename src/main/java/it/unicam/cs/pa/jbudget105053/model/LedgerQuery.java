@@ -0,0 +1,284 @@
+package it.unicam.cs.pa.jbudget105053.model;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * This class has the responsibility to describe a query on the movements of a {@link Ledger} by structured
+ * criteria, instead of an opaque predicate: a range of dates, a set of accounts, a {@link TagExpression}
+ * on the tags, a {@link MovementType} and a range of amounts. A criterion which is not given is satisfied
+ * by every {@link Movement}, and a {@link Movement} satisfies the query when it satisfies all its criteria.
+ * A {@link Transaction} satisfies the query when at least one of its movements does.
+ * Since the criteria are known, a {@link Ledger} can answer the query through its indexes and only check
+ * the remaining criteria on the candidates they return, as described by {@link QueryPlan}.
+ * A {@link LedgerQuery} is immutable: the {@code with} methods return a copy with the given criterion changed.
+ *
+ * @author Tommaso Catervi
+ */
+public final class LedgerQuery {
+    /**
+     * The string error message for when a range of amounts is not valid.
+     */
+    public static final String MESSAGE_WRONG_AMOUNTS = "L'importo minimo e' negativo o maggiore di quello massimo.";
+
+    private static final LedgerQuery ALL = new LedgerQuery(Integer.MIN_VALUE, Integer.MAX_VALUE, Set.of(), null,
+            null, 0, Long.MAX_VALUE);
+
+    private final int fromDay;
+    private final int toDay;
+    private final Set<Integer> accountIDs;
+    private final TagExpression tagExpression;
+    private final MovementType movementType;
+    private final long minCents;
+    private final long maxCents;
+
+    /**
+     * Constructs a new {@link LedgerQuery} with the given criteria.
+     *
+     * @param fromDay       the epoch day of the first date of the range.
+     * @param toDay         the epoch day of the last date of the range.
+     * @param accountIDs    the IDs of the accounts, or an empty set for all the accounts.
+     * @param tagExpression the expression on the tags, or null.
+     * @param movementType  the type of the movements, or null.
+     * @param minCents      the least amount in cents.
+     * @param maxCents      the greatest amount in cents.
+     */
+    private LedgerQuery(int fromDay, int toDay, Set<Integer> accountIDs, TagExpression tagExpression,
+                        MovementType movementType, long minCents, long maxCents) {
+        this.fromDay = fromDay;
+        this.toDay = toDay;
+        this.accountIDs = accountIDs;
+        this.tagExpression = tagExpression;
+        this.movementType = movementType;
+        this.minCents = minCents;
+        this.maxCents = maxCents;
+    }
+
+    /**
+     * Returns the query satisfied by all the movements.
+     *
+     * @return the query without criteria.
+     */
+    public static LedgerQuery all() {
+        return ALL;
+    }
+
+    /**
+     * Returns a copy of this {@link LedgerQuery} satisfied only by the movements dated between the two given
+     * dates, both included.
+     *
+     * @param from the first date of the range.
+     * @param to   the last date of the range.
+     * @return the changed copy.
+     */
+    public LedgerQuery withDates(LocalDate from, LocalDate to) {
+        if (Objects.isNull(from) || Objects.isNull(to))
+            throw new NullPointerException(Account.MESSAGE_NULL_DATE);
+        if (from.isAfter(to))
+            throw new IllegalArgumentException(Account.MESSAGE_WRONG_PERIOD);
+        return new LedgerQuery(Math.toIntExact(from.toEpochDay()), Math.toIntExact(to.toEpochDay()), accountIDs,
+                tagExpression, movementType, minCents, maxCents);
+    }
+
+    /**
+     * Returns a copy of this {@link LedgerQuery} satisfied only by the movements of one of the given accounts.
+     *
+     * @param accounts the accounts of the movements.
+     * @return the changed copy.
+     */
+    public LedgerQuery withAccounts(Account... accounts) {
+        Set<Integer> IDs = new LinkedHashSet<>();
+        for (Account a : accounts) {
+            if (Objects.isNull(a))
+                throw new NullPointerException(Account.MESSAGE_NULL_ACCOUNT);
+            IDs.add(a.getID());
+        }
+        return new LedgerQuery(fromDay, toDay, Collections.unmodifiableSet(IDs), tagExpression, movementType,
+                minCents, maxCents);
+    }
+
+    /**
+     * Returns a copy of this {@link LedgerQuery} satisfied only by the movements whose tags satisfy the given
+     * {@link TagExpression}.
+     *
+     * @param expression the expression on the tags.
+     * @return the changed copy.
+     */
+    public LedgerQuery withTags(TagExpression expression) {
+        if (Objects.isNull(expression))
+            throw new NullPointerException(TagExpression.MESSAGE_NULL_EXPRESSION);
+        return new LedgerQuery(fromDay, toDay, accountIDs, expression, movementType, minCents, maxCents);
+    }
+
+    /**
+     * Returns a copy of this {@link LedgerQuery} satisfied only by the movements of the given {@link MovementType}.
+     *
+     * @param type the type of the movements.
+     * @return the changed copy.
+     */
+    public LedgerQuery withMovementType(MovementType type) {
+        if (Objects.isNull(type))
+            throw new NullPointerException(MovementException.MESSAGE_NULL_TYPE);
+        return new LedgerQuery(fromDay, toDay, accountIDs, tagExpression, type, minCents, maxCents);
+    }
+
+    /**
+     * Returns a copy of this {@link LedgerQuery} satisfied only by the movements whose amount, which is always
+     * positive, is between the two given amounts, both included.
+     *
+     * @param min the least amount.
+     * @param max the greatest amount.
+     * @return the changed copy.
+     */
+    public LedgerQuery withAmounts(double min, double max) {
+        long minCents = Money.toCents(min);
+        long maxCents = Money.toCents(max);
+        if (minCents < 0 || minCents > maxCents)
+            throw new IllegalArgumentException(MESSAGE_WRONG_AMOUNTS);
+        return new LedgerQuery(fromDay, toDay, accountIDs, tagExpression, movementType, minCents, maxCents);
+    }
+
+    /**
+     * Returns true if the given {@link Movement} satisfies all the criteria of this query.
+     * The cheapest criteria are checked first, and the {@link TagExpression} last.
+     *
+     * @param m the {@link Movement} to check.
+     * @return true if the {@link Movement} satisfies this query, false otherwise.
+     */
+    public boolean matches(Movement m) {
+        if (hasMovementType() && m.getMovementType() != movementType) return false;
+        if (hasAmounts()) {
+            long cents = Math.abs(m.getSignedCents());
+            if (cents < minCents || cents > maxCents) return false;
+        }
+        if (hasDates()) {
+            int day = m.getEpochDay();
+            if (day < fromDay || day > toDay) return false;
+        }
+        if (hasAccounts() && !accountIDs.contains(m.getAccount().getID())) return false;
+        return !hasTags() || tagExpression.matches(m.getTag());
+    }
+
+    /**
+     * Returns true if at least one of the movements of the given {@link Transaction} satisfies this query.
+     *
+     * @param t the {@link Transaction} to check.
+     * @return true if the {@link Transaction} satisfies this query, false otherwise.
+     */
+    public boolean matches(Transaction t) {
+        for (Movement m : t.getMovements())
+            if (matches(m)) return true;
+        return false;
+    }
+
+    /**
+     * Returns true if this query has a range of dates.
+     *
+     * @return true if the movements are filtered by date, false otherwise.
+     */
+    public boolean hasDates() {
+        return fromDay != Integer.MIN_VALUE || toDay != Integer.MAX_VALUE;
+    }
+
+    /**
+     * Returns true if this query has a set of accounts.
+     *
+     * @return true if the movements are filtered by account, false otherwise.
+     */
+    public boolean hasAccounts() {
+        return !accountIDs.isEmpty();
+    }
+
+    /**
+     * Returns true if this query has a {@link TagExpression}.
+     *
+     * @return true if the movements are filtered by tags, false otherwise.
+     */
+    public boolean hasTags() {
+        return Objects.nonNull(tagExpression);
+    }
+
+    /**
+     * Returns true if this query has a {@link MovementType}.
+     *
+     * @return true if the movements are filtered by type, false otherwise.
+     */
+    public boolean hasMovementType() {
+        return Objects.nonNull(movementType);
+    }
+
+    /**
+     * Returns true if this query has a range of amounts.
+     *
+     * @return true if the movements are filtered by amount, false otherwise.
+     */
+    public boolean hasAmounts() {
+        return minCents != 0 || maxCents != Long.MAX_VALUE;
+    }
+
+    /**
+     * Getter method for the {@code fromDay} field in the {@link LedgerQuery}.
+     *
+     * @return the epoch day of the first date of the range.
+     */
+    public int getFromDay() {
+        return fromDay;
+    }
+
+    /**
+     * Getter method for the {@code toDay} field in the {@link LedgerQuery}.
+     *
+     * @return the epoch day of the last date of the range.
+     */
+    public int getToDay() {
+        return toDay;
+    }
+
+    /**
+     * Getter method for the {@code accountIDs} field in the {@link LedgerQuery}.
+     *
+     * @return the unmodifiable set of the IDs of the accounts, empty if the query has no set of accounts.
+     */
+    public Set<Integer> getAccountIDs() {
+        return accountIDs;
+    }
+
+    /**
+     * Getter method for the {@code tagExpression} field in the {@link LedgerQuery}.
+     *
+     * @return the expression on the tags, or null.
+     */
+    public TagExpression getTagExpression() {
+        return tagExpression;
+    }
+
+    /**
+     * Getter method for the {@code movementType} field in the {@link LedgerQuery}.
+     *
+     * @return the type of the movements, or null.
+     */
+    public MovementType getMovementType() {
+        return movementType;
+    }
+
+    /**
+     * Getter method for the {@code minCents} field in the {@link LedgerQuery}.
+     *
+     * @return the least amount in cents.
+     */
+    public long getMinCents() {
+        return minCents;
+    }
+
+    /**
+     * Getter method for the {@code maxCents} field in the {@link LedgerQuery}.
+     *
+     * @return the greatest amount in cents.
+     */
+    public long getMaxCents() {
+        return maxCents;
+    }
+}
@@ -0,0 +1,978 @@
+package it.unicam.cs.pa.jbudget105053.model;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * This class implements the interface {@link Ledger} and has the responsibility to manage a ledger whose
+ * history is stored in a file in the format described by {@link MappedLedgerFile}, mapped in memory.
+ * Accounts and tags are read when the file is opened, while the transactions and the movements of the
+ * file are left in its rows: the lists returned by {@link #getTransactions()} and {@link #getMovements()}
+ * create a {@link Transaction}, together with its movements, only when one of its elements is requested,
+ * so the memory used depends on the elements which are viewed and not on the length of the history.
+ * The last created transactions are kept in a bounded cache.
+ * The transactions added after the file was opened are kept in memory and follow the ones of the file.
+ * The objects created from the rows of the file are read-only views: they must be changed through the
+ * ledger, which removes the row of a {@link Transaction} from the history and, if the {@link Transaction}
+ * still has movements, keeps a copy of it in memory, where it then follows the other transactions.
+ * Tag queries scan the rows of the file without creating the elements which do not match.
+ * The {@link BudgetTracker} reads the spending of a new {@link Budget} from all the movements, including the
+ * rows of the file, and is then updated as the ledger is modified.
+ *
+ * @author Tommaso Catervi
+ */
+public class MappedLedger implements Ledger {
+    /**
+     * The string error message for when the file is not in the format of {@link MappedLedgerFile}.
+     */
+    public static final String MESSAGE_WRONG_FILE = "Il file passato non e' un ledger valido, o e' di una versione non supportata.";
+    private static final int CACHE_SIZE = 1 << 12;
+    private static final int MOVEMENT_CENTS = Integer.BYTES;
+    private static final int MOVEMENT_ACCOUNT = MOVEMENT_CENTS + Long.BYTES;
+    private static final int MOVEMENT_TRANSACTION = MOVEMENT_ACCOUNT + Integer.BYTES;
+    private static final int MOVEMENT_TAGS = MOVEMENT_TRANSACTION + Integer.BYTES;
+    private static final int MOVEMENT_TAG_COUNT = MOVEMENT_TAGS + Integer.BYTES;
+    private final Map<Integer, Account> accountsMap = new LinkedHashMap<>();
+    private final Map<String, Account> accountsByName = new HashMap<>();
+    private final Map<Integer, Tag> tagsMap = new LinkedHashMap<>();
+    private final Map<String, Tag> tagsByName = new HashMap<>();
+    private final Map<Integer, Transaction> transactionsMap = new LinkedHashMap<>();
+    private final Map<Integer, Movement> movementsMap = new LinkedHashMap<>();
+    private final Map<Integer, Transaction> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Transaction> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+    private ByteBuffer file;
+    private int transactionRows;
+    private int movementRows;
+    private int transactionsOffset;
+    private int movementsOffset;
+    private int movementIDsOffset;
+    private int poolOffset;
+    private RowExclusions removedTransactionRows = RowExclusions.NONE;
+    private RowExclusions removedMovementRows = RowExclusions.NONE;
+    private List<Account> accountsView;
+    private List<Tag> tagsView;
+    private List<Transaction> transactionsView;
+    private List<Movement> movementsView;
+    private final BudgetTracker budgetTracker = new BudgetTracker(this);
+
+    /**
+     * Constructs a new empty {@link MappedLedger}, without a file.
+     */
+    public MappedLedger() {
+    }
+
+    /**
+     * Opens the given file, in the format described by {@link MappedLedgerFile}, and returns the
+     * {@link MappedLedger} of its data. The accounts and the tags are read at once, together with the
+     * variations of the movements, while the rows of the transactions and of the movements are read
+     * only when their elements are requested. The {@link Indexer} observes the greatest IDs of the file.
+     *
+     * @param path the path of the file.
+     * @return the {@link MappedLedger} of the file.
+     * @throws IOException if the file cannot be read or is not in the expected format.
+     */
+    public static MappedLedger open(Path path) throws IOException {
+        MappedLedger ledger = new MappedLedger();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE)
+                throw new IOException(MESSAGE_WRONG_FILE);
+            ledger.load(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IOException(MESSAGE_WRONG_FILE, e);
+        }
+        return ledger;
+    }
+
+    /**
+     * Reads the header, the accounts and the tags of the given mapped file, and adds the variations of the
+     * movements to the history of their accounts.
+     *
+     * @param buffer the mapped file.
+     * @throws IOException if the file is not in the expected format.
+     */
+    private void load(ByteBuffer buffer) throws IOException {
+        if (buffer.getInt() != MappedLedgerFile.MAGIC || buffer.getShort() != MappedLedgerFile.VERSION)
+            throw new IOException(MESSAGE_WRONG_FILE);
+        buffer.getShort();
+        int accounts = buffer.getInt();
+        int tags = buffer.getInt();
+        transactionRows = buffer.getInt();
+        movementRows = buffer.getInt();
+        int tagsOffset = buffer.getInt();
+        transactionsOffset = buffer.getInt();
+        movementsOffset = buffer.getInt();
+        movementIDsOffset = buffer.getInt();
+        poolOffset = buffer.getInt();
+        int poolSize = buffer.getInt();
+        if (transactionsOffset + (long) transactionRows * MappedLedgerFile.TRANSACTION_ROW > movementsOffset
+                || movementsOffset + (long) movementRows * MappedLedgerFile.MOVEMENT_ROW > movementIDsOffset
+                || movementIDsOffset + (long) movementRows * MappedLedgerFile.MOVEMENT_ID_ROW > poolOffset
+                || poolOffset + (long) poolSize * Integer.BYTES > buffer.limit())
+            throw new IOException(MESSAGE_WRONG_FILE);
+        file = buffer;
+        for (int i = 0; i < accounts; i++) {
+            int ID = buffer.getInt();
+            AccountType type = AccountType.values()[buffer.get()];
+            String name = readString(buffer);
+            double initialBalance = Money.toAmount(buffer.getLong());
+            storeAccount(new HistoryAccount(ID, type, name, initialBalance, this, buffer.getInt(), buffer.getInt()));
+            Indexer.getInstance().observeAccountID(ID);
+        }
+        buffer.position(tagsOffset);
+        for (int i = 0; i < tags; i++) {
+            int ID = buffer.getInt();
+            storeTag(new BasicTag(ID, readString(buffer), readString(buffer)));
+            Indexer.getInstance().observeTagID(ID);
+        }
+        for (int row = 0; row < transactionRows; row++) {
+            int day = getTransactionValue(row, 1);
+            for (int m = getTransactionValue(row, 2), last = m + getTransactionValue(row, 3); m < last; m++) {
+                Account account = accountsMap.get(getMovementValue(m, MOVEMENT_ACCOUNT));
+                if (!(account instanceof HistoryAccount))
+                    throw new IOException(MESSAGE_WRONG_FILE);
+                ((HistoryAccount) account).addHistory(day, getMovementCents(m));
+            }
+        }
+        if (transactionRows > 0)
+            Indexer.getInstance().observeTransactionID(getTransactionValue(transactionRows - 1, 0));
+        if (movementRows > 0)
+            Indexer.getInstance().observeMovementID(file.getInt(movementIDsOffset + (movementRows - 1) * MappedLedgerFile.MOVEMENT_ID_ROW));
+    }
+
+    /**
+     * Reads a string written as its length in bytes followed by its UTF-8 bytes.
+     *
+     * @param buffer the buffer to read from.
+     * @return the string read.
+     */
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns an integer of the pool of the file.
+     *
+     * @param position the position of the integer in the pool.
+     * @return the integer in the given position.
+     */
+    int getPoolValue(int position) {
+        return file.getInt(poolOffset + position * Integer.BYTES);
+    }
+
+    /**
+     * Returns an integer of the row of a {@link Transaction}: 0 is the ID, 1 the epoch day, 2 the row of the
+     * first movement, 3 the number of movements, 4 the position and 5 the number of the IDs of the tags.
+     *
+     * @param row   the row of the {@link Transaction}.
+     * @param field the number of the integer in the row.
+     * @return the integer of the row.
+     */
+    private int getTransactionValue(int row, int field) {
+        return file.getInt(transactionsOffset + row * MappedLedgerFile.TRANSACTION_ROW + field * Integer.BYTES);
+    }
+
+    /**
+     * Returns an integer of the row of a {@link Movement}, at the given distance in bytes from the start of
+     * the row: 0 for the ID, or one of the {@code MOVEMENT_} constants.
+     *
+     * @param row    the row of the {@link Movement}.
+     * @param offset the distance in bytes of the integer from the start of the row.
+     * @return the integer of the row.
+     */
+    private int getMovementValue(int row, int offset) {
+        return file.getInt(movementsOffset + row * MappedLedgerFile.MOVEMENT_ROW + offset);
+    }
+
+    /**
+     * Returns the signed amount in cents stored in the row of a {@link Movement}.
+     *
+     * @param row the row of the {@link Movement}.
+     * @return the signed amount in cents.
+     */
+    private long getMovementCents(int row) {
+        return file.getLong(movementsOffset + row * MappedLedgerFile.MOVEMENT_ROW + MOVEMENT_CENTS);
+    }
+
+    /**
+     * Returns the stored tags whose IDs are in the given part of the pool.
+     *
+     * @param reference the position of the IDs in the pool.
+     * @param count     the number of IDs.
+     * @return the list of the tags which are still stored.
+     */
+    private List<Tag> getPoolTags(int reference, int count) {
+        List<Tag> tags = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Tag t = tagsMap.get(getPoolValue(reference + i));
+            if (Objects.nonNull(t)) tags.add(t);
+        }
+        return tags;
+    }
+
+    /**
+     * Returns the row of the {@link Transaction} with the given ID, searching the rows by bisection.
+     *
+     * @param ID the ID of the {@link Transaction}.
+     * @return the row of the {@link Transaction}, or -1 if it is not stored in the file or was removed.
+     */
+    private int findTransactionRow(int ID) {
+        int low = 0;
+        int high = transactionRows - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int found = getTransactionValue(middle, 0);
+            if (found < ID) low = middle + 1;
+            else if (found > ID) high = middle - 1;
+            else return removedTransactionRows.contains(middle) ? -1 : middle;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the row of the {@link Movement} with the given ID, searching the index of the movements
+     * by bisection.
+     *
+     * @param ID the ID of the {@link Movement}.
+     * @return the row of the {@link Movement}, or -1 if it is not stored in the file or was removed.
+     */
+    private int findMovementRow(int ID) {
+        int low = 0;
+        int high = movementRows - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int entry = movementIDsOffset + middle * MappedLedgerFile.MOVEMENT_ID_ROW;
+            int found = file.getInt(entry);
+            if (found < ID) low = middle + 1;
+            else if (found > ID) high = middle - 1;
+            else {
+                int row = file.getInt(entry + Integer.BYTES);
+                return removedMovementRows.contains(row) ? -1 : row;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the {@link Transaction} of the given row, creating it with its tags and movements if it is not
+     * in the cache. The tags which were removed from the ledger are not added.
+     *
+     * @param row the row of the {@link Transaction}.
+     * @return the {@link Transaction} of the row.
+     */
+    Transaction getTransactionAtRow(int row) {
+        Transaction t = cache.get(row);
+        if (Objects.nonNull(t)) return t;
+        t = new BasicTransaction(getTransactionValue(row, 0), EpochDays.toDate(getTransactionValue(row, 1)));
+        getPoolTags(getTransactionValue(row, 4), getTransactionValue(row, 5)).forEach(t::addTag);
+        for (int m = getTransactionValue(row, 2), last = m + getTransactionValue(row, 3); m < last; m++) {
+            long cents = getMovementCents(m);
+            Movement movement = new BasicMovement(getMovementValue(m, 0),
+                    cents < 0 ? MovementType.DECREMENT : MovementType.INCREMENT, Money.toAmount(Math.abs(cents)),
+                    accountsMap.get(getMovementValue(m, MOVEMENT_ACCOUNT)));
+            getPoolTags(getMovementValue(m, MOVEMENT_TAGS),
+                    getMovementValue(m, MOVEMENT_TAG_COUNT)).forEach(movement::addTag);
+            t.addMovement(movement);
+        }
+        cache.put(row, t);
+        return t;
+    }
+
+    /**
+     * Returns the {@link Movement} of the given row, through the {@link Transaction} it belongs to.
+     *
+     * @param row the row of the {@link Movement}.
+     * @return the {@link Movement} of the row.
+     */
+    Movement getMovementAtRow(int row) {
+        int ID = getMovementValue(row, 0);
+        for (Movement m : getTransactionAtRow(getMovementValue(row, MOVEMENT_TRANSACTION)).getMovements())
+            if (m.getID() == ID) return m;
+        throw new IllegalStateException(MovementException.MESSAGE_MOVEMENT_DOES_NOT_EXIST);
+    }
+
+    /**
+     * Removes the row of the {@link Transaction} from the history, together with the rows of its movements,
+     * whose variations are subtracted from their accounts.
+     *
+     * @param row the row of the {@link Transaction}.
+     * @return the {@link Transaction} of the row, created before the row was removed.
+     */
+    private Transaction detach(int row) {
+        Transaction t = getTransactionAtRow(row);
+        int first = getTransactionValue(row, 2);
+        int[] rows = new int[getTransactionValue(row, 3)];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = first + i;
+            Account account = accountsMap.get(getMovementValue(rows[i], MOVEMENT_ACCOUNT));
+            if (account instanceof HistoryAccount)
+                ((HistoryAccount) account).removeHistory(rows[i], getTransactionValue(row, 1), getMovementCents(rows[i]));
+        }
+        removedTransactionRows = removedTransactionRows.with(row);
+        removedMovementRows = removedMovementRows.with(rows);
+        cache.remove(row);
+        invalidateViews();
+        return t;
+    }
+
+    /**
+     * Removes the row of the {@link Transaction} from the history and keeps its {@link Transaction} in
+     * memory, adding its movements to their accounts, so that it can be changed.
+     *
+     * @param row the row of the {@link Transaction}.
+     */
+    private void promote(int row) {
+        Transaction t = detach(row);
+        transactionsMap.put(t.getID(), t);
+        t.getMovements().forEach(m -> {
+            movementsMap.put(m.getID(), m);
+            m.getAccount().addMovement(m);
+        });
+    }
+
+    /**
+     * Allows to create and add a new {@link Account} to the {@code accountsMap}.
+     * The value of the {@code ID} field is generated by the class {@link Indexer}.
+     *
+     * @param accountType    the value used to set the {@code accountType} field in the {@link Account}.
+     * @param name           the value used to set the {@code name} field in the {@link Account}.
+     * @param initialBalance the value used to set the {@code initialBalance} field in the {@link Account}.
+     */
+    @Override
+    public void addAccount(AccountType accountType, String name, double initialBalance) {
+        storeAccount(new HistoryAccount(Indexer.getInstance().generateAccountID(), accountType, name, initialBalance, this, 0, 0));
+    }
+
+    /**
+     * Allows to create and add a new {@link Account} to the {@code accountsMap} without automatically
+     * generating its ID.
+     *
+     * @param ID             the value used to set the {@code ID} field in the {@link Account}.
+     * @param accountType    the value used to set the {@code accountType} field in the {@link Account}.
+     * @param name           the value used to set the {@code name} field in the {@link Account}.
+     * @param initialBalance the value used to set the {@code initialBalance} field in the {@link Account}.
+     */
+    @Override
+    public void addAccountWithID(int ID, AccountType accountType, String name, double initialBalance) {
+        storeAccount(new HistoryAccount(ID, accountType, name, initialBalance, this, 0, 0));
+        Indexer.getInstance().observeAccountID(ID);
+    }
+
+    /**
+     * Adds the given {@link Account} to the {@code accountsMap} as long as no other {@link Account}
+     * with the same ID or name is already stored.
+     *
+     * @param a the {@link Account} to store.
+     */
+    private void storeAccount(Account a) {
+        if (accountsMap.containsKey(a.getID()) || accountsByName.containsKey(a.getName()))
+            throw new IllegalArgumentException(Account.MESSAGE_ACCOUNT_ALREADY_EXISTS);
+        accountsMap.put(a.getID(), a);
+        accountsByName.put(a.getName(), a);
+        accountsView = null;
+    }
+
+    /**
+     * Allows to modify the given {@link Account} with the given parameters, as long as the new name
+     * does not belong to another {@link Account} of this ledger.
+     * The name index is updated so that the {@link Account} can still be found by its new name.
+     *
+     * @param a              the {@link Account} to modify.
+     * @param accountType    the new {@link AccountType} to set.
+     * @param name           the new name to set.
+     * @param initialBalance the new initial balance to set.
+     */
+    @Override
+    public void modifyAccount(Account a, AccountType accountType, String name, double initialBalance) {
+        Account named = Objects.isNull(name) ? null : accountsByName.get(name.toUpperCase());
+        if (Objects.nonNull(named) && named.getID() != a.getID())
+            throw new IllegalArgumentException(Account.MESSAGE_ACCOUNT_ALREADY_EXISTS);
+        String oldName = a.getName();
+        a.setAccountType(accountType);
+        a.setName(name);
+        a.setInitialBalance(initialBalance);
+        if (accountsByName.get(oldName) == a) {
+            accountsByName.remove(oldName);
+            accountsByName.put(a.getName(), a);
+        }
+    }
+
+    /**
+     * Allows to remove an {@link Account} from the {@code accountsMap} as long as
+     * the given parameter is not null and is stored in this ledger.
+     * All the movements associated with that {@link Account} are removed, and so are the
+     * transactions resulting with zero movements.
+     *
+     * @param account the {@link Account} to be removed.
+     */
+    @Override
+    public void removeAccount(Account account) {
+        Account stored = findStoredAccount(controlAccount(account));
+        if (Objects.isNull(stored))
+            throw new IllegalArgumentException(Account.MESSAGE_ACCOUNT_DOES_NOT_EXIST);
+        unlinkAccounts(List.of(stored));
+    }
+
+    /**
+     * Allows to remove all the given accounts from the {@code accountsMap} as long as none of
+     * them is null and all of them are stored in this ledger.
+     *
+     * @param accounts the accounts to be removed.
+     */
+    @Override
+    public void removeAccounts(Collection<? extends Account> accounts) {
+        Set<Account> toRemove = new LinkedHashSet<>();
+        for (Account account : accounts) {
+            Account stored = findStoredAccount(controlAccount(account));
+            if (Objects.isNull(stored))
+                throw new IllegalArgumentException(Account.MESSAGE_ACCOUNT_DOES_NOT_EXIST);
+            toRemove.add(stored);
+        }
+        unlinkAccounts(toRemove);
+    }
+
+    /**
+     * Removes the given stored accounts together with their movements, and then removes
+     * every {@link Transaction} left with zero movements.
+     * The transactions of the file with a movement of the given accounts are first moved in memory,
+     * so that their other movements are kept.
+     *
+     * @param accounts the stored accounts to remove.
+     */
+    private void unlinkAccounts(Collection<Account> accounts) {
+        SortedSet<Integer> rows = new TreeSet<>();
+        for (Account a : accounts)
+            if (a instanceof HistoryAccount)
+                for (int row : ((HistoryAccount) a).getHistoryRows())
+                    rows.add(getMovementValue(row, MOVEMENT_TRANSACTION));
+        rows.forEach(this::promote);
+        Set<Transaction> touched = new LinkedHashSet<>();
+        for (Account a : accounts) {
+            for (Movement m : a.getMovementsList()) {
+                Transaction t = m.getTransaction();
+                t.getMovements().remove(m);
+                touched.add(t);
+                movementsMap.remove(m.getID());
+                budgetTracker.removeMovement(m);
+            }
+            accountsMap.remove(a.getID());
+            accountsByName.remove(a.getName());
+            budgetTracker.removeAccount(a);
+        }
+        touched.forEach(t -> {
+            if (t.getMovements().isEmpty()) transactionsMap.remove(t.getID());
+        });
+        invalidateViews();
+        budgetTracker.fireEvents();
+    }
+
+    /**
+     * Returns the stored {@link Account} equal to the given one, that is the one with
+     * the same ID or, if there is none, the one with the same name.
+     *
+     * @param account the {@link Account} to search for.
+     * @return the stored {@link Account}, or null if there is none.
+     */
+    private Account findStoredAccount(Account account) {
+        Account stored = accountsMap.get(account.getID());
+        if (Objects.isNull(stored))
+            stored = accountsByName.get(account.getName());
+        return account.equals(stored) ? stored : null;
+    }
+
+    /**
+     * Controls that the given {@link Account} is not null.
+     *
+     * @param account the value to control.
+     * @return the controlled {@link Account}.
+     */
+    private Account controlAccount(Account account) {
+        if (Objects.isNull(account))
+            throw new NullPointerException(Account.MESSAGE_NULL_ACCOUNT);
+        return account;
+    }
+
+    /**
+     * Returns an unmodifiable list of all the accounts associated with this
+     * {@link MappedLedger}, in the order they were added.
+     *
+     * @return the list of all the accounts of the {@link MappedLedger}.
+     */
+    @Override
+    public List<Account> getAccounts() {
+        if (Objects.isNull(accountsView))
+            accountsView = Collections.unmodifiableList(new ArrayList<>(accountsMap.values()));
+        return accountsView;
+    }
+
+    /**
+     * Returns the list of all the accounts after filtering it according to the
+     * {@link Predicate} {@code p}.
+     *
+     * @return the filtered accounts list.
+     */
+    @Override
+    public List<Account> getAccounts(Predicate<Account> p) {
+        return accountsMap.values().stream().filter(p).collect(Collectors.toList());
+    }
+
+    /**
+     * Returns the {@link Account} with the given ID in constant time.
+     *
+     * @param ID the ID of the {@link Account} to search for.
+     * @return the {@link Account} with the given ID, or null if there is none.
+     */
+    @Override
+    public Account getAccountByID(int ID) {
+        return accountsMap.get(ID);
+    }
+
+    /**
+     * Allows to add a new {@link Transaction} to the {@code transactionsMap} as long as
+     * the given parameter is not null and is not already stored in this ledger.
+     * When a {@link Transaction} is added, all its movements are added to the {@link Account}
+     * they are associated with.
+     *
+     * @param transaction the {@link Transaction} to add.
+     */
+    @Override
+    public void addTransaction(Transaction transaction) {
+        addTransactions(List.of(controlTransaction(transaction)));
+    }
+
+    /**
+     * Allows to add all the given transactions in a single operation. All the transactions and their
+     * movements are controlled, against the memory and the rows of the file, before any of them is added,
+     * so either all of them are added or none is. Every movement must be associated with an
+     * {@link Account} of the {@code accountsMap}.
+     *
+     * @param transactions the transactions to add.
+     */
+    @Override
+    public void addTransactions(Collection<? extends Transaction> transactions) {
+        IDBitmap transactionIDs = new IDBitmap();
+        IDBitmap movementIDs = new IDBitmap();
+        for (Transaction t : transactions) {
+            int ID = controlTransaction(t).getID();
+            if (transactionsMap.containsKey(ID) || findTransactionRow(ID) >= 0 || transactionIDs.contains(ID))
+                throw new IllegalArgumentException(Transaction.MESSAGE_TRANSACTION_ALREADY_EXISTS);
+            transactionIDs.add(ID);
+            for (Movement m : t.getMovements()) {
+                if (accountsMap.get(m.getAccount().getID()) != m.getAccount())
+                    throw new IllegalArgumentException(Account.MESSAGE_ACCOUNT_DOES_NOT_EXIST);
+                if (movementsMap.containsKey(m.getID()) || findMovementRow(m.getID()) >= 0 || movementIDs.contains(m.getID()))
+                    throw new IllegalArgumentException(MovementException.MESSAGE_MOVEMENT_ALREADY_EXISTS);
+                movementIDs.add(m.getID());
+            }
+        }
+        int lastTransactionID = 0;
+        int lastMovementID = 0;
+        for (Transaction t : transactions) {
+            transactionsMap.put(t.getID(), t);
+            lastTransactionID = Math.max(lastTransactionID, t.getID());
+            for (Movement m : t.getMovements()) {
+                movementsMap.put(m.getID(), m);
+                m.getAccount().addMovement(m);
+                lastMovementID = Math.max(lastMovementID, m.getID());
+            }
+            budgetTracker.addTransaction(t);
+        }
+        invalidateViews();
+        if (lastMovementID > 0) Indexer.getInstance().observeMovementID(lastMovementID);
+        if (lastTransactionID > 0) Indexer.getInstance().observeTransactionID(lastTransactionID);
+        budgetTracker.fireEvents();
+    }
+
+    /**
+     * Allows to remove a {@link Transaction} from this ledger as long as the given parameter is not null
+     * and is stored in this ledger, either in memory or in a row of the file.
+     * When a {@link Transaction} is removed, each of its movements is removed from the {@link Account}
+     * it is associated with.
+     *
+     * @param t the {@link Transaction} to remove.
+     */
+    @Override
+    public void removeTransaction(Transaction t) {
+        int ID = controlTransaction(t).getID();
+        Transaction stored = transactionsMap.remove(ID);
+        if (Objects.nonNull(stored)) {
+            stored.getMovements().forEach(m -> {
+                m.getAccount().removeMovement(m);
+                movementsMap.remove(m.getID());
+            });
+            invalidateViews();
+            budgetTracker.removeTransaction(stored);
+        } else {
+            int row = findTransactionRow(ID);
+            if (row < 0)
+                throw new IllegalArgumentException(Transaction.MESSAGE_TRANSACTION_DOES_NOT_EXIST);
+            budgetTracker.removeTransaction(detach(row));
+        }
+        budgetTracker.fireEvents();
+    }
+
+    /**
+     * Controls that the given {@link Transaction} is not null.
+     *
+     * @param transaction the value to control.
+     * @return the controlled {@link Transaction}.
+     */
+    private Transaction controlTransaction(Transaction transaction) {
+        if (transaction == null)
+            throw new NullPointerException(Transaction.MESSAGE_NULL_TRANSACTION);
+        return transaction;
+    }
+
+    /**
+     * Returns an unmodifiable list of all the transactions of this {@link MappedLedger}: the ones of the
+     * file, in ascending order of ID, followed by the ones kept in memory, in the order they were added.
+     * The transactions of the file are created only when they are requested.
+     *
+     * @return the list of all transactions of this {@link MappedLedger}.
+     */
+    @Override
+    public List<Transaction> getTransactions() {
+        if (Objects.isNull(transactionsView))
+            transactionsView = new LazyRowList<>(removedTransactionRows, transactionRows, this::getTransactionAtRow,
+                    new ArrayList<>(transactionsMap.values()));
+        return transactionsView;
+    }
+
+    /**
+     * Returns the list of all the transactions after filtering it according to
+     * the {@link Predicate} {@code p}.
+     *
+     * @return the filtered transactions list.
+     */
+    @Override
+    public List<Transaction> getTransactions(Predicate<Transaction> p) {
+        return getTransactions().stream().filter(p).collect(Collectors.toList());
+    }
+
+    /**
+     * Returns the {@link Transaction} with the given ID, searching the rows of the file by bisection
+     * if it is not kept in memory.
+     *
+     * @param ID the ID of the {@link Transaction} to search for.
+     * @return the {@link Transaction} with the given ID, or null if there is none.
+     */
+    @Override
+    public Transaction getTransactionByID(int ID) {
+        Transaction t = transactionsMap.get(ID);
+        if (Objects.nonNull(t)) return t;
+        int row = findTransactionRow(ID);
+        return row < 0 ? null : getTransactionAtRow(row);
+    }
+
+    /**
+     * Returns an unmodifiable list of all the movements of this {@link MappedLedger}: the ones of the
+     * file, grouped by transaction, followed by the ones kept in memory.
+     * The movements of the file are created only when they are requested.
+     *
+     * @return the list of all movements of this {@link MappedLedger}.
+     */
+    @Override
+    public List<Movement> getMovements() {
+        if (Objects.isNull(movementsView))
+            movementsView = new LazyRowList<>(removedMovementRows, movementRows, this::getMovementAtRow,
+                    new ArrayList<>(movementsMap.values()));
+        return movementsView;
+    }
+
+    /**
+     * Returns the {@link Movement} with the given ID, searching the index of the file by bisection
+     * if it is not kept in memory.
+     *
+     * @param ID the ID of the {@link Movement} to search for.
+     * @return the {@link Movement} with the given ID, or null if there is none.
+     */
+    @Override
+    public Movement getMovementByID(int ID) {
+        Movement m = movementsMap.get(ID);
+        if (Objects.nonNull(m)) return m;
+        int row = findMovementRow(ID);
+        return row < 0 ? null : getMovementAtRow(row);
+    }
+
+    /**
+     * Returns an unmodifiable list of all the tags associated with this
+     * {@link MappedLedger}, in the order they were added.
+     *
+     * @return the list of all tags of this {@link MappedLedger}.
+     */
+    @Override
+    public List<Tag> getTags() {
+        if (Objects.isNull(tagsView))
+            tagsView = Collections.unmodifiableList(new ArrayList<>(tagsMap.values()));
+        return tagsView;
+    }
+
+    /**
+     * Returns the {@link Tag} with the given ID in constant time.
+     *
+     * @param ID the ID of the {@link Tag} to search for.
+     * @return the {@link Tag} with the given ID, or null if there is none.
+     */
+    @Override
+    public Tag getTagByID(int ID) {
+        return tagsMap.get(ID);
+    }
+
+    /**
+     * Allows to create and add a new {@link Tag} to the {@code tagsMap}.
+     * The value of the {@code ID} field is generated by the class {@link Indexer}.
+     *
+     * @param name        the value used to set the {@code name} field in the {@link Tag}.
+     * @param description the value used to set the {@code description} field in the {@link Tag}.
+     */
+    @Override
+    public void addTag(String name, String description) {
+        storeTag(new BasicTag(Indexer.getInstance().generateTagID(), name, description));
+    }
+
+    /**
+     * Allows to create and add a new {@link Tag} to the {@code tagsMap} without automatically
+     * generating its ID.
+     *
+     * @param ID          the value used to set the {@code ID} field in the {@link Tag}.
+     * @param name        the value used to set the {@code name} field in the {@link Tag}.
+     * @param description the value used to set the {@code description} field in the {@link Tag}.
+     */
+    @Override
+    public void addTagWithID(int ID, String name, String description) {
+        storeTag(new BasicTag(ID, name, description));
+        Indexer.getInstance().observeTagID(ID);
+    }
+
+    /**
+     * Adds the given {@link Tag} to the {@code tagsMap} as long as no other {@link Tag}
+     * with the same ID or name is already stored.
+     *
+     * @param t the {@link Tag} to store.
+     */
+    private void storeTag(Tag t) {
+        if (tagsMap.containsKey(t.getID()) || tagsByName.containsKey(t.getName()))
+            throw new IllegalArgumentException(Tag.MESSAGE_TAG_ALREADY_EXISTS);
+        tagsMap.put(t.getID(), t);
+        tagsByName.put(t.getName(), t);
+        tagsView = null;
+    }
+
+    /**
+     * Allows to modify the given {@link Tag} with the given parameters, as long as the new name
+     * does not belong to another {@link Tag} of this ledger.
+     * The name index is updated so that the {@link Tag} can still be found by its new name.
+     *
+     * @param t           the {@link Tag} to modify.
+     * @param name        the new name to set.
+     * @param description the new description to set.
+     */
+    @Override
+    public void modifyTag(Tag t, String name, String description) {
+        Tag named = Objects.isNull(name) ? null : tagsByName.get(name.toUpperCase());
+        if (Objects.nonNull(named) && named.getID() != t.getID())
+            throw new IllegalArgumentException(Tag.MESSAGE_TAG_ALREADY_EXISTS);
+        String oldName = t.getName();
+        t.setName(name);
+        t.setDescription(description);
+        if (tagsByName.get(oldName) == t) {
+            tagsByName.remove(oldName);
+            tagsByName.put(t.getName(), t);
+        }
+    }
+
+    /**
+     * Allows to remove a {@link Tag} from the {@code tagsMap} as long as the given parameter
+     * is not null and is stored in this ledger.
+     * The given {@link Tag} is removed from the transactions and movements kept in memory, while the
+     * rows of the file are not changed: their tags are looked up by ID, so the removed {@link Tag}
+     * is no longer found. The cache is emptied for the same reason.
+     *
+     * @param tag the {@link Tag} to remove.
+     */
+    @Override
+    public void removeTag(Tag tag) {
+        Tag stored = findStoredTag(controlTag(tag));
+        if (Objects.isNull(stored))
+            throw new IllegalArgumentException(Tag.MESSAGE_TAG_DOES_NOT_EXIST);
+        tagsMap.remove(stored.getID());
+        tagsByName.remove(stored.getName());
+        tagsView = null;
+        cache.clear();
+        transactionsMap.values().forEach(t -> {
+            if (t.getTag().contains(stored)) t.removeTag(stored);
+        });
+        movementsMap.values().forEach(m -> {
+            if (m.getTag().contains(stored)) m.removeTag(stored);
+        });
+        budgetTracker.removeTag(stored);
+    }
+
+    /**
+     * Returns the list of the transactions whose tags satisfy the given {@link TagExpression}: the ones
+     * of the file, in ascending order of ID, followed by the ones kept in memory. The expression is
+     * evaluated on the IDs stored in the rows, so only the matching transactions are created.
+     *
+     * @param expression the {@link TagExpression} to evaluate.
+     * @return the list of the matching transactions.
+     */
+    @Override
+    public List<Transaction> getTransactions(TagExpression expression) {
+        controlExpression(expression);
+        List<Transaction> result = new ArrayList<>();
+        for (int row = 0; row < transactionRows; row++)
+            if (!removedTransactionRows.contains(row)
+                    && expression.matches(getPoolTags(getTransactionValue(row, 4), getTransactionValue(row, 5))))
+                result.add(getTransactionAtRow(row));
+        transactionsMap.values().forEach(t -> {
+            if (expression.matches(t.getTag())) result.add(t);
+        });
+        return result;
+    }
+
+    /**
+     * Returns the list of the movements whose tags satisfy the given {@link TagExpression}: the ones
+     * of the file followed by the ones kept in memory. The expression is evaluated on the IDs stored
+     * in the rows, so only the matching movements are created.
+     *
+     * @param expression the {@link TagExpression} to evaluate.
+     * @return the list of the matching movements.
+     */
+    @Override
+    public List<Movement> getMovements(TagExpression expression) {
+        controlExpression(expression);
+        List<Movement> result = new ArrayList<>();
+        for (int row = 0; row < movementRows; row++)
+            if (matchesMovementRow(row, expression))
+                result.add(getMovementAtRow(row));
+        movementsMap.values().forEach(m -> {
+            if (expression.matches(m.getTag())) result.add(m);
+        });
+        return result;
+    }
+
+    /**
+     * Returns the number of movements carrying the given {@link Tag}, scanning the rows of the file
+     * without creating the movements.
+     *
+     * @param tag the {@link Tag} to search for.
+     * @return the number of movements carrying the {@link Tag}.
+     */
+    @Override
+    public int countMovements(Tag tag) {
+        TagExpression expression = TagExpression.of(controlTag(tag));
+        int count = 0;
+        for (int row = 0; row < movementRows; row++)
+            if (matchesMovementRow(row, expression)) count++;
+        for (Movement m : movementsMap.values())
+            if (m.getTag().contains(tag)) count++;
+        return count;
+    }
+
+    /**
+     * Returns true if the row of a {@link Movement} was not removed and its tags satisfy the given
+     * {@link TagExpression}.
+     *
+     * @param row        the row of the {@link Movement}.
+     * @param expression the {@link TagExpression} to evaluate.
+     * @return true if the row matches, false otherwise.
+     */
+    private boolean matchesMovementRow(int row, TagExpression expression) {
+        return !removedMovementRows.contains(row) && expression.matches(getPoolTags(
+                getMovementValue(row, MOVEMENT_TAGS), getMovementValue(row, MOVEMENT_TAG_COUNT)));
+    }
+
+    /**
+     * Controls that the given {@link TagExpression} is not null.
+     *
+     * @param expression the value to control.
+     * @return the controlled {@link TagExpression}.
+     */
+    private TagExpression controlExpression(TagExpression expression) {
+        if (Objects.isNull(expression))
+            throw new NullPointerException(TagExpression.MESSAGE_NULL_EXPRESSION);
+        return expression;
+    }
+
+    /**
+     * Returns the stored {@link Tag} equal to the given one, that is the one with
+     * the same ID or, if there is none, the one with the same name.
+     *
+     * @param tag the {@link Tag} to search for.
+     * @return the stored {@link Tag}, or null if there is none.
+     */
+    private Tag findStoredTag(Tag tag) {
+        Tag stored = tagsMap.get(tag.getID());
+        if (Objects.isNull(stored))
+            stored = tagsByName.get(tag.getName());
+        return tag.equals(stored) ? stored : null;
+    }
+
+    /**
+     * Controls that the given {@link Tag} is not null.
+     *
+     * @param t the {@link Tag} to control.
+     */
+    private Tag controlTag(Tag t) {
+        if (t == null)
+            throw new NullPointerException(Tag.MESSAGE_NULL_TAG);
+        return t;
+    }
+
+    /**
+     * Discards the cached snapshots of all the lists so that they are rebuilt
+     * the next time they are requested.
+     */
+    private void invalidateViews() {
+        accountsView = null;
+        tagsView = null;
+        transactionsView = null;
+        movementsView = null;
+    }
+
+    /**
+     * Returns the {@link BudgetTracker} of this ledger.
+     *
+     * @return the {@link BudgetTracker} of this ledger.
+     */
+    @Override
+    public BudgetTracker getBudgetTracker() {
+        return budgetTracker;
+    }
+
+    /**
+     * Resets this ledger by emptying all its maps, releasing the file and resetting the ID generators
+     * of the class {@link Indexer}.
+     */
+    @Override
+    public void resetLedger() {
+        accountsMap.clear();
+        accountsByName.clear();
+        tagsMap.clear();
+        tagsByName.clear();
+        transactionsMap.clear();
+        movementsMap.clear();
+        cache.clear();
+        file = null;
+        transactionRows = 0;
+        movementRows = 0;
+        removedTransactionRows = RowExclusions.NONE;
+        removedMovementRows = RowExclusions.NONE;
+        budgetTracker.clear();
+        invalidateViews();
+        Indexer.getInstance().resetAll();
+    }
+}
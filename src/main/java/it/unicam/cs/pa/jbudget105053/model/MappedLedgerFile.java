@@ -0,0 +1,72 @@
+package it.unicam.cs.pa.jbudget105053.model;
+
+/**
+ * This class holds the constants of the file format read by {@link MappedLedger}, which is written by
+ * the {@code MappedLedgerExporter} of the persistence.
+ * The file is meant to be mapped in memory and read in place, so the transactions and the movements are
+ * stored in rows of fixed width which can be reached by position without reading the rows before them.
+ * The file, in big-endian order, is made of a header followed by six sections:
+ * <ul>
+ *     <li>the header: the magic number, the version of the format, the number of accounts, tags,
+ *     transactions and movements, and the offsets of the other sections except the accounts,
+ *     which immediately follow the header;</li>
+ *     <li>the accounts: ID, ordinal of the {@link AccountType}, name, initial balance in cents and the
+ *     position and number, in the pool, of the rows of the movements of each {@link Account}, in
+ *     ascending order;</li>
+ *     <li>the tags: ID, name and description of each {@link Tag};</li>
+ *     <li>the rows of the transactions, in ascending order of ID: ID, epoch day, row of the first
+ *     movement, number of movements and position and number, in the pool, of the IDs of the tags;</li>
+ *     <li>the rows of the movements, grouped by transaction in the order of the transactions: ID, signed
+ *     amount in cents, ID of the {@link Account}, row of the {@link Transaction} and position and number,
+ *     in the pool, of the IDs of the tags;</li>
+ *     <li>the index of the movements: the ID and the row of each {@link Movement}, in ascending order
+ *     of ID;</li>
+ *     <li>the pool: the integers referenced by the other sections.</li>
+ * </ul>
+ * Strings are written as their length in bytes followed by their UTF-8 bytes. Since the offsets are
+ * integers, the file cannot be bigger than 2 GB.
+ *
+ * @author Tommaso Catervi
+ */
+public final class MappedLedgerFile {
+    /**
+     * The first four bytes of the file, "JBML".
+     */
+    public static final int MAGIC = 0x4A424D4C;
+
+    /**
+     * The version of the format written by this version of the application.
+     */
+    public static final short VERSION = 1;
+
+    /**
+     * The name of the file inside the given path.
+     */
+    public static final String FILE_NAME = "ledger.jbm";
+
+    /**
+     * The size in bytes of the header.
+     */
+    public static final int HEADER_SIZE = Integer.BYTES * 12;
+
+    /**
+     * The size in bytes of a row of a {@link Transaction}.
+     */
+    public static final int TRANSACTION_ROW = Integer.BYTES * 6;
+
+    /**
+     * The size in bytes of a row of a {@link Movement}.
+     */
+    public static final int MOVEMENT_ROW = Integer.BYTES * 5 + Long.BYTES;
+
+    /**
+     * The size in bytes of an entry of the index of the movements.
+     */
+    public static final int MOVEMENT_ID_ROW = Integer.BYTES * 2;
+
+    /**
+     * The constructor is private because this class only has constants.
+     */
+    private MappedLedgerFile() {
+    }
+}
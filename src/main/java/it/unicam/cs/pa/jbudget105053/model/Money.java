@@ -0,0 +1,118 @@
+package it.unicam.cs.pa.jbudget105053.model;
+
+/**
+ * This class has the responsibility to convert money amounts to and from their fixed-point
+ * representation and to aggregate them.
+ * Inside the model an amount is a {@code long} number of cents, and the amount of a {@link Movement}
+ * carries its sign, positive for an {@link MovementType#INCREMENT} and negative for a
+ * {@link MovementType#DECREMENT}, so totals are exact sums that need no branch on the type.
+ *
+ * @author Tommaso Catervi
+ */
+public final class Money {
+    /**
+     * The number of cents in a unit of currency.
+     */
+    public static final int CENTS_PER_UNIT = 100;
+
+    /**
+     * The constructor is private because this class only has static methods.
+     */
+    private Money() {
+    }
+
+    /**
+     * Returns the number of cents of the given amount, rounded to the nearest cent.
+     *
+     * @param amount the amount to convert.
+     * @return the amount in cents.
+     */
+    public static long toCents(double amount) {
+        return Math.round(amount * CENTS_PER_UNIT);
+    }
+
+    /**
+     * Returns the amount corresponding to the given number of cents.
+     *
+     * @param cents the number of cents to convert.
+     * @return the amount.
+     */
+    public static double toAmount(long cents) {
+        return (double) cents / CENTS_PER_UNIT;
+    }
+
+    /**
+     * Returns the given amount in cents with the sign of the given {@link MovementType}.
+     *
+     * @param type   the type of the movement.
+     * @param amount the positive amount of the movement.
+     * @return the signed amount in cents.
+     */
+    public static long toSignedCents(MovementType type, double amount) {
+        long cents = toCents(amount);
+        return type == MovementType.DECREMENT ? -cents : cents;
+    }
+
+    /**
+     * Returns the sum of the values of the given array between {@code from}, included, and {@code to},
+     * excluded. The loop keeps four independent accumulators so that consecutive additions do not wait
+     * for each other.
+     *
+     * @param cents the array of amounts in cents.
+     * @param from  the first position to sum.
+     * @param to    the position after the last one to sum.
+     * @return the sum of the amounts.
+     */
+    public static long sum(long[] cents, int from, int to) {
+        long s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = from;
+        for (; i + 3 < to; i += 4) {
+            s0 += cents[i];
+            s1 += cents[i + 1];
+            s2 += cents[i + 2];
+            s3 += cents[i + 3];
+        }
+        for (; i < to; i++)
+            s0 += cents[i];
+        return s0 + s1 + s2 + s3;
+    }
+
+    /**
+     * Returns the sum of the values of the given array between {@code from}, included, and {@code to},
+     * excluded, whose key in the parallel array {@code keys} is equal to the given key.
+     * The selection is made with a mask rather than a branch, so the loop runs at the same speed
+     * whatever the distribution of the keys.
+     *
+     * @param cents the array of amounts in cents.
+     * @param keys  the array of keys, parallel to {@code cents}.
+     * @param key   the key of the amounts to sum.
+     * @param from  the first position to sum.
+     * @param to    the position after the last one to sum.
+     * @return the sum of the selected amounts.
+     */
+    public static long sumWhere(long[] cents, int[] keys, int key, int from, int to) {
+        long s0 = 0, s1 = 0;
+        int i = from;
+        for (; i + 1 < to; i += 2) {
+            s0 += cents[i] & mask(keys[i], key);
+            s1 += cents[i + 1] & mask(keys[i + 1], key);
+        }
+        for (; i < to; i++)
+            s0 += cents[i] & mask(keys[i], key);
+        return s0 + s1;
+    }
+
+    /**
+     * Returns a mask with all the bits set if the two given keys are equal, and zero otherwise.
+     * The sign bit of {@code x | -x} is set for every {@code x} other than zero, including
+     * {@link Integer#MIN_VALUE}, so the mask is correct for any pair of keys.
+     *
+     * @param a the first key.
+     * @param b the second key.
+     * @return the mask.
+     */
+    private static long mask(int a, int b) {
+        int x = a ^ b;
+        return ~(long) ((x | -x) >> 31);
+    }
+}
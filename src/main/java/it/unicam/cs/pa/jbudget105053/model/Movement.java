@@ -33,6 +33,16 @@ public interface Movement extends HasID {
      */
     double getAmount();
 
+    /**
+     * Returns the amount of the {@link Movement} in cents, with a positive sign for an
+     * {@link MovementType#INCREMENT} and a negative sign for a {@link MovementType#DECREMENT}.
+     *
+     * @return the signed amount in cents of the {@link Movement}.
+     */
+    default long getSignedCents() {
+        return Money.toSignedCents(getMovementType(), getAmount());
+    }
+
     /**
      * Getter method for the date field of the {@link Movement}.
      *
@@ -40,6 +50,15 @@ public interface Movement extends HasID {
      */
     Date getMovementDate();
 
+    /**
+     * Returns the date of the {@link Movement} as the number of days since the epoch.
+     *
+     * @return the epoch day of the {@link Movement}.
+     */
+    default int getEpochDay() {
+        return EpochDays.toEpochDay(getMovementDate());
+    }
+
     /**
      * Setter method for the date field of the {@link Movement}.
      *
@@ -52,6 +52,11 @@ public class MovementException extends Exception {
      */
     public static final String MESSAGE_MOVEMENT_DOES_NOT_EXIST = "Il movimento passato non e' contenuto nella lista dei movimenti.";
 
+    /**
+     * The string error message for when a {@link Movement} already stored in a ledger is modified.
+     */
+    public static final String MESSAGE_STORED_MOVEMENT = "Il movimento e' gia' registrato nel ledger, ergo non puo' essere modificato.";
+
     /**
      * Constructs a {@link MovementException} with the given message.
      *
@@ -0,0 +1,410 @@
+package it.unicam.cs.pa.jbudget105053.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.IntFunction;
+
+/**
+ * This class has the responsibility to store the movements of a ledger in columns of primitive values.
+ * Each {@link Movement} occupies a slot of the parallel arrays {@code cents}, {@code accountIDs},
+ * {@code transactionIDs} and {@code days}, while its tags are referenced only when it has any. The amounts
+ * are stored in cents with the sign of the {@link MovementType}, so the type needs no column of its own.
+ * The movements are handed out as flyweight views that hold nothing but their ID and read the columns, so the
+ * {@link Movement} interface keeps working and scans such as {@code getVariation} run over contiguous arrays.
+ * The store does not make the ledger smaller by itself: the views of the stored movements are still kept by
+ * their {@link Transaction} and by their {@link Account}, so each {@link Movement} costs its view, those
+ * references, its slot of the columns and its entry of the {@link SlotMap}.
+ * The views are read-only: the indexes of the ledger are keyed by the date and the tags a {@link Movement} has
+ * when it is stored, so changing them through a view would silently leave the indexes out of date. The ledger
+ * removes the tags it deletes through {@code removeTag()}, after having updated its indexes.
+ * The account and the transaction of a view are resolved by ID through the functions given to the constructor,
+ * and the slot of a {@link Movement} is found by its ID through a {@link SlotMap}, whose size depends on the
+ * number of stored movements rather than on their largest ID. The {@link SlotMap} is the only place where the
+ * IDs are kept, so the few operations that visit the slots in order invert it first.
+ * Removed movements leave a tombstone in their slot, and the columns are compacted when half of
+ * the slots are tombstones.
+ *
+ * @author Tommaso Catervi
+ */
+public final class MovementStore {
+    private static final int INITIAL_CAPACITY = 16;
+    private final IntFunction<Account> accountResolver;
+    private final IntFunction<Transaction> transactionResolver;
+    private long[] cents = new long[INITIAL_CAPACITY];
+    private int[] accountIDs = new int[INITIAL_CAPACITY];
+    private int[] transactionIDs = new int[INITIAL_CAPACITY];
+    private int[] days = new int[INITIAL_CAPACITY];
+    private Object[] tags = new Object[INITIAL_CAPACITY];
+    private final SlotMap slotsByID = new SlotMap();
+    private int used;
+    private int size;
+
+    /**
+     * Constructs an empty {@link MovementStore}.
+     *
+     * @param accountResolver     the function returning the {@link Account} with the given ID.
+     * @param transactionResolver the function returning the {@link Transaction} with the given ID.
+     */
+    public MovementStore(IntFunction<Account> accountResolver, IntFunction<Transaction> transactionResolver) {
+        this.accountResolver = Objects.requireNonNull(accountResolver);
+        this.transactionResolver = Objects.requireNonNull(transactionResolver);
+    }
+
+    /**
+     * Copies the given {@link Movement} into the columns and returns the view that replaces it.
+     * The tags list of the given {@link Movement} is shared with the view rather than copied.
+     *
+     * @param m the {@link Movement} to store.
+     * @return the view of the stored {@link Movement}.
+     */
+    public Movement add(Movement m) {
+        if (contains(controlMovement(m).getID()))
+            throw new IllegalArgumentException(MovementException.MESSAGE_MOVEMENT_ALREADY_EXISTS);
+        ensureCapacity(1);
+        int slot = used++;
+        cents[slot] = m.getSignedCents();
+        accountIDs[slot] = m.getAccount().getID();
+        transactionIDs[slot] = m.getTransaction().getID();
+        days[slot] = m.getEpochDay();
+        tags[slot] = m.getTag().isEmpty() ? null : m.getTag();
+        slotsByID.put(m.getID(), slot);
+        size++;
+        return new StoredMovement(m.getID());
+    }
+
+    /**
+     * Removes the {@link Movement} with the given ID, leaving a tombstone in its slot.
+     * Its views can no longer be used.
+     *
+     * @param ID the ID of the {@link Movement} to remove.
+     * @return true if the {@link Movement} was stored, false otherwise.
+     */
+    public boolean remove(int ID) {
+        int slot = slotOf(ID);
+        if (slot < 0) return false;
+        cents[slot] = 0;
+        accountIDs[slot] = 0;
+        tags[slot] = null;
+        slotsByID.remove(ID);
+        size--;
+        return true;
+    }
+
+    /**
+     * Removes the {@link Movement} with the given ID like {@code remove()}, and returns a copy of it as a
+     * {@link BasicMovement} that no longer depends on the columns, so that the {@link Transaction} it belongs
+     * to can still be used after having been removed from the ledger.
+     *
+     * @param ID the ID of the {@link Movement} to remove.
+     * @return the detached copy of the {@link Movement}, or null if it was not stored.
+     */
+    public Movement detach(int ID) {
+        int slot = slotOf(ID);
+        if (slot < 0) return null;
+        StoredMovement view = new StoredMovement(ID);
+        BasicMovement copy = new BasicMovement(ID, view.getMovementType(), view.getAmount(), view.getAccount());
+        Transaction t = view.getTransaction();
+        if (Objects.nonNull(t)) copy.setTransaction(t);
+        copy.setDate(view.getMovementDate());
+        view.getTag().forEach(copy::addTag);
+        remove(ID);
+        return copy;
+    }
+
+    /**
+     * Removes the given {@link Tag} from the stored {@link Movement} with the given ID, if it carries it.
+     * It is meant for the ledger, which must have already updated its indexes.
+     *
+     * @param ID the ID of the {@link Movement}.
+     * @param t  the {@link Tag} to remove.
+     */
+    @SuppressWarnings("unchecked")
+    public void removeTag(int ID, Tag t) {
+        int slot = slotOf(ID);
+        if (slot < 0 || Objects.isNull(tags[slot])) return;
+        List<Tag> list = (List<Tag>) tags[slot];
+        list.remove(t);
+        if (list.isEmpty()) tags[slot] = null;
+    }
+
+    /**
+     * Returns true if a {@link Movement} with the given ID is stored.
+     *
+     * @param ID the ID to search for.
+     * @return true if the {@link Movement} is stored, false otherwise.
+     */
+    public boolean contains(int ID) {
+        return slotOf(ID) >= 0;
+    }
+
+    /**
+     * Returns a view of the {@link Movement} with the given ID in constant expected time.
+     *
+     * @param ID the ID of the {@link Movement} to search for.
+     * @return the view of the {@link Movement}, or null if there is none.
+     */
+    public Movement get(int ID) {
+        return contains(ID) ? new StoredMovement(ID) : null;
+    }
+
+    /**
+     * Returns the number of stored movements.
+     *
+     * @return the number of stored movements.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns a list with a view of each stored {@link Movement}, in the order they were added.
+     *
+     * @return the list of the views of the movements.
+     */
+    public List<Movement> getMovements() {
+        List<Movement> list = new ArrayList<>(size);
+        int[] IDs = slotsByID.toSlotArray(used);
+        for (int slot = 0; slot < used; slot++)
+            if (IDs[slot] != 0) list.add(new StoredMovement(IDs[slot]));
+        return list;
+    }
+
+    /**
+     * Returns the total variation in cents brought by the stored movements of the {@link Account}
+     * with the given ID. The computation is a branch-free scan of the {@code cents} and
+     * {@code accountIDs} columns, where the tombstones count as zero.
+     *
+     * @param accountID the ID of the {@link Account}.
+     * @return the total variation in cents of the movements of the {@link Account}.
+     */
+    public long getVariationInCents(int accountID) {
+        return Money.sumWhere(cents, accountIDs, accountID, 0, used);
+    }
+
+    /**
+     * Returns the total variation in cents brought by all the stored movements.
+     *
+     * @return the sum of the signed amounts in cents of all the movements.
+     */
+    public long getTotalInCents() {
+        return Money.sum(cents, 0, used);
+    }
+
+    /**
+     * Removes all the movements.
+     */
+    public void clear() {
+        Arrays.fill(cents, 0, used, 0);
+        Arrays.fill(accountIDs, 0, used, 0);
+        Arrays.fill(tags, 0, used, null);
+        slotsByID.clear();
+        used = 0;
+        size = 0;
+    }
+
+    /**
+     * Returns the slot of the {@link Movement} with the given ID.
+     *
+     * @param ID the ID to search for.
+     * @return the slot of the {@link Movement}, or -1 if it is not stored.
+     */
+    private int slotOf(int ID) {
+        return slotsByID.get(ID);
+    }
+
+    /**
+     * Makes room for the given number of new movements at once, so that adding a batch
+     * of movements grows the columns at most once.
+     *
+     * @param count the number of movements that are going to be added.
+     */
+    public void reserve(int count) {
+        ensureCapacity(count);
+    }
+
+    /**
+     * Makes room for the given number of new slots, compacting the columns if at least half of
+     * the slots are tombstones and growing them to at least twice their size otherwise.
+     *
+     * @param count the number of new slots needed.
+     */
+    private void ensureCapacity(int count) {
+        if (used + count <= cents.length) return;
+        if (used - size >= used / 2) compact();
+        if (used + count <= cents.length) return;
+        int capacity = Math.max(cents.length * 2, used + count);
+        cents = Arrays.copyOf(cents, capacity);
+        accountIDs = Arrays.copyOf(accountIDs, capacity);
+        transactionIDs = Arrays.copyOf(transactionIDs, capacity);
+        days = Arrays.copyOf(days, capacity);
+        tags = Arrays.copyOf(tags, capacity);
+    }
+
+    /**
+     * Moves all the live slots to the beginning of the columns, keeping their order.
+     * Views are not affected because they find their slot through the ID.
+     */
+    private void compact() {
+        int[] IDs = slotsByID.toSlotArray(used);
+        int live = 0;
+        for (int slot = 0; slot < used; slot++) {
+            if (IDs[slot] == 0) continue;
+            cents[live] = cents[slot];
+            accountIDs[live] = accountIDs[slot];
+            transactionIDs[live] = transactionIDs[slot];
+            days[live] = days[slot];
+            tags[live] = tags[slot];
+            slotsByID.put(IDs[slot], live);
+            live++;
+        }
+        Arrays.fill(cents, live, used, 0);
+        Arrays.fill(accountIDs, live, used, 0);
+        Arrays.fill(tags, live, used, null);
+        used = live;
+    }
+
+    /**
+     * Controls that the given {@link Movement} is not null.
+     *
+     * @param m the value to control.
+     * @return the controlled {@link Movement}.
+     */
+    private Movement controlMovement(Movement m) {
+        if (Objects.isNull(m))
+            throw new NullPointerException(MovementException.MESSAGE_NULL_MOVEMENT);
+        return m;
+    }
+
+    /**
+     * The flyweight view of a stored {@link Movement}. It only holds the ID of the movement and
+     * reads its data in the columns of the enclosing {@link MovementStore}; all the setter methods throw an
+     * {@link IllegalStateException}.
+     */
+    private final class StoredMovement implements Movement {
+        private final int ID;
+
+        private StoredMovement(int ID) {
+            this.ID = ID;
+        }
+
+        /**
+         * Returns the current slot of this movement.
+         *
+         * @return the slot of this movement.
+         */
+        private int slot() {
+            int slot = slotOf(ID);
+            if (slot < 0)
+                throw new IllegalArgumentException(MovementException.MESSAGE_MOVEMENT_DOES_NOT_EXIST);
+            return slot;
+        }
+
+        @Override
+        public int getID() {
+            return ID;
+        }
+
+        @Override
+        public MovementType getMovementType() {
+            return cents[slot()] < 0 ? MovementType.DECREMENT : MovementType.INCREMENT;
+        }
+
+        @Override
+        public double getAmount() {
+            return Money.toAmount(Math.abs(cents[slot()]));
+        }
+
+        @Override
+        public long getSignedCents() {
+            return cents[slot()];
+        }
+
+        @Override
+        public Date getMovementDate() {
+            return EpochDays.toDate(days[slot()]);
+        }
+
+        @Override
+        public int getEpochDay() {
+            return days[slot()];
+        }
+
+        @Override
+        public void setDate(Date movementDate) {
+            slot();
+            throw new IllegalStateException(MovementException.MESSAGE_STORED_MOVEMENT);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public List<Tag> getTag() {
+            Object list = tags[slot()];
+            return Objects.isNull(list) ? Collections.emptyList() : Collections.unmodifiableList((List<Tag>) list);
+        }
+
+        @Override
+        public void addTag(Tag t) {
+            slot();
+            throw new IllegalStateException(MovementException.MESSAGE_STORED_MOVEMENT);
+        }
+
+        @Override
+        public void removeTag(Tag t) {
+            slot();
+            throw new IllegalStateException(MovementException.MESSAGE_STORED_MOVEMENT);
+        }
+
+        @Override
+        public String getTagsID() {
+            StringBuilder stringIDs = new StringBuilder();
+            getTag().forEach(t -> stringIDs.append(t.getID()).append(','));
+            return stringIDs.toString();
+        }
+
+        @Override
+        public Account getAccount() {
+            return accountResolver.apply(accountIDs[slot()]);
+        }
+
+        @Override
+        public Transaction getTransaction() {
+            return transactionResolver.apply(transactionIDs[slot()]);
+        }
+
+        @Override
+        public void setTransaction(Transaction t) {
+            slot();
+            throw new IllegalStateException(MovementException.MESSAGE_STORED_MOVEMENT);
+        }
+
+        /**
+         * A view is equal to any {@link Movement} with the same ID, like a {@link BasicMovement}.
+         *
+         * @param o the object compared to this.
+         * @return true if this object is equal to the given object, false otherwise.
+         */
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Movement)) return false;
+            return ID == ((Movement) o).getID();
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(ID);
+        }
+
+        @Override
+        public String toString() {
+            return ID + ") " +
+                    "Tipo: " + getMovementType() +
+                    ", Importo: \u20ac" + getAmount() +
+                    ", " + "Account: " + getAccount().getName();
+        }
+    }
+}
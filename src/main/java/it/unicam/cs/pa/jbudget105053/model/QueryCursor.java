@@ -0,0 +1,205 @@
+package it.unicam.cs.pa.jbudget105053.model;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * This class has the responsibility to hand out the results of a {@link LedgerQuery} one at a time or one
+ * page at a time. The results are computed lazily: each candidate {@link Movement} found through the
+ * {@link QueryPlan} is checked against the query only when the cursor reaches it, so reading the first page
+ * of a large result does not cost the whole result. Candidates removed from the ledger after the cursor was
+ * created are skipped, while the ledger must not be modified in any other way as long as the cursor is used.
+ *
+ * @param <T> the type of the results, {@link Movement} or {@link Transaction}.
+ * @author Tommaso Catervi
+ */
+public final class QueryCursor<T> implements Iterator<T> {
+    /**
+     * The string error message for when the size of a page is not valid.
+     */
+    public static final String MESSAGE_WRONG_PAGE_SIZE = "La dimensione della pagina deve essere maggiore di zero.";
+
+    private final QueryPlan plan;
+    private final Iterator<? extends T> source;
+    private T next;
+
+    /**
+     * Constructs a new {@link QueryCursor} that hands out the elements of the given iterator which are not null.
+     *
+     * @param plan   the plan used to find the candidates.
+     * @param source the iterator of the results.
+     */
+    private QueryCursor(QueryPlan plan, Iterator<? extends T> source) {
+        this.plan = Objects.requireNonNull(plan);
+        this.source = source;
+    }
+
+    /**
+     * Returns a cursor over the given candidate movements which satisfy the given query.
+     *
+     * @param plan       the plan used to find the candidates.
+     * @param candidates the candidate movements, possibly containing null for the removed ones.
+     * @param query      the query the movements must satisfy.
+     * @return the new {@link QueryCursor}.
+     */
+    public static QueryCursor<Movement> ofMovements(QueryPlan plan, Iterator<? extends Movement> candidates,
+                                                    LedgerQuery query) {
+        controlQuery(query);
+        return new QueryCursor<>(plan, new Iterator<Movement>() {
+            @Override
+            public boolean hasNext() {
+                return candidates.hasNext();
+            }
+
+            @Override
+            public Movement next() {
+                Movement m = candidates.next();
+                return Objects.nonNull(m) && query.matches(m) ? m : null;
+            }
+        });
+    }
+
+    /**
+     * Returns a cursor over the transactions of the given candidate movements which satisfy the given query.
+     * Each {@link Transaction} is handed out once, when its first matching {@link Movement} is reached.
+     *
+     * @param plan       the plan used to find the candidates.
+     * @param candidates the candidate movements, possibly containing null for the removed ones.
+     * @param query      the query the movements must satisfy.
+     * @return the new {@link QueryCursor}.
+     */
+    public static QueryCursor<Transaction> ofTransactions(QueryPlan plan, Iterator<? extends Movement> candidates,
+                                                          LedgerQuery query) {
+        QueryCursor<Movement> movements = ofMovements(plan, candidates, query);
+        IDBitmap seen = new IDBitmap();
+        return new QueryCursor<>(plan, new Iterator<Transaction>() {
+            @Override
+            public boolean hasNext() {
+                return movements.source.hasNext();
+            }
+
+            @Override
+            public Transaction next() {
+                Movement m = movements.source.next();
+                if (Objects.isNull(m)) return null;
+                Transaction t = m.getTransaction();
+                return Objects.nonNull(t) && seen.add(t.getID()) ? t : null;
+            }
+        });
+    }
+
+    /**
+     * Returns an iterator over the given movements, which are resolved by ID only when they are reached.
+     *
+     * @param IDs    the IDs of the movements, in the order they must be handed out.
+     * @param ledger the {@link Ledger} storing the movements.
+     * @return the iterator over the movements, returning null for the IDs no longer stored.
+     */
+    static Iterator<Movement> movementsOf(int[] IDs, Ledger ledger) {
+        return new Iterator<Movement>() {
+            private int i;
+
+            @Override
+            public boolean hasNext() {
+                return i < IDs.length;
+            }
+
+            @Override
+            public Movement next() {
+                if (i >= IDs.length) throw new NoSuchElementException();
+                return ledger.getMovementByID(IDs[i++]);
+            }
+        };
+    }
+
+    /**
+     * Controls that the given {@link LedgerQuery} is not null.
+     *
+     * @param query the value to control.
+     * @return the controlled {@link LedgerQuery}.
+     */
+    static LedgerQuery controlQuery(LedgerQuery query) {
+        if (Objects.isNull(query))
+            throw new NullPointerException(Ledger.MESSAGE_NULL_QUERY);
+        return query;
+    }
+
+    /**
+     * Returns true if there is another result.
+     *
+     * @return true if there is another result, false otherwise.
+     */
+    @Override
+    public boolean hasNext() {
+        while (Objects.isNull(next) && source.hasNext())
+            next = source.next();
+        return Objects.nonNull(next);
+    }
+
+    /**
+     * Returns the next result.
+     *
+     * @return the next result.
+     */
+    @Override
+    public T next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        T result = next;
+        next = null;
+        return result;
+    }
+
+    /**
+     * Returns the list of the next results, at most as many as the given size. The list is empty once
+     * all the results have been handed out.
+     *
+     * @param size the greatest number of results to return.
+     * @return the list of the next results.
+     */
+    public List<T> nextPage(int size) {
+        if (size <= 0)
+            throw new IllegalArgumentException(MESSAGE_WRONG_PAGE_SIZE);
+        List<T> page = new ArrayList<>(Math.min(size, 1024));
+        while (page.size() < size && hasNext())
+            page.add(next());
+        return page;
+    }
+
+    /**
+     * Skips the given number of results, or all the remaining ones if they are fewer.
+     *
+     * @param count the number of results to skip.
+     * @return the number of results actually skipped.
+     */
+    public int skip(int count) {
+        int skipped = 0;
+        while (skipped < count && hasNext()) {
+            next = null;
+            skipped++;
+        }
+        return skipped;
+    }
+
+    /**
+     * Returns the list of all the remaining results.
+     *
+     * @return the list of the remaining results.
+     */
+    public List<T> toList() {
+        List<T> result = new ArrayList<>();
+        forEachRemaining(result::add);
+        return result;
+    }
+
+    /**
+     * Getter method for the {@code plan} field in the {@link QueryCursor}.
+     *
+     * @return the plan used to find the candidates.
+     */
+    public QueryPlan getPlan() {
+        return plan;
+    }
+}
@@ -0,0 +1,14 @@
+package it.unicam.cs.pa.jbudget105053.model;
+
+/**
+ * This enumeration defines how a {@link Ledger} finds the candidate movements of a {@link LedgerQuery}:
+ * through the movements of the accounts of the query with {@code ACCOUNT}, through the date-ordered index
+ * with {@code DATE}, through the inverted tag index with {@code TAG}, or by visiting all the movements
+ * with {@code SCAN}.
+ */
+public enum QueryPlan {
+    SCAN,
+    ACCOUNT,
+    DATE,
+    TAG
+}
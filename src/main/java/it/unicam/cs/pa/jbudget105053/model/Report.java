@@ -0,0 +1,132 @@
+package it.unicam.cs.pa.jbudget105053.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * This class has the responsibility to describe a report computed by {@link ReportEngine}: the keys the
+ * movements are grouped by, the {@link Granularity} of the periods and the {@link LedgerQuery} selecting
+ * the movements. Each group of movements with the same keys is a cell of the resulting {@link ReportTable},
+ * holding the sum of the increments, the sum of the decrements and the number of the movements.
+ * A {@link Movement} with many tags is counted in the cell of each of its tags, and a {@link Movement}
+ * without tags in the cell of the tag {@code NONE}.
+ * A {@link Report} is immutable: the {@code with} methods return a copy with the given value changed.
+ *
+ * @author Tommaso Catervi
+ */
+public final class Report {
+    /**
+     * The key of the tag of the movements without tags.
+     */
+    public static final int NONE = -1;
+
+    /**
+     * The string error message for when the keys of a report are not valid.
+     */
+    public static final String MESSAGE_WRONG_KEYS = "Le chiavi del report devono essere diverse tra loro.";
+
+    /**
+     * The keys the movements of a report can be grouped by: the period of their date, their {@link Account},
+     * their {@link Tag} and their {@link MovementType}. The value of a key in a cell is respectively the key
+     * of the period, the ID of the {@link Account}, the ID of the {@link Tag} and the ordinal of the
+     * {@link MovementType}.
+     */
+    public enum Key {
+        PERIOD, ACCOUNT, TAG, MOVEMENT_TYPE
+    }
+
+    private final List<Key> keys;
+    private final Granularity granularity;
+    private final LedgerQuery query;
+
+    /**
+     * Constructs a new {@link Report} with the given parameters.
+     *
+     * @param keys        the keys the movements are grouped by.
+     * @param granularity the length of the periods.
+     * @param query       the query selecting the movements.
+     */
+    private Report(List<Key> keys, Granularity granularity, LedgerQuery query) {
+        this.keys = keys;
+        this.granularity = granularity;
+        this.query = query;
+    }
+
+    /**
+     * Returns a report grouping all the movements by the given keys, in the given order, with monthly periods.
+     * Without keys, the report has a single cell with the totals of all the movements.
+     *
+     * @param keys the keys the movements are grouped by.
+     * @return the new {@link Report}.
+     */
+    public static Report by(Key... keys) {
+        List<Key> list = new ArrayList<>(keys.length);
+        for (Key k : keys) {
+            if (list.contains(Objects.requireNonNull(k)))
+                throw new IllegalArgumentException(MESSAGE_WRONG_KEYS);
+            list.add(k);
+        }
+        return new Report(Collections.unmodifiableList(list), Granularity.MONTH, LedgerQuery.all());
+    }
+
+    /**
+     * Returns a copy of this {@link Report} with the given length of the periods.
+     *
+     * @param granularity the length of the periods.
+     * @return the changed copy.
+     */
+    public Report withGranularity(Granularity granularity) {
+        return new Report(keys, Objects.requireNonNull(granularity), query);
+    }
+
+    /**
+     * Returns a copy of this {@link Report} computed only on the movements satisfying the given {@link LedgerQuery}.
+     *
+     * @param query the query selecting the movements.
+     * @return the changed copy.
+     */
+    public Report withQuery(LedgerQuery query) {
+        return new Report(keys, granularity, QueryCursor.controlQuery(query));
+    }
+
+    /**
+     * Getter method for the {@code keys} field in the {@link Report}.
+     *
+     * @return the unmodifiable list of the keys the movements are grouped by.
+     */
+    public List<Key> getKeys() {
+        return keys;
+    }
+
+    /**
+     * Getter method for the {@code granularity} field in the {@link Report}.
+     *
+     * @return the length of the periods.
+     */
+    public Granularity getGranularity() {
+        return granularity;
+    }
+
+    /**
+     * Getter method for the {@code query} field in the {@link Report}.
+     *
+     * @return the query selecting the movements.
+     */
+    public LedgerQuery getQuery() {
+        return query;
+    }
+
+    /**
+     * Controls that the given key is {@code ACCOUNT} or {@code TAG}, the only keys of the rollups.
+     *
+     * @param key the value to control.
+     * @return the controlled key.
+     */
+    static Key controlRollupKey(Key key) {
+        if (Objects.requireNonNull(key) != Key.ACCOUNT && key != Key.TAG)
+            throw new IllegalArgumentException(Ledger.MESSAGE_WRONG_ROLLUP_KEY);
+        return key;
+    }
+}
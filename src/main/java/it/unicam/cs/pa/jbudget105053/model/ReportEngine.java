@@ -0,0 +1,226 @@
+package it.unicam.cs.pa.jbudget105053.model;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * This class has the responsibility to compute a {@link Report} on the movements of a {@link Ledger} in a single
+ * parallel pass. The movements are visited through a {@link Spliterator}, which is split in halves on a
+ * {@link ForkJoinPool} until each part is small enough; each part is then aggregated by a single task into a
+ * partial table of its own, so no cell is ever shared between threads, and the partial tables are merged
+ * pairwise as the tasks complete. All the cells of the report are therefore computed by reading each
+ * {@link Movement} once.
+ * The movements are selected through {@code queryMovements()}, so a {@link LedgerQuery} answered by an index
+ * only visits its candidates. The {@link Ledger} must not be modified while a report is computed.
+ *
+ * @author Tommaso Catervi
+ */
+public class ReportEngine {
+    private static final int LEAF_SIZE = 4096;
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructs a new {@link ReportEngine} that computes the reports on the common {@link ForkJoinPool}.
+     */
+    public ReportEngine() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs a new {@link ReportEngine} that computes the reports on the given {@link ForkJoinPool}.
+     *
+     * @param pool the value used to set the {@code pool} field of the {@link ReportEngine}.
+     */
+    public ReportEngine(ForkJoinPool pool) {
+        this.pool = Objects.requireNonNull(pool);
+    }
+
+    /**
+     * Computes the given {@link Report} on the movements of the given {@link Ledger}.
+     * When the {@link LedgerQuery} of the report can only be answered by visiting all the movements, the
+     * query is checked by the tasks themselves, so the filtering happens in parallel too.
+     *
+     * @param ledger the {@link Ledger} whose movements are aggregated.
+     * @param report the {@link Report} to compute.
+     * @return the table of the cells of the report.
+     */
+    public ReportTable compute(Ledger ledger, Report report) {
+        Objects.requireNonNull(ledger);
+        LedgerQuery query = report.getQuery();
+        QueryCursor<Movement> cursor = ledger.queryMovements(query);
+        boolean scan = cursor.getPlan() == QueryPlan.SCAN;
+        List<Movement> movements = scan ? ledger.getMovements() : cursor.toList();
+        LedgerQuery filter = scan && query != LedgerQuery.all() ? query : null;
+        return pool.invoke(new AggregateTask(movements.spliterator(), report, filter)).toTable();
+    }
+
+    /**
+     * The task aggregating the movements of a {@link Spliterator}, splitting it while it is large.
+     */
+    private static final class AggregateTask extends RecursiveTask<Partial> {
+        private static final long serialVersionUID = 1L;
+        private final Spliterator<Movement> movements;
+        private final Report report;
+        private final LedgerQuery filter;
+
+        private AggregateTask(Spliterator<Movement> movements, Report report, LedgerQuery filter) {
+            this.movements = movements;
+            this.report = report;
+            this.filter = filter;
+        }
+
+        @Override
+        protected Partial compute() {
+            if (movements.estimateSize() > LEAF_SIZE) {
+                Spliterator<Movement> prefix = movements.trySplit();
+                if (Objects.nonNull(prefix)) {
+                    AggregateTask left = new AggregateTask(prefix, report, filter);
+                    left.fork();
+                    Partial right = new AggregateTask(movements, report, filter).compute();
+                    return right.merge(left.join());
+                }
+            }
+            Partial partial = new Partial(report);
+            movements.forEachRemaining(m -> {
+                if (Objects.isNull(filter) || filter.matches(m)) partial.add(m);
+            });
+            return partial;
+        }
+    }
+
+    /**
+     * The cells of a part of the movements, owned by a single task. Each cell is an array holding the sum
+     * of the increments, the sum of the decrements and the number of the movements.
+     */
+    private static final class Partial {
+        private final Report report;
+        private final Report.Key[] keys;
+        private final Map<CellKey, long[]> cells = new HashMap<>();
+        private final CellKey probe;
+        private final int tagColumn;
+
+        private Partial(Report report) {
+            this.report = report;
+            this.keys = report.getKeys().toArray(new Report.Key[0]);
+            this.probe = new CellKey(new int[keys.length]);
+            this.tagColumn = report.getKeys().indexOf(Report.Key.TAG);
+        }
+
+        /**
+         * Adds the given {@link Movement} to its cell, or to the cell of each of its tags.
+         *
+         * @param m the {@link Movement} to add.
+         */
+        private void add(Movement m) {
+            for (int k = 0; k < keys.length; k++) {
+                switch (keys[k]) {
+                    case PERIOD:
+                        probe.values[k] = report.getGranularity().keyOf(m.getEpochDay());
+                        break;
+                    case ACCOUNT:
+                        probe.values[k] = m.getAccount().getID();
+                        break;
+                    case MOVEMENT_TYPE:
+                        probe.values[k] = m.getMovementType().ordinal();
+                        break;
+                    default:
+                        break;
+                }
+            }
+            long cents = m.getSignedCents();
+            if (tagColumn < 0) {
+                accumulate(cents);
+                return;
+            }
+            List<Tag> tags = m.getTag();
+            if (tags.isEmpty()) {
+                probe.values[tagColumn] = Report.NONE;
+                accumulate(cents);
+            }
+            for (Tag t : tags) {
+                probe.values[tagColumn] = t.getID();
+                accumulate(cents);
+            }
+        }
+
+        /**
+         * Adds the given amount to the cell with the keys of the {@code probe}, creating it if needed.
+         *
+         * @param cents the signed amount in cents.
+         */
+        private void accumulate(long cents) {
+            long[] cell = cells.get(probe);
+            if (Objects.isNull(cell)) {
+                cell = new long[3];
+                cells.put(new CellKey(probe.values.clone()), cell);
+            }
+            if (cents >= 0) cell[0] += cents;
+            else cell[1] -= cents;
+            cell[2]++;
+        }
+
+        /**
+         * Adds the cells of the given partial table to the cells of this one.
+         *
+         * @param other the partial table to merge.
+         * @return this partial table.
+         */
+        private Partial merge(Partial other) {
+            other.cells.forEach((key, cell) -> cells.merge(key, cell, (a, b) -> {
+                for (int i = 0; i < a.length; i++) a[i] += b[i];
+                return a;
+            }));
+            return this;
+        }
+
+        /**
+         * Returns the {@link ReportTable} with the cells of this partial table, sorted by their keys.
+         *
+         * @return the table of the cells.
+         */
+        private ReportTable toTable() {
+            List<CellKey> sorted = new ArrayList<>(cells.keySet());
+            sorted.sort(null);
+            int[][] keyColumns = new int[keys.length][sorted.size()];
+            long[] increments = new long[sorted.size()];
+            long[] decrements = new long[sorted.size()];
+            int[] counts = new int[sorted.size()];
+            for (int i = 0; i < sorted.size(); i++) {
+                CellKey key = sorted.get(i);
+                for (int k = 0; k < keys.length; k++) keyColumns[k][i] = key.values[k];
+                long[] cell = cells.get(key);
+                increments[i] = cell[0];
+                decrements[i] = cell[1];
+                counts[i] = Math.toIntExact(cell[2]);
+            }
+            return new ReportTable(report, keyColumns, increments, decrements, counts);
+        }
+    }
+
+    /**
+     * The values of the keys of a cell, compared in order.
+     */
+    private static final class CellKey implements Comparable<CellKey> {
+        private final int[] values;
+
+        private CellKey(int[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof CellKey && Arrays.equals(values, ((CellKey) o).values);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(values);
+        }
+
+        @Override
+        public int compareTo(CellKey other) {
+            return Arrays.compare(values, other.values);
+        }
+    }
+}
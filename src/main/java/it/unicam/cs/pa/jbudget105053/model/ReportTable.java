@@ -0,0 +1,177 @@
+package it.unicam.cs.pa.jbudget105053.model;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * This class has the responsibility to hold the result of a {@link Report}: a pivot table with a cell for each
+ * group of movements with the same keys. The cells are sorted by their keys, compared in the order of the keys
+ * of the {@link Report}, and are stored in columns of primitive values: one column for each key, and the
+ * columns of the sum of the increments, of the sum of the decrements and of the number of the movements of
+ * each cell, so a table with many cells takes a few dozen bytes per cell and a cell is found by its keys in
+ * logarithmic time.
+ * A {@link ReportTable} is immutable.
+ *
+ * @author Tommaso Catervi
+ */
+public final class ReportTable {
+    /**
+     * The string error message for when a key is not one of the keys of the report.
+     */
+    public static final String MESSAGE_WRONG_KEY = "La chiave passata non e' una chiave del report.";
+
+    private final Report report;
+    private final int[][] keyColumns;
+    private final long[] increments;
+    private final long[] decrements;
+    private final int[] counts;
+
+    /**
+     * Constructs a new {@link ReportTable} with the given columns, whose cells must already be sorted.
+     *
+     * @param report     the {@link Report} of the table.
+     * @param keyColumns the values of each key in each cell.
+     * @param increments the sum in cents of the increments of each cell.
+     * @param decrements the sum in cents of the decrements of each cell.
+     * @param counts     the number of movements of each cell.
+     */
+    ReportTable(Report report, int[][] keyColumns, long[] increments, long[] decrements, int[] counts) {
+        this.report = report;
+        this.keyColumns = keyColumns;
+        this.increments = increments;
+        this.decrements = decrements;
+        this.counts = counts;
+    }
+
+    /**
+     * Getter method for the {@code report} field in the {@link ReportTable}.
+     *
+     * @return the {@link Report} of the table.
+     */
+    public Report getReport() {
+        return report;
+    }
+
+    /**
+     * Returns the list of the keys of the cells, in the order they are compared.
+     *
+     * @return the keys of the cells.
+     */
+    public List<Report.Key> getKeys() {
+        return report.getKeys();
+    }
+
+    /**
+     * Returns the number of cells of the table.
+     *
+     * @return the number of cells.
+     */
+    public int size() {
+        return counts.length;
+    }
+
+    /**
+     * Returns the value of the given key in the given cell: the key of the period for {@code PERIOD}, whose
+     * first day is given by the {@link Granularity} of the {@link Report}, the ID of the {@link Account} for
+     * {@code ACCOUNT}, the ID of the {@link Tag} or {@code Report.NONE} for {@code TAG}, and the ordinal of the
+     * {@link MovementType} for {@code MOVEMENT_TYPE}.
+     *
+     * @param cell the position of the cell.
+     * @param key  the key to read.
+     * @return the value of the key in the cell.
+     */
+    public int getKey(int cell, Report.Key key) {
+        int column = report.getKeys().indexOf(Objects.requireNonNull(key));
+        if (column < 0)
+            throw new IllegalArgumentException(MESSAGE_WRONG_KEY);
+        return keyColumns[column][cell];
+    }
+
+    /**
+     * Returns the sum of the amounts of the increments of the given cell, in cents.
+     *
+     * @param cell the position of the cell.
+     * @return the sum of the increments.
+     */
+    public long getIncrementsInCents(int cell) {
+        return increments[cell];
+    }
+
+    /**
+     * Returns the sum of the amounts of the decrements of the given cell, in cents, as a positive value.
+     *
+     * @param cell the position of the cell.
+     * @return the sum of the decrements.
+     */
+    public long getDecrementsInCents(int cell) {
+        return decrements[cell];
+    }
+
+    /**
+     * Returns the sum of the increments minus the sum of the decrements of the given cell, in cents.
+     *
+     * @param cell the position of the cell.
+     * @return the net variation of the cell.
+     */
+    public long getNetInCents(int cell) {
+        return increments[cell] - decrements[cell];
+    }
+
+    /**
+     * Returns the sum of the increments minus the sum of the decrements of the given cell.
+     *
+     * @param cell the position of the cell.
+     * @return the net variation of the cell.
+     */
+    public double getNet(int cell) {
+        return Money.toAmount(getNetInCents(cell));
+    }
+
+    /**
+     * Returns the number of movements of the given cell.
+     *
+     * @param cell the position of the cell.
+     * @return the number of movements.
+     */
+    public int getCount(int cell) {
+        return counts[cell];
+    }
+
+    /**
+     * Returns the position of the cell with the given values of the keys, given in the order of the keys of
+     * the {@link Report}, through a binary search.
+     *
+     * @param values the values of the keys.
+     * @return the position of the cell, or -1 if no movement has these keys.
+     */
+    public int find(int... values) {
+        if (values.length != keyColumns.length)
+            throw new IllegalArgumentException(MESSAGE_WRONG_KEY);
+        int low = 0;
+        int high = counts.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = compare(middle, values);
+            if (comparison < 0) low = middle + 1;
+            else if (comparison > 0) high = middle - 1;
+            else return middle;
+        }
+        return -1;
+    }
+
+    /**
+     * Compares the keys of the given cell with the given values.
+     *
+     * @param cell   the position of the cell.
+     * @param values the values of the keys.
+     * @return a negative number, zero or a positive number if the keys of the cell come before, are equal
+     * to or come after the values.
+     */
+    private int compare(int cell, int[] values) {
+        for (int k = 0; k < values.length; k++) {
+            int comparison = Integer.compare(keyColumns[k][cell], values[k]);
+            if (comparison != 0) return comparison;
+        }
+        return 0;
+    }
+}
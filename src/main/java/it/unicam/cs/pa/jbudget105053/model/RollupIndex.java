@@ -0,0 +1,199 @@
+package it.unicam.cs.pa.jbudget105053.model;
+
+import java.util.*;
+
+/**
+ * This class has the responsibility to keep, for every {@link Account} and every {@link Tag}, the sum of the
+ * increments, the sum of the decrements and the number of the movements of each day, month and year.
+ * The cells are updated when a {@link Movement} is added or removed, at a cost proportional to the number of
+ * its tags, so reading the totals of a period never visits the movements. A {@link Movement} is counted in
+ * the cells of each of its tags, and a {@link Movement} without tags in the cells of the tag {@code Report.NONE},
+ * like {@link ReportEngine} does. The cells are read as a {@link ReportTable} grouped by the {@link Account}
+ * or the {@link Tag} and by the period, which is built from the cells and then kept until they change.
+ * The index records the tags a {@link Movement} carries when it is added, so they must be set before the
+ * {@link Transaction} is added to the ledger.
+ *
+ * @author Tommaso Catervi
+ */
+final class RollupIndex {
+    private static final Granularity[] GRANULARITIES = Granularity.values();
+    private final Map<Integer, Rollups> accountRollups = new HashMap<>();
+    private final Map<Integer, Rollups> tagRollups = new HashMap<>();
+    private final ReportTable[] tables = new ReportTable[2 * GRANULARITIES.length];
+
+    /**
+     * Adds all the movements of the given {@link Transaction} to the cells.
+     *
+     * @param t the added {@link Transaction}.
+     */
+    void addTransaction(Transaction t) {
+        t.getMovements().forEach(m -> update(m, 1));
+    }
+
+    /**
+     * Removes all the movements of the given {@link Transaction} from the cells.
+     *
+     * @param t the removed {@link Transaction}.
+     */
+    void removeTransaction(Transaction t) {
+        t.getMovements().forEach(m -> update(m, -1));
+    }
+
+    /**
+     * Removes the given {@link Movement} from the cells.
+     *
+     * @param m the removed {@link Movement}.
+     */
+    void removeMovement(Movement m) {
+        update(m, -1);
+    }
+
+    /**
+     * Removes the cells of the given {@link Tag}. The movements left without tags by the removal must then be
+     * passed to {@code untagged()}.
+     *
+     * @param tag the removed {@link Tag}.
+     */
+    void removeTag(Tag tag) {
+        tagRollups.remove(tag.getID());
+        Arrays.fill(tables, null);
+    }
+
+    /**
+     * Adds the given {@link Movement}, which has just lost its last {@link Tag}, to the cells of the
+     * tag {@code Report.NONE}.
+     *
+     * @param m the {@link Movement} left without tags.
+     */
+    void untagged(Movement m) {
+        rollupsOf(tagRollups, Report.NONE).update(m.getEpochDay(), m.getSignedCents(), 1);
+        Arrays.fill(tables, null);
+    }
+
+    /**
+     * Removes the cells of the given {@link Account}, whose movements have already been removed.
+     *
+     * @param a the removed {@link Account}.
+     */
+    void removeAccount(Account a) {
+        accountRollups.remove(a.getID());
+        Arrays.fill(tables, null);
+    }
+
+    /**
+     * Adds the given {@link Movement} to the cells of its {@link Account} and of its tags, or removes it.
+     *
+     * @param m    the {@link Movement} to add or remove.
+     * @param sign 1 to add the {@link Movement}, -1 to remove it.
+     */
+    private void update(Movement m, int sign) {
+        int day = m.getEpochDay();
+        long cents = m.getSignedCents();
+        rollupsOf(accountRollups, m.getAccount().getID()).update(day, cents, sign);
+        List<Tag> tags = m.getTag();
+        if (tags.isEmpty()) rollupsOf(tagRollups, Report.NONE).update(day, cents, sign);
+        for (Tag t : tags) rollupsOf(tagRollups, t.getID()).update(day, cents, sign);
+        Arrays.fill(tables, null);
+    }
+
+    /**
+     * Returns the cells of the element with the given ID, creating them if needed.
+     *
+     * @param rollups the cells of the accounts or of the tags.
+     * @param ID      the ID of the element.
+     * @return the cells of the element.
+     */
+    private Rollups rollupsOf(Map<Integer, Rollups> rollups, int ID) {
+        return rollups.computeIfAbsent(ID, k -> new Rollups());
+    }
+
+    /**
+     * Returns the cells of all the accounts or of all the tags, grouped by the periods of the given
+     * {@link Granularity}, as a {@link ReportTable} keyed by the ID and then by the period.
+     *
+     * @param key         {@code ACCOUNT} or {@code TAG}.
+     * @param granularity the length of the periods.
+     * @return the table of the cells.
+     */
+    ReportTable getTable(Report.Key key, Granularity granularity) {
+        int t = (key == Report.Key.ACCOUNT ? 0 : GRANULARITIES.length) + granularity.ordinal();
+        if (Objects.isNull(tables[t]))
+            tables[t] = buildTable(Report.by(key, Report.Key.PERIOD).withGranularity(granularity),
+                    key == Report.Key.ACCOUNT ? accountRollups : tagRollups);
+        return tables[t];
+    }
+
+    /**
+     * Builds the {@link ReportTable} of the given {@link Report} from the given cells.
+     *
+     * @param report  the {@link Report} of the table.
+     * @param rollups the cells of the accounts or of the tags.
+     * @return the table of the cells.
+     */
+    private ReportTable buildTable(Report report, Map<Integer, Rollups> rollups) {
+        int g = report.getGranularity().ordinal();
+        int size = 0;
+        for (Rollups r : rollups.values()) size += r.cells.get(g).size();
+        int[][] keyColumns = new int[2][size];
+        long[] increments = new long[size];
+        long[] decrements = new long[size];
+        int[] counts = new int[size];
+        Integer[] IDs = rollups.keySet().toArray(new Integer[0]);
+        Arrays.sort(IDs);
+        int i = 0;
+        for (Integer ID : IDs) {
+            Map<Integer, long[]> cells = rollups.get(ID).cells.get(g);
+            Integer[] periods = cells.keySet().toArray(new Integer[0]);
+            Arrays.sort(periods);
+            for (Integer period : periods) {
+                long[] cell = cells.get(period);
+                keyColumns[0][i] = ID;
+                keyColumns[1][i] = period;
+                increments[i] = cell[0];
+                decrements[i] = cell[1];
+                counts[i++] = Math.toIntExact(cell[2]);
+            }
+        }
+        return new ReportTable(report, keyColumns, increments, decrements, counts);
+    }
+
+    /**
+     * Removes all the cells.
+     */
+    void clear() {
+        accountRollups.clear();
+        tagRollups.clear();
+        Arrays.fill(tables, null);
+    }
+
+    /**
+     * The cells of a single {@link Account} or {@link Tag}, one map for each {@link Granularity} from the key
+     * of the period to the sum of the increments, the sum of the decrements and the number of the movements.
+     */
+    private static final class Rollups {
+        private final List<Map<Integer, long[]>> cells = new ArrayList<>(GRANULARITIES.length);
+
+        private Rollups() {
+            for (int g = 0; g < GRANULARITIES.length; g++) cells.add(new HashMap<>());
+        }
+
+        /**
+         * Adds a {@link Movement} to the cells of its periods, or removes it. A cell left without movements
+         * is discarded.
+         *
+         * @param day   the epoch day of the {@link Movement}.
+         * @param cents the signed amount of the {@link Movement} in cents.
+         * @param sign  1 to add the {@link Movement}, -1 to remove it.
+         */
+        private void update(int day, long cents, int sign) {
+            for (int g = 0; g < GRANULARITIES.length; g++) {
+                int period = GRANULARITIES[g].keyOf(day);
+                long[] cell = cells.get(g).computeIfAbsent(period, k -> new long[3]);
+                if (cents >= 0) cell[0] += sign * cents;
+                else cell[1] -= sign * cents;
+                cell[2] += sign;
+                if (cell[2] == 0) cells.get(g).remove(period);
+            }
+        }
+    }
+}
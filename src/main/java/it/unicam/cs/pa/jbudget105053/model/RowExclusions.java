@@ -0,0 +1,103 @@
+package it.unicam.cs.pa.jbudget105053.model;
+
+import java.util.Arrays;
+
+/**
+ * This class has the responsibility to keep the positions excluded from a sequence of rows, and to
+ * translate the index of a row among the rows left into its position in the whole sequence.
+ * The positions are kept in a sorted array which is never modified: excluding other positions returns a
+ * new instance, so a list built over an instance keeps seeing the same rows while the sequence changes.
+ *
+ * @author Tommaso Catervi
+ */
+final class RowExclusions {
+    /**
+     * The instance excluding no position.
+     */
+    static final RowExclusions NONE = new RowExclusions(new int[0]);
+    private final int[] positions;
+
+    /**
+     * Constructs a new {@link RowExclusions} with the given sorted positions.
+     *
+     * @param positions the excluded positions, in ascending order and without duplicates.
+     */
+    private RowExclusions(int[] positions) {
+        this.positions = positions;
+    }
+
+    /**
+     * Returns a {@link RowExclusions} which also excludes the given positions.
+     *
+     * @param excluded the positions to exclude, in any order.
+     * @return the new {@link RowExclusions}, or this one if all the positions were already excluded.
+     */
+    RowExclusions with(int... excluded) {
+        int[] sorted = excluded.clone();
+        Arrays.sort(sorted);
+        int[] merged = new int[positions.length + sorted.length];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < positions.length || j < sorted.length) {
+            int next = j == sorted.length || (i < positions.length && positions[i] <= sorted[j])
+                    ? positions[i++] : sorted[j++];
+            if (size == 0 || merged[size - 1] != next) merged[size++] = next;
+        }
+        return size == positions.length ? this : new RowExclusions(Arrays.copyOf(merged, size));
+    }
+
+    /**
+     * Returns true if the given position is excluded.
+     *
+     * @param position the position to control.
+     * @return true if the position is excluded, false otherwise.
+     */
+    boolean contains(int position) {
+        return Arrays.binarySearch(positions, position) >= 0;
+    }
+
+    /**
+     * Getter method for the number of excluded positions.
+     *
+     * @return the number of excluded positions.
+     */
+    int size() {
+        return positions.length;
+    }
+
+    /**
+     * Returns the position of the row with the given index among the rows which are not excluded.
+     * The position is the smallest one such that the given index plus the number of excluded positions
+     * up to it is the position itself, and it is found by repeating that sum until it stops changing.
+     *
+     * @param index the index among the rows which are not excluded.
+     * @return the position of the row in the whole sequence.
+     */
+    int toPosition(int index) {
+        int position = index;
+        int previous;
+        do {
+            previous = position;
+            position = index + countUpTo(previous);
+        } while (position != previous);
+        return position;
+    }
+
+    /**
+     * Returns the number of excluded positions smaller than or equal to the given one.
+     *
+     * @param position the greatest position to count.
+     * @return the number of excluded positions up to the given one.
+     */
+    private int countUpTo(int position) {
+        int low = 0;
+        int high = positions.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (positions[middle] <= position) low = middle + 1;
+            else high = middle;
+        }
+        return low;
+    }
+}
@@ -0,0 +1,142 @@
+package it.unicam.cs.pa.jbudget105053.model;
+
+/**
+ * This class has the responsibility to map the IDs of the movements stored in a {@link MovementStore} to
+ * their slots. The IDs are kept in an open-addressing hash table with linear probing, so the memory taken
+ * depends on the number of movements rather than on their largest ID, and an ID is found in constant
+ * expected time. The table is kept at most half full, and a removed entry is filled by shifting back the
+ * following entries of its run, so searches never cross tombstones.
+ * The IDs must be greater than zero, because zero marks an empty entry.
+ *
+ * @author Tommaso Catervi
+ */
+final class SlotMap {
+    private static final int INITIAL_CAPACITY = 16;
+    private int[] keys = new int[INITIAL_CAPACITY];
+    private int[] slots = new int[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * Returns the slot of the given ID.
+     *
+     * @param ID the ID to search for.
+     * @return the slot of the ID, or -1 if it is not mapped.
+     */
+    int get(int ID) {
+        if (ID <= 0) return -1;
+        int mask = keys.length - 1;
+        for (int i = indexOf(ID, mask); keys[i] != 0; i = (i + 1) & mask)
+            if (keys[i] == ID) return slots[i];
+        return -1;
+    }
+
+    /**
+     * Maps the given ID to the given slot, replacing its previous slot if it is already mapped.
+     *
+     * @param ID   the ID, greater than zero.
+     * @param slot the slot of the ID.
+     */
+    void put(int ID, int slot) {
+        if (ID <= 0)
+            throw new IllegalArgumentException(MovementException.MESSAGE_WRONG_ID);
+        if (2 * (size + 1) > keys.length) resize(keys.length * 2);
+        int mask = keys.length - 1;
+        int i = indexOf(ID, mask);
+        while (keys[i] != 0 && keys[i] != ID) i = (i + 1) & mask;
+        if (keys[i] == 0) size++;
+        keys[i] = ID;
+        slots[i] = slot;
+    }
+
+    /**
+     * Removes the mapping of the given ID, shifting back the entries that follow it in its run.
+     *
+     * @param ID the ID to remove.
+     * @return true if the ID was mapped, false otherwise.
+     */
+    boolean remove(int ID) {
+        if (ID <= 0) return false;
+        int mask = keys.length - 1;
+        int i = indexOf(ID, mask);
+        while (keys[i] != ID) {
+            if (keys[i] == 0) return false;
+            i = (i + 1) & mask;
+        }
+        for (int j = (i + 1) & mask; keys[j] != 0; j = (j + 1) & mask) {
+            int home = indexOf(keys[j], mask);
+            if (((j - home) & mask) >= ((j - i) & mask)) {
+                keys[i] = keys[j];
+                slots[i] = slots[j];
+                i = j;
+            }
+        }
+        keys[i] = 0;
+        size--;
+        return true;
+    }
+
+    /**
+     * Returns the number of mapped IDs.
+     *
+     * @return the number of mapped IDs.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the inverse of this map, that is an array holding at each slot the ID mapped to it, and zero
+     * at the slots no ID is mapped to.
+     *
+     * @param length the length of the array, greater than every mapped slot.
+     * @return the IDs indexed by their slot.
+     */
+    int[] toSlotArray(int length) {
+        int[] IDs = new int[length];
+        for (int i = 0; i < keys.length; i++)
+            if (keys[i] != 0) IDs[slots[i]] = keys[i];
+        return IDs;
+    }
+
+    /**
+     * Removes all the mappings and shrinks the table to its initial capacity.
+     */
+    void clear() {
+        keys = new int[INITIAL_CAPACITY];
+        slots = new int[INITIAL_CAPACITY];
+        size = 0;
+    }
+
+    /**
+     * Returns the entry where the search for the given ID starts. The ID is mixed by a multiplicative
+     * hash, so that consecutive IDs are spread over the table.
+     *
+     * @param ID   the ID.
+     * @param mask the capacity of the table minus one.
+     * @return the first entry to probe.
+     */
+    private static int indexOf(int ID, int mask) {
+        int h = ID * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    /**
+     * Moves all the mappings into a table of the given capacity.
+     *
+     * @param capacity the new capacity, a power of two.
+     */
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldSlots = slots;
+        keys = new int[capacity];
+        slots = new int[capacity];
+        int mask = capacity - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] == 0) continue;
+            int i = indexOf(oldKeys[j], mask);
+            while (keys[i] != 0) i = (i + 1) & mask;
+            keys[i] = oldKeys[j];
+            slots[i] = oldSlots[j];
+        }
+    }
+}
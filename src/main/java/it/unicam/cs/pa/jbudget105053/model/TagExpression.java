@@ -0,0 +1,217 @@
+package it.unicam.cs.pa.jbudget105053.model;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * This class has the responsibility to represent a query on the tags of transactions and movements,
+ * built by combining single tags with the AND, OR and NOT operators.
+ * An expression can be checked directly against a list of tags, or evaluated on the postings
+ * of an inverted tag index, in which case each operator becomes an operation on {@link IDBitmap}s.
+ *
+ * @author Tommaso Catervi
+ */
+public abstract class TagExpression {
+    /**
+     * The string error message for when a null {@link TagExpression} is passed.
+     */
+    public static final String MESSAGE_NULL_EXPRESSION = "L'espressione passata e' nulla, ergo non valida.";
+
+    /**
+     * The string error message for when an operator is given no operands.
+     */
+    public static final String MESSAGE_NO_OPERANDS = "L'operatore deve avere almeno un operando.";
+
+    /**
+     * Constructs a {@link TagExpression}. The constructor is package-private because
+     * expressions can only be obtained through the static factory methods.
+     */
+    TagExpression() {
+    }
+
+    /**
+     * Returns an expression satisfied by the elements that carry the given {@link Tag}.
+     *
+     * @param tag the {@link Tag} to search for.
+     * @return the new {@link TagExpression}.
+     */
+    public static TagExpression of(Tag tag) {
+        if (Objects.isNull(tag))
+            throw new NullPointerException(Tag.MESSAGE_NULL_TAG);
+        return new TagOperand(tag);
+    }
+
+    /**
+     * Returns an expression satisfied by the elements that satisfy all the given expressions.
+     *
+     * @param operands the expressions to combine.
+     * @return the new {@link TagExpression}.
+     */
+    public static TagExpression and(TagExpression... operands) {
+        return new And(controlOperands(operands));
+    }
+
+    /**
+     * Returns an expression satisfied by the elements that satisfy at least one of the given expressions.
+     *
+     * @param operands the expressions to combine.
+     * @return the new {@link TagExpression}.
+     */
+    public static TagExpression or(TagExpression... operands) {
+        return new Or(controlOperands(operands));
+    }
+
+    /**
+     * Returns an expression satisfied by the elements that do not satisfy the given expression.
+     *
+     * @param operand the expression to negate.
+     * @return the new {@link TagExpression}.
+     */
+    public static TagExpression not(TagExpression operand) {
+        return new Not(controlOperands(operand).get(0));
+    }
+
+    /**
+     * Returns true if the given list of tags satisfies this expression.
+     *
+     * @param tags the tags of a {@link Transaction} or of a {@link Movement}.
+     * @return true if the tags satisfy this expression, false otherwise.
+     */
+    public abstract boolean matches(Collection<? extends Tag> tags);
+
+    /**
+     * Evaluates this expression on an inverted index and returns the IDs of the elements that satisfy it.
+     *
+     * @param postings a function returning the IDs of the elements that carry the given {@link Tag}.
+     * @param universe the IDs of all the elements, needed to evaluate the NOT operator.
+     * @return the IDs of the elements that satisfy this expression.
+     */
+    abstract IDBitmap evaluate(Function<Tag, IDBitmap> postings, IDBitmap universe);
+
+    /**
+     * Controls that at least one operand is given and that none of them is null.
+     *
+     * @param operands the operands to control.
+     * @return the list of the controlled operands.
+     */
+    private static List<TagExpression> controlOperands(TagExpression... operands) {
+        if (Objects.isNull(operands) || operands.length == 0)
+            throw new IllegalArgumentException(MESSAGE_NO_OPERANDS);
+        for (TagExpression operand : operands)
+            if (Objects.isNull(operand))
+                throw new NullPointerException(MESSAGE_NULL_EXPRESSION);
+        return List.of(operands);
+    }
+
+    /**
+     * The expression satisfied by the elements that carry a single {@link Tag}.
+     */
+    private static final class TagOperand extends TagExpression {
+        private final Tag tag;
+
+        private TagOperand(Tag tag) {
+            this.tag = tag;
+        }
+
+        @Override
+        public boolean matches(Collection<? extends Tag> tags) {
+            return tags.contains(tag);
+        }
+
+        @Override
+        IDBitmap evaluate(Function<Tag, IDBitmap> postings, IDBitmap universe) {
+            return postings.apply(tag).copy();
+        }
+
+        @Override
+        public String toString() {
+            return tag.getName();
+        }
+    }
+
+    /**
+     * The conjunction of a list of expressions.
+     */
+    private static final class And extends TagExpression {
+        private final List<TagExpression> operands;
+
+        private And(List<TagExpression> operands) {
+            this.operands = operands;
+        }
+
+        @Override
+        public boolean matches(Collection<? extends Tag> tags) {
+            return operands.stream().allMatch(e -> e.matches(tags));
+        }
+
+        @Override
+        IDBitmap evaluate(Function<Tag, IDBitmap> postings, IDBitmap universe) {
+            IDBitmap result = operands.get(0).evaluate(postings, universe);
+            for (int i = 1; i < operands.size() && !result.isEmpty(); i++)
+                result = IDBitmap.and(result, operands.get(i).evaluate(postings, universe));
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return "(" + String.join(" AND ", operands.stream().map(Object::toString).toArray(String[]::new)) + ")";
+        }
+    }
+
+    /**
+     * The disjunction of a list of expressions.
+     */
+    private static final class Or extends TagExpression {
+        private final List<TagExpression> operands;
+
+        private Or(List<TagExpression> operands) {
+            this.operands = operands;
+        }
+
+        @Override
+        public boolean matches(Collection<? extends Tag> tags) {
+            return operands.stream().anyMatch(e -> e.matches(tags));
+        }
+
+        @Override
+        IDBitmap evaluate(Function<Tag, IDBitmap> postings, IDBitmap universe) {
+            IDBitmap result = operands.get(0).evaluate(postings, universe);
+            for (int i = 1; i < operands.size(); i++)
+                result = IDBitmap.or(result, operands.get(i).evaluate(postings, universe));
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return "(" + String.join(" OR ", operands.stream().map(Object::toString).toArray(String[]::new)) + ")";
+        }
+    }
+
+    /**
+     * The negation of an expression.
+     */
+    private static final class Not extends TagExpression {
+        private final TagExpression operand;
+
+        private Not(TagExpression operand) {
+            this.operand = operand;
+        }
+
+        @Override
+        public boolean matches(Collection<? extends Tag> tags) {
+            return !operand.matches(tags);
+        }
+
+        @Override
+        IDBitmap evaluate(Function<Tag, IDBitmap> postings, IDBitmap universe) {
+            return IDBitmap.andNot(universe, operand.evaluate(postings, universe));
+        }
+
+        @Override
+        public String toString() {
+            return "NOT " + operand;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package it.unicam.cs.pa.jbudget105053.model;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This class has the responsibility to keep an inverted index from the tags to the transactions and
+ * movements that carry them.
+ * For each {@link Tag} ID the index stores the IDs of its transactions and movements in two
+ * {@link IDBitmap}s, so the number of movements carrying a {@link Tag} is known in constant time and
+ * the elements satisfying a {@link TagExpression} are found by combining the bitmaps.
+ * The index records the tags an element carries when it is added, so the tags of a {@link Transaction}
+ * and of its movements must be set before the {@link Transaction} is added to the ledger.
+ *
+ * @author Tommaso Catervi
+ */
+final class TagIndex {
+    private static final IDBitmap EMPTY = new IDBitmap();
+    private final Map<Integer, IDBitmap> transactionPostings = new HashMap<>();
+    private final Map<Integer, IDBitmap> movementPostings = new HashMap<>();
+    private final IDBitmap allTransactions = new IDBitmap();
+    private final IDBitmap allMovements = new IDBitmap();
+
+    /**
+     * Adds the given {@link Transaction} and all its movements to the index.
+     *
+     * @param t the {@link Transaction} to add.
+     */
+    void addTransaction(Transaction t) {
+        allTransactions.add(t.getID());
+        t.getTag().forEach(tag -> transactionPostings.computeIfAbsent(tag.getID(), k -> new IDBitmap()).add(t.getID()));
+        t.getMovements().forEach(this::addMovement);
+    }
+
+    /**
+     * Removes the given {@link Transaction} and all its movements from the index.
+     *
+     * @param t the {@link Transaction} to remove.
+     */
+    void removeTransaction(Transaction t) {
+        allTransactions.remove(t.getID());
+        t.getTag().forEach(tag -> removePosting(transactionPostings, tag.getID(), t.getID()));
+        t.getMovements().forEach(this::removeMovement);
+    }
+
+    /**
+     * Adds the given {@link Movement} to the index.
+     *
+     * @param m the {@link Movement} to add.
+     */
+    void addMovement(Movement m) {
+        allMovements.add(m.getID());
+        m.getTag().forEach(tag -> movementPostings.computeIfAbsent(tag.getID(), k -> new IDBitmap()).add(m.getID()));
+    }
+
+    /**
+     * Removes the given {@link Movement} from the index.
+     *
+     * @param m the {@link Movement} to remove.
+     */
+    void removeMovement(Movement m) {
+        allMovements.remove(m.getID());
+        m.getTag().forEach(tag -> removePosting(movementPostings, tag.getID(), m.getID()));
+    }
+
+    /**
+     * Removes the given ID from the postings of the given {@link Tag} ID, dropping the postings once empty.
+     *
+     * @param postings the postings to update.
+     * @param tagID    the ID of the {@link Tag}.
+     * @param ID       the ID to remove.
+     */
+    private void removePosting(Map<Integer, IDBitmap> postings, int tagID, int ID) {
+        IDBitmap bitmap = postings.get(tagID);
+        if (bitmap != null && bitmap.remove(ID) && bitmap.isEmpty())
+            postings.remove(tagID);
+    }
+
+    /**
+     * Returns the IDs of the transactions carrying the given {@link Tag}.
+     * The returned bitmap must not be modified.
+     *
+     * @param tag the {@link Tag} to search for.
+     * @return the IDs of the transactions carrying the {@link Tag}.
+     */
+    IDBitmap getTransactionIDs(Tag tag) {
+        return transactionPostings.getOrDefault(tag.getID(), EMPTY);
+    }
+
+    /**
+     * Returns the IDs of the movements carrying the given {@link Tag}.
+     * The returned bitmap must not be modified.
+     *
+     * @param tag the {@link Tag} to search for.
+     * @return the IDs of the movements carrying the {@link Tag}.
+     */
+    IDBitmap getMovementIDs(Tag tag) {
+        return movementPostings.getOrDefault(tag.getID(), EMPTY);
+    }
+
+    /**
+     * Returns the IDs of the transactions that satisfy the given {@link TagExpression}.
+     *
+     * @param expression the expression to evaluate.
+     * @return the IDs of the matching transactions.
+     */
+    IDBitmap getTransactionIDs(TagExpression expression) {
+        return expression.evaluate(this::getTransactionIDs, allTransactions);
+    }
+
+    /**
+     * Returns the IDs of the movements that satisfy the given {@link TagExpression}.
+     *
+     * @param expression the expression to evaluate.
+     * @return the IDs of the matching movements.
+     */
+    IDBitmap getMovementIDs(TagExpression expression) {
+        return expression.evaluate(this::getMovementIDs, allMovements);
+    }
+
+    /**
+     * Removes all the postings of the given {@link Tag}.
+     *
+     * @param tag the {@link Tag} to remove.
+     */
+    void removeTag(Tag tag) {
+        transactionPostings.remove(tag.getID());
+        movementPostings.remove(tag.getID());
+    }
+
+    /**
+     * Empties the index.
+     */
+    void clear() {
+        transactionPostings.clear();
+        movementPostings.clear();
+        allTransactions.clear();
+        allMovements.clear();
+    }
+}
@@ -37,6 +37,11 @@ public interface Transaction extends HasID {
      */
     String MESSAGE_TRANSACTION_DOES_NOT_EXIST = "La transazione passata non e' contenuta nella lista.";
 
+    /**
+     * The string error message for when the date of a {@link Transaction} stored in an {@link IndexedLedger} is changed.
+     */
+    String MESSAGE_STORED_TRANSACTION = "La transazione e' gia' registrata nel ledger, ergo la sua data non puo' essere modificata.";
+
     /**
      * Getter method for the ID field of the {@link Transaction}.
      *
@@ -101,6 +106,15 @@ public interface Transaction extends HasID {
      */
     Date getDate();
 
+    /**
+     * Returns the date of the {@link Transaction} as the number of days since the epoch.
+     *
+     * @return the epoch day of the {@link Transaction}.
+     */
+    default int getEpochDay() {
+        return EpochDays.toEpochDay(getDate());
+    }
+
     /**
      * Setter method for the date field of the {@link Transaction}.
      *
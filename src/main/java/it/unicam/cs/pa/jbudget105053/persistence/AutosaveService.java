@@ -0,0 +1,241 @@
+package it.unicam.cs.pa.jbudget105053.persistence;
+
+import it.unicam.cs.pa.jbudget105053.controller.Controller;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Objects;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+/**
+ * This class has the responsibility to save the ledger of a {@link Controller} without blocking the thread
+ * that changes it, typically the thread of the user interface. A save is prepared on that thread by the
+ * {@link ExportPreparation} of the {@link Controller}, in steps of at most {@link #STEP} elements each of which
+ * is a separate task of the thread, so the user interface keeps responding while a large ledger is copied;
+ * the save is then completed by the {@link ExportTask} on a background thread.
+ * The requests made after each change are debounced: the save is prepared only once no
+ * change has been requested for {@code delay} milliseconds, so a burst of changes causes a single save.
+ * When a save completes, the listener is informed on the thread of the user interface, also if it failed
+ * because of an unexpected exception.
+ *
+ * @author Tommaso Catervi
+ */
+public class AutosaveService implements Closeable {
+    /**
+     * The string error message for when a save is requested after the service has been closed.
+     */
+    public static final String MESSAGE_CLOSED_SERVICE = "Il salvataggio automatico e' stato chiuso.";
+    /**
+     * The string error message for when a save fails because of an unexpected exception.
+     */
+    public static final String MESSAGE_FAILED_SAVE = "Il salvataggio automatico non e' riuscito.";
+    /**
+     * The maximum number of elements of the ledger handled by a step of the preparation of a save.
+     */
+    public static final int STEP = 50_000;
+
+    private final Controller controller;
+    private final Executor uiExecutor;
+    private final long delay;
+    private final ScheduledExecutorService executor;
+    private ScheduledFuture<?> pending;
+    private volatile long savedVersion = -1;
+    private volatile Consumer<IOException> listener = e -> {
+    };
+
+    /**
+     * Constructs a new {@link AutosaveService}.
+     *
+     * @param controller the {@link Controller} of the ledger to save.
+     * @param uiExecutor the executor running tasks on the thread that changes the ledger.
+     * @param delay      the milliseconds without changes after which a requested save starts.
+     */
+    public AutosaveService(Controller controller, Executor uiExecutor, long delay) {
+        this.controller = Objects.requireNonNull(controller);
+        this.uiExecutor = Objects.requireNonNull(uiExecutor);
+        this.delay = delay;
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "autosave");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Setter method for the listener informed, on the thread of the user interface, of the end of each save.
+     * The listener receives null if the save succeeded, or the exception that made it fail.
+     *
+     * @param listener the listener to set.
+     */
+    public void setListener(Consumer<IOException> listener) {
+        this.listener = Objects.requireNonNull(listener);
+    }
+
+    /**
+     * Requests to save the ledger in the given path after it changed. If no other save is requested
+     * within {@code delay} milliseconds, the save is prepared on the thread of the user interface and
+     * completed in the background. Nothing happens if the ledger was already saved.
+     *
+     * @param path the path where the data will be saved.
+     */
+    public synchronized void requestSave(String path) {
+        Objects.requireNonNull(path);
+        if (isSaved()) return;
+        cancelPending();
+        pending = schedule(() -> uiExecutor.execute(() -> {
+            if (!executor.isShutdown()) save(path);
+        }), delay);
+    }
+
+    /**
+     * Starts to prepare the save of the ledger and completes it in the given path in the background,
+     * cancelling the requested save that has not started yet, if there is one. The first step of the
+     * preparation is made at once, the other ones are executed later on the thread of the user interface.
+     * This method must be called by the thread that changes the ledger.
+     *
+     * @param path the path where the data will be saved.
+     * @return the {@link Future} which is completed when the save has been completed.
+     */
+    public synchronized Future<?> save(String path) {
+        Objects.requireNonNull(path);
+        cancelPending();
+        CompletableFuture<Void> saved = new CompletableFuture<>();
+        ExportPreparation preparation;
+        try {
+            preparation = controller.prepareExport(path);
+        } catch (IOException | RuntimeException e) {
+            complete(fail(e), saved);
+            return saved;
+        }
+        prepare(preparation, saved);
+        return saved;
+    }
+
+    /**
+     * Makes a step of the given preparation and, if the save has been prepared, completes it in the
+     * background; otherwise the next step is executed later on the thread of the user interface.
+     * The preparation is abandoned if the service has been closed.
+     *
+     * @param preparation the {@link ExportPreparation} of the save.
+     * @param saved       the {@link CompletableFuture} completed when the save has been completed.
+     */
+    private void prepare(ExportPreparation preparation, CompletableFuture<Void> saved) {
+        if (executor.isShutdown()) {
+            saved.cancel(false);
+            return;
+        }
+        ExportTask task;
+        try {
+            if (!preparation.step(STEP)) {
+                uiExecutor.execute(() -> prepare(preparation, saved));
+                return;
+            }
+            task = preparation.getTask();
+        } catch (IOException | RuntimeException e) {
+            task = fail(e);
+        }
+        complete(task, saved);
+    }
+
+    /**
+     * Returns an {@link ExportTask} which fails with the given exception.
+     *
+     * @param e the exception that made the save fail.
+     * @return the {@link ExportTask} throwing the exception.
+     */
+    private static ExportTask fail(Exception e) {
+        return () -> {
+            throw e instanceof IOException ? (IOException) e : new IOException(MESSAGE_FAILED_SAVE, e);
+        };
+    }
+
+    /**
+     * Completes the save with the given task in the background, and then the given {@link CompletableFuture}.
+     *
+     * @param task  the {@link ExportTask} completing the save.
+     * @param saved the {@link CompletableFuture} completed when the save has been completed.
+     */
+    private void complete(ExportTask task, CompletableFuture<Void> saved) {
+        try {
+            schedule(() -> {
+                write(task);
+                saved.complete(null);
+            }, 0);
+        } catch (IllegalStateException e) {
+            saved.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Completes the given save and informs the listener of the result. A save failed because of an
+     * unexpected exception is reported as an {@link IOException} with the exception as its cause.
+     *
+     * @param task the {@link ExportTask} completing the save.
+     */
+    private void write(ExportTask task) {
+        IOException failure = null;
+        try {
+            savedVersion = Math.max(savedVersion, task.run());
+        } catch (IOException e) {
+            failure = e;
+        } catch (RuntimeException e) {
+            failure = new IOException(MESSAGE_FAILED_SAVE, e);
+        }
+        IOException result = failure;
+        uiExecutor.execute(() -> listener.accept(result));
+    }
+
+    /**
+     * Schedules the given task on the background thread.
+     *
+     * @param task  the task to run.
+     * @param delay the milliseconds after which the task runs.
+     * @return the {@link ScheduledFuture} of the task.
+     */
+    private ScheduledFuture<?> schedule(Runnable task, long delay) {
+        try {
+            return executor.schedule(task, delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            throw new IllegalStateException(MESSAGE_CLOSED_SERVICE, e);
+        }
+    }
+
+    /**
+     * Cancels the requested save that has not started yet, if there is one.
+     */
+    private void cancelPending() {
+        if (Objects.nonNull(pending)) pending.cancel(false);
+        pending = null;
+    }
+
+    /**
+     * Returns true if the last save written contains all the changes made to the ledger.
+     *
+     * @return true if the ledger has been saved, false otherwise.
+     */
+    public boolean isSaved() {
+        return savedVersion == controller.getVersion();
+    }
+
+    /**
+     * Cancels the requested save that has not started yet, if there is one, and waits for the
+     * saves already prepared to be written.
+     *
+     * @throws IOException if the thread is interrupted while waiting.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            cancelPending();
+            executor.shutdown();
+        }
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(MESSAGE_CLOSED_SERVICE, e);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package it.unicam.cs.pa.jbudget105053.persistence;
+
+/**
+ * This class holds the constants of the binary snapshot format written by {@link BinarySnapshotExporter}
+ * and read by {@link BinarySnapshotImporter}.
+ * A snapshot is a single file, in big-endian order, made of a header followed by four sections:
+ * <ul>
+ *     <li>the header: the magic number, the version of the format and the number of accounts, tags,
+ *     transactions and movements, so the reader can presize its structures;</li>
+ *     <li>each section starts with its length in bytes and contains the records of one entity, in the order
+ *     accounts, tags, transactions and movements.</li>
+ * </ul>
+ * Strings are written as their length in bytes followed by their UTF-8 bytes, amounts as signed cents,
+ * dates as epoch days and entities reference each other by ID. A snapshot cannot be bigger than 2 GB.
+ *
+ * @author Tommaso Catervi
+ */
+final class BinarySnapshot {
+    /**
+     * The first four bytes of a snapshot, "JBSN".
+     */
+    static final int MAGIC = 0x4A42534E;
+
+    /**
+     * The version of the format written by this version of the application.
+     */
+    static final short VERSION = 1;
+
+    /**
+     * The name of the snapshot file inside the given path.
+     */
+    static final String FILE_NAME = "ledger.jbs";
+
+    /**
+     * The constructor is private because this class only has constants.
+     */
+    private BinarySnapshot() {
+    }
+}
@@ -0,0 +1,192 @@
+package it.unicam.cs.pa.jbudget105053.persistence;
+
+import it.unicam.cs.pa.jbudget105053.controller.Controller;
+import it.unicam.cs.pa.jbudget105053.model.*;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * This class implements the interfaces {@link ExportManager} and {@link SnapshotWriter} and has the
+ * responsibility to export all data of the ledger into a single binary snapshot in a given path, in the
+ * format described by {@link BinarySnapshot}. The snapshot is first written to a temporary file, which
+ * then replaces the previous one, so that a failed save never leaves a partially written snapshot.
+ *
+ * @author Tommaso Catervi
+ */
+public class BinarySnapshotExporter implements ExportManager, SnapshotWriter {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private final Controller controller;
+
+    /**
+     * Constructs a new {@link BinarySnapshotExporter} with the given controller.
+     *
+     * @param controller the value used to set the {@code controller} field of the {@link BinarySnapshotExporter}.
+     */
+    public BinarySnapshotExporter(Controller controller) {
+        this.controller = controller;
+    }
+
+    /**
+     * Takes a {@link LedgerSnapshot} of the ledger and writes it into the snapshot file in the given path.
+     *
+     * @param path the path where the data will be saved.
+     * @throws IOException if something goes wrong.
+     */
+    @Override
+    public void exportAll(String path) throws IOException {
+        write(LedgerSnapshot.of(controller), path);
+    }
+
+    /**
+     * Writes the header and the sections of accounts, tags, transactions and movements
+     * of the given snapshot into the snapshot file in the given path.
+     *
+     * @param snapshot the snapshot to write.
+     * @param path     the path where the data will be saved.
+     * @throws IOException if something goes wrong.
+     */
+    @Override
+    public void write(LedgerSnapshot snapshot, String path) throws IOException {
+        File file = new File(path, BinarySnapshot.FILE_NAME);
+        File temporary = new File(path, BinarySnapshot.FILE_NAME + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temporary), BUFFER_SIZE))) {
+            out.writeInt(BinarySnapshot.MAGIC);
+            out.writeShort(BinarySnapshot.VERSION);
+            out.writeInt(snapshot.accountIDs.length);
+            out.writeInt(snapshot.tagIDs.length);
+            out.writeInt(snapshot.transactionIDs.length);
+            out.writeInt(snapshot.movementIDs.length);
+            writeAccounts(out, snapshot);
+            writeTags(out, snapshot);
+            writeTransactions(out, snapshot);
+            writeMovements(out, snapshot);
+        }
+        Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Writes the section of the accounts: ID, ordinal of the {@link AccountType}, name and
+     * initial balance in cents of each {@link Account}.
+     *
+     * @param out      the stream to write to.
+     * @param snapshot the snapshot whose accounts are written.
+     * @throws IOException if something goes wrong.
+     */
+    private void writeAccounts(DataOutputStream out, LedgerSnapshot snapshot) throws IOException {
+        byte[][] names = encode(snapshot.accountNames);
+        int length = 0;
+        for (byte[] name : names)
+            length += Integer.BYTES + 1 + Integer.BYTES + name.length + Long.BYTES;
+        out.writeInt(length);
+        for (int i = 0; i < names.length; i++) {
+            out.writeInt(snapshot.accountIDs[i]);
+            out.writeByte(snapshot.accountTypes[i].ordinal());
+            writeString(out, names[i]);
+            out.writeLong(snapshot.accountInitialCents[i]);
+        }
+    }
+
+    /**
+     * Writes the section of the tags: ID, name and description of each {@link Tag}.
+     *
+     * @param out      the stream to write to.
+     * @param snapshot the snapshot whose tags are written.
+     * @throws IOException if something goes wrong.
+     */
+    private void writeTags(DataOutputStream out, LedgerSnapshot snapshot) throws IOException {
+        byte[][] names = encode(snapshot.tagNames);
+        byte[][] descriptions = encode(snapshot.tagDescriptions);
+        int length = 0;
+        for (int i = 0; i < names.length; i++)
+            length += Integer.BYTES * 3 + names[i].length + descriptions[i].length;
+        out.writeInt(length);
+        for (int i = 0; i < names.length; i++) {
+            out.writeInt(snapshot.tagIDs[i]);
+            writeString(out, names[i]);
+            writeString(out, descriptions[i]);
+        }
+    }
+
+    /**
+     * Writes the section of the transactions: ID, epoch day and IDs of the tags of each {@link Transaction}.
+     *
+     * @param out      the stream to write to.
+     * @param snapshot the snapshot whose transactions are written.
+     * @throws IOException if something goes wrong.
+     */
+    private void writeTransactions(DataOutputStream out, LedgerSnapshot snapshot) throws IOException {
+        int length = 0;
+        for (int[] tags : snapshot.transactionTags)
+            length += Integer.BYTES * (3 + tags.length);
+        out.writeInt(length);
+        for (int i = 0; i < snapshot.transactionIDs.length; i++) {
+            out.writeInt(snapshot.transactionIDs[i]);
+            out.writeInt(snapshot.transactionDays[i]);
+            writeTagIDs(out, snapshot.transactionTags[i]);
+        }
+    }
+
+    /**
+     * Writes the section of the movements: ID, signed amount in cents, ID of the {@link Account},
+     * ID of the {@link Transaction} and IDs of the tags of each {@link Movement}.
+     *
+     * @param out      the stream to write to.
+     * @param snapshot the snapshot whose movements are written.
+     * @throws IOException if something goes wrong.
+     */
+    private void writeMovements(DataOutputStream out, LedgerSnapshot snapshot) throws IOException {
+        int length = 0;
+        for (int[] tags : snapshot.movementTags)
+            length += Integer.BYTES * (4 + tags.length) + Long.BYTES;
+        out.writeInt(length);
+        for (int i = 0; i < snapshot.movementIDs.length; i++) {
+            out.writeInt(snapshot.movementIDs[i]);
+            out.writeLong(snapshot.movementCents[i]);
+            out.writeInt(snapshot.movementAccounts[i]);
+            out.writeInt(snapshot.movementTransactions[i]);
+            writeTagIDs(out, snapshot.movementTags[i]);
+        }
+    }
+
+    /**
+     * Writes the number of the given tag IDs followed by the IDs.
+     *
+     * @param out    the stream to write to.
+     * @param tagIDs the IDs of the tags.
+     * @throws IOException if something goes wrong.
+     */
+    private void writeTagIDs(DataOutputStream out, int[] tagIDs) throws IOException {
+        out.writeInt(tagIDs.length);
+        for (int ID : tagIDs)
+            out.writeInt(ID);
+    }
+
+    /**
+     * Writes the length of the given bytes followed by the bytes.
+     *
+     * @param out   the stream to write to.
+     * @param bytes the UTF-8 bytes of a string.
+     * @throws IOException if something goes wrong.
+     */
+    private void writeString(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Returns the UTF-8 bytes of each of the given strings.
+     *
+     * @param strings the strings to encode.
+     * @return the encoded strings, in the same order.
+     */
+    private byte[][] encode(String[] strings) {
+        byte[][] encoded = new byte[strings.length][];
+        for (int i = 0; i < strings.length; i++)
+            encoded[i] = strings[i].getBytes(StandardCharsets.UTF_8);
+        return encoded;
+    }
+}
@@ -0,0 +1,283 @@
+package it.unicam.cs.pa.jbudget105053.persistence;
+
+import it.unicam.cs.pa.jbudget105053.controller.Controller;
+import it.unicam.cs.pa.jbudget105053.model.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Objects;
+
+/**
+ * This class implements the interface {@link ImportManager} and has the responsibility to import all
+ * data from a binary snapshot in a given path into a ledger. The snapshot, in the format described by
+ * {@link BinarySnapshot}, is mapped in memory instead of being read, and the counts in its header are
+ * used to presize the arrays needed to link movements to their transactions. All the transactions are then
+ * added to the ledger in a single batch, so either the whole snapshot is imported or none of its
+ * transactions is.
+ *
+ * @author Tommaso Catervi
+ */
+public class BinarySnapshotImporter implements ImportManager {
+    /**
+     * The string error message for when the file is not a valid snapshot.
+     */
+    public static final String MESSAGE_WRONG_SNAPSHOT = "Il file non e' uno snapshot valido o e' stato salvato da una versione non supportata.";
+
+    private final Controller controller;
+
+    /**
+     * Constructs a new {@link BinarySnapshotImporter} with the given controller.
+     *
+     * @param controller the value used to set the {@code controller} field of the {@link BinarySnapshotImporter}.
+     */
+    public BinarySnapshotImporter(Controller controller) {
+        this.controller = controller;
+    }
+
+    /**
+     * Maps the snapshot file in the given path, controls its header and imports all accounts, tags,
+     * transactions and movements. Then adds all the transactions to the {@link Ledger} at once.
+     *
+     * @param path the path from which the file is read.
+     * @throws IOException if the file cannot be read or is not a valid snapshot.
+     */
+    @Override
+    public void importAll(String path) throws IOException {
+        File file = new File(path, BinarySnapshot.FILE_NAME);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != BinarySnapshot.MAGIC || buffer.getShort() != BinarySnapshot.VERSION)
+                throw new IOException(MESSAGE_WRONG_SNAPSHOT);
+            int accounts = controlCount(buffer.getInt());
+            int tags = controlCount(buffer.getInt());
+            int transactions = controlCount(buffer.getInt());
+            int movements = controlCount(buffer.getInt());
+            importAccounts(buffer, accounts);
+            importTags(buffer, tags);
+            Transaction[] created = importTransactions(buffer, transactions);
+            importMovements(buffer, movements, created);
+            controller.addTransactions(Arrays.asList(created));
+        } catch (BufferUnderflowException e) {
+            throw new IOException(MESSAGE_WRONG_SNAPSHOT, e);
+        }
+    }
+
+    /**
+     * Reads the section of the accounts and adds each {@link Account} with its ID.
+     *
+     * @param buffer the mapped snapshot.
+     * @param count  the number of accounts in the section.
+     * @throws IOException if the section is not valid.
+     */
+    private void importAccounts(ByteBuffer buffer, int count) throws IOException {
+        int end = sectionEnd(buffer);
+        AccountType[] types = AccountType.values();
+        for (int i = 0; i < count; i++) {
+            int ID = buffer.getInt();
+            int type = buffer.get();
+            if (type < 0 || type >= types.length)
+                throw new IOException(MESSAGE_WRONG_SNAPSHOT);
+            String name = readString(buffer);
+            controller.addAccountWithID(ID, types[type], name, Money.toAmount(buffer.getLong()));
+        }
+        controlSectionEnd(buffer, end);
+    }
+
+    /**
+     * Reads the section of the tags and adds each {@link Tag} with its ID.
+     *
+     * @param buffer the mapped snapshot.
+     * @param count  the number of tags in the section.
+     * @throws IOException if the section is not valid.
+     */
+    private void importTags(ByteBuffer buffer, int count) throws IOException {
+        int end = sectionEnd(buffer);
+        for (int i = 0; i < count; i++) {
+            int ID = buffer.getInt();
+            String name = readString(buffer);
+            controller.addTagWithID(ID, name, readString(buffer));
+        }
+        controlSectionEnd(buffer, end);
+    }
+
+    /**
+     * Reads the section of the transactions and creates each {@link Transaction} with its ID, date and tags.
+     * Consecutive transactions of the same day share the same {@link Date}, which is only read by the
+     * transactions when they are created.
+     *
+     * @param buffer the mapped snapshot.
+     * @param count  the number of transactions in the section.
+     * @return the created transactions, in the order they were read.
+     * @throws IOException if the section is not valid.
+     */
+    private Transaction[] importTransactions(ByteBuffer buffer, int count) throws IOException {
+        int end = sectionEnd(buffer);
+        Transaction[] created = new Transaction[count];
+        int lastDay = 0;
+        Date lastDate = null;
+        for (int i = 0; i < count; i++) {
+            int ID = buffer.getInt();
+            int day = buffer.getInt();
+            if (Objects.isNull(lastDate) || day != lastDay) {
+                lastDay = day;
+                lastDate = EpochDays.toDate(day);
+            }
+            Transaction t = controller.createTransactionWithID(ID, lastDate);
+            int tags = controlCount(buffer.getInt());
+            for (int j = 0; j < tags; j++)
+                t.addTag(readTag(buffer));
+            created[i] = t;
+        }
+        controlSectionEnd(buffer, end);
+        return created;
+    }
+
+    /**
+     * Reads the section of the movements, creates each {@link Movement} with its ID, amount, account and
+     * tags and adds it to its {@link Transaction}.
+     * The exporter writes the movements in the order of the ledger, so the {@link Transaction} of a
+     * {@link Movement} is almost always the one of the previous {@link Movement} or the next one read;
+     * the others are searched by ID in a sorted array of the transactions.
+     *
+     * @param buffer       the mapped snapshot.
+     * @param count        the number of movements in the section.
+     * @param transactions the transactions read from the snapshot, in the order they were read.
+     * @throws IOException if the section is not valid.
+     */
+    private void importMovements(ByteBuffer buffer, int count, Transaction[] transactions) throws IOException {
+        int end = sectionEnd(buffer);
+        long[] byID = null;
+        int next = 0;
+        for (int i = 0; i < count; i++) {
+            int ID = buffer.getInt();
+            long cents = buffer.getLong();
+            Account account = controller.getAccountByID(buffer.getInt());
+            if (Objects.isNull(account))
+                throw new IOException(MESSAGE_WRONG_SNAPSHOT);
+            int transactionID = buffer.getInt();
+            int position;
+            if (next > 0 && transactions[next - 1].getID() == transactionID) position = next - 1;
+            else if (next < transactions.length && transactions[next].getID() == transactionID) position = next++;
+            else {
+                if (Objects.isNull(byID)) byID = sortByID(transactions);
+                position = searchByID(byID, transactionID);
+            }
+            Transaction transaction = transactions[position];
+            Movement m = controller.createMovementWithID(ID, cents < 0 ? MovementType.DECREMENT : MovementType.INCREMENT,
+                    Money.toAmount(Math.abs(cents)), account);
+            int tags = controlCount(buffer.getInt());
+            for (int j = 0; j < tags; j++)
+                m.addTag(readTag(buffer));
+            transaction.addMovement(m);
+        }
+        controlSectionEnd(buffer, end);
+    }
+
+    /**
+     * Returns the keys of the given transactions sorted by ID, each made of the ID in the upper 32 bits and
+     * of the position of the {@link Transaction} in the lower ones.
+     *
+     * @param transactions the transactions to sort.
+     * @return the sorted keys.
+     */
+    private long[] sortByID(Transaction[] transactions) {
+        long[] keys = new long[transactions.length];
+        for (int i = 0; i < transactions.length; i++)
+            keys[i] = ((long) transactions[i].getID() << 32) | i;
+        Arrays.sort(keys);
+        return keys;
+    }
+
+    /**
+     * Returns the position of the {@link Transaction} with the given ID among the sorted keys.
+     *
+     * @param keys the keys returned by {@code sortByID()}.
+     * @param ID   the ID of the {@link Transaction}.
+     * @return the position of the {@link Transaction} in the array it was read into.
+     * @throws IOException if there is no {@link Transaction} with the given ID.
+     */
+    private int searchByID(long[] keys, int ID) throws IOException {
+        int i = Arrays.binarySearch(keys, (long) ID << 32);
+        if (i < 0) i = -i - 1;
+        if (i == keys.length || (int) (keys[i] >> 32) != ID)
+            throw new IOException(MESSAGE_WRONG_SNAPSHOT);
+        return (int) keys[i];
+    }
+
+    /**
+     * Reads the ID of a {@link Tag} and returns the {@link Tag} imported with it. The exporter writes only
+     * tags of the ledger, so an ID without a {@link Tag} means the snapshot is not valid.
+     *
+     * @param buffer the mapped snapshot.
+     * @return the {@link Tag} with the ID read.
+     * @throws IOException if there is no {@link Tag} with the ID read.
+     */
+    private Tag readTag(ByteBuffer buffer) throws IOException {
+        Tag tag = controller.getTagByID(buffer.getInt());
+        if (Objects.isNull(tag))
+            throw new IOException(MESSAGE_WRONG_SNAPSHOT);
+        return tag;
+    }
+
+    /**
+     * Reads the length of the next section and returns the position where it ends.
+     *
+     * @param buffer the mapped snapshot.
+     * @return the position after the last byte of the section.
+     * @throws IOException if the section does not fit in the snapshot.
+     */
+    private int sectionEnd(ByteBuffer buffer) throws IOException {
+        int length = controlCount(buffer.getInt());
+        if (length > buffer.remaining())
+            throw new IOException(MESSAGE_WRONG_SNAPSHOT);
+        return buffer.position() + length;
+    }
+
+    /**
+     * Controls that the reading of a section stopped exactly at its end.
+     *
+     * @param buffer the mapped snapshot.
+     * @param end    the position after the last byte of the section.
+     * @throws IOException if the section is not valid.
+     */
+    private void controlSectionEnd(ByteBuffer buffer, int end) throws IOException {
+        if (buffer.position() != end)
+            throw new IOException(MESSAGE_WRONG_SNAPSHOT);
+    }
+
+    /**
+     * Controls that a count or a length read from the snapshot is not negative.
+     *
+     * @param count the value to control.
+     * @return the controlled value.
+     * @throws IOException if the value is negative.
+     */
+    private int controlCount(int count) throws IOException {
+        if (count < 0)
+            throw new IOException(MESSAGE_WRONG_SNAPSHOT);
+        return count;
+    }
+
+    /**
+     * Reads a string written as its length in bytes followed by its UTF-8 bytes.
+     *
+     * @param buffer the mapped snapshot.
+     * @return the string read.
+     * @throws IOException if the length is not valid.
+     */
+    private String readString(ByteBuffer buffer) throws IOException {
+        int length = controlCount(buffer.getInt());
+        if (length > buffer.remaining())
+            throw new IOException(MESSAGE_WRONG_SNAPSHOT);
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
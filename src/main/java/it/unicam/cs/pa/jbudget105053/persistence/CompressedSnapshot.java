@@ -0,0 +1,76 @@
+package it.unicam.cs.pa.jbudget105053.persistence;
+
+/**
+ * This class holds the constants of the compressed snapshot format written by {@link CompressedSnapshotExporter}
+ * and read by {@link CompressedSnapshotImporter}.
+ * A compressed snapshot is a single file, in big-endian order, made of a header, a sequence of blocks and
+ * a footer:
+ * <ul>
+ *     <li>the header: the magic number and the version of the format;</li>
+ *     <li>each block holds records of a single kind, accounts, tags or transactions, up to about
+ *     {@code BLOCK_SIZE} bytes, and is compressed on its own with a {@link java.util.zip.Deflater}. The
+ *     record of a {@link it.unicam.cs.pa.jbudget105053.model.Transaction} contains its movements, and the
+ *     transactions are written in ascending order of date, so each block covers a range of days;</li>
+ *     <li>the footer: an entry for each block, with its kind, offset, compressed and uncompressed length,
+ *     number of records and first and last day, followed by the offset of the footer, the number of blocks
+ *     and the magic number again.</li>
+ * </ul>
+ * The footer lets a reader inflate the blocks at the same time and skip the blocks outside of a range of
+ * days. Strings are written as their length in bytes followed by their UTF-8 bytes, amounts as signed
+ * cents, dates as epoch days and entities reference each other by ID.
+ *
+ * @author Tommaso Catervi
+ */
+final class CompressedSnapshot {
+    /**
+     * The first four bytes of a compressed snapshot, and its last four bytes, "JBCZ".
+     */
+    static final int MAGIC = 0x4A42435A;
+
+    /**
+     * The version of the format written by this version of the application.
+     */
+    static final short VERSION = 1;
+
+    /**
+     * The name of the compressed snapshot file inside the given path.
+     */
+    static final String FILE_NAME = "ledger.jbz";
+
+    /**
+     * The number of uncompressed bytes after which a block is closed.
+     */
+    static final int BLOCK_SIZE = 1 << 16;
+
+    /**
+     * The kind of the blocks of the accounts.
+     */
+    static final byte ACCOUNTS = 0;
+
+    /**
+     * The kind of the blocks of the tags.
+     */
+    static final byte TAGS = 1;
+
+    /**
+     * The kind of the blocks of the transactions with their movements.
+     */
+    static final byte TRANSACTIONS = 2;
+
+    /**
+     * The size in bytes of the entry of a block in the footer.
+     */
+    static final int ENTRY_SIZE = 1 + Long.BYTES + Integer.BYTES * 5;
+
+    /**
+     * The size in bytes of the end of the footer: the offset of the footer, the number of blocks
+     * and the magic number.
+     */
+    static final int TRAILER_SIZE = Long.BYTES + Integer.BYTES * 2;
+
+    /**
+     * The constructor is private because this class only has constants.
+     */
+    private CompressedSnapshot() {
+    }
+}
@@ -0,0 +1,262 @@
+package it.unicam.cs.pa.jbudget105053.persistence;
+
+import it.unicam.cs.pa.jbudget105053.controller.Controller;
+import it.unicam.cs.pa.jbudget105053.model.*;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.zip.Deflater;
+
+/**
+ * This class implements the interfaces {@link ExportManager} and {@link SnapshotWriter} and has the
+ * responsibility to export all data of the ledger into a single compressed snapshot in a given path, in the
+ * format described by {@link CompressedSnapshot}. The records are collected in blocks which are compressed
+ * one at a time, and the transactions are sorted by date so that each block covers a range of days.
+ * The snapshot is first written to a temporary file, which then replaces the previous one.
+ *
+ * @author Tommaso Catervi
+ */
+public class CompressedSnapshotExporter implements ExportManager, SnapshotWriter {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private final Controller controller;
+    private final int blockSize;
+
+    /**
+     * Constructs a new {@link CompressedSnapshotExporter} with the given controller.
+     *
+     * @param controller the value used to set the {@code controller} field of the {@link CompressedSnapshotExporter}.
+     */
+    public CompressedSnapshotExporter(Controller controller) {
+        this(controller, CompressedSnapshot.BLOCK_SIZE);
+    }
+
+    /**
+     * Constructs a new {@link CompressedSnapshotExporter} with the given controller and size of the blocks.
+     *
+     * @param controller the value used to set the {@code controller} field of the {@link CompressedSnapshotExporter}.
+     * @param blockSize  the number of uncompressed bytes after which a block is closed.
+     */
+    CompressedSnapshotExporter(Controller controller, int blockSize) {
+        this.controller = controller;
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Takes a {@link LedgerSnapshot} of the ledger and writes it into the compressed snapshot in the given path.
+     *
+     * @param path the path where the data will be saved.
+     * @throws IOException if something goes wrong.
+     */
+    @Override
+    public void exportAll(String path) throws IOException {
+        write(LedgerSnapshot.of(controller), path);
+    }
+
+    /**
+     * Writes the header, the blocks of accounts, tags and transactions and the footer
+     * of the given snapshot into the compressed snapshot in the given path.
+     *
+     * @param snapshot the snapshot to write.
+     * @param path     the path where the data will be saved.
+     * @throws IOException if something goes wrong.
+     */
+    @Override
+    public void write(LedgerSnapshot snapshot, String path) throws IOException {
+        File file = new File(path, CompressedSnapshot.FILE_NAME);
+        File temporary = new File(path, CompressedSnapshot.FILE_NAME + ".tmp");
+        try (BlockWriter out = new BlockWriter(new FileOutputStream(temporary))) {
+            out.begin(CompressedSnapshot.ACCOUNTS);
+            for (int i = 0; i < snapshot.accountIDs.length; i++) {
+                out.block.writeInt(snapshot.accountIDs[i]);
+                out.block.writeByte(snapshot.accountTypes[i].ordinal());
+                writeString(out.block, snapshot.accountNames[i]);
+                out.block.writeLong(snapshot.accountInitialCents[i]);
+                out.endRecord(0);
+            }
+            out.begin(CompressedSnapshot.TAGS);
+            for (int i = 0; i < snapshot.tagIDs.length; i++) {
+                out.block.writeInt(snapshot.tagIDs[i]);
+                writeString(out.block, snapshot.tagNames[i]);
+                writeString(out.block, snapshot.tagDescriptions[i]);
+                out.endRecord(0);
+            }
+            writeTransactions(out, snapshot);
+            out.finish();
+        }
+        Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Writes the record of each {@link Transaction}, in ascending order of date and ID, followed by
+     * the records of its movements: ID, epoch day and IDs of the tags of the {@link Transaction}, then
+     * the number of movements and, for each {@link Movement}, its ID, signed amount in cents, ID of the
+     * {@link Account} and IDs of the tags.
+     *
+     * @param out      the writer of the blocks.
+     * @param snapshot the snapshot whose transactions are written.
+     * @throws IOException if something goes wrong.
+     */
+    private void writeTransactions(BlockWriter out, LedgerSnapshot snapshot) throws IOException {
+        Map<Integer, List<Integer>> movements = new HashMap<>(snapshot.transactionIDs.length * 2);
+        for (int i = 0; i < snapshot.movementIDs.length; i++)
+            movements.computeIfAbsent(snapshot.movementTransactions[i], ID -> new ArrayList<>()).add(i);
+        Integer[] order = new Integer[snapshot.transactionIDs.length];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, Comparator.<Integer>comparingInt(i -> snapshot.transactionDays[i])
+                .thenComparingInt(i -> snapshot.transactionIDs[i]));
+        out.begin(CompressedSnapshot.TRANSACTIONS);
+        for (int i : order) {
+            out.block.writeInt(snapshot.transactionIDs[i]);
+            out.block.writeInt(snapshot.transactionDays[i]);
+            writeTagIDs(out.block, snapshot.transactionTags[i]);
+            List<Integer> own = movements.getOrDefault(snapshot.transactionIDs[i], List.of());
+            out.block.writeInt(own.size());
+            for (int m : own) {
+                out.block.writeInt(snapshot.movementIDs[m]);
+                out.block.writeLong(snapshot.movementCents[m]);
+                out.block.writeInt(snapshot.movementAccounts[m]);
+                writeTagIDs(out.block, snapshot.movementTags[m]);
+            }
+            out.endRecord(snapshot.transactionDays[i]);
+        }
+    }
+
+    /**
+     * Writes the number of the given tag IDs followed by the IDs.
+     *
+     * @param out    the stream to write to.
+     * @param tagIDs the IDs of the tags.
+     * @throws IOException if something goes wrong.
+     */
+    private void writeTagIDs(DataOutputStream out, int[] tagIDs) throws IOException {
+        out.writeInt(tagIDs.length);
+        for (int ID : tagIDs)
+            out.writeInt(ID);
+    }
+
+    /**
+     * Writes the length in bytes of the given string followed by its UTF-8 bytes.
+     *
+     * @param out    the stream to write to.
+     * @param string the string to write.
+     * @throws IOException if something goes wrong.
+     */
+    private void writeString(DataOutputStream out, String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * This class has the responsibility to collect the records of a block, to compress and write the
+     * block when it is full and to write the footer with the entries of all the blocks at the end.
+     */
+    private final class BlockWriter implements Closeable {
+        private final DataOutputStream file;
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(blockSize * 2);
+        private final DataOutputStream block = new DataOutputStream(bytes);
+        private final ByteArrayOutputStream footer = new ByteArrayOutputStream();
+        private final DataOutputStream entries = new DataOutputStream(footer);
+        private final Deflater deflater = new Deflater();
+        private final byte[] compressed = new byte[BUFFER_SIZE];
+        private long offset;
+        private int blocks;
+        private byte kind;
+        private int records;
+        private int firstDay;
+        private int lastDay;
+
+        /**
+         * Constructs a new {@link BlockWriter} writing to the given stream, and writes the header.
+         *
+         * @param out the stream to write to.
+         * @throws IOException if something goes wrong.
+         */
+        private BlockWriter(OutputStream out) throws IOException {
+            file = new DataOutputStream(new BufferedOutputStream(out, BUFFER_SIZE));
+            file.writeInt(CompressedSnapshot.MAGIC);
+            file.writeShort(CompressedSnapshot.VERSION);
+            offset = Integer.BYTES + Short.BYTES;
+        }
+
+        /**
+         * Writes the current block, if it has records, and starts a block of the given kind.
+         *
+         * @param kind the kind of the records of the new block.
+         * @throws IOException if something goes wrong.
+         */
+        private void begin(byte kind) throws IOException {
+            flush();
+            this.kind = kind;
+        }
+
+        /**
+         * Counts the record just written in the block, and writes the block if it is full.
+         *
+         * @param day the epoch day of the record, or 0 if the record has no date.
+         * @throws IOException if something goes wrong.
+         */
+        private void endRecord(int day) throws IOException {
+            if (records == 0) firstDay = day;
+            lastDay = day;
+            records++;
+            if (bytes.size() >= blockSize) flush();
+        }
+
+        /**
+         * Compresses and writes the current block, if it has records, and adds its entry to the footer.
+         *
+         * @throws IOException if something goes wrong.
+         */
+        private void flush() throws IOException {
+            if (records == 0) return;
+            deflater.reset();
+            deflater.setInput(bytes.toByteArray());
+            deflater.finish();
+            int length = 0;
+            while (!deflater.finished()) {
+                int n = deflater.deflate(compressed);
+                file.write(compressed, 0, n);
+                length += n;
+            }
+            entries.writeByte(kind);
+            entries.writeLong(offset);
+            entries.writeInt(length);
+            entries.writeInt(bytes.size());
+            entries.writeInt(records);
+            entries.writeInt(firstDay);
+            entries.writeInt(lastDay);
+            offset += length;
+            blocks++;
+            bytes.reset();
+            records = 0;
+        }
+
+        /**
+         * Writes the last block and the footer.
+         *
+         * @throws IOException if something goes wrong.
+         */
+        private void finish() throws IOException {
+            flush();
+            footer.writeTo(file);
+            file.writeLong(offset);
+            file.writeInt(blocks);
+            file.writeInt(CompressedSnapshot.MAGIC);
+        }
+
+        /**
+         * Closes the file and releases the {@link Deflater}.
+         *
+         * @throws IOException if something goes wrong.
+         */
+        @Override
+        public void close() throws IOException {
+            deflater.end();
+            file.close();
+        }
+    }
+}
@@ -0,0 +1,402 @@
+package it.unicam.cs.pa.jbudget105053.persistence;
+
+import it.unicam.cs.pa.jbudget105053.controller.Controller;
+import it.unicam.cs.pa.jbudget105053.model.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * This class implements the interface {@link ImportManager} and has the responsibility to import the data
+ * of a compressed snapshot in a given path, in the format described by {@link CompressedSnapshot}, into a
+ * ledger. The footer is read first: the blocks of accounts and tags are then inflated and imported in order,
+ * while the blocks of the transactions are inflated and parsed at the same time on a {@link ForkJoinPool}.
+ * The blocks are read with positional reads, so only the blocks needed are read, and a range of days can
+ * be imported by skipping the blocks of the transactions outside of it.
+ *
+ * @author Tommaso Catervi
+ */
+public class CompressedSnapshotImporter implements ImportManager {
+    /**
+     * The string error message for when the file is not a valid compressed snapshot.
+     */
+    public static final String MESSAGE_WRONG_ARCHIVE = "Il file non e' uno snapshot compresso valido o e' stato salvato da una versione non supportata.";
+
+    private final Controller controller;
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructs a new {@link CompressedSnapshotImporter} with the given controller, which inflates
+     * the blocks on the common {@link ForkJoinPool}.
+     *
+     * @param controller the value used to set the {@code controller} field of the {@link CompressedSnapshotImporter}.
+     */
+    public CompressedSnapshotImporter(Controller controller) {
+        this(controller, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs a new {@link CompressedSnapshotImporter} with the given controller, which inflates
+     * the blocks on the given {@link ForkJoinPool}.
+     *
+     * @param controller the value used to set the {@code controller} field of the {@link CompressedSnapshotImporter}.
+     * @param pool       the value used to set the {@code pool} field of the {@link CompressedSnapshotImporter}.
+     */
+    public CompressedSnapshotImporter(Controller controller, ForkJoinPool pool) {
+        this.controller = controller;
+        this.pool = Objects.requireNonNull(pool);
+    }
+
+    /**
+     * Imports all accounts, tags and transactions of the compressed snapshot in the given path.
+     *
+     * @param path the path from which the file is read.
+     * @throws IOException if the file cannot be read or is not a valid compressed snapshot.
+     */
+    @Override
+    public void importAll(String path) throws IOException {
+        importBlocks(path, Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Imports all accounts and tags of the compressed snapshot in the given path, and only the
+     * transactions between the given days, included. The blocks of the transactions which do not
+     * cover any of those days are not read.
+     *
+     * @param path the path from which the file is read.
+     * @param from the first day of the transactions to import.
+     * @param to   the last day of the transactions to import.
+     * @throws IOException if the file cannot be read or is not a valid compressed snapshot.
+     */
+    public void importBetween(String path, LocalDate from, LocalDate to) throws IOException {
+        if (Objects.requireNonNull(from).isAfter(Objects.requireNonNull(to)))
+            throw new IllegalArgumentException(Account.MESSAGE_WRONG_PERIOD);
+        importBlocks(path, Math.toIntExact(from.toEpochDay()), Math.toIntExact(to.toEpochDay()));
+    }
+
+    /**
+     * Reads the footer of the compressed snapshot in the given path and imports the accounts, the tags and
+     * the transactions between the given days. Each {@link Transaction} is then added to the {@link Ledger}
+     * in a single batch.
+     *
+     * @param path the path from which the file is read.
+     * @param from the first epoch day of the transactions to import.
+     * @param to   the last epoch day of the transactions to import.
+     * @throws IOException if the file cannot be read or is not a valid compressed snapshot.
+     */
+    private void importBlocks(String path, int from, int to) throws IOException {
+        File file = new File(path, CompressedSnapshot.FILE_NAME);
+        List<Future<List<Transaction>>> blocks = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            List<Block> index = readFooter(channel);
+            for (Block b : index)
+                if (b.kind == CompressedSnapshot.ACCOUNTS) importAccounts(b.inflate(channel), b.records);
+            for (Block b : index)
+                if (b.kind == CompressedSnapshot.TAGS) importTags(b.inflate(channel), b.records);
+            for (Block b : index)
+                if (b.kind == CompressedSnapshot.TRANSACTIONS && b.firstDay <= to && b.lastDay >= from)
+                    blocks.add(pool.submit(() -> parseTransactions(b.inflate(channel), b.records, from, to)));
+            List<Transaction> transactions = new ArrayList<>();
+            for (Future<List<Transaction>> b : blocks)
+                transactions.addAll(join(b));
+            controller.addTransactions(transactions);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException(MESSAGE_WRONG_ARCHIVE, e);
+        } finally {
+            blocks.forEach(b -> b.cancel(false));
+        }
+    }
+
+    /**
+     * Reads the end of the given file and then the entries of all the blocks in its footer.
+     *
+     * @param channel the channel of the file.
+     * @return the blocks of the file, in the order they were written.
+     * @throws IOException if the file is not a valid compressed snapshot.
+     */
+    private List<Block> readFooter(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size < Integer.BYTES + Short.BYTES + CompressedSnapshot.TRAILER_SIZE)
+            throw new IOException(MESSAGE_WRONG_ARCHIVE);
+        ByteBuffer header = read(channel, 0, Integer.BYTES + Short.BYTES);
+        if (header.getInt() != CompressedSnapshot.MAGIC || header.getShort() != CompressedSnapshot.VERSION)
+            throw new IOException(MESSAGE_WRONG_ARCHIVE);
+        ByteBuffer trailer = read(channel, size - CompressedSnapshot.TRAILER_SIZE, CompressedSnapshot.TRAILER_SIZE);
+        long footerOffset = trailer.getLong();
+        int count = trailer.getInt();
+        if (trailer.getInt() != CompressedSnapshot.MAGIC || count < 0
+                || footerOffset + (long) count * CompressedSnapshot.ENTRY_SIZE != size - CompressedSnapshot.TRAILER_SIZE)
+            throw new IOException(MESSAGE_WRONG_ARCHIVE);
+        ByteBuffer footer = read(channel, footerOffset, count * CompressedSnapshot.ENTRY_SIZE);
+        List<Block> blocks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Block b = new Block(footer.get(), footer.getLong(), footer.getInt(), footer.getInt(),
+                    footer.getInt(), footer.getInt(), footer.getInt());
+            if (b.offset < 0 || b.compressedLength < 0 || b.length < 0 || b.offset + b.compressedLength > footerOffset)
+                throw new IOException(MESSAGE_WRONG_ARCHIVE);
+            blocks.add(b);
+        }
+        return blocks;
+    }
+
+    /**
+     * Reads the given number of bytes of the given file, starting at the given position.
+     * The reads do not change the position of the channel, so they can be made at the same time.
+     *
+     * @param channel  the channel of the file.
+     * @param position the position of the first byte.
+     * @param length   the number of bytes to read.
+     * @return the bytes read.
+     * @throws IOException if the file ends before all the bytes are read.
+     */
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining())
+            if (channel.read(buffer, position + buffer.position()) < 0)
+                throw new IOException(MESSAGE_WRONG_ARCHIVE);
+        return buffer.flip();
+    }
+
+    /**
+     * Reads the records of a block of accounts and adds each {@link Account} with its ID.
+     *
+     * @param block   the inflated block.
+     * @param records the number of records of the block.
+     * @throws IOException if the block is not valid.
+     */
+    private void importAccounts(ByteBuffer block, int records) throws IOException {
+        AccountType[] types = AccountType.values();
+        for (int i = 0; i < records; i++) {
+            int ID = block.getInt();
+            int type = block.get();
+            if (type < 0 || type >= types.length)
+                throw new IOException(MESSAGE_WRONG_ARCHIVE);
+            String name = readString(block);
+            controller.addAccountWithID(ID, types[type], name, Money.toAmount(block.getLong()));
+        }
+    }
+
+    /**
+     * Reads the records of a block of tags and adds each {@link Tag} with its ID.
+     *
+     * @param block   the inflated block.
+     * @param records the number of records of the block.
+     * @throws IOException if the block is not valid.
+     */
+    private void importTags(ByteBuffer block, int records) throws IOException {
+        for (int i = 0; i < records; i++) {
+            int ID = block.getInt();
+            String name = readString(block);
+            controller.addTagWithID(ID, name, readString(block));
+        }
+    }
+
+    /**
+     * Reads the records of a block of transactions and creates each {@link Transaction} between the given
+     * days with its tags and movements. Consecutive transactions of the same day share the same {@link Date},
+     * which is only read by the transactions when they are created.
+     *
+     * @param block   the inflated block.
+     * @param records the number of records of the block.
+     * @param from    the first epoch day of the transactions to create.
+     * @param to      the last epoch day of the transactions to create.
+     * @return the created transactions, in the order they were read.
+     * @throws IOException if the block is not valid.
+     */
+    private List<Transaction> parseTransactions(ByteBuffer block, int records, int from, int to) throws IOException {
+        List<Transaction> transactions = new ArrayList<>(records);
+        int lastDay = 0;
+        Date lastDate = null;
+        for (int i = 0; i < records; i++) {
+            int ID = block.getInt();
+            int day = block.getInt();
+            if (day < from || day > to) {
+                skipTransaction(block);
+                continue;
+            }
+            if (Objects.isNull(lastDate) || day != lastDay) {
+                lastDay = day;
+                lastDate = EpochDays.toDate(day);
+            }
+            Transaction t = controller.createTransactionWithID(ID, lastDate);
+            readTags(block, t::addTag);
+            int movements = controlCount(block.getInt());
+            for (int j = 0; j < movements; j++) {
+                int movementID = block.getInt();
+                long cents = block.getLong();
+                Account account = controller.getAccountByID(block.getInt());
+                if (Objects.isNull(account))
+                    throw new RuntimeException(MESSAGE_WRONG_ACCOUNT);
+                Movement m = controller.createMovementWithID(movementID,
+                        cents < 0 ? MovementType.DECREMENT : MovementType.INCREMENT, Money.toAmount(Math.abs(cents)), account);
+                readTags(block, m::addTag);
+                t.addMovement(m);
+            }
+            transactions.add(t);
+        }
+        return transactions;
+    }
+
+    /**
+     * Skips the rest of the record of a {@link Transaction} whose ID and day have already been read.
+     *
+     * @param block the inflated block.
+     * @throws IOException if the record is not valid.
+     */
+    private void skipTransaction(ByteBuffer block) throws IOException {
+        skipTags(block);
+        int movements = controlCount(block.getInt());
+        for (int j = 0; j < movements; j++) {
+            block.position(block.position() + Integer.BYTES * 2 + Long.BYTES);
+            skipTags(block);
+        }
+    }
+
+    /**
+     * Skips the number of the tag IDs and the IDs.
+     *
+     * @param block the inflated block.
+     * @throws IOException if the number of tags is not valid.
+     */
+    private void skipTags(ByteBuffer block) throws IOException {
+        int tags = controlCount(block.getInt());
+        block.position(block.position() + tags * Integer.BYTES);
+    }
+
+    /**
+     * Reads the number of the tag IDs followed by the IDs, and passes the existing tags to the given consumer.
+     *
+     * @param block    the inflated block.
+     * @param consumer the consumer of the tags.
+     * @throws IOException if the number of tags is not valid.
+     */
+    private void readTags(ByteBuffer block, Consumer<Tag> consumer) throws IOException {
+        int tags = controlCount(block.getInt());
+        for (int i = 0; i < tags; i++) {
+            Tag tag = controller.getTagByID(block.getInt());
+            if (Objects.nonNull(tag)) consumer.accept(tag);
+        }
+    }
+
+    /**
+     * Waits for the given block to be parsed and returns its transactions, throwing again
+     * the exception thrown while parsing it if there was one.
+     *
+     * @param block the block being parsed.
+     * @return the transactions of the block.
+     * @throws IOException if something goes wrong.
+     */
+    private List<Transaction> join(Future<List<Transaction>> block) throws IOException {
+        try {
+            return block.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(MESSAGE_FAILED_IMPORT, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            if (cause instanceof BufferUnderflowException || cause instanceof IndexOutOfBoundsException)
+                throw new IOException(MESSAGE_WRONG_ARCHIVE, cause);
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            throw new IOException(MESSAGE_FAILED_IMPORT, cause);
+        }
+    }
+
+    /**
+     * Controls that a count or a length read from the compressed snapshot is not negative.
+     *
+     * @param count the value to control.
+     * @return the controlled value.
+     * @throws IOException if the value is negative.
+     */
+    private int controlCount(int count) throws IOException {
+        if (count < 0)
+            throw new IOException(MESSAGE_WRONG_ARCHIVE);
+        return count;
+    }
+
+    /**
+     * Reads a string written as its length in bytes followed by its UTF-8 bytes.
+     *
+     * @param block the inflated block.
+     * @return the string read.
+     * @throws IOException if the length is not valid.
+     */
+    private String readString(ByteBuffer block) throws IOException {
+        int length = controlCount(block.getInt());
+        if (length > block.remaining())
+            throw new IOException(MESSAGE_WRONG_ARCHIVE);
+        byte[] bytes = new byte[length];
+        block.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The entry of a block in the footer of a compressed snapshot.
+     */
+    private static final class Block {
+        private final byte kind;
+        private final long offset;
+        private final int compressedLength;
+        private final int length;
+        private final int records;
+        private final int firstDay;
+        private final int lastDay;
+
+        private Block(byte kind, long offset, int compressedLength, int length, int records, int firstDay, int lastDay) {
+            this.kind = kind;
+            this.offset = offset;
+            this.compressedLength = compressedLength;
+            this.length = length;
+            this.records = records;
+            this.firstDay = firstDay;
+            this.lastDay = lastDay;
+        }
+
+        /**
+         * Reads the block from the given file and inflates it.
+         *
+         * @param channel the channel of the file.
+         * @return the inflated block.
+         * @throws IOException if the block cannot be read or inflated.
+         */
+        private ByteBuffer inflate(FileChannel channel) throws IOException {
+            ByteBuffer compressed = read(channel, offset, compressedLength);
+            Inflater inflater = new Inflater();
+            try {
+                inflater.setInput(compressed.array(), 0, compressedLength);
+                byte[] bytes = new byte[length];
+                int inflated = 0;
+                while (inflated < length && !inflater.finished()) {
+                    int n = inflater.inflate(bytes, inflated, length - inflated);
+                    if (n == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+                        throw new IOException(MESSAGE_WRONG_ARCHIVE);
+                    inflated += n;
+                }
+                if (inflated != length)
+                    throw new IOException(MESSAGE_WRONG_ARCHIVE);
+                return ByteBuffer.wrap(bytes);
+            } catch (DataFormatException e) {
+                throw new IOException(MESSAGE_WRONG_ARCHIVE, e);
+            } finally {
+                inflater.end();
+            }
+        }
+    }
+}
@@ -0,0 +1,335 @@
+package it.unicam.cs.pa.jbudget105053.persistence;
+
+import it.unicam.cs.pa.jbudget105053.controller.Controller;
+import it.unicam.cs.pa.jbudget105053.model.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * This class implements the interface {@link ImportManager} and has the responsibility to import the lines of
+ * the CSV files exported by a bank or by a credit card, whose columns are described by a {@link CsvMapping},
+ * into a ledger. Each line becomes a {@link Transaction} with a single {@link Movement} of the signed amount of
+ * the line, which is an {@code INCREMENT} if positive and a {@code DECREMENT} if negative, in the
+ * {@link Account} named in the line or in the default one, and with the {@link Tag} named in the line, if it
+ * exists. The names are compared ignoring the case, since accounts and tags keep them in upper case.
+ * Lines with a zero amount, such as the balances written by some banks, are skipped.
+ * The import is a pipeline: the files are mapped and split into chunks of whole records, which are parsed at
+ * the same time on a {@link ForkJoinPool} into columns of primitive values; then a block of IDs is reserved for
+ * all the lines, so that the IDs follow the order of the files, the transactions of the chunks are created at
+ * the same time and finally all of them are added to the ledger in a single batch, so either all the lines are
+ * imported or none is.
+ *
+ * @author Tommaso Catervi
+ */
+public class CsvImporter implements ImportManager {
+    /**
+     * The extension of the files imported from a directory.
+     */
+    public static final String EXTENSION = ".csv";
+    /**
+     * The string error message for when a line names an {@link Account} that does not exist, or has no
+     * {@link Account} and the default one does not exist, followed by the number of the line.
+     */
+    public static final String MESSAGE_UNKNOWN_ACCOUNT = "Il file contiene un account inesistente alla riga ";
+    private static final int CHUNK_SIZE = 1 << 22;
+    private final Controller controller;
+    private final CsvMapping mapping;
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructs a new {@link CsvImporter} with the given controller and mapping, which parses
+     * the files on the common {@link ForkJoinPool}.
+     *
+     * @param controller the value used to set the {@code controller} field of the {@link CsvImporter}.
+     * @param mapping    the value used to set the {@code mapping} field of the {@link CsvImporter}.
+     */
+    public CsvImporter(Controller controller, CsvMapping mapping) {
+        this(controller, mapping, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs a new {@link CsvImporter} with the given controller and mapping, which parses
+     * the files on the given {@link ForkJoinPool}.
+     *
+     * @param controller the value used to set the {@code controller} field of the {@link CsvImporter}.
+     * @param mapping    the value used to set the {@code mapping} field of the {@link CsvImporter}.
+     * @param pool       the value used to set the {@code pool} field of the {@link CsvImporter}.
+     */
+    public CsvImporter(Controller controller, CsvMapping mapping, ForkJoinPool pool) {
+        this.controller = controller;
+        this.mapping = Objects.requireNonNull(mapping);
+        this.pool = Objects.requireNonNull(pool);
+    }
+
+    /**
+     * Imports the lines of the CSV file in the given path or, if the path is a directory, of all the
+     * files with the extension {@code EXTENSION} in it, in order of name.
+     * The accounts and the tags named in the files must already exist.
+     *
+     * @param path the path of the file or of the directory.
+     * @throws IOException    if something goes wrong.
+     * @throws ParseException if a line contains a wrong field.
+     */
+    @Override
+    public void importAll(String path) throws IOException, ParseException {
+        File f = new File(path);
+        if (!f.isDirectory()) {
+            importFiles(List.of(f));
+            return;
+        }
+        File[] files = f.listFiles((directory, name) -> name.toLowerCase().endsWith(EXTENSION));
+        if (Objects.isNull(files))
+            throw new IOException(MESSAGE_FAILED_IMPORT);
+        Arrays.sort(files);
+        importFiles(Arrays.asList(files));
+    }
+
+    /**
+     * Parses the chunks of the given files at the same time on the {@code pool}, reserves the IDs of all
+     * the parsed lines, creates their transactions at the same time and adds all of them to the
+     * {@link Ledger} in a single batch.
+     *
+     * @param files the files to import.
+     * @throws IOException    if something goes wrong.
+     * @throws ParseException if a line contains a wrong field.
+     */
+    void importFiles(List<File> files) throws IOException, ParseException {
+        List<Future<ParsedLines>> parsing = new ArrayList<>();
+        List<Future<List<Transaction>>> building = new ArrayList<>();
+        Map<String, Account> accounts = new HashMap<>();
+        controller.getAccounts().forEach(a -> accounts.put(a.getName(), a));
+        Map<String, Tag> tags = new HashMap<>();
+        controller.getTags().forEach(t -> tags.put(t.getName(), t));
+        try {
+            for (File f : files) {
+                List<Chunk> chunks = split(f);
+                for (int i = 0; i < chunks.size(); i++) {
+                    Chunk chunk = chunks.get(i);
+                    boolean header = i == 0 && mapping.hasHeader();
+                    parsing.add(pool.submit(() -> parse(chunk, header, accounts, tags)));
+                }
+            }
+            List<ParsedLines> parsed = new ArrayList<>(parsing.size());
+            int lines = 0;
+            for (Future<ParsedLines> chunk : parsing) {
+                parsed.add(join(chunk));
+                lines += parsed.get(parsed.size() - 1).size;
+            }
+            if (lines == 0) return;
+            int transactionID = Indexer.getInstance().reserveTransactionIDs(lines);
+            int movementID = Indexer.getInstance().reserveMovementIDs(lines);
+            for (ParsedLines chunk : parsed) {
+                int firstTransactionID = transactionID;
+                int firstMovementID = movementID;
+                building.add(pool.submit(() -> build(chunk, firstTransactionID, firstMovementID)));
+                transactionID += chunk.size;
+                movementID += chunk.size;
+            }
+            List<Transaction> transactions = new ArrayList<>(lines);
+            for (Future<List<Transaction>> chunk : building)
+                transactions.addAll(join(chunk));
+            controller.addTransactions(transactions);
+        } finally {
+            parsing.forEach(f -> f.cancel(false));
+            building.forEach(f -> f.cancel(false));
+        }
+    }
+
+    /**
+     * Decodes the given chunk with the charset of the {@code mapping} and parses its records into columns.
+     * The byte order mark written at the start of a file by some programs is skipped.
+     * The accounts and the tags are searched by their name in upper case in the given maps, and the ones of
+     * the previous line are compared first in place, so that no string is created for the lines of the same ones.
+     *
+     * @param chunk    the chunk to parse.
+     * @param header   true if the first record of the chunk is the header of its file.
+     * @param accounts the accounts of the ledger, by name.
+     * @param tags     the tags of the ledger, by name.
+     * @return the parsed lines of the chunk.
+     * @throws ParseException if a line contains a wrong field or an {@link Account} that does not exist.
+     */
+    private ParsedLines parse(Chunk chunk, boolean header, Map<String, Account> accounts, Map<String, Tag> tags)
+            throws ParseException {
+        CharBuffer chars = mapping.getCharset().decode(chunk.bytes);
+        int from = chars.arrayOffset() + chars.position();
+        int to = from + chars.remaining();
+        if (from < to && chars.array()[from] == '\uFEFF') from++;
+        CsvReader reader = new CsvReader(chars.array(), from, to, mapping.getSeparator(), chunk.firstLine);
+        if (header) reader.nextLine();
+        ParsedLines lines = new ParsedLines();
+        Account defaultAccount = Objects.isNull(mapping.getDefaultAccount()) ? null : accounts.get(mapping.getDefaultAccount().toUpperCase());
+        Account lastAccount = defaultAccount;
+        Tag lastTag = null;
+        while (reader.nextLine()) {
+            long cents = reader.getCents(mapping.getAmountColumn(), mapping.getDecimalSeparator());
+            if (cents == 0) continue;
+            int day = reader.getEpochDay(mapping.getDateColumn(), mapping.getDateOrder());
+            Account account = defaultAccount;
+            int accountColumn = mapping.getAccountColumn();
+            if (accountColumn != CsvMapping.NO_COLUMN && reader.hasField(accountColumn)) {
+                if (Objects.isNull(lastAccount) || !reader.fieldEqualsUpperCase(accountColumn, lastAccount.getName()))
+                    lastAccount = accounts.get(reader.getString(accountColumn).toUpperCase());
+                account = lastAccount;
+            }
+            if (Objects.isNull(account))
+                throw new ParseException(MESSAGE_UNKNOWN_ACCOUNT + reader.getLineNumber(), 0);
+            Tag tag = null;
+            int tagColumn = mapping.getTagColumn();
+            if (tagColumn != CsvMapping.NO_COLUMN && reader.hasField(tagColumn)) {
+                if (Objects.isNull(lastTag) || !reader.fieldEqualsUpperCase(tagColumn, lastTag.getName()))
+                    lastTag = tags.get(reader.getString(tagColumn).toUpperCase());
+                tag = lastTag;
+            }
+            lines.add(day, cents, account, tag);
+        }
+        return lines;
+    }
+
+    /**
+     * Creates the transactions of the given parsed lines, each with its {@link Movement} and {@link Tag},
+     * with the IDs of the given blocks.
+     *
+     * @param lines              the parsed lines.
+     * @param firstTransactionID the ID of the {@link Transaction} of the first line.
+     * @param firstMovementID    the ID of the {@link Movement} of the first line.
+     * @return the transactions of the lines, in order.
+     */
+    private List<Transaction> build(ParsedLines lines, int firstTransactionID, int firstMovementID) {
+        List<Transaction> transactions = new ArrayList<>(lines.size);
+        for (int i = 0; i < lines.size; i++) {
+            Transaction t = controller.createTransactionWithID(firstTransactionID + i, EpochDays.toDate(lines.days[i]));
+            long cents = lines.cents[i];
+            t.addMovement(controller.createMovementWithID(firstMovementID + i,
+                    cents < 0 ? MovementType.DECREMENT : MovementType.INCREMENT, Money.toAmount(Math.abs(cents)),
+                    lines.accounts[i]));
+            if (Objects.nonNull(lines.tags[i])) t.addTag(lines.tags[i]);
+            transactions.add(t);
+        }
+        return transactions;
+    }
+
+    /**
+     * Maps the given file and splits it into chunks of about {@code CHUNK_SIZE} bytes, each of which ends at
+     * the end of a record. The quotes are counted while scanning, so a line break inside a quoted field does
+     * not end a chunk.
+     *
+     * @param f the file to split.
+     * @return the chunks of the file, in order.
+     * @throws IOException if something goes wrong.
+     */
+    private List<Chunk> split(File f) throws IOException {
+        try (FileChannel channel = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer file = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            List<Chunk> chunks = new ArrayList<>();
+            boolean quoted = false;
+            int start = 0;
+            int line = 1;
+            int startLine = 1;
+            for (int i = 0; i < file.limit(); i++) {
+                byte b = file.get(i);
+                if (b == '"') {
+                    quoted = !quoted;
+                } else if (b == '\n') {
+                    line++;
+                    if (!quoted && i + 1 - start >= CHUNK_SIZE) {
+                        chunks.add(new Chunk(slice(file, start, i + 1), startLine));
+                        start = i + 1;
+                        startLine = line;
+                    }
+                }
+            }
+            if (start < file.limit())
+                chunks.add(new Chunk(slice(file, start, file.limit()), startLine));
+            return chunks;
+        }
+    }
+
+    /**
+     * Returns the part of the given buffer between the two given positions.
+     *
+     * @param buffer the buffer.
+     * @param from   the position of the first byte.
+     * @param to     the position after the last byte.
+     * @return the part of the buffer.
+     */
+    private static ByteBuffer slice(ByteBuffer buffer, int from, int to) {
+        ByteBuffer part = buffer.duplicate();
+        part.position(from).limit(to);
+        return part.slice();
+    }
+
+    /**
+     * Waits for the given task to end and returns its result, throwing again
+     * the exception thrown by the task if there was one.
+     *
+     * @param task the running task.
+     * @param <T>  the type of the result.
+     * @return the result of the task.
+     * @throws IOException    if something goes wrong.
+     * @throws ParseException if something goes wrong.
+     */
+    private <T> T join(Future<T> task) throws IOException, ParseException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(MESSAGE_FAILED_IMPORT, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            // the pool wraps the exceptions of a task, once or more, in a RuntimeException
+            while (cause instanceof RuntimeException && Objects.nonNull(cause.getCause()))
+                cause = cause.getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            if (cause instanceof ParseException) throw (ParseException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            throw new IOException(MESSAGE_FAILED_IMPORT, cause);
+        }
+    }
+
+    /**
+     * A chunk of whole records of a file, with the number of the line where it starts.
+     */
+    private static final class Chunk {
+        private final ByteBuffer bytes;
+        private final int firstLine;
+
+        private Chunk(ByteBuffer bytes, int firstLine) {
+            this.bytes = bytes;
+            this.firstLine = firstLine;
+        }
+    }
+
+    /**
+     * The lines parsed from a chunk, stored in columns.
+     */
+    private static final class ParsedLines {
+        private int[] days = new int[64];
+        private long[] cents = new long[64];
+        private Account[] accounts = new Account[64];
+        private Tag[] tags = new Tag[64];
+        private int size;
+
+        private void add(int day, long amount, Account account, Tag tag) {
+            if (size == days.length) {
+                days = Arrays.copyOf(days, size * 2);
+                cents = Arrays.copyOf(cents, size * 2);
+                accounts = Arrays.copyOf(accounts, size * 2);
+                tags = Arrays.copyOf(tags, size * 2);
+            }
+            days[size] = day;
+            cents[size] = amount;
+            accounts[size] = account;
+            tags[size++] = tag;
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package it.unicam.cs.pa.jbudget105053.persistence;
+
+import it.unicam.cs.pa.jbudget105053.model.Account;
+import it.unicam.cs.pa.jbudget105053.model.Tag;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * This class has the responsibility to describe the format of the CSV files exported by a bank or by a
+ * credit card, read by {@link CsvImporter}: the columns holding the date, the signed amount, the name
+ * of the {@link Account} and the name of the {@link Tag} of each line, the separator of the fields, the
+ * decimal separator of the amounts, the order of the parts of the dates, whether the first line is a
+ * header and the charset of the files, which must write the separators and the quotes as single bytes,
+ * as UTF-8 and ISO-8859-1 do.
+ * A {@link CsvMapping} is immutable: the {@code with} methods return a copy with the given value changed.
+ *
+ * @author Tommaso Catervi
+ */
+public final class CsvMapping {
+    /**
+     * The column of a value which is not in the files.
+     */
+    public static final int NO_COLUMN = -1;
+
+    /**
+     * The string error message for when a column is not valid.
+     */
+    public static final String MESSAGE_WRONG_COLUMN = "La colonna passata e' negativa, ergo non valida.";
+
+    /**
+     * The string error message for when a separator is not valid.
+     */
+    public static final String MESSAGE_WRONG_SEPARATOR = "Il separatore passato non e' valido.";
+
+    /**
+     * The order of the day, the month and the year in the dates of the files. The parts of a date are
+     * separated by a single character, such as "-", "/" or ".", and the year is written in four digits.
+     */
+    public enum DateOrder {
+        DAY_MONTH_YEAR, MONTH_DAY_YEAR, YEAR_MONTH_DAY
+    }
+
+    private final int dateColumn;
+    private final int amountColumn;
+    private final int accountColumn;
+    private final int tagColumn;
+    private final String defaultAccount;
+    private final char separator;
+    private final char decimalSeparator;
+    private final DateOrder dateOrder;
+    private final boolean header;
+    private final Charset charset;
+
+    /**
+     * Constructs a new {@link CsvMapping} with the given columns, starting from 0, for files whose fields are
+     * separated by ";", whose amounts use "," as decimal separator, whose dates are in the order
+     * {@code DAY_MONTH_YEAR} and whose first line is a header, in UTF-8.
+     *
+     * @param dateColumn    the column of the dates.
+     * @param amountColumn  the column of the signed amounts.
+     * @param accountColumn the column of the names of the accounts, or {@code NO_COLUMN}.
+     * @param tagColumn     the column of the names of the tags, or {@code NO_COLUMN}.
+     */
+    public CsvMapping(int dateColumn, int amountColumn, int accountColumn, int tagColumn) {
+        this(dateColumn, amountColumn, accountColumn, tagColumn, null, ';', ',', DateOrder.DAY_MONTH_YEAR,
+                true, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Constructs a new {@link CsvMapping} with the given parameters after having controlled them.
+     *
+     * @param dateColumn       the column of the dates.
+     * @param amountColumn     the column of the signed amounts.
+     * @param accountColumn    the column of the names of the accounts, or {@code NO_COLUMN}.
+     * @param tagColumn        the column of the names of the tags, or {@code NO_COLUMN}.
+     * @param defaultAccount   the name of the {@link Account} of the lines without an account, or null.
+     * @param separator        the separator of the fields.
+     * @param decimalSeparator the decimal separator of the amounts.
+     * @param dateOrder        the order of the parts of the dates.
+     * @param header           true if the first line of the files is a header.
+     * @param charset          the charset of the files.
+     */
+    private CsvMapping(int dateColumn, int amountColumn, int accountColumn, int tagColumn, String defaultAccount,
+                       char separator, char decimalSeparator, DateOrder dateOrder, boolean header, Charset charset) {
+        this.dateColumn = controlColumn(dateColumn, false);
+        this.amountColumn = controlColumn(amountColumn, false);
+        this.accountColumn = controlColumn(accountColumn, true);
+        this.tagColumn = controlColumn(tagColumn, true);
+        this.defaultAccount = defaultAccount;
+        this.separator = controlSeparator(separator);
+        this.decimalSeparator = controlSeparator(decimalSeparator);
+        if (separator == decimalSeparator)
+            throw new IllegalArgumentException(MESSAGE_WRONG_SEPARATOR);
+        this.dateOrder = Objects.requireNonNull(dateOrder);
+        this.header = header;
+        this.charset = Objects.requireNonNull(charset);
+    }
+
+    /**
+     * Controls that the given column is not negative, or is {@code NO_COLUMN} if it is optional.
+     *
+     * @param column   the value to control.
+     * @param optional true if the column may be missing.
+     * @return the controlled column.
+     */
+    private static int controlColumn(int column, boolean optional) {
+        if (column < 0 && !(optional && column == NO_COLUMN))
+            throw new IllegalArgumentException(MESSAGE_WRONG_COLUMN);
+        return column;
+    }
+
+    /**
+     * Controls that the given separator is not a quote, a line break or a digit.
+     *
+     * @param separator the value to control.
+     * @return the controlled separator.
+     */
+    private static char controlSeparator(char separator) {
+        if (separator == '"' || separator == '\n' || separator == '\r' || Character.isDigit(separator))
+            throw new IllegalArgumentException(MESSAGE_WRONG_SEPARATOR);
+        return separator;
+    }
+
+    /**
+     * Returns a copy of this {@link CsvMapping} with the given name of the {@link Account} of the lines
+     * without an account, for example because the file is the statement of a single account.
+     *
+     * @param defaultAccount the name of the {@link Account}, or null.
+     * @return the changed copy.
+     */
+    public CsvMapping withDefaultAccount(String defaultAccount) {
+        return new CsvMapping(dateColumn, amountColumn, accountColumn, tagColumn, defaultAccount,
+                separator, decimalSeparator, dateOrder, header, charset);
+    }
+
+    /**
+     * Returns a copy of this {@link CsvMapping} with the given separator of the fields.
+     *
+     * @param separator the separator of the fields.
+     * @return the changed copy.
+     */
+    public CsvMapping withSeparator(char separator) {
+        return new CsvMapping(dateColumn, amountColumn, accountColumn, tagColumn, defaultAccount,
+                separator, decimalSeparator, dateOrder, header, charset);
+    }
+
+    /**
+     * Returns a copy of this {@link CsvMapping} with the given decimal separator of the amounts.
+     *
+     * @param decimalSeparator the decimal separator of the amounts.
+     * @return the changed copy.
+     */
+    public CsvMapping withDecimalSeparator(char decimalSeparator) {
+        return new CsvMapping(dateColumn, amountColumn, accountColumn, tagColumn, defaultAccount,
+                separator, decimalSeparator, dateOrder, header, charset);
+    }
+
+    /**
+     * Returns a copy of this {@link CsvMapping} with the given order of the parts of the dates.
+     *
+     * @param dateOrder the order of the parts of the dates.
+     * @return the changed copy.
+     */
+    public CsvMapping withDateOrder(DateOrder dateOrder) {
+        return new CsvMapping(dateColumn, amountColumn, accountColumn, tagColumn, defaultAccount,
+                separator, decimalSeparator, dateOrder, header, charset);
+    }
+
+    /**
+     * Returns a copy of this {@link CsvMapping} which does or does not skip the first line of the files.
+     *
+     * @param header true if the first line of the files is a header.
+     * @return the changed copy.
+     */
+    public CsvMapping withHeader(boolean header) {
+        return new CsvMapping(dateColumn, amountColumn, accountColumn, tagColumn, defaultAccount,
+                separator, decimalSeparator, dateOrder, header, charset);
+    }
+
+    /**
+     * Returns a copy of this {@link CsvMapping} with the given charset of the files.
+     *
+     * @param charset the charset of the files.
+     * @return the changed copy.
+     */
+    public CsvMapping withCharset(Charset charset) {
+        return new CsvMapping(dateColumn, amountColumn, accountColumn, tagColumn, defaultAccount,
+                separator, decimalSeparator, dateOrder, header, charset);
+    }
+
+    /**
+     * Getter method for the {@code dateColumn} field in the {@link CsvMapping}.
+     *
+     * @return the column of the dates.
+     */
+    public int getDateColumn() {
+        return dateColumn;
+    }
+
+    /**
+     * Getter method for the {@code amountColumn} field in the {@link CsvMapping}.
+     *
+     * @return the column of the signed amounts.
+     */
+    public int getAmountColumn() {
+        return amountColumn;
+    }
+
+    /**
+     * Getter method for the {@code accountColumn} field in the {@link CsvMapping}.
+     *
+     * @return the column of the names of the accounts, or {@code NO_COLUMN}.
+     */
+    public int getAccountColumn() {
+        return accountColumn;
+    }
+
+    /**
+     * Getter method for the {@code tagColumn} field in the {@link CsvMapping}.
+     *
+     * @return the column of the names of the tags, or {@code NO_COLUMN}.
+     */
+    public int getTagColumn() {
+        return tagColumn;
+    }
+
+    /**
+     * Getter method for the {@code defaultAccount} field in the {@link CsvMapping}.
+     *
+     * @return the name of the {@link Account} of the lines without an account, or null.
+     */
+    public String getDefaultAccount() {
+        return defaultAccount;
+    }
+
+    /**
+     * Getter method for the {@code separator} field in the {@link CsvMapping}.
+     *
+     * @return the separator of the fields.
+     */
+    public char getSeparator() {
+        return separator;
+    }
+
+    /**
+     * Getter method for the {@code decimalSeparator} field in the {@link CsvMapping}.
+     *
+     * @return the decimal separator of the amounts.
+     */
+    public char getDecimalSeparator() {
+        return decimalSeparator;
+    }
+
+    /**
+     * Getter method for the {@code dateOrder} field in the {@link CsvMapping}.
+     *
+     * @return the order of the parts of the dates.
+     */
+    public DateOrder getDateOrder() {
+        return dateOrder;
+    }
+
+    /**
+     * Returns true if the first line of the files is a header, which is skipped.
+     *
+     * @return true if the files have a header, false otherwise.
+     */
+    public boolean hasHeader() {
+        return header;
+    }
+
+    /**
+     * Getter method for the {@code charset} field in the {@link CsvMapping}.
+     *
+     * @return the charset of the files.
+     */
+    public Charset getCharset() {
+        return charset;
+    }
+}
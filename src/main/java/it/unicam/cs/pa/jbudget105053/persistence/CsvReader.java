@@ -0,0 +1,348 @@
+package it.unicam.cs.pa.jbudget105053.persistence;
+
+import java.text.ParseException;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * This class has the responsibility to read the records of a CSV text, already in memory, one at a time.
+ * A field may be enclosed in double quotes, in which case it may contain the separator, line breaks and
+ * quotes written twice. The fields of the current record are only delimited inside the characters, and
+ * amounts and dates are parsed straight from them, like {@link FieldReader} does: a string is created only
+ * when one is asked for with {@code getString()}.
+ *
+ * @author Tommaso Catervi
+ */
+final class CsvReader {
+    private static final char QUOTE = '"';
+    private final char[] chars;
+    private final int end;
+    private final char separator;
+    private int next;
+    private int line;
+    private int[] fieldStarts = new int[8];
+    private int[] fieldEnds = new int[8];
+    private boolean[] fieldEscaped = new boolean[8];
+    private final int[] parts = new int[3];
+    private final int[] digits = new int[3];
+    private int fields;
+    private int recordLine;
+    private int recordStart;
+
+    /**
+     * Constructs a new {@link CsvReader} that reads the characters between the two given positions.
+     *
+     * @param chars     the characters to read.
+     * @param from      the position of the first character.
+     * @param to        the position after the last character.
+     * @param separator the separator of the fields.
+     * @param firstLine the number of the line of the first character in its file, used in the error messages.
+     */
+    CsvReader(char[] chars, int from, int to, char separator, int firstLine) {
+        this.chars = chars;
+        this.next = from;
+        this.end = to;
+        this.separator = separator;
+        this.line = firstLine;
+    }
+
+    /**
+     * Moves to the next record and delimits its fields. Empty lines are skipped.
+     *
+     * @return true if there was another record, false if the end of the characters was reached.
+     * @throws ParseException if a quoted field is not closed or is followed by other characters.
+     */
+    boolean nextLine() throws ParseException {
+        while (next < end) {
+            recordLine = line;
+            recordStart = next;
+            fields = 0;
+            int i = next;
+            while (true) {
+                if (i < end && chars[i] == QUOTE) i = readQuoted(i + 1);
+                else i = readPlain(i);
+                if (i < end && chars[i] == separator) {
+                    i++;
+                    continue;
+                }
+                if (i < end && chars[i] == '\r') i++;
+                if (i < end && chars[i] != '\n') throw wrongField(i);
+                if (i < end) {
+                    i++;
+                    line++;
+                }
+                break;
+            }
+            next = i;
+            if (fields > 1 || fieldEnds[0] > fieldStarts[0] || fieldEscaped[0]) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Delimits the field not enclosed in quotes starting at the given position.
+     *
+     * @param start the position of the first character of the field.
+     * @return the position after the last character of the field.
+     */
+    private int readPlain(int start) {
+        int i = start;
+        while (i < end && chars[i] != separator && chars[i] != '\n') i++;
+        int fieldEnd = i;
+        if (fieldEnd > start && chars[fieldEnd - 1] == '\r' && (i == end || chars[i] == '\n')) fieldEnd--;
+        addField(start, fieldEnd, false);
+        return fieldEnd;
+    }
+
+    /**
+     * Delimits the field enclosed in quotes whose content starts at the given position.
+     * The field is marked as escaped, so that the quotes written twice in it are written once
+     * by {@code getString()}.
+     *
+     * @param start the position of the first character after the opening quote.
+     * @return the position after the closing quote.
+     * @throws ParseException if the field is not closed.
+     */
+    private int readQuoted(int start) throws ParseException {
+        int i = start;
+        while (true) {
+            if (i >= end) throw wrongField(start - 1);
+            char c = chars[i];
+            if (c == QUOTE) {
+                if (i + 1 < end && chars[i + 1] == QUOTE) {
+                    i += 2;
+                    continue;
+                }
+                break;
+            }
+            if (c == '\n') line++;
+            i++;
+        }
+        addField(start, i, true);
+        return i + 1;
+    }
+
+    /**
+     * Adds a field to the current record.
+     *
+     * @param start   the position of the first character of the field.
+     * @param end     the position after the last character of the field.
+     * @param escaped true if the field was enclosed in quotes.
+     */
+    private void addField(int start, int end, boolean escaped) {
+        if (fields == fieldStarts.length) {
+            fieldStarts = Arrays.copyOf(fieldStarts, fields * 2);
+            fieldEnds = Arrays.copyOf(fieldEnds, fields * 2);
+            fieldEscaped = Arrays.copyOf(fieldEscaped, fields * 2);
+        }
+        fieldStarts[fields] = start;
+        fieldEnds[fields] = end;
+        fieldEscaped[fields++] = escaped;
+    }
+
+    /**
+     * Returns the number of the line of its file where the current record starts.
+     *
+     * @return the number of the line of the current record.
+     */
+    int getLineNumber() {
+        return recordLine;
+    }
+
+    /**
+     * Returns true if the current record has a non-empty field in the given position.
+     *
+     * @param field the position of the field, starting from 0.
+     * @return true if the field exists and is not empty, false otherwise.
+     */
+    boolean hasField(int field) {
+        return field < fields && fieldEnds[field] > fieldStarts[field];
+    }
+
+    /**
+     * Returns the string value of the given field of the current record, with the quotes written
+     * twice in a quoted field written once.
+     *
+     * @param field the position of the field, starting from 0.
+     * @return the string value of the field.
+     * @throws ParseException if the field does not exist.
+     */
+    String getString(int field) throws ParseException {
+        if (field >= fields)
+            throw new ParseException(FieldReader.MESSAGE_WRONG_FIELD + recordLine, 0);
+        String value = new String(chars, fieldStarts[field], fieldEnds[field] - fieldStarts[field]);
+        return fieldEscaped[field] ? value.replace("\"\"", "\"") : value;
+    }
+
+    /**
+     * Returns true if the given field of the current record is equal to the given string, comparing the
+     * characters in place.
+     *
+     * @param field the position of the field, starting from 0.
+     * @param value the string to compare.
+     * @return true if the field exists and is equal to the string, false otherwise.
+     * @throws ParseException if something goes wrong.
+     */
+    boolean fieldEquals(int field, String value) throws ParseException {
+        if (field >= fields) return false;
+        if (fieldEscaped[field]) return getString(field).equals(value);
+        int from = fieldStarts[field];
+        int length = fieldEnds[field] - from;
+        if (length != value.length()) return false;
+        for (int i = 0; i < length; i++)
+            if (chars[from + i] != value.charAt(i)) return false;
+        return true;
+    }
+
+    /**
+     * Returns true if the given field of the current record, in upper case, is equal to the given string,
+     * comparing the characters in place like the names of the accounts and of the tags, which are kept in
+     * upper case.
+     *
+     * @param field the position of the field, starting from 0.
+     * @param value the string in upper case to compare.
+     * @return true if the field exists and is equal to the string ignoring the case, false otherwise.
+     * @throws ParseException if something goes wrong.
+     */
+    boolean fieldEqualsUpperCase(int field, String value) throws ParseException {
+        if (field >= fields) return false;
+        if (fieldEscaped[field]) return getString(field).toUpperCase().equals(value);
+        int from = fieldStarts[field];
+        int length = fieldEnds[field] - from;
+        if (length != value.length()) return false;
+        for (int i = 0; i < length; i++)
+            if (Character.toUpperCase(chars[from + i]) != value.charAt(i)) return false;
+        return true;
+    }
+
+    /**
+     * Returns the amount in cents written in the given field of the current record, with an optional sign,
+     * the given decimal separator followed by at most two digits and, before it, optional grouping
+     * separators: spaces, apostrophes and the one between "." and "," which is not the decimal separator.
+     * The amount is computed from the digits, without a floating point value.
+     *
+     * @param field            the position of the field, starting from 0.
+     * @param decimalSeparator the decimal separator.
+     * @return the signed amount in cents.
+     * @throws ParseException if the field does not exist or does not contain an amount.
+     */
+    long getCents(int field, char decimalSeparator) throws ParseException {
+        controlField(field);
+        int from = trimStart(field);
+        int to = trimEnd(field, from);
+        char grouping = decimalSeparator == ',' ? '.' : ',';
+        int i = from;
+        boolean negative = i < to && chars[i] == '-';
+        if (negative || (i < to && chars[i] == '+')) i++;
+        long units = 0;
+        int decimals = -1;
+        boolean any = false;
+        for (; i < to; i++) {
+            char c = chars[i];
+            if (c >= '0' && c <= '9') {
+                if (decimals >= 0 && ++decimals > 2) throw wrongField(i);
+                if (units > (Long.MAX_VALUE / 100 - 9) / 10) throw wrongField(from);
+                units = units * 10 + (c - '0');
+                any = true;
+            } else if (c == decimalSeparator && decimals < 0) {
+                decimals = 0;
+            } else if ((c == grouping || c == ' ' || c == '\'') && decimals < 0 && any) {
+                continue;
+            } else {
+                throw wrongField(i);
+            }
+        }
+        if (!any) throw wrongField(from);
+        long cents = decimals == 2 ? units : decimals == 1 ? units * 10 : units * 100;
+        return negative ? -cents : cents;
+    }
+
+    /**
+     * Returns the epoch day of the date written in the given field of the current record, made of three
+     * numbers in the given order separated by a single character. The year is written in four digits;
+     * whatever follows a space or a "T" after the date, such as a time, is ignored.
+     *
+     * @param field the position of the field, starting from 0.
+     * @param order the order of the parts of the date.
+     * @return the epoch day of the date in the field.
+     * @throws ParseException if the field does not exist or does not contain a valid date.
+     */
+    int getEpochDay(int field, CsvMapping.DateOrder order) throws ParseException {
+        controlField(field);
+        int from = trimStart(field);
+        int to = trimEnd(field, from);
+        Arrays.fill(parts, 0);
+        Arrays.fill(digits, 0);
+        int i = from;
+        for (int part = 0; part < 3; part++) {
+            if (part > 0) {
+                if (i >= to || (chars[i] >= '0' && chars[i] <= '9')) throw wrongField(i);
+                i++;
+            }
+            while (i < to && chars[i] >= '0' && chars[i] <= '9' && digits[part] < 4) {
+                parts[part] = parts[part] * 10 + (chars[i++] - '0');
+                digits[part]++;
+            }
+            if (digits[part] == 0) throw wrongField(i);
+        }
+        if (i < to && chars[i] != ' ' && chars[i] != 'T') throw wrongField(i);
+        int day = order == CsvMapping.DateOrder.DAY_MONTH_YEAR ? 0 : order == CsvMapping.DateOrder.MONTH_DAY_YEAR ? 1 : 2;
+        int month = order == CsvMapping.DateOrder.MONTH_DAY_YEAR ? 0 : 1;
+        int year = order == CsvMapping.DateOrder.YEAR_MONTH_DAY ? 0 : 2;
+        if (digits[year] != 4 || digits[month] > 2 || digits[day] > 2) throw wrongField(from);
+        try {
+            return Math.toIntExact(LocalDate.of(parts[year], parts[month], parts[day]).toEpochDay());
+        } catch (DateTimeException e) {
+            throw wrongField(from);
+        }
+    }
+
+    /**
+     * Returns the position of the first character of the given field which is not a space.
+     *
+     * @param field the position of the field.
+     * @return the position of the first character which is not a space.
+     */
+    private int trimStart(int field) {
+        int i = fieldStarts[field];
+        while (i < fieldEnds[field] && chars[i] == ' ') i++;
+        return i;
+    }
+
+    /**
+     * Returns the position after the last character of the given field which is not a space.
+     *
+     * @param field the position of the field.
+     * @param from  the position of the first character which is not a space.
+     * @return the position after the last character which is not a space.
+     */
+    private int trimEnd(int field, int from) {
+        int i = fieldEnds[field];
+        while (i > from && chars[i - 1] == ' ') i--;
+        return i;
+    }
+
+    /**
+     * Controls that the current record has the given field and that it is not empty.
+     *
+     * @param field the position of the field.
+     * @throws ParseException if the field does not exist or is empty.
+     */
+    private void controlField(int field) throws ParseException {
+        if (field >= fields)
+            throw new ParseException(FieldReader.MESSAGE_WRONG_FIELD + recordLine, 0);
+        if (fieldEnds[field] == fieldStarts[field])
+            throw wrongField(fieldStarts[field]);
+    }
+
+    /**
+     * Returns the exception for a field of the current record that does not contain a valid value.
+     *
+     * @param position the position of the wrong character.
+     * @return the exception to throw.
+     */
+    private ParseException wrongField(int position) {
+        return new ParseException(FieldReader.MESSAGE_WRONG_FIELD + recordLine, position - recordStart);
+    }
+}
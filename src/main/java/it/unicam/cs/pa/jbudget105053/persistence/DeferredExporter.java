@@ -0,0 +1,22 @@
+package it.unicam.cs.pa.jbudget105053.persistence;
+
+import java.io.IOException;
+
+/**
+ * This interface is implemented by all the {@link ExportManager}s that, without taking a
+ * {@link LedgerSnapshot}, can prepare an export on the thread that changes the ledger
+ * and leave the writing of the files to an {@link ExportTask}.
+ *
+ * @author Tommaso Catervi
+ */
+public interface DeferredExporter extends ExportManager {
+    /**
+     * Starts the preparation of the export of all data in a given path.
+     * This method must be called by the thread that changes the ledger.
+     *
+     * @param path the path where the data will be saved.
+     * @return the {@link ExportPreparation} of the export.
+     * @throws IOException if something goes wrong.
+     */
+    ExportPreparation prepareExport(String path) throws IOException;
+}
@@ -0,0 +1,206 @@
+package it.unicam.cs.pa.jbudget105053.persistence;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * This class has the responsibility to keep track of the parts of a ledger that changed since it was last
+ * exported by a {@link SegmentedExporter}: the accounts, the tags and the segments of the transactions,
+ * each of which holds the transactions of a month together with their movements.
+ * The parts are marked as dirty by the controller when it changes the ledger, and they are taken by the
+ * exporter, which writes only them if the data is saved again in the same path.
+ *
+ * @author Tommaso Catervi
+ */
+public class DirtyTracker {
+    private boolean accountsDirty = true;
+    private boolean tagsDirty = true;
+    private boolean allSegmentsDirty = true;
+    private Set<Integer> dirtySegments = new HashSet<>();
+    private String savedPath;
+
+    /**
+     * Returns the segment of the transactions of the given day, that is the number of months
+     * since the year 0.
+     *
+     * @param epochDay the day, as the number of days since 01-01-1970.
+     * @return the segment of the day.
+     */
+    public static int getSegment(int epochDay) {
+        LocalDate date = LocalDate.ofEpochDay(epochDay);
+        return date.getYear() * 12 + date.getMonthValue() - 1;
+    }
+
+    /**
+     * Returns the first day of the given segment.
+     *
+     * @param segment the segment.
+     * @return the first day of the month of the segment.
+     */
+    public static LocalDate getFirstDay(int segment) {
+        return LocalDate.of(segment / 12, segment % 12 + 1, 1);
+    }
+
+    /**
+     * Returns the name of the given segment, in the format {@code yyyy-MM}.
+     *
+     * @param segment the segment.
+     * @return the name of the segment.
+     */
+    public static String getSegmentName(int segment) {
+        return String.format("%04d-%02d", segment / 12, segment % 12 + 1);
+    }
+
+    /**
+     * Marks the accounts as changed.
+     */
+    public synchronized void markAccounts() {
+        accountsDirty = true;
+    }
+
+    /**
+     * Marks the tags as changed.
+     */
+    public synchronized void markTags() {
+        tagsDirty = true;
+    }
+
+    /**
+     * Marks as changed the segment of the transactions of the given day.
+     *
+     * @param epochDay the day of the changed transaction, as the number of days since 01-01-1970.
+     */
+    public synchronized void markSegment(int epochDay) {
+        if (!allSegmentsDirty) dirtySegments.add(getSegment(epochDay));
+    }
+
+    /**
+     * Marks all the ledger as changed.
+     */
+    public synchronized void markAll() {
+        accountsDirty = true;
+        tagsDirty = true;
+        allSegmentsDirty = true;
+        dirtySegments = new HashSet<>();
+    }
+
+    /**
+     * Returns true if some part of the ledger changed since it was last exported.
+     *
+     * @return true if some part of the ledger is dirty, false otherwise.
+     */
+    public synchronized boolean isDirty() {
+        return accountsDirty || tagsDirty || allSegmentsDirty || !dirtySegments.isEmpty();
+    }
+
+    /**
+     * Takes all the changes to write in order to save the ledger in the given path, and marks the ledger
+     * as clean. All the ledger is considered changed if it was not last saved in the same path.
+     *
+     * @param path the path where the ledger is going to be saved.
+     * @return the changes to write.
+     */
+    synchronized Changes take(String path) {
+        Changes changes = Objects.equals(savedPath, path)
+                ? new Changes(accountsDirty, tagsDirty, allSegmentsDirty ? null : dirtySegments)
+                : new Changes(true, true, null);
+        clear();
+        return changes;
+    }
+
+    /**
+     * Takes the changes made after the given changes were taken, together with them, and marks the
+     * ledger as clean. This method is used when a save has to be prepared again because the ledger
+     * changed while it was being prepared.
+     *
+     * @param changes the changes taken.
+     * @return the given changes merged with the ones made after them.
+     */
+    synchronized Changes retake(Changes changes) {
+        Set<Integer> segments = null;
+        if (!changes.allSegments() && !allSegmentsDirty) {
+            segments = new HashSet<>(changes.segments);
+            segments.addAll(dirtySegments);
+        }
+        Changes merged = new Changes(changes.accounts || accountsDirty, changes.tags || tagsDirty, segments);
+        clear();
+        return merged;
+    }
+
+    /**
+     * Marks the ledger as clean and not saved in any path.
+     */
+    private void clear() {
+        accountsDirty = false;
+        tagsDirty = false;
+        allSegmentsDirty = false;
+        dirtySegments = new HashSet<>();
+        savedPath = null;
+    }
+
+    /**
+     * Records that the changes taken were written in the given path.
+     *
+     * @param path the path where the ledger was saved.
+     */
+    synchronized void saved(String path) {
+        savedPath = path;
+    }
+
+    /**
+     * Marks again as changed all the given changes, which could not be written.
+     *
+     * @param changes the changes taken.
+     */
+    synchronized void restore(Changes changes) {
+        accountsDirty |= changes.accounts;
+        tagsDirty |= changes.tags;
+        if (Objects.isNull(changes.segments)) markAll();
+        else if (!allSegmentsDirty) dirtySegments.addAll(changes.segments);
+    }
+
+    /**
+     * The parts of a ledger to write in order to save it.
+     */
+    static final class Changes {
+        final boolean accounts;
+        final boolean tags;
+        private final Set<Integer> segments;
+
+        private Changes(boolean accounts, boolean tags, Set<Integer> segments) {
+            this.accounts = accounts;
+            this.tags = tags;
+            this.segments = segments;
+        }
+
+        /**
+         * Returns true if all the segments must be written.
+         *
+         * @return true if all the segments changed, false otherwise.
+         */
+        boolean allSegments() {
+            return Objects.isNull(segments);
+        }
+
+        /**
+         * Returns the changed segments, if not all of them changed.
+         *
+         * @return the changed segments.
+         */
+        Set<Integer> getSegments() {
+            return Objects.requireNonNull(segments);
+        }
+
+        /**
+         * Returns true if the given segment must be written.
+         *
+         * @param segment the segment.
+         * @return true if the segment changed, false otherwise.
+         */
+        boolean contains(int segment) {
+            return allSegments() || segments.contains(segment);
+        }
+    }
+}
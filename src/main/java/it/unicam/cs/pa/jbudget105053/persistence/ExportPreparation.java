@@ -0,0 +1,86 @@
+package it.unicam.cs.pa.jbudget105053.persistence;
+
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * This interface is implemented by all the classes that have the responsibility to prepare, in steps made
+ * by the thread that changes the ledger, an export which is then completed by an {@link ExportTask} on any
+ * thread. Each step handles a bounded number of elements of the ledger, so the thread that changes it is
+ * never busy for long, and the ledger can change between two steps.
+ *
+ * @author Tommaso Catervi
+ */
+public interface ExportPreparation {
+    /**
+     * The string error message for when the task is requested before the export has been prepared.
+     */
+    String MESSAGE_NOT_PREPARED = "Il salvataggio non e' ancora stato preparato.";
+
+    /**
+     * Makes a step of the preparation, handling at most about the given number of elements of the ledger.
+     * This method must be called by the thread that changes the ledger.
+     *
+     * @param count the number of elements to handle.
+     * @return true if the export has been prepared, false if other steps are needed.
+     * @throws IOException if something goes wrong.
+     */
+    boolean step(int count) throws IOException;
+
+    /**
+     * Returns the {@link ExportTask} completing the export once it has been prepared.
+     *
+     * @return the {@link ExportTask} completing the export.
+     * @throws IllegalStateException if the export has not been prepared yet.
+     */
+    ExportTask getTask();
+
+    /**
+     * Returns an {@link ExportPreparation} writing with the given {@link SnapshotWriter} the
+     * {@link LedgerSnapshot} taken in steps by the given {@link LedgerSnapshot.Copier}.
+     *
+     * @param copier the {@link LedgerSnapshot.Copier} of the ledger.
+     * @param writer the {@link SnapshotWriter} writing the snapshot.
+     * @param path   the path where the data will be saved.
+     * @return the {@link ExportPreparation} of the snapshot.
+     */
+    static ExportPreparation of(LedgerSnapshot.Copier copier, SnapshotWriter writer, String path) {
+        Objects.requireNonNull(writer);
+        Objects.requireNonNull(path);
+        return new ExportPreparation() {
+            @Override
+            public boolean step(int count) {
+                return copier.copy(count);
+            }
+
+            @Override
+            public ExportTask getTask() {
+                LedgerSnapshot snapshot = copier.getSnapshot();
+                return () -> {
+                    writer.write(snapshot, path);
+                    return snapshot.getVersion();
+                };
+            }
+        };
+    }
+
+    /**
+     * Returns an {@link ExportPreparation} of an export already completed.
+     *
+     * @param version the version of the ledger that has been saved.
+     * @return the {@link ExportPreparation} of the completed export.
+     */
+    static ExportPreparation done(long version) {
+        return new ExportPreparation() {
+            @Override
+            public boolean step(int count) {
+                return true;
+            }
+
+            @Override
+            public ExportTask getTask() {
+                return () -> version;
+            }
+        };
+    }
+}
@@ -0,0 +1,21 @@
+package it.unicam.cs.pa.jbudget105053.persistence;
+
+import java.io.IOException;
+
+/**
+ * This interface is implemented by all the classes that have the responsibility to
+ * complete an export of the ledger prepared by the thread that changes it, typically
+ * writing a {@link LedgerSnapshot} on a background thread.
+ *
+ * @author Tommaso Catervi
+ */
+@FunctionalInterface
+public interface ExportTask {
+    /**
+     * Completes the export. This method can be called by any thread.
+     *
+     * @return the version of the ledger that has been saved.
+     * @throws IOException if something goes wrong.
+     */
+    long run() throws IOException;
+}
@@ -0,0 +1,377 @@
+package it.unicam.cs.pa.jbudget105053.persistence;
+
+import it.unicam.cs.pa.jbudget105053.model.EpochDays;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.text.ParseException;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * This class has the responsibility to read the lines of a text file made of fields separated by ";"
+ * one at a time. The characters are read into a buffer that is reused for all the lines and only grows
+ * when a line does not fit in it, so the memory used does not depend on the size of the file. The fields
+ * of the current line are only delimited inside the buffer, and numbers and dates are parsed straight from
+ * their characters: a string is created only when one is asked for with {@code getString()}.
+ *
+ * @author Tommaso Catervi
+ */
+final class FieldReader implements Closeable {
+    /**
+     * The string error message for when a field does not contain a valid value.
+     */
+    static final String MESSAGE_WRONG_FIELD = "Il file contiene un campo non valido alla riga ";
+
+    private static final char SEPARATOR = ';';
+    private static final char LIST_SEPARATOR = ',';
+    private static final int DEFAULT_BUFFER_SIZE = 1 << 13;
+    private static final int MAX_FAST_DIGITS = 15;
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+    private final Reader reader;
+    private char[] buffer;
+    private CharBuffer chars;
+    private int next;
+    private int scanned;
+    private int limit;
+    private boolean endOfFile;
+    private int[] fieldStarts = new int[8];
+    private int[] fieldEnds = new int[8];
+    private int fields;
+    private int lineNumber;
+    private int lineStart;
+
+    /**
+     * Constructs a new {@link FieldReader} that reads from the given {@link Reader}.
+     *
+     * @param reader the value used to set the {@code reader} field of the {@link FieldReader}.
+     */
+    FieldReader(Reader reader) {
+        this(reader, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Constructs a new {@link FieldReader} that reads from the given {@link Reader} with
+     * a buffer of the given initial size.
+     *
+     * @param reader     the value used to set the {@code reader} field of the {@link FieldReader}.
+     * @param bufferSize the initial size of the buffer.
+     */
+    FieldReader(Reader reader, int bufferSize) {
+        this.reader = reader;
+        this.buffer = new char[bufferSize];
+        this.chars = CharBuffer.wrap(buffer);
+    }
+
+    /**
+     * Moves to the next line of the file and delimits its fields. Empty lines are skipped.
+     *
+     * @return true if there was another line, false if the end of the file was reached.
+     * @throws IOException if something goes wrong.
+     */
+    boolean nextLine() throws IOException {
+        while (true) {
+            for (int i = scanned; i < limit; i++) {
+                if (buffer[i] == '\n') {
+                    int start = next;
+                    next = scanned = i + 1;
+                    if (splitLine(start, i)) return true;
+                }
+            }
+            scanned = limit;
+            if (endOfFile) {
+                int start = next;
+                next = limit;
+                return start < limit && splitLine(start, limit);
+            }
+            fill();
+        }
+    }
+
+    /**
+     * Moves the unread characters to the start of the buffer, growing it if they fill it,
+     * and reads more characters after them.
+     *
+     * @throws IOException if something goes wrong.
+     */
+    private void fill() throws IOException {
+        int unread = limit - next;
+        if (unread == buffer.length) {
+            char[] grown = new char[buffer.length * 2];
+            System.arraycopy(buffer, next, grown, 0, unread);
+            buffer = grown;
+            chars = CharBuffer.wrap(buffer);
+        } else {
+            System.arraycopy(buffer, next, buffer, 0, unread);
+        }
+        scanned -= next;
+        next = 0;
+        limit = unread;
+        int read = reader.read(buffer, limit, buffer.length - limit);
+        if (read < 0) endOfFile = true;
+        else limit += read;
+    }
+
+    /**
+     * Delimits the fields of the line between the two given positions.
+     *
+     * @param start the position of the first character of the line.
+     * @param end   the position after the last character of the line.
+     * @return true if the line is not empty, false otherwise.
+     */
+    private boolean splitLine(int start, int end) {
+        lineNumber++;
+        lineStart = start;
+        if (end > start && buffer[end - 1] == '\r') end--;
+        if (end == start) return false;
+        fields = 0;
+        int fieldStart = start;
+        for (int i = start; i <= end; i++) {
+            if (i == end || buffer[i] == SEPARATOR) {
+                if (fields == fieldStarts.length) {
+                    fieldStarts = Arrays.copyOf(fieldStarts, fields * 2);
+                    fieldEnds = Arrays.copyOf(fieldEnds, fields * 2);
+                }
+                fieldStarts[fields] = fieldStart;
+                fieldEnds[fields++] = i;
+                fieldStart = i + 1;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Getter method for the number of the current line, counting also the empty lines skipped.
+     *
+     * @return the number of the current line, starting from 1.
+     */
+    int getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * Returns true if the current line has a non-empty field in the given position.
+     *
+     * @param field the position of the field, starting from 0.
+     * @return true if the field exists and is not empty, false otherwise.
+     */
+    boolean hasField(int field) {
+        return field < fields && fieldEnds[field] > fieldStarts[field];
+    }
+
+    /**
+     * Returns the string value of the given field of the current line.
+     *
+     * @param field the position of the field, starting from 0.
+     * @return the string value of the field.
+     * @throws ParseException if the field does not exist.
+     */
+    String getString(int field) throws ParseException {
+        controlField(field);
+        return new String(buffer, fieldStarts[field], fieldEnds[field] - fieldStarts[field]);
+    }
+
+    /**
+     * Returns the integer value of the given field of the current line.
+     *
+     * @param field the position of the field, starting from 0.
+     * @return the integer value of the field.
+     * @throws ParseException if the field does not exist or does not contain an integer.
+     */
+    int getInt(int field) throws ParseException {
+        controlField(field);
+        return parseInt(fieldStarts[field], fieldEnds[field]);
+    }
+
+    /**
+     * Returns the decimal value of the given field of the current line. Values with at most 15 significant
+     * digits and a small exponent, like all the amounts of the application, are computed directly from the
+     * digits with a single correctly rounded operation; the others are parsed by {@link Double}.
+     *
+     * @param field the position of the field, starting from 0.
+     * @return the decimal value of the field.
+     * @throws ParseException if the field does not exist or does not contain a number.
+     */
+    double getDouble(int field) throws ParseException {
+        controlField(field);
+        int from = fieldStarts[field];
+        int to = fieldEnds[field];
+        int i = from;
+        boolean negative = buffer[i] == '-';
+        if (negative || buffer[i] == '+') i++;
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean point = false;
+        boolean any = false;
+        for (; i < to; i++) {
+            char c = buffer[i];
+            if (c >= '0' && c <= '9') {
+                any = true;
+                if (digits > 0 || c != '0') {
+                    if (++digits > MAX_FAST_DIGITS) return parseDoubleSlowly(from, to);
+                    mantissa = mantissa * 10 + (c - '0');
+                }
+                if (point) exponent--;
+            } else if (c == '.' && !point) {
+                point = true;
+            } else if ((c == 'E' || c == 'e') && any) {
+                exponent += parseInt(i + 1, to);
+                i = to;
+            } else {
+                throw wrongField(i);
+            }
+        }
+        if (!any) throw wrongField(from);
+        double value;
+        if (mantissa == 0) value = 0;
+        else if (exponent >= 0 && exponent < POWERS_OF_TEN.length) value = mantissa * POWERS_OF_TEN[exponent];
+        else if (exponent < 0 && -exponent < POWERS_OF_TEN.length) value = mantissa / POWERS_OF_TEN[-exponent];
+        else return parseDoubleSlowly(from, to);
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parses the decimal value between the two given positions with {@link Double}.
+     *
+     * @param from the position of the first character.
+     * @param to   the position after the last character.
+     * @return the decimal value.
+     * @throws ParseException if the characters do not contain a number.
+     */
+    private double parseDoubleSlowly(int from, int to) throws ParseException {
+        try {
+            return Double.parseDouble(new String(buffer, from, to - from));
+        } catch (NumberFormatException e) {
+            throw wrongField(from);
+        }
+    }
+
+    /**
+     * Returns the epoch day of the date in the format {@code dd-MM-yyyy} in the given field of the current line.
+     * The dates in the format {@code yyyy-MM-dd}, written by the previous versions of the application, are
+     * accepted too.
+     *
+     * @param field the position of the field, starting from 0.
+     * @return the epoch day of the date in the field.
+     * @throws ParseException if the field does not exist or does not contain a valid date.
+     */
+    int getEpochDay(int field) throws ParseException {
+        controlField(field);
+        int from = fieldStarts[field];
+        int to = fieldEnds[field];
+        try {
+            if (to - from == EpochDays.ISO_PATTERN.length() && chars.charAt(from + 4) == '-')
+                return EpochDays.parseISO(chars, from, to);
+            return EpochDays.parse(chars, from, to);
+        } catch (ParseException e) {
+            throw wrongField(fieldStarts[field]);
+        }
+    }
+
+    /**
+     * Returns the constant of the given enum type whose name is in the given field of the current line.
+     *
+     * @param field  the position of the field, starting from 0.
+     * @param values the constants of the enum type.
+     * @param <E>    the enum type.
+     * @return the constant with the name in the field.
+     * @throws ParseException if the field does not exist or does not contain the name of a constant.
+     */
+    <E extends Enum<E>> E getEnum(int field, E[] values) throws ParseException {
+        controlField(field);
+        int from = fieldStarts[field];
+        int length = fieldEnds[field] - from;
+        for (E value : values) {
+            String name = value.name();
+            if (name.length() != length) continue;
+            int i = 0;
+            while (i < length && name.charAt(i) == buffer[from + i]) i++;
+            if (i == length) return value;
+        }
+        throw wrongField(from);
+    }
+
+    /**
+     * Parses each integer of the list separated by "," in the given field of the current line
+     * and passes it to the given consumer. Empty elements are ignored.
+     *
+     * @param field    the position of the field, starting from 0.
+     * @param consumer the consumer of the integers.
+     * @throws ParseException if one of the elements is not an integer.
+     */
+    void forEachInt(int field, IntConsumer consumer) throws ParseException {
+        if (!hasField(field)) return;
+        int start = fieldStarts[field];
+        int end = fieldEnds[field];
+        for (int i = start; i <= end; i++) {
+            if (i == end || buffer[i] == LIST_SEPARATOR) {
+                if (i > start) consumer.accept(parseInt(start, i));
+                start = i + 1;
+            }
+        }
+    }
+
+    /**
+     * Parses the integer between the two given positions of the buffer.
+     *
+     * @param from the position of the first character.
+     * @param to   the position after the last character.
+     * @return the parsed integer.
+     * @throws ParseException if the characters do not contain an integer.
+     */
+    private int parseInt(int from, int to) throws ParseException {
+        int i = from;
+        boolean negative = i < to && buffer[i] == '-';
+        if (negative || (i < to && buffer[i] == '+')) i++;
+        if (i == to) throw wrongField(from);
+        long value = 0;
+        for (; i < to; i++) {
+            char c = buffer[i];
+            if (c < '0' || c > '9') throw wrongField(i);
+            value = value * 10 + (c - '0');
+            if (value > Integer.MAX_VALUE + 1L) throw wrongField(from);
+        }
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE) throw wrongField(from);
+        return (int) value;
+    }
+
+    /**
+     * Controls that the current line has the given field.
+     *
+     * @param field the position of the field.
+     * @throws ParseException if the field does not exist.
+     */
+    private void controlField(int field) throws ParseException {
+        if (field >= fields)
+            throw new ParseException(MESSAGE_WRONG_FIELD + lineNumber, 0);
+        if (fieldEnds[field] == fieldStarts[field])
+            throw wrongField(fieldStarts[field]);
+    }
+
+    /**
+     * Returns the exception for a field of the current line that does not contain a valid value.
+     *
+     * @param position the position of the wrong character in the buffer.
+     * @return the exception to throw.
+     */
+    private ParseException wrongField(int position) {
+        return new ParseException(MESSAGE_WRONG_FIELD + lineNumber, position - lineStart);
+    }
+
+    /**
+     * Closes the underlying {@link Reader}.
+     *
+     * @throws IOException if something goes wrong.
+     */
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -2,6 +2,7 @@ package it.unicam.cs.pa.jbudget105053.persistence;
 
 import it.unicam.cs.pa.jbudget105053.model.Account;
 import it.unicam.cs.pa.jbudget105053.model.Movement;
+import it.unicam.cs.pa.jbudget105053.model.Transaction;
 
 import java.io.IOException;
 import java.text.ParseException;
@@ -22,6 +23,11 @@ public interface ImportManager {
      * does not exist in the accounts list.
      */
     String MESSAGE_WRONG_ACCOUNT = "Non e' stato possibile completare l'importazione dei movimenti\nper un errore nella lista degli accounts.";
+    /**
+     * The string error message for when a {@link Movement} is associated with a {@link Transaction} that
+     * does not exist in the transactions list, followed by the number of its line.
+     */
+    String MESSAGE_WRONG_TRANSACTION = "Il file dei movimenti contiene un movimento di una transazione inesistente alla riga ";
 
     /**
      * Imports all data from a specific file in a given path.
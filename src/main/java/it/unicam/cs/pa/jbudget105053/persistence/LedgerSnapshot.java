@@ -0,0 +1,240 @@
+package it.unicam.cs.pa.jbudget105053.persistence;
+
+import it.unicam.cs.pa.jbudget105053.controller.Controller;
+import it.unicam.cs.pa.jbudget105053.model.*;
+
+import java.util.List;
+
+/**
+ * This class has the responsibility to hold an immutable copy of all data of a ledger, taken at a given
+ * moment, so that it can be written while the ledger keeps changing. Only the values that are saved are
+ * copied, into arrays of primitives and strings: the objects of the model are not referenced, so taking a
+ * snapshot costs a single pass over the ledger and writing it needs no lock.
+ * A snapshot can also be taken in steps by a {@link Copier}, so that the thread that changes the ledger is
+ * never busy copying it for long.
+ *
+ * @author Tommaso Catervi
+ */
+public final class LedgerSnapshot {
+    final int[] accountIDs;
+    final AccountType[] accountTypes;
+    final String[] accountNames;
+    final long[] accountInitialCents;
+    final int[] tagIDs;
+    final String[] tagNames;
+    final String[] tagDescriptions;
+    final int[] transactionIDs;
+    final int[] transactionDays;
+    final int[][] transactionTags;
+    final int[] movementIDs;
+    final long[] movementCents;
+    final int[] movementAccounts;
+    final int[] movementTransactions;
+    final int[][] movementTags;
+    private final long version;
+
+    /**
+     * Constructs a {@link LedgerSnapshot} with the arrays filled by the given {@link Copier}.
+     *
+     * @param copier the {@link Copier} that copied all data of the ledger.
+     */
+    private LedgerSnapshot(Copier copier) {
+        version = copier.version;
+        accountIDs = copier.accountIDs;
+        accountTypes = copier.accountTypes;
+        accountNames = copier.accountNames;
+        accountInitialCents = copier.accountInitialCents;
+        tagIDs = copier.tagIDs;
+        tagNames = copier.tagNames;
+        tagDescriptions = copier.tagDescriptions;
+        transactionIDs = copier.transactionIDs;
+        transactionDays = copier.transactionDays;
+        transactionTags = copier.transactionTags;
+        movementIDs = copier.movementIDs;
+        movementCents = copier.movementCents;
+        movementAccounts = copier.movementAccounts;
+        movementTransactions = copier.movementTransactions;
+        movementTags = copier.movementTags;
+    }
+
+    /**
+     * Takes a snapshot of the ledger of the given {@link Controller}. The ledger must not be changed
+     * while the snapshot is taken, so this method must be called by the thread that changes it.
+     *
+     * @param controller the {@link Controller} of the ledger.
+     * @return the snapshot of the ledger.
+     */
+    public static LedgerSnapshot of(Controller controller) {
+        Copier copier = copier(controller);
+        copier.copy(Integer.MAX_VALUE);
+        return copier.getSnapshot();
+    }
+
+    /**
+     * Returns a {@link Copier} taking a snapshot of the ledger of the given {@link Controller} in steps.
+     *
+     * @param controller the {@link Controller} of the ledger.
+     * @return the {@link Copier} of the ledger.
+     */
+    public static Copier copier(Controller controller) {
+        return new Copier(controller);
+    }
+
+    /**
+     * Returns the IDs of the given tags.
+     *
+     * @param tags the tags.
+     * @return the array of the IDs of the tags, in the same order.
+     */
+    private static int[] getTagIDs(List<Tag> tags) {
+        int[] IDs = new int[tags.size()];
+        int i = 0;
+        for (Tag t : tags)
+            IDs[i++] = t.getID();
+        return IDs;
+    }
+
+    /**
+     * Getter method for the version of the ledger when the snapshot was taken.
+     *
+     * @return the version of the ledger copied by the snapshot.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * This class has the responsibility to take a {@link LedgerSnapshot} in steps, each of which copies a
+     * bounded number of transactions and movements. The steps must be made by the thread that changes the
+     * ledger, which can change it between two steps: when a step finds that the version of the ledger
+     * changed since the copy started, the copy starts again, so the snapshot always holds a single version.
+     * The accounts and the tags, which are few, are copied at the start of the copy.
+     */
+    public static final class Copier {
+        private final Controller controller;
+        private long version;
+        private int[] accountIDs;
+        private AccountType[] accountTypes;
+        private String[] accountNames;
+        private long[] accountInitialCents;
+        private int[] tagIDs;
+        private String[] tagNames;
+        private String[] tagDescriptions;
+        private List<Transaction> transactions;
+        private int[] transactionIDs;
+        private int[] transactionDays;
+        private int[][] transactionTags;
+        private List<Movement> movements;
+        private int[] movementIDs;
+        private long[] movementCents;
+        private int[] movementAccounts;
+        private int[] movementTransactions;
+        private int[][] movementTags;
+        private int copiedTransactions;
+        private int copiedMovements;
+
+        /**
+         * Constructs a {@link Copier} of the ledger of the given {@link Controller} and starts the copy.
+         *
+         * @param controller the {@link Controller} of the ledger.
+         */
+        private Copier(Controller controller) {
+            this.controller = controller;
+            start();
+        }
+
+        /**
+         * Starts the copy of the current version of the ledger, copying its accounts and tags and
+         * allocating the arrays of its transactions and movements.
+         */
+        private void start() {
+            version = controller.getVersion();
+            List<Account> accounts = controller.getAccounts();
+            accountIDs = new int[accounts.size()];
+            accountTypes = new AccountType[accounts.size()];
+            accountNames = new String[accounts.size()];
+            accountInitialCents = new long[accounts.size()];
+            int i = 0;
+            for (Account a : accounts) {
+                accountIDs[i] = a.getID();
+                accountTypes[i] = a.getAccountType();
+                accountNames[i] = a.getName();
+                accountInitialCents[i++] = Money.toCents(a.getInitialBalance());
+            }
+            List<Tag> tags = controller.getTags();
+            tagIDs = new int[tags.size()];
+            tagNames = new String[tags.size()];
+            tagDescriptions = new String[tags.size()];
+            i = 0;
+            for (Tag t : tags) {
+                tagIDs[i] = t.getID();
+                tagNames[i] = t.getName();
+                tagDescriptions[i++] = t.getDescription();
+            }
+            transactions = controller.getTransactions();
+            transactionIDs = new int[transactions.size()];
+            transactionDays = new int[transactions.size()];
+            transactionTags = new int[transactions.size()][];
+            movements = controller.getMovements();
+            movementIDs = new int[movements.size()];
+            movementCents = new long[movements.size()];
+            movementAccounts = new int[movements.size()];
+            movementTransactions = new int[movements.size()];
+            movementTags = new int[movements.size()][];
+            copiedTransactions = 0;
+            copiedMovements = 0;
+        }
+
+        /**
+         * Copies at most the given number of transactions and movements, starting the copy again if the
+         * ledger changed since it started.
+         *
+         * @param count the maximum number of elements to copy.
+         * @return true if the whole ledger has been copied, false otherwise.
+         */
+        public boolean copy(int count) {
+            if (controller.getVersion() != version) start();
+            for (; count > 0 && copiedTransactions < transactionIDs.length; count--) {
+                Transaction t = transactions.get(copiedTransactions);
+                transactionIDs[copiedTransactions] = t.getID();
+                transactionDays[copiedTransactions] = t.getEpochDay();
+                transactionTags[copiedTransactions++] = getTagIDs(t.getTag());
+            }
+            for (; count > 0 && copiedMovements < movementIDs.length; count--) {
+                Movement m = movements.get(copiedMovements);
+                movementIDs[copiedMovements] = m.getID();
+                movementCents[copiedMovements] = m.getSignedCents();
+                movementAccounts[copiedMovements] = m.getAccount().getID();
+                movementTransactions[copiedMovements] = m.getTransaction().getID();
+                movementTags[copiedMovements++] = getTagIDs(m.getTag());
+            }
+            return isDone();
+        }
+
+        /**
+         * Returns true if the whole ledger has been copied.
+         *
+         * @return true if the copy is complete, false otherwise.
+         */
+        public boolean isDone() {
+            return copiedTransactions == transactionIDs.length && copiedMovements == movementIDs.length;
+        }
+
+        /**
+         * Returns the snapshot of the ledger once the copy is complete.
+         *
+         * @return the snapshot of the ledger.
+         * @throws IllegalStateException if the copy is not complete.
+         */
+        public LedgerSnapshot getSnapshot() {
+            if (!isDone())
+                throw new IllegalStateException(MESSAGE_INCOMPLETE_COPY);
+            return new LedgerSnapshot(this);
+        }
+    }
+
+    /**
+     * The string error message for when a snapshot is requested before the whole ledger has been copied.
+     */
+    public static final String MESSAGE_INCOMPLETE_COPY = "La copia del ledger non e' ancora completa.";
+}
@@ -0,0 +1,271 @@
+package it.unicam.cs.pa.jbudget105053.persistence;
+
+import it.unicam.cs.pa.jbudget105053.controller.Controller;
+import it.unicam.cs.pa.jbudget105053.model.*;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This class implements the interfaces {@link ExportManager} and {@link SnapshotWriter} and has the
+ * responsibility to export all data of the ledger into a single file in a given path, in the format
+ * described by {@link MappedLedgerFile}, which can then be opened by a {@link MappedLedger} without
+ * reading its transactions and movements. The transactions are sorted by ID and the movements are
+ * grouped by transaction, and the file is first written to a temporary file, which then replaces the
+ * previous one.
+ *
+ * @author Tommaso Catervi
+ */
+public class MappedLedgerExporter implements ExportManager, SnapshotWriter {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private final Controller controller;
+
+    /**
+     * Constructs a new {@link MappedLedgerExporter} with the given controller.
+     *
+     * @param controller the value used to set the {@code controller} field of the {@link MappedLedgerExporter}.
+     */
+    public MappedLedgerExporter(Controller controller) {
+        this.controller = controller;
+    }
+
+    /**
+     * Takes a {@link LedgerSnapshot} of the ledger and writes it into the file in the given path.
+     *
+     * @param path the path where the data will be saved.
+     * @throws IOException if something goes wrong.
+     */
+    @Override
+    public void exportAll(String path) throws IOException {
+        write(LedgerSnapshot.of(controller), path);
+    }
+
+    /**
+     * Writes the header and the sections of the given snapshot into the file in the given path.
+     * The rows are placed before anything is written, so that the header can hold the offsets
+     * of all the sections.
+     *
+     * @param snapshot the snapshot to write.
+     * @param path     the path where the data will be saved.
+     * @throws IOException if something goes wrong, or if the file would be bigger than 2 GB.
+     */
+    @Override
+    public void write(LedgerSnapshot snapshot, String path) throws IOException {
+        Layout layout = new Layout(snapshot);
+        File file = new File(path, MappedLedgerFile.FILE_NAME);
+        File temporary = new File(path, MappedLedgerFile.FILE_NAME + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temporary), BUFFER_SIZE))) {
+            layout.writeTo(out);
+        }
+        Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * This class has the responsibility to place the elements of a {@link LedgerSnapshot} in the rows
+     * of the file and to write them.
+     */
+    private static final class Layout {
+        private final LedgerSnapshot snapshot;
+        private final byte[][] accountNames;
+        private final byte[][] tagNames;
+        private final byte[][] tagDescriptions;
+        private final int[] transactionOrder;
+        private final int[] firstMovementRows;
+        private final int[] movementCounts;
+        private final int[] movementOrder;
+        private final int[] movementTransactionRows;
+        private final int[] accountRowsReferences;
+        private final int[] accountRowsCounts;
+        private final int[] accountRows;
+        private final long[] movementIDIndex;
+        private int poolSize;
+
+        /**
+         * Places the transactions in ascending order of ID, the movements grouped by transaction and
+         * the rows of the movements of each account in the pool.
+         *
+         * @param snapshot the snapshot to place.
+         * @throws IOException if a movement references a transaction or an account which is not in the snapshot.
+         */
+        Layout(LedgerSnapshot snapshot) throws IOException {
+            this.snapshot = snapshot;
+            accountNames = encode(snapshot.accountNames);
+            tagNames = encode(snapshot.tagNames);
+            tagDescriptions = encode(snapshot.tagDescriptions);
+            int transactions = snapshot.transactionIDs.length;
+            int movements = snapshot.movementIDs.length;
+            transactionOrder = sortByID(snapshot.transactionIDs);
+            Map<Integer, Integer> transactionRows = new HashMap<>(transactions * 2);
+            for (int row = 0; row < transactions; row++)
+                transactionRows.put(snapshot.transactionIDs[transactionOrder[row]], row);
+            movementTransactionRows = new int[movements];
+            movementCounts = new int[transactions];
+            for (int i = 0; i < movements; i++) {
+                Integer row = transactionRows.get(snapshot.movementTransactions[i]);
+                if (row == null) throw new IOException(ExportManager.MESSAGE_FAILED_EXPORT);
+                movementTransactionRows[i] = row;
+                movementCounts[row]++;
+            }
+            firstMovementRows = new int[transactions];
+            for (int row = 1; row < transactions; row++)
+                firstMovementRows[row] = firstMovementRows[row - 1] + movementCounts[row - 1];
+            movementOrder = new int[movements];
+            int[] filled = new int[transactions];
+            for (int i = 0; i < movements; i++) {
+                int row = movementTransactionRows[i];
+                movementOrder[firstMovementRows[row] + filled[row]++] = i;
+            }
+            movementIDIndex = new long[movements];
+            for (int row = 0; row < movements; row++)
+                movementIDIndex[row] = (long) snapshot.movementIDs[movementOrder[row]] << 32 | row;
+            Arrays.sort(movementIDIndex);
+            for (int[] tags : snapshot.transactionTags) poolSize += tags.length;
+            for (int[] tags : snapshot.movementTags) poolSize += tags.length;
+            Map<Integer, Integer> accounts = new HashMap<>(snapshot.accountIDs.length * 2);
+            for (int i = 0; i < snapshot.accountIDs.length; i++)
+                accounts.put(snapshot.accountIDs[i], i);
+            accountRowsCounts = new int[snapshot.accountIDs.length];
+            for (int i = 0; i < movements; i++) {
+                Integer account = accounts.get(snapshot.movementAccounts[i]);
+                if (account == null) throw new IOException(ExportManager.MESSAGE_FAILED_EXPORT);
+                accountRowsCounts[account]++;
+            }
+            accountRowsReferences = new int[accountRowsCounts.length];
+            for (int i = 0, reference = poolSize; i < accountRowsCounts.length; reference += accountRowsCounts[i++])
+                accountRowsReferences[i] = reference;
+            accountRows = new int[movements];
+            int[] placed = new int[accountRowsCounts.length];
+            for (int row = 0; row < movements; row++) {
+                int account = accounts.get(snapshot.movementAccounts[movementOrder[row]]);
+                accountRows[accountRowsReferences[account] - poolSize + placed[account]++] = row;
+            }
+        }
+
+        /**
+         * Returns the positions of the given IDs in ascending order of ID.
+         *
+         * @param IDs the IDs to sort.
+         * @return the positions of the IDs, sorted by ID.
+         */
+        private static int[] sortByID(int[] IDs) {
+            long[] keys = new long[IDs.length];
+            for (int i = 0; i < IDs.length; i++)
+                keys[i] = (long) IDs[i] << 32 | i;
+            Arrays.sort(keys);
+            int[] order = new int[IDs.length];
+            for (int i = 0; i < order.length; i++)
+                order[i] = (int) keys[i];
+            return order;
+        }
+
+        /**
+         * Writes the header, the sections and the pool to the given stream.
+         *
+         * @param out the stream to write to.
+         * @throws IOException if something goes wrong, or if the file would be bigger than 2 GB.
+         */
+        void writeTo(DataOutputStream out) throws IOException {
+            long accountsLength = 0;
+            for (byte[] name : accountNames)
+                accountsLength += Integer.BYTES * 4 + 1 + name.length + Long.BYTES;
+            long tagsLength = 0;
+            for (int i = 0; i < tagNames.length; i++)
+                tagsLength += Integer.BYTES * 3 + tagNames[i].length + tagDescriptions[i].length;
+            long tagsOffset = MappedLedgerFile.HEADER_SIZE + accountsLength;
+            long transactionsOffset = tagsOffset + tagsLength;
+            long movementsOffset = transactionsOffset + (long) transactionOrder.length * MappedLedgerFile.TRANSACTION_ROW;
+            long movementIDsOffset = movementsOffset + (long) movementOrder.length * MappedLedgerFile.MOVEMENT_ROW;
+            long poolOffset = movementIDsOffset + (long) movementOrder.length * MappedLedgerFile.MOVEMENT_ID_ROW;
+            int totalPool = poolSize + accountRows.length;
+            if (poolOffset + (long) totalPool * Integer.BYTES > Integer.MAX_VALUE)
+                throw new IOException(ExportManager.MESSAGE_FAILED_EXPORT);
+            out.writeInt(MappedLedgerFile.MAGIC);
+            out.writeShort(MappedLedgerFile.VERSION);
+            out.writeShort(0);
+            out.writeInt(accountNames.length);
+            out.writeInt(tagNames.length);
+            out.writeInt(transactionOrder.length);
+            out.writeInt(movementOrder.length);
+            out.writeInt((int) tagsOffset);
+            out.writeInt((int) transactionsOffset);
+            out.writeInt((int) movementsOffset);
+            out.writeInt((int) movementIDsOffset);
+            out.writeInt((int) poolOffset);
+            out.writeInt(totalPool);
+            for (int i = 0; i < accountNames.length; i++) {
+                out.writeInt(snapshot.accountIDs[i]);
+                out.writeByte(snapshot.accountTypes[i].ordinal());
+                writeString(out, accountNames[i]);
+                out.writeLong(snapshot.accountInitialCents[i]);
+                out.writeInt(accountRowsReferences[i]);
+                out.writeInt(accountRowsCounts[i]);
+            }
+            for (int i = 0; i < tagNames.length; i++) {
+                out.writeInt(snapshot.tagIDs[i]);
+                writeString(out, tagNames[i]);
+                writeString(out, tagDescriptions[i]);
+            }
+            int tagsReference = 0;
+            for (int row = 0; row < transactionOrder.length; row++) {
+                int i = transactionOrder[row];
+                out.writeInt(snapshot.transactionIDs[i]);
+                out.writeInt(snapshot.transactionDays[i]);
+                out.writeInt(firstMovementRows[row]);
+                out.writeInt(movementCounts[row]);
+                out.writeInt(tagsReference);
+                out.writeInt(snapshot.transactionTags[i].length);
+                tagsReference += snapshot.transactionTags[i].length;
+            }
+            for (int i : movementOrder) {
+                out.writeInt(snapshot.movementIDs[i]);
+                out.writeLong(snapshot.movementCents[i]);
+                out.writeInt(snapshot.movementAccounts[i]);
+                out.writeInt(movementTransactionRows[i]);
+                out.writeInt(tagsReference);
+                out.writeInt(snapshot.movementTags[i].length);
+                tagsReference += snapshot.movementTags[i].length;
+            }
+            for (long entry : movementIDIndex) {
+                out.writeInt((int) (entry >>> 32));
+                out.writeInt((int) entry);
+            }
+            for (int i : transactionOrder)
+                for (int ID : snapshot.transactionTags[i]) out.writeInt(ID);
+            for (int i : movementOrder)
+                for (int ID : snapshot.movementTags[i]) out.writeInt(ID);
+            for (int row : accountRows)
+                out.writeInt(row);
+        }
+
+        /**
+         * Writes the length of the given bytes followed by the bytes.
+         *
+         * @param out   the stream to write to.
+         * @param bytes the UTF-8 bytes of a string.
+         * @throws IOException if something goes wrong.
+         */
+        private static void writeString(DataOutputStream out, byte[] bytes) throws IOException {
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        /**
+         * Returns the UTF-8 bytes of each of the given strings.
+         *
+         * @param strings the strings to encode.
+         * @return the encoded strings, in the same order.
+         */
+        private static byte[][] encode(String[] strings) {
+            byte[][] encoded = new byte[strings.length][];
+            for (int i = 0; i < strings.length; i++)
+                encoded[i] = strings[i].getBytes(StandardCharsets.UTF_8);
+            return encoded;
+        }
+    }
+}
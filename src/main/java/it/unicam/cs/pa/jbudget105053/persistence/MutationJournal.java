@@ -0,0 +1,655 @@
+package it.unicam.cs.pa.jbudget105053.persistence;
+
+import it.unicam.cs.pa.jbudget105053.controller.Controller;
+import it.unicam.cs.pa.jbudget105053.model.*;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * This class has the responsibility to record every change made to a ledger through a {@link Controller}
+ * in an append-only file, so that the changes made after the last export can be recovered by loading that
+ * export and replaying the journal.
+ * Each change is a compact binary record made of the length of its content, the content, which starts with
+ * the type of the change, and the CRC32 of the content. Recording a change only copies it into a buffer in
+ * memory: a background thread writes all the buffered records and forces them to the disk together, a short
+ * time after the first of them was recorded, so a burst of changes costs a single force. The method
+ * {@code sync()} waits until all the changes recorded so far are on the disk.
+ * A record that was only partially written, because the application stopped while writing it, is discarded
+ * when the journal is opened.
+ *
+ * @author Tommaso Catervi
+ */
+public class MutationJournal implements Closeable {
+    /**
+     * The string error message for when the journal cannot be written.
+     */
+    public static final String MESSAGE_FAILED_JOURNAL = "Non e' stato possibile salvare le modifiche nel journal.";
+    /**
+     * The string error message for when the journal is used after having been closed.
+     */
+    public static final String MESSAGE_CLOSED_JOURNAL = "Il journal e' stato chiuso.";
+
+    private static final byte ADD_ACCOUNT = 1;
+    private static final byte MODIFY_ACCOUNT = 2;
+    private static final byte REMOVE_ACCOUNTS = 3;
+    private static final byte ADD_TRANSACTIONS = 4;
+    private static final byte REMOVE_TRANSACTION = 5;
+    private static final byte ADD_TAG = 6;
+    private static final byte MODIFY_TAG = 7;
+    private static final byte REMOVE_TAG = 8;
+    private static final byte RESET = 9;
+    private static final int RECORD_OVERHEAD = Integer.BYTES * 2;
+    private static final long DEFAULT_COMMIT_DELAY = 5;
+
+    private final Path file;
+    private FileChannel channel;
+    private final long commitDelay;
+    private final Object lock = new Object();
+    private final Thread committer;
+    private ByteBuffer pending = ByteBuffer.allocate(1 << 12);
+    private long recorded;
+    private long durable;
+    private long appended;
+    private long base;
+    private boolean urgent;
+    private boolean writing;
+    private boolean closed;
+    private IOException failure;
+
+    /**
+     * Opens the journal in the given file, creating it if it does not exist, with the default delay
+     * of 5 milliseconds between the first change of a burst and the force to the disk.
+     *
+     * @param file the file of the journal.
+     * @throws IOException if the file cannot be opened.
+     */
+    public MutationJournal(Path file) throws IOException {
+        this(file, DEFAULT_COMMIT_DELAY);
+    }
+
+    /**
+     * Opens the journal in the given file, creating it if it does not exist. A record that was only
+     * partially written at the end of the file is discarded.
+     *
+     * @param file        the file of the journal.
+     * @param commitDelay the milliseconds waited after a change to force it to the disk together with the
+     *                    changes that follow it.
+     * @throws IOException if the file cannot be opened.
+     */
+    public MutationJournal(Path file, long commitDelay) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.commitDelay = commitDelay;
+        long end = readRecords(new ArrayList<>());
+        channel.truncate(end);
+        channel.position(end);
+        this.appended = end;
+        this.committer = new Thread(this::commitLoop, "journal-committer");
+        this.committer.setDaemon(true);
+        this.committer.start();
+    }
+
+    /**
+     * Records that the given {@link Account} was added.
+     *
+     * @param a the added {@link Account}.
+     */
+    public void recordAddAccount(Account a) {
+        recordAccount(ADD_ACCOUNT, a);
+    }
+
+    /**
+     * Records that the given {@link Account} was modified, with its new values.
+     *
+     * @param a the modified {@link Account}.
+     */
+    public void recordModifyAccount(Account a) {
+        recordAccount(MODIFY_ACCOUNT, a);
+    }
+
+    /**
+     * Records a change of the given type with all the fields of the given {@link Account}.
+     *
+     * @param type the type of the change.
+     * @param a    the {@link Account}.
+     */
+    private void recordAccount(byte type, Account a) {
+        byte[] name = a.getName().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer record = newRecord(type, Integer.BYTES * 2 + 1 + name.length + Long.BYTES);
+        record.putInt(a.getID()).put((byte) a.getAccountType().ordinal());
+        putString(record, name);
+        record.putLong(Money.toCents(a.getInitialBalance()));
+        append(record);
+    }
+
+    /**
+     * Records that the given accounts were removed.
+     *
+     * @param accounts the removed accounts.
+     */
+    public void recordRemoveAccounts(Collection<? extends Account> accounts) {
+        ByteBuffer record = newRecord(REMOVE_ACCOUNTS, Integer.BYTES * (1 + accounts.size()));
+        record.putInt(accounts.size());
+        accounts.forEach(a -> record.putInt(a.getID()));
+        append(record);
+    }
+
+    /**
+     * Records that the given transactions were added, together with all their movements and tags.
+     *
+     * @param transactions the added transactions.
+     */
+    public void recordAddTransactions(Collection<? extends Transaction> transactions) {
+        int length = Integer.BYTES;
+        for (Transaction t : transactions) {
+            length += Integer.BYTES * (4 + t.getTag().size());
+            for (Movement m : t.getMovements())
+                length += Integer.BYTES * (3 + m.getTag().size()) + Long.BYTES;
+        }
+        ByteBuffer record = newRecord(ADD_TRANSACTIONS, length);
+        record.putInt(transactions.size());
+        for (Transaction t : transactions) {
+            record.putInt(t.getID()).putInt(t.getEpochDay());
+            putTagIDs(record, t.getTag());
+            record.putInt(t.getMovements().size());
+            for (Movement m : t.getMovements()) {
+                record.putInt(m.getID()).putLong(m.getSignedCents()).putInt(m.getAccount().getID());
+                putTagIDs(record, m.getTag());
+            }
+        }
+        append(record);
+    }
+
+    /**
+     * Records that the given {@link Transaction} was removed.
+     *
+     * @param t the removed {@link Transaction}.
+     */
+    public void recordRemoveTransaction(Transaction t) {
+        append(newRecord(REMOVE_TRANSACTION, Integer.BYTES).putInt(t.getID()));
+    }
+
+    /**
+     * Records that the given {@link Tag} was added.
+     *
+     * @param t the added {@link Tag}.
+     */
+    public void recordAddTag(Tag t) {
+        recordTag(ADD_TAG, t);
+    }
+
+    /**
+     * Records that the given {@link Tag} was modified, with its new values.
+     *
+     * @param t the modified {@link Tag}.
+     */
+    public void recordModifyTag(Tag t) {
+        recordTag(MODIFY_TAG, t);
+    }
+
+    /**
+     * Records a change of the given type with all the fields of the given {@link Tag}.
+     *
+     * @param type the type of the change.
+     * @param t    the {@link Tag}.
+     */
+    private void recordTag(byte type, Tag t) {
+        byte[] name = t.getName().getBytes(StandardCharsets.UTF_8);
+        byte[] description = t.getDescription().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer record = newRecord(type, Integer.BYTES * 3 + name.length + description.length);
+        record.putInt(t.getID());
+        putString(record, name);
+        putString(record, description);
+        append(record);
+    }
+
+    /**
+     * Records that the given {@link Tag} was removed.
+     *
+     * @param t the removed {@link Tag}.
+     */
+    public void recordRemoveTag(Tag t) {
+        append(newRecord(REMOVE_TAG, Integer.BYTES).putInt(t.getID()));
+    }
+
+    /**
+     * Records that the ledger was reset.
+     */
+    public void recordReset() {
+        append(newRecord(RESET, 0));
+    }
+
+    /**
+     * Returns a buffer for a record of the given type whose other content has the given length.
+     *
+     * @param type   the type of the change.
+     * @param length the length of the content after the type.
+     * @return the buffer, positioned after the type.
+     */
+    private ByteBuffer newRecord(byte type, int length) {
+        return ByteBuffer.allocate(1 + length).put(type);
+    }
+
+    /**
+     * Writes the length of the given bytes followed by the bytes.
+     *
+     * @param record the record to write to.
+     * @param bytes  the UTF-8 bytes of a string.
+     */
+    private void putString(ByteBuffer record, byte[] bytes) {
+        record.putInt(bytes.length).put(bytes);
+    }
+
+    /**
+     * Writes the number of the given tags followed by their IDs.
+     *
+     * @param record the record to write to.
+     * @param tags   the tags whose IDs are written.
+     */
+    private void putTagIDs(ByteBuffer record, List<Tag> tags) {
+        record.putInt(tags.size());
+        tags.forEach(t -> record.putInt(t.getID()));
+    }
+
+    /**
+     * Frames the given record with its length and CRC32 and copies it into the {@code pending} buffer,
+     * waking the committer.
+     *
+     * @param content the content of the record.
+     */
+    private void append(ByteBuffer content) {
+        content.flip();
+        CRC32 crc = new CRC32();
+        crc.update(content.duplicate());
+        synchronized (lock) {
+            if (closed)
+                throw new IllegalStateException(MESSAGE_CLOSED_JOURNAL);
+            int needed = RECORD_OVERHEAD + content.remaining();
+            if (pending.remaining() < needed) {
+                ByteBuffer grown = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + needed));
+                pending.flip();
+                pending = grown.put(pending);
+            }
+            pending.putInt(content.remaining()).put(content).putInt((int) crc.getValue());
+            appended += needed;
+            recorded++;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * The loop of the committer: waits for some records, waits {@code commitDelay} milliseconds more so that
+     * the records that follow them are committed together, then writes and forces all of them at once.
+     */
+    private void commitLoop() {
+        while (true) {
+            ByteBuffer batch;
+            long upTo;
+            synchronized (lock) {
+                try {
+                    while (!closed && pending.position() == 0) lock.wait();
+                    if (!closed && !urgent) lock.wait(commitDelay);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (pending.position() == 0) return;
+                batch = pending.flip();
+                pending = ByteBuffer.allocate(batch.capacity());
+                upTo = recorded;
+                urgent = false;
+                writing = true;
+            }
+            IOException error = null;
+            try {
+                while (batch.hasRemaining()) channel.write(batch);
+                channel.force(false);
+            } catch (IOException e) {
+                error = e;
+            }
+            synchronized (lock) {
+                if (Objects.isNull(error)) durable = upTo;
+                else failure = error;
+                writing = false;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Waits until all the changes recorded so far have been forced to the disk.
+     *
+     * @throws IOException if the journal could not be written.
+     */
+    public void sync() throws IOException {
+        synchronized (lock) {
+            awaitDurable(recorded);
+        }
+    }
+
+    /**
+     * Waits, holding the {@code lock}, until the given number of records have been forced to the disk.
+     *
+     * @param target the number of records to wait for.
+     * @throws IOException if the journal could not be written.
+     */
+    private void awaitDurable(long target) throws IOException {
+        urgent = true;
+        lock.notifyAll();
+        while (durable < target && Objects.isNull(failure)) {
+            if (!committer.isAlive())
+                throw new IOException(MESSAGE_CLOSED_JOURNAL);
+            try {
+                lock.wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(MESSAGE_FAILED_JOURNAL, e);
+            }
+        }
+        if (Objects.nonNull(failure))
+            throw new IOException(MESSAGE_FAILED_JOURNAL, failure);
+    }
+
+    /**
+     * Returns true if all the changes recorded so far have been forced to the disk.
+     *
+     * @return true if there are no changes waiting to be forced to the disk, false otherwise.
+     */
+    public boolean isDurable() {
+        synchronized (lock) {
+            return durable == recorded;
+        }
+    }
+
+    /**
+     * Returns the position in the journal after all the changes recorded so far, which can be passed to
+     * {@link #checkpoint(long)} once the ledger with those changes has been saved elsewhere.
+     *
+     * @return the position after the last change recorded.
+     */
+    public long mark() {
+        synchronized (lock) {
+            return appended;
+        }
+    }
+
+    /**
+     * Removes from the journal all the changes recorded before this call, after they have been saved
+     * elsewhere, typically in an export of the whole ledger.
+     *
+     * @throws IOException if the journal could not be written.
+     */
+    public void checkpoint() throws IOException {
+        checkpoint(mark());
+    }
+
+    /**
+     * Removes from the journal all the changes recorded before the given position, returned by {@link #mark()}.
+     * The changes recorded after it are kept: they are copied into a new file which then replaces the journal,
+     * so a crash never leaves a journal with only some of them. Nothing happens if the changes before the
+     * position were already removed.
+     *
+     * @param mark the position before which the changes are removed.
+     * @throws IOException if the journal could not be written.
+     */
+    public void checkpoint(long mark) throws IOException {
+        synchronized (lock) {
+            if (mark <= base) return;
+            awaitDurable(recorded);
+            awaitWrite();
+            long offset = mark - base;
+            long end = channel.size();
+            if (offset == end) {
+                channel.truncate(0);
+                channel.position(0);
+                channel.force(false);
+            } else
+                rollTail(offset, end);
+            base = mark;
+        }
+    }
+
+    /**
+     * Replaces the journal, holding the {@code lock}, with a new file containing only its records
+     * between the given positions.
+     *
+     * @param offset the position of the first record kept.
+     * @param end    the end of the file.
+     * @throws IOException if the journal could not be written.
+     */
+    private void rollTail(long offset, long end) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (long position = offset; position < end; )
+                position += channel.transferTo(position, end - position, out);
+            out.force(false);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel.close();
+        channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        channel.position(end - offset);
+    }
+
+    /**
+     * Applies all the changes of the journal, in the order they were recorded, to the ledger of the given
+     * {@link Controller}. The {@link Controller} must not record the changes in this journal while they
+     * are replayed.
+     *
+     * @param controller the {@link Controller} of the ledger to which the changes are applied.
+     * @return the number of changes replayed.
+     * @throws IOException if the journal cannot be read.
+     */
+    public int replay(Controller controller) throws IOException {
+        sync();
+        List<ByteBuffer> records = new ArrayList<>();
+        synchronized (lock) {
+            awaitWrite();
+            readRecords(records);
+        }
+        for (ByteBuffer record : records)
+            apply(controller, record);
+        return records.size();
+    }
+
+    /**
+     * Returns the number of complete records of the journal, after all the changes recorded
+     * so far have been forced to the disk.
+     *
+     * @return the number of records of the journal.
+     * @throws IOException if the journal cannot be read.
+     */
+    int countRecords() throws IOException {
+        sync();
+        List<ByteBuffer> records = new ArrayList<>();
+        synchronized (lock) {
+            awaitWrite();
+            readRecords(records);
+        }
+        return records.size();
+    }
+
+    /**
+     * Waits, holding the {@code lock}, until the committer is not writing to the file.
+     *
+     * @throws IOException if the thread is interrupted while waiting.
+     */
+    private void awaitWrite() throws IOException {
+        while (writing) {
+            try {
+                lock.wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(MESSAGE_FAILED_JOURNAL, e);
+            }
+        }
+    }
+
+    /**
+     * Reads all the complete records of the file from the start, stopping at the first one that was
+     * only partially written or whose CRC32 does not match.
+     *
+     * @param records the list to which the contents of the complete records are added, in order.
+     * @return the position after the last complete record.
+     * @throws IOException if the file cannot be read.
+     */
+    private long readRecords(List<ByteBuffer> records) throws IOException {
+        long size = channel.size();
+        long position = 0;
+        ByteBuffer header = ByteBuffer.allocate(Integer.BYTES);
+        while (position + RECORD_OVERHEAD <= size) {
+            header.clear();
+            channel.read(header, position);
+            int length = header.flip().getInt();
+            if (length < 1 || position + RECORD_OVERHEAD + length > size) break;
+            ByteBuffer record = ByteBuffer.allocate(length + Integer.BYTES);
+            while (record.hasRemaining() && channel.read(record, position + Integer.BYTES + record.position()) >= 0) ;
+            record.flip();
+            ByteBuffer content = record.duplicate().limit(length);
+            CRC32 crc = new CRC32();
+            crc.update(content.duplicate());
+            if ((int) crc.getValue() != record.getInt(length)) break;
+            records.add(content);
+            position += RECORD_OVERHEAD + length;
+        }
+        return position;
+    }
+
+    /**
+     * Applies the change of the given record to the ledger of the given {@link Controller}.
+     *
+     * @param controller the {@link Controller} of the ledger.
+     * @param record     the content of the record.
+     * @throws IOException if the record is not valid.
+     */
+    private void apply(Controller controller, ByteBuffer record) throws IOException {
+        try {
+            switch (record.get()) {
+                case ADD_ACCOUNT:
+                    controller.addAccountWithID(record.getInt(), AccountType.values()[record.get()],
+                            getString(record), Money.toAmount(record.getLong()));
+                    break;
+                case MODIFY_ACCOUNT:
+                    controller.modifyAccount(controller.getAccountByID(record.getInt()), AccountType.values()[record.get()],
+                            getString(record), Money.toAmount(record.getLong()));
+                    break;
+                case REMOVE_ACCOUNTS:
+                    List<Account> accounts = new ArrayList<>();
+                    for (int i = record.getInt(); i > 0; i--)
+                        accounts.add(controller.getAccountByID(record.getInt()));
+                    controller.removeAccounts(accounts);
+                    break;
+                case ADD_TRANSACTIONS:
+                    controller.addTransactions(getTransactions(controller, record));
+                    break;
+                case REMOVE_TRANSACTION:
+                    controller.removeTransaction(controller.getTransactionByID(record.getInt()));
+                    break;
+                case ADD_TAG:
+                    controller.addTagWithID(record.getInt(), getString(record), getString(record));
+                    break;
+                case MODIFY_TAG:
+                    controller.modifyTag(controller.getTagByID(record.getInt()), getString(record), getString(record));
+                    break;
+                case REMOVE_TAG:
+                    controller.removeTag(controller.getTagByID(record.getInt()));
+                    break;
+                case RESET:
+                    controller.resetLedger();
+                    break;
+                default:
+                    throw new IOException(MESSAGE_FAILED_JOURNAL);
+            }
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException(MESSAGE_FAILED_JOURNAL, e);
+        }
+    }
+
+    /**
+     * Creates the transactions of a record, with their movements and tags.
+     *
+     * @param controller the {@link Controller} used to create the transactions and to find accounts and tags.
+     * @param record     the content of the record, positioned at the number of transactions.
+     * @return the created transactions.
+     */
+    private List<Transaction> getTransactions(Controller controller, ByteBuffer record) {
+        int count = record.getInt();
+        List<Transaction> transactions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Transaction t = controller.createTransactionWithID(record.getInt(), EpochDays.toDate(record.getInt()));
+            getTags(controller, record).forEach(t::addTag);
+            for (int j = record.getInt(); j > 0; j--) {
+                int ID = record.getInt();
+                long cents = record.getLong();
+                Movement m = controller.createMovementWithID(ID, cents < 0 ? MovementType.DECREMENT : MovementType.INCREMENT,
+                        Money.toAmount(Math.abs(cents)), controller.getAccountByID(record.getInt()));
+                getTags(controller, record).forEach(m::addTag);
+                t.addMovement(m);
+            }
+            transactions.add(t);
+        }
+        return transactions;
+    }
+
+    /**
+     * Reads a list of tag IDs and returns the tags with those IDs that exist.
+     *
+     * @param controller the {@link Controller} used to find the tags.
+     * @param record     the content of the record, positioned at the number of tags.
+     * @return the tags read.
+     */
+    private List<Tag> getTags(Controller controller, ByteBuffer record) {
+        int count = record.getInt();
+        List<Tag> tags = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Tag tag = controller.getTagByID(record.getInt());
+            if (Objects.nonNull(tag)) tags.add(tag);
+        }
+        return tags;
+    }
+
+    /**
+     * Reads a string written as its length in bytes followed by its UTF-8 bytes.
+     *
+     * @param record the content of the record.
+     * @return the string read.
+     */
+    private String getString(ByteBuffer record) {
+        byte[] bytes = new byte[record.getInt()];
+        record.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Forces all the recorded changes to the disk, stops the committer and closes the file.
+     *
+     * @throws IOException if the journal could not be written.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            sync();
+        } finally {
+            synchronized (lock) {
+                closed = true;
+                lock.notifyAll();
+            }
+            try {
+                committer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            channel.close();
+        }
+    }
+}
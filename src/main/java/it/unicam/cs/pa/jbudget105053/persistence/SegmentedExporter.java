@@ -0,0 +1,389 @@
+package it.unicam.cs.pa.jbudget105053.persistence;
+
+import it.unicam.cs.pa.jbudget105053.controller.Controller;
+import it.unicam.cs.pa.jbudget105053.model.Transaction;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * This class implements the interface {@link DeferredExporter} and has the responsibility to export the data
+ * of the ledger in .txt files in a given path, divided into parts: the accounts, the tags and, for each
+ * month, the segment with the transactions of the month and their movements.
+ * The lines of the files are the same written by a {@link TextFileExporter}.
+ * The exporter keeps a {@link DirtyTracker} which the controller informs of every change, so that saving
+ * again in the same path rewrites only the parts that changed.
+ * Every save writes the changed parts in new files, named after a generation greater than all the ones in the
+ * directory, and then atomically replaces the manifest, which lists the generation of each part: the manifest
+ * is the commit point of the save, so a save interrupted before it leaves the previous data untouched.
+ * A save can be prepared in steps on the thread that changes the ledger, which only build the lines of the
+ * changed parts, and completed on another thread, which writes the files.
+ *
+ * @author Tommaso Catervi
+ */
+public class SegmentedExporter implements DeferredExporter {
+    /**
+     * The string error message for when a line of the manifest is not valid, followed by the line.
+     */
+    public static final String MESSAGE_WRONG_MANIFEST = "Il manifest contiene una riga non valida: ";
+    static final String MANIFEST = "manifest.txt";
+    static final String ACCOUNTS = "accounts";
+    static final String TAGS = "tags";
+    private final Controller controller;
+    private final DirtyTracker tracker = new DirtyTracker();
+
+    /**
+     * Constructs a new {@link SegmentedExporter} with the given controller, and sets its
+     * {@link DirtyTracker} as the one of the controller.
+     *
+     * @param controller the value used to set the {@code controller} field of the {@link SegmentedExporter}.
+     */
+    public SegmentedExporter(Controller controller) {
+        this.controller = controller;
+        controller.setDirtyTracker(tracker);
+    }
+
+    /**
+     * Getter method for the {@code tracker} field of the {@link SegmentedExporter}.
+     *
+     * @return the {@link DirtyTracker} of the exporter.
+     */
+    public DirtyTracker getTracker() {
+        return tracker;
+    }
+
+    /**
+     * Writes in the given path all the parts that changed since the data was last saved there, then replaces
+     * the manifest and finally deletes the files of the parts replaced and of the months left without
+     * transactions. If the data was not last saved in the same path, all the parts are written.
+     * If something goes wrong before the manifest is replaced, the files written are deleted and the changes
+     * are kept to be written by the next save.
+     *
+     * @throws IOException if something goes wrong.
+     */
+    @Override
+    public void exportAll(String path) throws IOException {
+        ExportPreparation preparation = prepareExport(path);
+        preparation.step(Integer.MAX_VALUE);
+        preparation.getTask().run();
+    }
+
+    /**
+     * Starts the preparation of the export in the given path, which takes the changes to write and builds
+     * in steps the lines of the changed parts. The returned {@link ExportPreparation} gives the
+     * {@link ExportTask} that writes the files and the manifest as in {@link #exportAll(String)}, so only
+     * the lines of the changed parts are built on the thread that changes the ledger.
+     *
+     * @param path the path where the data will be saved.
+     * @return the {@link ExportPreparation} of the export.
+     */
+    @Override
+    public ExportPreparation prepareExport(String path) {
+        return new Preparation(Objects.requireNonNull(path));
+    }
+
+    /**
+     * Writes the given lines of the parts that changed, then replaces the manifest and deletes the files
+     * of the parts replaced, as described in {@link #exportAll(String)}.
+     *
+     * @param path     the path where the data is saved.
+     * @param changes  the changes written.
+     * @param accounts the lines of the accounts, or null if they did not change.
+     * @param tags     the lines of the tags, or null if they did not change.
+     * @param segments the lines of the transactions and of the movements of each segment to write.
+     * @throws IOException if something goes wrong.
+     */
+    private void write(String path, DirtyTracker.Changes changes, List<String> accounts, List<String> tags,
+                       SortedMap<Integer, Segment> segments) throws IOException {
+        File directory = new File(path);
+        SortedMap<String, Integer> previous;
+        SortedMap<String, Integer> manifest;
+        List<File> written = new ArrayList<>();
+        try {
+            previous = readManifest(directory);
+            manifest = new TreeMap<>(previous);
+            int generation = previous.values().stream().max(Integer::compare).orElse(0) + 1;
+            if (Objects.nonNull(accounts)) {
+                write(getAccountsFile(directory, generation), accounts, written);
+                manifest.put(ACCOUNTS, generation);
+            }
+            if (Objects.nonNull(tags)) {
+                write(getTagsFile(directory, generation), tags, written);
+                manifest.put(TAGS, generation);
+            }
+            if (changes.allSegments()) manifest.keySet().retainAll(Set.of(ACCOUNTS, TAGS));
+            else changes.getSegments().forEach(s -> manifest.remove(DirtyTracker.getSegmentName(s)));
+            for (Map.Entry<Integer, Segment> segment : segments.entrySet()) {
+                String name = DirtyTracker.getSegmentName(segment.getKey());
+                write(getTransactionsFile(directory, name, generation), segment.getValue().transactions, written);
+                write(getMovementsFile(directory, name, generation), segment.getValue().movements, written);
+                manifest.put(name, generation);
+            }
+            writeManifest(directory, manifest);
+        } catch (IOException | RuntimeException e) {
+            for (File f : written) f.delete();
+            tracker.restore(changes);
+            throw e;
+        }
+        tracker.saved(path);
+        for (Map.Entry<String, Integer> part : previous.entrySet())
+            if (!part.getValue().equals(manifest.get(part.getKey())))
+                for (File f : getFiles(directory, part.getKey(), part.getValue()))
+                    Files.deleteIfExists(f.toPath());
+    }
+
+    /**
+     * Writes the given lines to the given file. The file is new, so it is not listed in the manifest
+     * until the manifest is replaced.
+     *
+     * @param file    the file to write.
+     * @param lines   the lines to write.
+     * @param written the list to which the file is added.
+     * @throws IOException if something goes wrong.
+     */
+    private void write(File file, List<String> lines, List<File> written) throws IOException {
+        written.add(file);
+        TextFileExporter.writeToFile(lines, file);
+    }
+
+    /**
+     * Returns the lines of the given elements.
+     *
+     * @param elements the elements.
+     * @param toLine   the function returning the line of an element.
+     * @param <T>      the type of the elements.
+     * @return the lines of the elements, in the same order.
+     */
+    private static <T> List<String> toLines(Collection<T> elements, Function<T, String> toLine) {
+        List<String> lines = new ArrayList<>(elements.size());
+        elements.forEach(e -> lines.add(toLine.apply(e)));
+        return lines;
+    }
+
+    /**
+     * The lines of the transactions of a month and of their movements.
+     */
+    private static final class Segment {
+        private final List<String> transactions = new ArrayList<>();
+        private final List<String> movements = new ArrayList<>();
+    }
+
+    /**
+     * This class has the responsibility to build, in steps, the lines of the parts of the ledger that
+     * changed since the data was last saved in a path. If only some segments changed, the transactions of
+     * each of them are looked up by the range of dates of its month, so the cost does not depend on the
+     * transactions of the months that did not change. If the ledger changes between two steps, the changes
+     * made are taken together with the ones already taken and the lines are built again.
+     */
+    private final class Preparation implements ExportPreparation {
+        private final String path;
+        private DirtyTracker.Changes changes;
+        private long version;
+        private List<String> accounts;
+        private List<String> tags;
+        private List<List<Transaction>> transactions;
+        private SortedMap<Integer, Segment> segments;
+        private int source;
+        private int position;
+
+        /**
+         * Constructs a {@link Preparation} of the export in the given path and takes the changes to write.
+         *
+         * @param path the path where the data will be saved.
+         */
+        private Preparation(String path) {
+            this.path = path;
+            start(tracker.take(path));
+        }
+
+        /**
+         * Starts building the lines of the given changes, with the current version of the ledger.
+         * The lines of the accounts and of the tags, which are few, are built at once.
+         *
+         * @param changes the changes to write.
+         */
+        private void start(DirtyTracker.Changes changes) {
+            this.changes = changes;
+            version = controller.getVersion();
+            accounts = changes.accounts ? toLines(controller.getAccounts(), TextFileExporter::toLine) : null;
+            tags = changes.tags ? toLines(controller.getTags(), TextFileExporter::toLine) : null;
+            transactions = new ArrayList<>();
+            if (changes.allSegments()) transactions.add(controller.getTransactions());
+            else {
+                for (int segment : new TreeSet<>(changes.getSegments()))
+                    transactions.add(controller.getTransactions(DirtyTracker.getFirstDay(segment),
+                            DirtyTracker.getFirstDay(segment + 1).minusDays(1)));
+            }
+            segments = new TreeMap<>();
+            source = 0;
+            position = 0;
+        }
+
+        @Override
+        public boolean step(int count) {
+            try {
+                if (controller.getVersion() != version) start(tracker.retake(changes));
+                while (count > 0 && source < transactions.size()) {
+                    List<Transaction> list = transactions.get(source);
+                    if (position == list.size()) {
+                        source++;
+                        position = 0;
+                        continue;
+                    }
+                    Transaction t = list.get(position++);
+                    Segment segment = segments.computeIfAbsent(DirtyTracker.getSegment(t.getEpochDay()), s -> new Segment());
+                    segment.transactions.add(TextFileExporter.toLine(t));
+                    t.getMovements().forEach(m -> segment.movements.add(TextFileExporter.toLine(m)));
+                    count -= 1 + t.getMovements().size();
+                }
+            } catch (RuntimeException e) {
+                tracker.restore(changes);
+                throw e;
+            }
+            return source == transactions.size();
+        }
+
+        @Override
+        public ExportTask getTask() {
+            if (source < transactions.size())
+                throw new IllegalStateException(MESSAGE_NOT_PREPARED);
+            DirtyTracker.Changes changes = this.changes;
+            List<String> accounts = this.accounts;
+            List<String> tags = this.tags;
+            SortedMap<Integer, Segment> segments = this.segments;
+            long version = this.version;
+            return () -> {
+                write(path, changes, accounts, tags, segments);
+                return version;
+            };
+        }
+    }
+
+    /**
+     * Writes the given manifest to a temporary file, which then atomically replaces the manifest of the
+     * given directory. This is the commit point of a save.
+     *
+     * @param directory the directory where the data is saved.
+     * @param manifest  the generation of each part.
+     * @throws IOException if something goes wrong.
+     */
+    private void writeManifest(File directory, SortedMap<String, Integer> manifest) throws IOException {
+        File file = new File(directory, MANIFEST);
+        File temporary = new File(file.getPath() + ".tmp");
+        List<String> lines = new ArrayList<>(manifest.size());
+        manifest.forEach((part, generation) -> lines.add(part + ";" + generation));
+        TextFileExporter.writeToFile(lines, temporary);
+        Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads the generation of each part listed in the manifest of the given directory. A line without a
+     * generation lists a segment saved in the files without it, whose generation is 0.
+     *
+     * @param directory the directory where the data is saved.
+     * @return the generation of each part, or an empty map if there is no manifest.
+     * @throws IOException if something goes wrong.
+     */
+    static SortedMap<String, Integer> readManifest(File directory) throws IOException {
+        File manifest = new File(directory, MANIFEST);
+        SortedMap<String, Integer> parts = new TreeMap<>();
+        if (!manifest.exists()) return parts;
+        for (String line : Files.readAllLines(manifest.toPath(), StandardCharsets.UTF_8)) {
+            if (line.isBlank()) continue;
+            String[] fields = line.trim().split(";");
+            try {
+                parts.put(fields[0], fields.length > 1 ? Integer.parseInt(fields[1]) : 0);
+            } catch (NumberFormatException e) {
+                throw new IOException(MESSAGE_WRONG_MANIFEST + line, e);
+            }
+        }
+        return parts;
+    }
+
+    /**
+     * Returns the segments of the months listed in the given manifest.
+     *
+     * @param manifest the generation of each part.
+     * @return the generation of each segment.
+     */
+    static SortedMap<String, Integer> getSegments(SortedMap<String, Integer> manifest) {
+        SortedMap<String, Integer> segments = new TreeMap<>(manifest);
+        segments.keySet().removeAll(Set.of(ACCOUNTS, TAGS));
+        return segments;
+    }
+
+    /**
+     * Returns the files of the given part.
+     *
+     * @param directory  the directory where the data is saved.
+     * @param part       the name of the part.
+     * @param generation the generation of the files.
+     * @return the files of the part.
+     */
+    private static List<File> getFiles(File directory, String part, int generation) {
+        if (part.equals(ACCOUNTS)) return List.of(getAccountsFile(directory, generation));
+        if (part.equals(TAGS)) return List.of(getTagsFile(directory, generation));
+        return List.of(getTransactionsFile(directory, part, generation), getMovementsFile(directory, part, generation));
+    }
+
+    /**
+     * Returns the name of a file of the given generation.
+     *
+     * @param prefix     the prefix of the name.
+     * @param generation the generation of the file, 0 if the name has no generation.
+     * @return the name of the file.
+     */
+    private static String getFileName(String prefix, int generation) {
+        return generation == 0 ? prefix + ".txt" : prefix + "-" + generation + ".txt";
+    }
+
+    /**
+     * Returns the file of the accounts of the given generation.
+     *
+     * @param directory  the directory where the data is saved.
+     * @param generation the generation of the file.
+     * @return the file of the accounts.
+     */
+    static File getAccountsFile(File directory, int generation) {
+        return new File(directory, getFileName(ACCOUNTS, generation));
+    }
+
+    /**
+     * Returns the file of the tags of the given generation.
+     *
+     * @param directory  the directory where the data is saved.
+     * @param generation the generation of the file.
+     * @return the file of the tags.
+     */
+    static File getTagsFile(File directory, int generation) {
+        return new File(directory, getFileName(TAGS, generation));
+    }
+
+    /**
+     * Returns the file of the transactions of the given segment.
+     *
+     * @param directory  the directory where the data is saved.
+     * @param segment    the name of the segment.
+     * @param generation the generation of the file.
+     * @return the file of the transactions of the segment.
+     */
+    static File getTransactionsFile(File directory, String segment, int generation) {
+        return new File(directory, getFileName("transactions-" + segment, generation));
+    }
+
+    /**
+     * Returns the file of the movements of the given segment.
+     *
+     * @param directory  the directory where the data is saved.
+     * @param segment    the name of the segment.
+     * @param generation the generation of the file.
+     * @return the file of the movements of the segment.
+     */
+    static File getMovementsFile(File directory, String segment, int generation) {
+        return new File(directory, getFileName("movements-" + segment, generation));
+    }
+}
@@ -0,0 +1,54 @@
+package it.unicam.cs.pa.jbudget105053.persistence;
+
+import it.unicam.cs.pa.jbudget105053.controller.Controller;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * This class implements the interface {@link ImportManager} and has the responsibility to import the data
+ * saved by a {@link SegmentedExporter} in a given path into a ledger. The accounts and the tags are imported
+ * first, then the segments of all the months listed in the manifest are parsed by a {@link TextFileImporter}.
+ *
+ * @author Tommaso Catervi
+ */
+public class SegmentedImporter implements ImportManager {
+    private final TextFileImporter importer;
+
+    /**
+     * Constructs a new {@link SegmentedImporter} with the given controller.
+     *
+     * @param controller the controller of the ledger into which the data is imported.
+     */
+    public SegmentedImporter(Controller controller) {
+        this.importer = new TextFileImporter(controller);
+    }
+
+    /**
+     * Imports all accounts and tags, then the transactions and the movements of all the segments
+     * listed in the manifest of the given path, reading the files of the generation listed for each part.
+     *
+     * @throws IOException    if something goes wrong.
+     * @throws ParseException if something goes wrong.
+     */
+    @Override
+    public void importAll(String path) throws IOException, ParseException {
+        File directory = new File(path);
+        SortedMap<String, Integer> manifest = SegmentedExporter.readManifest(directory);
+        importer.importAccounts(SegmentedExporter.getAccountsFile(directory,
+                manifest.getOrDefault(SegmentedExporter.ACCOUNTS, 0)));
+        importer.importTags(SegmentedExporter.getTagsFile(directory, manifest.getOrDefault(SegmentedExporter.TAGS, 0)));
+        List<File> transactions = new ArrayList<>();
+        List<File> movements = new ArrayList<>();
+        for (Map.Entry<String, Integer> segment : SegmentedExporter.getSegments(manifest).entrySet()) {
+            transactions.add(SegmentedExporter.getTransactionsFile(directory, segment.getKey(), segment.getValue()));
+            movements.add(SegmentedExporter.getMovementsFile(directory, segment.getKey(), segment.getValue()));
+        }
+        importer.importTransactions(transactions, movements);
+    }
+}
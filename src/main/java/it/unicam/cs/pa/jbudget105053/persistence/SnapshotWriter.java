@@ -0,0 +1,21 @@
+package it.unicam.cs.pa.jbudget105053.persistence;
+
+import java.io.IOException;
+
+/**
+ * This interface is implemented by all the classes that have the responsibility to
+ * write a {@link LedgerSnapshot} into specific files of a certain extension.
+ *
+ * @author Tommaso Catervi
+ */
+public interface SnapshotWriter {
+    /**
+     * Writes all data of the given snapshot in specific files in a given path.
+     * The snapshot is immutable, so it can be written by any thread.
+     *
+     * @param snapshot the snapshot to write.
+     * @param path     the path where the data will be saved.
+     * @throws IOException if something goes wrong.
+     */
+    void write(LedgerSnapshot snapshot, String path) throws IOException;
+}
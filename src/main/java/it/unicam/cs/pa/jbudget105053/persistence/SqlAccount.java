@@ -0,0 +1,127 @@
+package it.unicam.cs.pa.jbudget105053.persistence;
+
+import it.unicam.cs.pa.jbudget105053.model.*;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * This class extends {@link BasicAccount} and has the responsibility to represent an {@link Account} of a
+ * {@link SqlLedger}, whose movements are stored in the rows of the database.
+ * The movements are not added to the {@link Account}: its balances and variations are sums computed by the
+ * database on the indexed rows of its movements, and the list of its movements creates them only when
+ * they are requested.
+ *
+ * @author Tommaso Catervi
+ */
+final class SqlAccount extends BasicAccount {
+    private final SqlLedger ledger;
+
+    /**
+     * Constructs a new {@link SqlAccount} with the given parameters.
+     *
+     * @param ID             the value used to set the {@code ID} field in the {@link Account}.
+     * @param accountType    the value used to set the {@code accountType} field in the {@link Account}.
+     * @param name           the value used to set the {@code name} field in the {@link Account}.
+     * @param initialBalance the value used to set the {@code initialBalance} field in the {@link Account}.
+     * @param ledger         the {@link SqlLedger} whose database stores the movements of the {@link Account}.
+     */
+    SqlAccount(int ID, AccountType accountType, String name, double initialBalance, SqlLedger ledger) {
+        super(ID, accountType, name, initialBalance);
+        this.ledger = ledger;
+    }
+
+    /**
+     * Returns the given variation in the sign of the balance of this {@link Account}.
+     *
+     * @param cents the variation in cents.
+     * @return the variation to add to the balance.
+     */
+    private long signed(long cents) {
+        return getAccountType() == AccountType.LIABILITY ? -cents : cents;
+    }
+
+    /**
+     * Returns the current balance, computed on the movements stored in the database up to today.
+     *
+     * @return the current balance of the {@link Account}.
+     */
+    @Override
+    public double getBalance() {
+        long variation = ledger.sumCents(getID(), Integer.MIN_VALUE, EpochDays.today());
+        return Money.toAmount(Money.toCents(super.getBalance()) + signed(variation));
+    }
+
+    /**
+     * Returns the balance at the end of the given day, computed on the movements stored in the database.
+     *
+     * @param date the day of the balance.
+     * @return the balance of the {@link Account} at the given day.
+     */
+    @Override
+    public double getBalanceAt(LocalDate date) {
+        double balance = super.getBalanceAt(date);
+        long variation = ledger.sumCents(getID(), Integer.MIN_VALUE, Math.toIntExact(date.toEpochDay()));
+        return Money.toAmount(Money.toCents(balance) + signed(variation));
+    }
+
+    /**
+     * Returns the variation between the given days, included, computed on the movements stored in the database.
+     *
+     * @param from the first day of the period.
+     * @param to   the last day of the period.
+     * @return the variation of the {@link Account} in the period.
+     */
+    @Override
+    public double getVariation(LocalDate from, LocalDate to) {
+        super.getVariation(from, to);
+        return Money.toAmount(ledger.sumCents(getID(), Math.toIntExact(from.toEpochDay()), Math.toIntExact(to.toEpochDay())));
+    }
+
+    /**
+     * Returns an unmodifiable list of the movements stored in the database, in ascending order of ID,
+     * created only when requested.
+     *
+     * @return the list of the movements of the {@link Account}.
+     */
+    @Override
+    public List<Movement> getMovementsList() {
+        return ledger.getMovementsOf(getID());
+    }
+
+    /**
+     * Returns the list of the movements of the {@link Account} after filtering it according to the
+     * {@link Predicate} {@code p}.
+     *
+     * @param p the predicate to satisfy.
+     * @return the filtered movements list.
+     */
+    @Override
+    public List<Movement> getMovementsList(Predicate<Movement> p) {
+        return getMovementsList().stream().filter(p).collect(Collectors.toList());
+    }
+
+    /**
+     * Does nothing, because the movements of this {@link Account} are stored in the database
+     * when their {@link Transaction} is added to the {@link SqlLedger}.
+     *
+     * @param movement the {@link Movement} added to the ledger.
+     */
+    @Override
+    public void addMovement(Movement movement) {
+    }
+
+    /**
+     * Does nothing, because the movements of this {@link Account} are removed from the database
+     * through the {@link SqlLedger}.
+     *
+     * @param movement the {@link Movement} removed from its {@link Transaction}.
+     * @return always false.
+     */
+    @Override
+    public boolean removeMovement(Movement movement) {
+        return false;
+    }
+}
@@ -0,0 +1,135 @@
+package it.unicam.cs.pa.jbudget105053.persistence;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * This class has the responsibility to open the connections to the embedded database of a ledger and to
+ * create its tables, which is shared by {@link SqlExporter}, {@link SqlImporter} and {@link SqlLedger}.
+ * The database is a file in the given path, opened by an embedded JDBC driver in file mode, such as H2
+ * or SQLite, which must be on the classpath. Amounts are stored as signed cents and dates as epoch days.
+ * The movements are stored with the day of their transaction and, like the transactions and the tags of
+ * both, are indexed on the columns used to filter them, so that queries by date, account or tag are
+ * answered by the database without reading the whole ledger.
+ *
+ * @author Tommaso Catervi
+ */
+public final class SqlDatabase {
+    /**
+     * The string error message for when the database cannot be read or written.
+     */
+    public static final String MESSAGE_DATABASE_ERROR = "Non e' stato possibile accedere al database del ledger.";
+
+    /**
+     * The name of the database file inside the given path, without the extension added by the driver.
+     */
+    public static final String FILE_NAME = "ledger";
+
+    /**
+     * The number of rows sent to the database in a single batch.
+     */
+    static final int BATCH_SIZE = 1000;
+
+    private static final String[] SCHEMA = {
+            "CREATE TABLE IF NOT EXISTS accounts (id INTEGER PRIMARY KEY, type VARCHAR(16) NOT NULL, "
+                    + "name VARCHAR NOT NULL, initial_cents BIGINT NOT NULL)",
+            "CREATE TABLE IF NOT EXISTS tags (id INTEGER PRIMARY KEY, name VARCHAR NOT NULL, description VARCHAR NOT NULL)",
+            "CREATE TABLE IF NOT EXISTS transactions (id INTEGER PRIMARY KEY, day INTEGER NOT NULL)",
+            "CREATE TABLE IF NOT EXISTS movements (id INTEGER PRIMARY KEY, transaction_id INTEGER NOT NULL, "
+                    + "account_id INTEGER NOT NULL, cents BIGINT NOT NULL, day INTEGER NOT NULL)",
+            "CREATE TABLE IF NOT EXISTS transaction_tags (transaction_id INTEGER NOT NULL, tag_id INTEGER NOT NULL, "
+                    + "PRIMARY KEY (transaction_id, tag_id))",
+            "CREATE TABLE IF NOT EXISTS movement_tags (movement_id INTEGER NOT NULL, tag_id INTEGER NOT NULL, "
+                    + "PRIMARY KEY (movement_id, tag_id))",
+            "CREATE INDEX IF NOT EXISTS transactions_day ON transactions (day)",
+            "CREATE INDEX IF NOT EXISTS movements_transaction ON movements (transaction_id)",
+            "CREATE INDEX IF NOT EXISTS movements_account_day ON movements (account_id, day)",
+            "CREATE INDEX IF NOT EXISTS transaction_tags_tag ON transaction_tags (tag_id)",
+            "CREATE INDEX IF NOT EXISTS movement_tags_tag ON movement_tags (tag_id)"
+    };
+
+    /**
+     * The tables of the database, in an order in which they can be emptied.
+     */
+    static final String[] TABLES = {"movement_tags", "transaction_tags", "movements", "transactions", "tags", "accounts"};
+
+    /**
+     * The constructor is private because this class only has static methods.
+     */
+    private SqlDatabase() {
+    }
+
+    /**
+     * Returns the JDBC URL of an H2 database in the given path.
+     *
+     * @param path the path of the database.
+     * @return the URL of the database.
+     */
+    public static String h2(String path) {
+        return "jdbc:h2:file:" + new File(path, FILE_NAME).getAbsolutePath();
+    }
+
+    /**
+     * Returns the JDBC URL of an SQLite database in the given path.
+     *
+     * @param path the path of the database.
+     * @return the URL of the database.
+     */
+    public static String sqlite(String path) {
+        return "jdbc:sqlite:" + new File(path, FILE_NAME + ".db").getAbsolutePath();
+    }
+
+    /**
+     * Opens a connection to the database with the given URL, creates its tables and indexes if they do not
+     * exist yet and disables the automatic commit, so that each change is committed as a whole.
+     *
+     * @param url the JDBC URL of the database.
+     * @return the connection to the database.
+     * @throws SQLException if the database cannot be opened.
+     */
+    static Connection connect(String url) throws SQLException {
+        Connection connection = DriverManager.getConnection(url);
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : SCHEMA)
+                statement.execute(sql);
+            connection.setAutoCommit(false);
+            connection.commit();
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+        return connection;
+    }
+
+    /**
+     * Rolls back the changes not yet committed on the given connection, ignoring a failure of the rollback
+     * so that the exception which caused it is not hidden.
+     *
+     * @param connection the connection to roll back.
+     * @param cause      the exception which caused the rollback.
+     */
+    static void rollback(Connection connection, Exception cause) {
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            cause.addSuppressed(e);
+        }
+    }
+
+    /**
+     * Adds the current parameters of the given statement to its batch, and sends the batch
+     * to the database every {@code BATCH_SIZE} rows.
+     *
+     * @param statement the statement whose parameters are set.
+     * @param row       the number of rows added before this one.
+     * @throws SQLException if something goes wrong.
+     */
+    static void addBatch(PreparedStatement statement, int row) throws SQLException {
+        statement.addBatch();
+        if ((row + 1) % SqlDatabase.BATCH_SIZE == 0) statement.executeBatch();
+    }
+}
@@ -0,0 +1,190 @@
+package it.unicam.cs.pa.jbudget105053.persistence;
+
+import it.unicam.cs.pa.jbudget105053.controller.Controller;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.UnaryOperator;
+
+/**
+ * This class implements the interfaces {@link ExportManager} and {@link SnapshotWriter} and has the
+ * responsibility to export all data of the ledger into the embedded database in a given path, described by
+ * {@link SqlDatabase}. The rows are sent with prepared statements in batches of {@code BATCH_SIZE} rows, and
+ * the whole export is a single database transaction, so a failed save leaves the previous data unchanged.
+ *
+ * @author Tommaso Catervi
+ */
+public class SqlExporter implements ExportManager, SnapshotWriter {
+    private final Controller controller;
+    private final UnaryOperator<String> url;
+
+    /**
+     * Constructs a new {@link SqlExporter} with the given controller, which saves the data in an H2 database.
+     *
+     * @param controller the value used to set the {@code controller} field of the {@link SqlExporter}.
+     */
+    public SqlExporter(Controller controller) {
+        this(controller, SqlDatabase::h2);
+    }
+
+    /**
+     * Constructs a new {@link SqlExporter} with the given controller, which saves the data in the database
+     * whose JDBC URL is returned by the given function for the path.
+     *
+     * @param controller the value used to set the {@code controller} field of the {@link SqlExporter}.
+     * @param url        the function returning the URL of the database in a path.
+     */
+    public SqlExporter(Controller controller, UnaryOperator<String> url) {
+        this.controller = controller;
+        this.url = Objects.requireNonNull(url);
+    }
+
+    /**
+     * Takes a {@link LedgerSnapshot} of the ledger and writes it into the database in the given path.
+     *
+     * @param path the path where the data will be saved.
+     * @throws IOException if something goes wrong.
+     */
+    @Override
+    public void exportAll(String path) throws IOException {
+        write(LedgerSnapshot.of(controller), path);
+    }
+
+    /**
+     * Replaces all the rows of the database in the given path with the data of the given snapshot.
+     *
+     * @param snapshot the snapshot to write.
+     * @param path     the path where the data will be saved.
+     * @throws IOException if something goes wrong.
+     */
+    @Override
+    public void write(LedgerSnapshot snapshot, String path) throws IOException {
+        try (Connection connection = SqlDatabase.connect(url.apply(path))) {
+            try {
+                try (Statement statement = connection.createStatement()) {
+                    for (String table : SqlDatabase.TABLES)
+                        statement.executeUpdate("DELETE FROM " + table);
+                }
+                writeAccounts(connection, snapshot);
+                writeTags(connection, snapshot);
+                writeTransactions(connection, snapshot);
+                writeMovements(connection, snapshot);
+                connection.commit();
+            } catch (SQLException e) {
+                SqlDatabase.rollback(connection, e);
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new IOException(MESSAGE_FAILED_EXPORT, e);
+        }
+    }
+
+    /**
+     * Inserts a row for each account of the given snapshot.
+     *
+     * @param connection the connection to the database.
+     * @param snapshot   the snapshot whose accounts are written.
+     * @throws SQLException if something goes wrong.
+     */
+    private void writeAccounts(Connection connection, LedgerSnapshot snapshot) throws SQLException {
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO accounts (id, type, name, initial_cents) VALUES (?, ?, ?, ?)")) {
+            for (int i = 0; i < snapshot.accountIDs.length; i++) {
+                insert.setInt(1, snapshot.accountIDs[i]);
+                insert.setString(2, snapshot.accountTypes[i].name());
+                insert.setString(3, snapshot.accountNames[i]);
+                insert.setLong(4, snapshot.accountInitialCents[i]);
+                SqlDatabase.addBatch(insert, i);
+            }
+            insert.executeBatch();
+        }
+    }
+
+    /**
+     * Inserts a row for each tag of the given snapshot.
+     *
+     * @param connection the connection to the database.
+     * @param snapshot   the snapshot whose tags are written.
+     * @throws SQLException if something goes wrong.
+     */
+    private void writeTags(Connection connection, LedgerSnapshot snapshot) throws SQLException {
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO tags (id, name, description) VALUES (?, ?, ?)")) {
+            for (int i = 0; i < snapshot.tagIDs.length; i++) {
+                insert.setInt(1, snapshot.tagIDs[i]);
+                insert.setString(2, snapshot.tagNames[i]);
+                insert.setString(3, snapshot.tagDescriptions[i]);
+                SqlDatabase.addBatch(insert, i);
+            }
+            insert.executeBatch();
+        }
+    }
+
+    /**
+     * Inserts a row for each transaction of the given snapshot and a row for each of its tags.
+     *
+     * @param connection the connection to the database.
+     * @param snapshot   the snapshot whose transactions are written.
+     * @throws SQLException if something goes wrong.
+     */
+    private void writeTransactions(Connection connection, LedgerSnapshot snapshot) throws SQLException {
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO transactions (id, day) VALUES (?, ?)");
+             PreparedStatement insertTag = connection.prepareStatement(
+                     "INSERT INTO transaction_tags (transaction_id, tag_id) VALUES (?, ?)")) {
+            int tags = 0;
+            for (int i = 0; i < snapshot.transactionIDs.length; i++) {
+                insert.setInt(1, snapshot.transactionIDs[i]);
+                insert.setInt(2, snapshot.transactionDays[i]);
+                SqlDatabase.addBatch(insert, i);
+                for (int tag : snapshot.transactionTags[i]) {
+                    insertTag.setInt(1, snapshot.transactionIDs[i]);
+                    insertTag.setInt(2, tag);
+                    SqlDatabase.addBatch(insertTag, tags++);
+                }
+            }
+            insert.executeBatch();
+            insertTag.executeBatch();
+        }
+    }
+
+    /**
+     * Inserts a row for each movement of the given snapshot, with the day of its transaction,
+     * and a row for each of its tags.
+     *
+     * @param connection the connection to the database.
+     * @param snapshot   the snapshot whose movements are written.
+     * @throws SQLException if something goes wrong.
+     */
+    private void writeMovements(Connection connection, LedgerSnapshot snapshot) throws SQLException {
+        Map<Integer, Integer> days = new HashMap<>(snapshot.transactionIDs.length * 2);
+        for (int i = 0; i < snapshot.transactionIDs.length; i++)
+            days.put(snapshot.transactionIDs[i], snapshot.transactionDays[i]);
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO movements (id, transaction_id, account_id, cents, day) VALUES (?, ?, ?, ?, ?)");
+             PreparedStatement insertTag = connection.prepareStatement(
+                     "INSERT INTO movement_tags (movement_id, tag_id) VALUES (?, ?)")) {
+            int tags = 0;
+            for (int i = 0; i < snapshot.movementIDs.length; i++) {
+                insert.setInt(1, snapshot.movementIDs[i]);
+                insert.setInt(2, snapshot.movementTransactions[i]);
+                insert.setInt(3, snapshot.movementAccounts[i]);
+                insert.setLong(4, snapshot.movementCents[i]);
+                insert.setInt(5, days.get(snapshot.movementTransactions[i]));
+                SqlDatabase.addBatch(insert, i);
+                for (int tag : snapshot.movementTags[i]) {
+                    insertTag.setInt(1, snapshot.movementIDs[i]);
+                    insertTag.setInt(2, tag);
+                    SqlDatabase.addBatch(insertTag, tags++);
+                }
+            }
+            insert.executeBatch();
+            insertTag.executeBatch();
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package it.unicam.cs.pa.jbudget105053.persistence;
+
+import it.unicam.cs.pa.jbudget105053.controller.Controller;
+import it.unicam.cs.pa.jbudget105053.model.*;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.UnaryOperator;
+
+/**
+ * This class implements the interface {@link ImportManager} and has the responsibility to import the data
+ * of the embedded database in a given path, described by {@link SqlDatabase}, into a ledger.
+ * The transactions and the movements can be filtered by date, and the filter is part of the queries, so the
+ * database only returns the rows to import, found through the indexes on the days.
+ *
+ * @author Tommaso Catervi
+ */
+public class SqlImporter implements ImportManager {
+    private final Controller controller;
+    private final UnaryOperator<String> url;
+
+    /**
+     * Constructs a new {@link SqlImporter} with the given controller, which reads the data from an H2 database.
+     *
+     * @param controller the value used to set the {@code controller} field of the {@link SqlImporter}.
+     */
+    public SqlImporter(Controller controller) {
+        this(controller, SqlDatabase::h2);
+    }
+
+    /**
+     * Constructs a new {@link SqlImporter} with the given controller, which reads the data from the database
+     * whose JDBC URL is returned by the given function for the path.
+     *
+     * @param controller the value used to set the {@code controller} field of the {@link SqlImporter}.
+     * @param url        the function returning the URL of the database in a path.
+     */
+    public SqlImporter(Controller controller, UnaryOperator<String> url) {
+        this.controller = controller;
+        this.url = Objects.requireNonNull(url);
+    }
+
+    /**
+     * Imports all accounts, tags and transactions of the database in the given path.
+     *
+     * @param path the path from which the data is read.
+     * @throws IOException if the database cannot be read.
+     */
+    @Override
+    public void importAll(String path) throws IOException {
+        importRows(path, Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Imports all accounts and tags of the database in the given path, and only the transactions
+     * between the given days, included, with their movements.
+     *
+     * @param path the path from which the data is read.
+     * @param from the first day of the transactions to import.
+     * @param to   the last day of the transactions to import.
+     * @throws IOException if the database cannot be read.
+     */
+    public void importBetween(String path, LocalDate from, LocalDate to) throws IOException {
+        if (Objects.requireNonNull(from).isAfter(Objects.requireNonNull(to)))
+            throw new IllegalArgumentException(Account.MESSAGE_WRONG_PERIOD);
+        importRows(path, Math.toIntExact(from.toEpochDay()), Math.toIntExact(to.toEpochDay()));
+    }
+
+    /**
+     * Reads the accounts, the tags and the transactions between the given days with their movements, and
+     * adds each {@link Transaction} to the {@link Ledger} in a single batch.
+     *
+     * @param path the path from which the data is read.
+     * @param from the first epoch day of the transactions to import.
+     * @param to   the last epoch day of the transactions to import.
+     * @throws IOException if the database cannot be read.
+     */
+    private void importRows(String path, int from, int to) throws IOException {
+        try (Connection connection = SqlDatabase.connect(url.apply(path))) {
+            importAccounts(connection);
+            importTags(connection);
+            Map<Integer, Transaction> transactions = importTransactions(connection, from, to);
+            importMovements(connection, from, to, transactions);
+            controller.addTransactions(transactions.values());
+        } catch (SQLException e) {
+            throw new IOException(MESSAGE_FAILED_IMPORT, e);
+        }
+    }
+
+    /**
+     * Reads all the accounts and adds each {@link Account} with its ID.
+     *
+     * @param connection the connection to the database.
+     * @throws SQLException if something goes wrong.
+     */
+    private void importAccounts(Connection connection) throws SQLException {
+        try (PreparedStatement select = connection.prepareStatement(
+                "SELECT id, type, name, initial_cents FROM accounts ORDER BY id");
+             ResultSet rows = select.executeQuery()) {
+            while (rows.next())
+                controller.addAccountWithID(rows.getInt(1), AccountType.valueOf(rows.getString(2)),
+                        rows.getString(3), Money.toAmount(rows.getLong(4)));
+        }
+    }
+
+    /**
+     * Reads all the tags and adds each {@link Tag} with its ID.
+     *
+     * @param connection the connection to the database.
+     * @throws SQLException if something goes wrong.
+     */
+    private void importTags(Connection connection) throws SQLException {
+        try (PreparedStatement select = connection.prepareStatement("SELECT id, name, description FROM tags ORDER BY id");
+             ResultSet rows = select.executeQuery()) {
+            while (rows.next())
+                controller.addTagWithID(rows.getInt(1), rows.getString(2), rows.getString(3));
+        }
+    }
+
+    /**
+     * Reads the transactions between the given days and creates each {@link Transaction} with its ID, date
+     * and tags.
+     *
+     * @param connection the connection to the database.
+     * @param from       the first epoch day of the transactions to read.
+     * @param to         the last epoch day of the transactions to read.
+     * @return the created transactions, by ID and in ascending order of ID.
+     * @throws SQLException if something goes wrong.
+     */
+    private Map<Integer, Transaction> importTransactions(Connection connection, int from, int to) throws SQLException {
+        Map<Integer, Transaction> created = new LinkedHashMap<>();
+        try (PreparedStatement select = connection.prepareStatement(
+                "SELECT id, day FROM transactions WHERE day BETWEEN ? AND ? ORDER BY id")) {
+            select.setInt(1, from);
+            select.setInt(2, to);
+            try (ResultSet rows = select.executeQuery()) {
+                while (rows.next())
+                    created.put(rows.getInt(1), controller.createTransactionWithID(rows.getInt(1), EpochDays.toDate(rows.getInt(2))));
+            }
+        }
+        try (PreparedStatement select = connection.prepareStatement("SELECT tt.transaction_id, tt.tag_id FROM transaction_tags tt "
+                + "JOIN transactions t ON t.id = tt.transaction_id WHERE t.day BETWEEN ? AND ?")) {
+            select.setInt(1, from);
+            select.setInt(2, to);
+            try (ResultSet rows = select.executeQuery()) {
+                while (rows.next()) {
+                    Transaction t = created.get(rows.getInt(1));
+                    Tag tag = controller.getTagByID(rows.getInt(2));
+                    if (Objects.nonNull(t) && Objects.nonNull(tag)) t.addTag(tag);
+                }
+            }
+        }
+        return created;
+    }
+
+    /**
+     * Reads the movements between the given days, creates each {@link Movement} with its ID, amount, account
+     * and tags and adds it to its {@link Transaction}.
+     *
+     * @param connection   the connection to the database.
+     * @param from         the first epoch day of the movements to read.
+     * @param to           the last epoch day of the movements to read.
+     * @param transactions the transactions read from the database, by ID.
+     * @throws SQLException if something goes wrong.
+     */
+    private void importMovements(Connection connection, int from, int to, Map<Integer, Transaction> transactions) throws SQLException {
+        Map<Integer, Movement> created = new LinkedHashMap<>();
+        Map<Movement, Transaction> owners = new HashMap<>();
+        try (PreparedStatement select = connection.prepareStatement("SELECT id, transaction_id, account_id, cents "
+                + "FROM movements WHERE day BETWEEN ? AND ? ORDER BY id")) {
+            select.setInt(1, from);
+            select.setInt(2, to);
+            try (ResultSet rows = select.executeQuery()) {
+                while (rows.next()) {
+                    Transaction t = transactions.get(rows.getInt(2));
+                    if (Objects.isNull(t)) continue;
+                    Account account = controller.getAccountByID(rows.getInt(3));
+                    if (Objects.isNull(account))
+                        throw new RuntimeException(MESSAGE_WRONG_ACCOUNT);
+                    long cents = rows.getLong(4);
+                    Movement m = controller.createMovementWithID(rows.getInt(1),
+                            cents < 0 ? MovementType.DECREMENT : MovementType.INCREMENT, Money.toAmount(Math.abs(cents)), account);
+                    created.put(m.getID(), m);
+                    owners.put(m, t);
+                }
+            }
+        }
+        try (PreparedStatement select = connection.prepareStatement("SELECT mt.movement_id, mt.tag_id FROM movement_tags mt "
+                + "JOIN movements m ON m.id = mt.movement_id WHERE m.day BETWEEN ? AND ?")) {
+            select.setInt(1, from);
+            select.setInt(2, to);
+            try (ResultSet rows = select.executeQuery()) {
+                while (rows.next()) {
+                    Movement m = created.get(rows.getInt(1));
+                    Tag tag = controller.getTagByID(rows.getInt(2));
+                    if (Objects.nonNull(m) && Objects.nonNull(tag)) m.addTag(tag);
+                }
+            }
+        }
+        created.values().forEach(m -> owners.get(m).addMovement(m));
+    }
+}
@@ -0,0 +1,1168 @@
+package it.unicam.cs.pa.jbudget105053.persistence;
+
+import it.unicam.cs.pa.jbudget105053.model.*;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+/**
+ * This class implements the interface {@link Ledger} and has the responsibility to manage a ledger whose
+ * data is stored in the embedded database described by {@link SqlDatabase}, which is changed as soon as
+ * the ledger is changed. Accounts and tags are read when the database is opened and kept in memory, while
+ * the transactions and the movements are left in the database: the lists returned by the getter methods
+ * only hold their IDs and create a {@link Transaction}, together with its movements, when one of their
+ * elements is requested. The last created transactions are kept in a bounded cache.
+ * The balances of the accounts, the count of the movements of a {@link Tag} and the transactions of a
+ * period are computed by the database on its indexes, and tag queries only read the IDs of the tags,
+ * so only the matching elements are created.
+ * The objects created from the database are read-only views: they must be changed through the ledger.
+ * Each change is a single database transaction, and an error of the database is thrown as an
+ * {@link IllegalStateException}.
+ * The {@link BudgetTracker} is kept in memory: the spending of a new {@link Budget} is read from the database, and
+ * the removed movements are only read back from it while some {@link Budget} is tracked.
+ *
+ * @author Tommaso Catervi
+ */
+public class SqlLedger implements Ledger, Closeable {
+    private static final int CACHE_SIZE = 1 << 12;
+    private final Connection connection;
+    private final Map<String, PreparedStatement> statements = new HashMap<>();
+    private final Map<Integer, Account> accountsMap = new LinkedHashMap<>();
+    private final Map<String, Account> accountsByName = new HashMap<>();
+    private final Map<Integer, Tag> tagsMap = new LinkedHashMap<>();
+    private final Map<String, Tag> tagsByName = new HashMap<>();
+    private final Map<Integer, Transaction> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Transaction> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+    private List<Account> accountsView;
+    private List<Tag> tagsView;
+    private List<Transaction> transactionsView;
+    private List<Movement> movementsView;
+    private final BudgetTracker budgetTracker = new BudgetTracker(this);
+
+    /**
+     * Constructs a new {@link SqlLedger} on the given connection.
+     *
+     * @param connection the connection to the database.
+     */
+    private SqlLedger(Connection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * Opens the H2 database in the given path, creating it if it does not exist, and returns
+     * the {@link SqlLedger} of its data.
+     *
+     * @param path the path of the database.
+     * @return the {@link SqlLedger} of the database.
+     * @throws IOException if the database cannot be opened.
+     */
+    public static SqlLedger open(String path) throws IOException {
+        return open(path, SqlDatabase::h2);
+    }
+
+    /**
+     * Opens the database whose JDBC URL is returned by the given function for the path, creating it if it
+     * does not exist, and returns the {@link SqlLedger} of its data. The accounts and the tags are read at
+     * once, and the {@link Indexer} observes the greatest IDs of the database.
+     *
+     * @param path the path of the database.
+     * @param url  the function returning the URL of the database in a path.
+     * @return the {@link SqlLedger} of the database.
+     * @throws IOException if the database cannot be opened.
+     */
+    public static SqlLedger open(String path, UnaryOperator<String> url) throws IOException {
+        SqlLedger ledger;
+        try {
+            ledger = new SqlLedger(SqlDatabase.connect(url.apply(path)));
+        } catch (SQLException e) {
+            throw new IOException(SqlDatabase.MESSAGE_DATABASE_ERROR, e);
+        }
+        try {
+            ledger.load();
+        } catch (SQLException | RuntimeException e) {
+            ledger.close();
+            throw new IOException(SqlDatabase.MESSAGE_DATABASE_ERROR, e);
+        }
+        return ledger;
+    }
+
+    /**
+     * Reads the accounts and the tags of the database and lets the {@link Indexer} observe the greatest
+     * IDs of the transactions and of the movements.
+     *
+     * @throws SQLException if something goes wrong.
+     */
+    private void load() throws SQLException {
+        try (ResultSet rows = prepare("SELECT id, type, name, initial_cents FROM accounts ORDER BY id").executeQuery()) {
+            while (rows.next()) {
+                storeAccount(new SqlAccount(rows.getInt(1), AccountType.valueOf(rows.getString(2)),
+                        rows.getString(3), Money.toAmount(rows.getLong(4)), this));
+                Indexer.getInstance().observeAccountID(rows.getInt(1));
+            }
+        }
+        try (ResultSet rows = prepare("SELECT id, name, description FROM tags ORDER BY id").executeQuery()) {
+            while (rows.next()) {
+                storeTag(new BasicTag(rows.getInt(1), rows.getString(2), rows.getString(3)));
+                Indexer.getInstance().observeTagID(rows.getInt(1));
+            }
+        }
+        int lastTransactionID = selectIDs("SELECT COALESCE(MAX(id), 0) FROM transactions")[0];
+        int lastMovementID = selectIDs("SELECT COALESCE(MAX(id), 0) FROM movements")[0];
+        if (lastTransactionID > 0) Indexer.getInstance().observeTransactionID(lastTransactionID);
+        if (lastMovementID > 0) Indexer.getInstance().observeMovementID(lastMovementID);
+    }
+
+    /**
+     * Closes the prepared statements and the connection to the database.
+     *
+     * @throws IOException if the connection cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            for (PreparedStatement statement : statements.values())
+                statement.close();
+            statements.clear();
+            connection.close();
+        } catch (SQLException e) {
+            throw new IOException(SqlDatabase.MESSAGE_DATABASE_ERROR, e);
+        }
+    }
+
+    /**
+     * A query or a change of the database.
+     *
+     * @param <T> the type of the result.
+     */
+    @FunctionalInterface
+    private interface SqlWork<T> {
+        T run() throws SQLException;
+    }
+
+    /**
+     * Runs the given query, throwing an error of the database as an {@link IllegalStateException}.
+     *
+     * @param work the query to run.
+     * @param <T>  the type of the result.
+     * @return the result of the query.
+     */
+    private <T> T read(SqlWork<T> work) {
+        try {
+            return work.run();
+        } catch (SQLException e) {
+            throw new IllegalStateException(SqlDatabase.MESSAGE_DATABASE_ERROR, e);
+        }
+    }
+
+    /**
+     * Runs the given change and commits it, or rolls it back if it fails, throwing an error of the
+     * database as an {@link IllegalStateException}.
+     *
+     * @param work the change to run.
+     */
+    private void write(SqlWork<?> work) {
+        read(() -> {
+            try {
+                work.run();
+                connection.commit();
+                return null;
+            } catch (SQLException e) {
+                SqlDatabase.rollback(connection, e);
+                throw e;
+            }
+        });
+    }
+
+    /**
+     * Returns the prepared statement of the given SQL, prepared the first time it is requested,
+     * with the given integers as its parameters.
+     *
+     * @param sql        the SQL of the statement.
+     * @param parameters the values of the parameters, in order.
+     * @return the prepared statement.
+     * @throws SQLException if something goes wrong.
+     */
+    private PreparedStatement prepare(String sql, int... parameters) throws SQLException {
+        PreparedStatement statement = statements.get(sql);
+        if (Objects.isNull(statement)) {
+            statement = connection.prepareStatement(sql);
+            statements.put(sql, statement);
+        }
+        for (int i = 0; i < parameters.length; i++)
+            statement.setInt(i + 1, parameters[i]);
+        return statement;
+    }
+
+    /**
+     * Runs the given change of the database with the given parameters.
+     *
+     * @param sql        the SQL of the change.
+     * @param parameters the values of the parameters, in order.
+     * @throws SQLException if something goes wrong.
+     */
+    private void execute(String sql, int... parameters) throws SQLException {
+        prepare(sql, parameters).executeUpdate();
+    }
+
+    /**
+     * Runs the given query with the given parameters and returns its integer columns.
+     *
+     * @param columns    the number of columns of the query.
+     * @param sql        the SQL of the query.
+     * @param parameters the values of the parameters, in order.
+     * @return the values of each column, in the order of the rows.
+     * @throws SQLException if something goes wrong.
+     */
+    private int[][] selectColumns(int columns, String sql, int... parameters) throws SQLException {
+        int[][] values = new int[columns][16];
+        int size = 0;
+        try (ResultSet rows = prepare(sql, parameters).executeQuery()) {
+            while (rows.next()) {
+                if (size == values[0].length)
+                    for (int c = 0; c < columns; c++) values[c] = Arrays.copyOf(values[c], size * 2);
+                for (int c = 0; c < columns; c++) values[c][size] = rows.getInt(c + 1);
+                size++;
+            }
+        }
+        for (int c = 0; c < columns; c++) values[c] = Arrays.copyOf(values[c], size);
+        return values;
+    }
+
+    /**
+     * Runs the given query with the given parameters and returns its only integer column.
+     *
+     * @param sql        the SQL of the query.
+     * @param parameters the values of the parameters, in order.
+     * @return the values of the column, in the order of the rows.
+     * @throws SQLException if something goes wrong.
+     */
+    private int[] selectIDs(String sql, int... parameters) throws SQLException {
+        return selectColumns(1, sql, parameters)[0];
+    }
+
+    /**
+     * Returns the sum of the signed amounts, in cents, of the movements of the given {@link Account} dated
+     * between the given days, included, computed by the database on the index of the accounts and days.
+     *
+     * @param accountID the ID of the {@link Account}.
+     * @param from      the first epoch day of the period.
+     * @param to        the last epoch day of the period.
+     * @return the sum in cents.
+     */
+    long sumCents(int accountID, int from, int to) {
+        return read(() -> {
+            try (ResultSet rows = prepare("SELECT COALESCE(SUM(cents), 0) FROM movements "
+                    + "WHERE account_id = ? AND day BETWEEN ? AND ?", accountID, from, to).executeQuery()) {
+                return rows.next() ? rows.getLong(1) : 0;
+            }
+        });
+    }
+
+    /**
+     * Returns an unmodifiable list of the movements of the given {@link Account}, in ascending order of ID,
+     * created only when requested.
+     *
+     * @param accountID the ID of the {@link Account}.
+     * @return the list of the movements of the {@link Account}.
+     */
+    List<Movement> getMovementsOf(int accountID) {
+        int[][] rows = read(() -> selectColumns(2,
+                "SELECT id, transaction_id FROM movements WHERE account_id = ? ORDER BY id", accountID));
+        return new RowList<>(rows[0].length, i -> getMovement(rows[0][i], rows[1][i]));
+    }
+
+    /**
+     * Returns the {@link Transaction} with the given ID, creating it with its tags and movements if it is not
+     * in the cache. The tags which are not stored in the ledger are not added.
+     *
+     * @param ID the ID of the {@link Transaction}.
+     * @return the {@link Transaction} with the given ID, or null if there is none.
+     * @throws SQLException if something goes wrong.
+     */
+    private Transaction loadTransaction(int ID) throws SQLException {
+        Transaction t = cache.get(ID);
+        if (Objects.nonNull(t)) return t;
+        int[] day = selectIDs("SELECT day FROM transactions WHERE id = ?", ID);
+        if (day.length == 0) return null;
+        t = new BasicTransaction(ID, EpochDays.toDate(day[0]));
+        for (int tag : selectIDs("SELECT tag_id FROM transaction_tags WHERE transaction_id = ? ORDER BY tag_id", ID))
+            if (tagsMap.containsKey(tag)) t.addTag(tagsMap.get(tag));
+        Map<Integer, Movement> movements = new LinkedHashMap<>();
+        try (ResultSet rows = prepare("SELECT id, account_id, cents FROM movements WHERE transaction_id = ? ORDER BY id", ID)
+                .executeQuery()) {
+            while (rows.next()) {
+                long cents = rows.getLong(3);
+                movements.put(rows.getInt(1), new BasicMovement(rows.getInt(1),
+                        cents < 0 ? MovementType.DECREMENT : MovementType.INCREMENT, Money.toAmount(Math.abs(cents)),
+                        accountsMap.get(rows.getInt(2))));
+            }
+        }
+        int[][] tags = selectColumns(2, "SELECT mt.movement_id, mt.tag_id FROM movement_tags mt JOIN movements m "
+                + "ON m.id = mt.movement_id WHERE m.transaction_id = ? ORDER BY mt.movement_id, mt.tag_id", ID);
+        for (int i = 0; i < tags[0].length; i++)
+            if (tagsMap.containsKey(tags[1][i])) movements.get(tags[0][i]).addTag(tagsMap.get(tags[1][i]));
+        movements.values().forEach(t::addMovement);
+        cache.put(ID, t);
+        return t;
+    }
+
+    /**
+     * Returns the {@link Movement} with the given ID, through the {@link Transaction} it belongs to.
+     *
+     * @param ID            the ID of the {@link Movement}.
+     * @param transactionID the ID of the {@link Transaction} of the {@link Movement}.
+     * @return the {@link Movement} with the given ID.
+     */
+    private Movement getMovement(int ID, int transactionID) {
+        Transaction t = getTransactionByID(transactionID);
+        if (Objects.nonNull(t))
+            for (Movement m : t.getMovements())
+                if (m.getID() == ID) return m;
+        throw new IllegalStateException(MovementException.MESSAGE_MOVEMENT_DOES_NOT_EXIST);
+    }
+
+    /**
+     * Allows to create and add a new {@link Account} to the database.
+     * The value of the {@code ID} field is generated by the class {@link Indexer}.
+     *
+     * @param accountType    the value used to set the {@code accountType} field in the {@link Account}.
+     * @param name           the value used to set the {@code name} field in the {@link Account}.
+     * @param initialBalance the value used to set the {@code initialBalance} field in the {@link Account}.
+     */
+    @Override
+    public void addAccount(AccountType accountType, String name, double initialBalance) {
+        insertAccount(new SqlAccount(Indexer.getInstance().generateAccountID(), accountType, name, initialBalance, this));
+    }
+
+    /**
+     * Allows to create and add a new {@link Account} to the database without automatically
+     * generating its ID.
+     *
+     * @param ID             the value used to set the {@code ID} field in the {@link Account}.
+     * @param accountType    the value used to set the {@code accountType} field in the {@link Account}.
+     * @param name           the value used to set the {@code name} field in the {@link Account}.
+     * @param initialBalance the value used to set the {@code initialBalance} field in the {@link Account}.
+     */
+    @Override
+    public void addAccountWithID(int ID, AccountType accountType, String name, double initialBalance) {
+        insertAccount(new SqlAccount(ID, accountType, name, initialBalance, this));
+        Indexer.getInstance().observeAccountID(ID);
+    }
+
+    /**
+     * Inserts the row of the given {@link Account} and stores it, as long as no other {@link Account}
+     * with the same ID or name is already stored.
+     *
+     * @param a the {@link Account} to add.
+     */
+    private void insertAccount(Account a) {
+        if (accountsMap.containsKey(a.getID()) || accountsByName.containsKey(a.getName()))
+            throw new IllegalArgumentException(Account.MESSAGE_ACCOUNT_ALREADY_EXISTS);
+        write(() -> {
+            PreparedStatement insert = prepare("INSERT INTO accounts (id, type, name, initial_cents) VALUES (?, ?, ?, ?)");
+            insert.setInt(1, a.getID());
+            insert.setString(2, a.getAccountType().name());
+            insert.setString(3, a.getName());
+            insert.setLong(4, Money.toCents(a.getInitialBalance()));
+            return insert.executeUpdate();
+        });
+        storeAccount(a);
+    }
+
+    /**
+     * Adds the given {@link Account} to the {@code accountsMap} as long as no other {@link Account}
+     * with the same ID or name is already stored.
+     *
+     * @param a the {@link Account} to store.
+     */
+    private void storeAccount(Account a) {
+        if (accountsMap.containsKey(a.getID()) || accountsByName.containsKey(a.getName()))
+            throw new IllegalArgumentException(Account.MESSAGE_ACCOUNT_ALREADY_EXISTS);
+        accountsMap.put(a.getID(), a);
+        accountsByName.put(a.getName(), a);
+        accountsView = null;
+    }
+
+    /**
+     * Allows to modify the given {@link Account} with the given parameters, updating its row if it
+     * is stored in this ledger, as long as the new name does not belong to another {@link Account}.
+     * The name index is updated so that the {@link Account} can still be found by its new name.
+     *
+     * @param a              the {@link Account} to modify.
+     * @param accountType    the new {@link AccountType} to set.
+     * @param name           the new name to set.
+     * @param initialBalance the new initial balance to set.
+     */
+    @Override
+    public void modifyAccount(Account a, AccountType accountType, String name, double initialBalance) {
+        Account named = Objects.isNull(name) ? null : accountsByName.get(name.toUpperCase());
+        if (Objects.nonNull(named) && named.getID() != a.getID())
+            throw new IllegalArgumentException(Account.MESSAGE_ACCOUNT_ALREADY_EXISTS);
+        String oldName = a.getName();
+        a.setAccountType(accountType);
+        a.setName(name);
+        a.setInitialBalance(initialBalance);
+        if (accountsMap.get(a.getID()) != a) return;
+        write(() -> {
+            PreparedStatement update = prepare("UPDATE accounts SET type = ?, name = ?, initial_cents = ? WHERE id = ?");
+            update.setString(1, a.getAccountType().name());
+            update.setString(2, a.getName());
+            update.setLong(3, Money.toCents(a.getInitialBalance()));
+            update.setInt(4, a.getID());
+            return update.executeUpdate();
+        });
+        if (accountsByName.get(oldName) == a) {
+            accountsByName.remove(oldName);
+            accountsByName.put(a.getName(), a);
+        }
+    }
+
+    /**
+     * Allows to remove an {@link Account} from the database as long as
+     * the given parameter is not null and is stored in this ledger.
+     * All the movements associated with that {@link Account} are removed, and so are the
+     * transactions resulting with zero movements.
+     *
+     * @param account the {@link Account} to be removed.
+     */
+    @Override
+    public void removeAccount(Account account) {
+        Account stored = findStoredAccount(controlAccount(account));
+        if (Objects.isNull(stored))
+            throw new IllegalArgumentException(Account.MESSAGE_ACCOUNT_DOES_NOT_EXIST);
+        deleteAccounts(List.of(stored));
+    }
+
+    /**
+     * Allows to remove all the given accounts from the database as long as none of
+     * them is null and all of them are stored in this ledger.
+     *
+     * @param accounts the accounts to be removed.
+     */
+    @Override
+    public void removeAccounts(Collection<? extends Account> accounts) {
+        Set<Account> toRemove = new LinkedHashSet<>();
+        for (Account account : accounts) {
+            Account stored = findStoredAccount(controlAccount(account));
+            if (Objects.isNull(stored))
+                throw new IllegalArgumentException(Account.MESSAGE_ACCOUNT_DOES_NOT_EXIST);
+            toRemove.add(stored);
+        }
+        deleteAccounts(toRemove);
+    }
+
+    /**
+     * Deletes the rows of the given stored accounts and of their movements in a single database transaction,
+     * together with the rows of every {@link Transaction} left with zero movements.
+     *
+     * @param accounts the stored accounts to remove.
+     */
+    private void deleteAccounts(Collection<Account> accounts) {
+        List<Movement> removed = new ArrayList<>();
+        if (!budgetTracker.getBudgets().isEmpty())
+            for (Account a : accounts)
+                for (int ID : read(() -> selectIDs("SELECT id FROM movements WHERE account_id = ?", a.getID())))
+                    removed.add(getMovementByID(ID));
+        write(() -> {
+            for (Account a : accounts) {
+                int[] touched = selectIDs("SELECT DISTINCT transaction_id FROM movements WHERE account_id = ?", a.getID());
+                execute("DELETE FROM movement_tags WHERE movement_id IN (SELECT id FROM movements WHERE account_id = ?)", a.getID());
+                execute("DELETE FROM movements WHERE account_id = ?", a.getID());
+                for (int t : touched) {
+                    execute("DELETE FROM transaction_tags WHERE transaction_id = ? "
+                            + "AND NOT EXISTS (SELECT 1 FROM movements WHERE transaction_id = ?)", t, t);
+                    execute("DELETE FROM transactions WHERE id = ? "
+                            + "AND NOT EXISTS (SELECT 1 FROM movements WHERE transaction_id = ?)", t, t);
+                }
+                execute("DELETE FROM accounts WHERE id = ?", a.getID());
+            }
+            return null;
+        });
+        removed.forEach(budgetTracker::removeMovement);
+        for (Account a : accounts) {
+            accountsMap.remove(a.getID());
+            accountsByName.remove(a.getName());
+            budgetTracker.removeAccount(a);
+        }
+        cache.clear();
+        invalidateViews();
+        budgetTracker.fireEvents();
+    }
+
+    /**
+     * Returns the stored {@link Account} equal to the given one, that is the one with
+     * the same ID or, if there is none, the one with the same name.
+     *
+     * @param account the {@link Account} to search for.
+     * @return the stored {@link Account}, or null if there is none.
+     */
+    private Account findStoredAccount(Account account) {
+        Account stored = accountsMap.get(account.getID());
+        if (Objects.isNull(stored))
+            stored = accountsByName.get(account.getName());
+        return account.equals(stored) ? stored : null;
+    }
+
+    /**
+     * Controls that the given {@link Account} is not null.
+     *
+     * @param account the value to control.
+     * @return the controlled {@link Account}.
+     */
+    private Account controlAccount(Account account) {
+        if (Objects.isNull(account))
+            throw new NullPointerException(Account.MESSAGE_NULL_ACCOUNT);
+        return account;
+    }
+
+    /**
+     * Returns an unmodifiable list of all the accounts associated with this
+     * {@link SqlLedger}, in ascending order of ID followed by the ones added later.
+     *
+     * @return the list of all the accounts of the {@link SqlLedger}.
+     */
+    @Override
+    public List<Account> getAccounts() {
+        if (Objects.isNull(accountsView))
+            accountsView = Collections.unmodifiableList(new ArrayList<>(accountsMap.values()));
+        return accountsView;
+    }
+
+    /**
+     * Returns the list of all the accounts after filtering it according to the
+     * {@link Predicate} {@code p}.
+     *
+     * @return the filtered accounts list.
+     */
+    @Override
+    public List<Account> getAccounts(Predicate<Account> p) {
+        return accountsMap.values().stream().filter(p).collect(Collectors.toList());
+    }
+
+    /**
+     * Returns the {@link Account} with the given ID in constant time.
+     *
+     * @param ID the ID of the {@link Account} to search for.
+     * @return the {@link Account} with the given ID, or null if there is none.
+     */
+    @Override
+    public Account getAccountByID(int ID) {
+        return accountsMap.get(ID);
+    }
+
+    /**
+     * Allows to add a new {@link Transaction} to the database as long as the given parameter
+     * is not null and is not already stored in this ledger.
+     *
+     * @param transaction the {@link Transaction} to add.
+     */
+    @Override
+    public void addTransaction(Transaction transaction) {
+        addTransactions(List.of(controlTransaction(transaction)));
+    }
+
+    /**
+     * Allows to add all the given transactions in a single database transaction, inserting their rows
+     * and the rows of their movements and tags with prepared statements sent in batches. All the
+     * transactions and their movements are controlled before any of them is added, so either all of
+     * them are added or none is. The added transactions are kept in the cache.
+     *
+     * @param transactions the transactions to add.
+     */
+    @Override
+    public void addTransactions(Collection<? extends Transaction> transactions) {
+        IDBitmap transactionIDs = new IDBitmap();
+        IDBitmap movementIDs = new IDBitmap();
+        for (Transaction t : transactions) {
+            int ID = controlTransaction(t).getID();
+            if (!transactionIDs.add(ID) || existsTransaction(ID))
+                throw new IllegalArgumentException(Transaction.MESSAGE_TRANSACTION_ALREADY_EXISTS);
+            for (Movement m : t.getMovements()) {
+                if (accountsMap.get(m.getAccount().getID()) != m.getAccount())
+                    throw new IllegalArgumentException(Account.MESSAGE_ACCOUNT_DOES_NOT_EXIST);
+                if (!movementIDs.add(m.getID())
+                        || read(() -> selectIDs("SELECT COUNT(*) FROM movements WHERE id = ?", m.getID())[0]) > 0)
+                    throw new IllegalArgumentException(MovementException.MESSAGE_MOVEMENT_ALREADY_EXISTS);
+            }
+        }
+        write(() -> {
+            insertTransactions(transactions);
+            return null;
+        });
+        int lastTransactionID = 0;
+        int lastMovementID = 0;
+        for (Transaction t : transactions) {
+            cache.put(t.getID(), t);
+            lastTransactionID = Math.max(lastTransactionID, t.getID());
+            for (Movement m : t.getMovements())
+                lastMovementID = Math.max(lastMovementID, m.getID());
+            budgetTracker.addTransaction(t);
+        }
+        invalidateViews();
+        if (lastMovementID > 0) Indexer.getInstance().observeMovementID(lastMovementID);
+        if (lastTransactionID > 0) Indexer.getInstance().observeTransactionID(lastTransactionID);
+        budgetTracker.fireEvents();
+    }
+
+    /**
+     * Inserts the rows of the given transactions, of their movements, with the day of their
+     * {@link Transaction}, and of their tags, in batches of {@code BATCH_SIZE} rows.
+     *
+     * @param transactions the transactions to insert.
+     * @throws SQLException if something goes wrong.
+     */
+    private void insertTransactions(Collection<? extends Transaction> transactions) throws SQLException {
+        PreparedStatement insert = prepare("INSERT INTO transactions (id, day) VALUES (?, ?)");
+        PreparedStatement insertTag = prepare("INSERT INTO transaction_tags (transaction_id, tag_id) VALUES (?, ?)");
+        PreparedStatement insertMovement = prepare(
+                "INSERT INTO movements (id, transaction_id, account_id, cents, day) VALUES (?, ?, ?, ?, ?)");
+        PreparedStatement insertMovementTag = prepare("INSERT INTO movement_tags (movement_id, tag_id) VALUES (?, ?)");
+        int rows = 0;
+        int tags = 0;
+        int movements = 0;
+        int movementTags = 0;
+        for (Transaction t : transactions) {
+            insert.setInt(1, t.getID());
+            insert.setInt(2, t.getEpochDay());
+            SqlDatabase.addBatch(insert, rows++);
+            for (int tag : storedTagIDs(t.getTag())) {
+                insertTag.setInt(1, t.getID());
+                insertTag.setInt(2, tag);
+                SqlDatabase.addBatch(insertTag, tags++);
+            }
+            for (Movement m : t.getMovements()) {
+                insertMovement.setInt(1, m.getID());
+                insertMovement.setInt(2, t.getID());
+                insertMovement.setInt(3, m.getAccount().getID());
+                insertMovement.setLong(4, m.getSignedCents());
+                insertMovement.setInt(5, t.getEpochDay());
+                SqlDatabase.addBatch(insertMovement, movements++);
+                for (int tag : storedTagIDs(m.getTag())) {
+                    insertMovementTag.setInt(1, m.getID());
+                    insertMovementTag.setInt(2, tag);
+                    SqlDatabase.addBatch(insertMovementTag, movementTags++);
+                }
+            }
+        }
+        insert.executeBatch();
+        insertTag.executeBatch();
+        insertMovement.executeBatch();
+        insertMovementTag.executeBatch();
+    }
+
+    /**
+     * Returns the distinct IDs of the given tags which are stored in this ledger.
+     *
+     * @param tags the tags of a {@link Transaction} or of a {@link Movement}.
+     * @return the IDs of the stored tags.
+     */
+    private Set<Integer> storedTagIDs(Collection<? extends Tag> tags) {
+        Set<Integer> IDs = new LinkedHashSet<>();
+        for (Tag t : tags)
+            if (tagsMap.get(t.getID()) == t) IDs.add(t.getID());
+        return IDs;
+    }
+
+    /**
+     * Returns true if the row of the {@link Transaction} with the given ID is stored in the database.
+     *
+     * @param ID the ID of the {@link Transaction}.
+     * @return true if the {@link Transaction} is stored, false otherwise.
+     */
+    private boolean existsTransaction(int ID) {
+        return cache.containsKey(ID) || read(() -> selectIDs("SELECT COUNT(*) FROM transactions WHERE id = ?", ID)[0]) > 0;
+    }
+
+    /**
+     * Allows to remove a {@link Transaction} from the database as long as the given parameter is not null
+     * and is stored in this ledger, deleting the rows of its movements and tags in the same database transaction.
+     *
+     * @param t the {@link Transaction} to remove.
+     */
+    @Override
+    public void removeTransaction(Transaction t) {
+        int ID = controlTransaction(t).getID();
+        if (!existsTransaction(ID))
+            throw new IllegalArgumentException(Transaction.MESSAGE_TRANSACTION_DOES_NOT_EXIST);
+        Transaction stored = budgetTracker.getBudgets().isEmpty() ? null : getTransactionByID(ID);
+        write(() -> {
+            execute("DELETE FROM movement_tags WHERE movement_id IN (SELECT id FROM movements WHERE transaction_id = ?)", ID);
+            execute("DELETE FROM movements WHERE transaction_id = ?", ID);
+            execute("DELETE FROM transaction_tags WHERE transaction_id = ?", ID);
+            execute("DELETE FROM transactions WHERE id = ?", ID);
+            return null;
+        });
+        cache.remove(ID);
+        invalidateViews();
+        if (Objects.nonNull(stored)) budgetTracker.removeTransaction(stored);
+        budgetTracker.fireEvents();
+    }
+
+    /**
+     * Controls that the given {@link Transaction} is not null.
+     *
+     * @param transaction the value to control.
+     * @return the controlled {@link Transaction}.
+     */
+    private Transaction controlTransaction(Transaction transaction) {
+        if (transaction == null)
+            throw new NullPointerException(Transaction.MESSAGE_NULL_TRANSACTION);
+        return transaction;
+    }
+
+    /**
+     * Returns an unmodifiable list of all the transactions of this {@link SqlLedger}, in ascending order of ID.
+     * The transactions are created only when they are requested.
+     *
+     * @return the list of all transactions of this {@link SqlLedger}.
+     */
+    @Override
+    public List<Transaction> getTransactions() {
+        if (Objects.isNull(transactionsView))
+            transactionsView = transactionList(read(() -> selectIDs("SELECT id FROM transactions ORDER BY id")));
+        return transactionsView;
+    }
+
+    /**
+     * Returns the list of all the transactions after filtering it according to
+     * the {@link Predicate} {@code p}.
+     *
+     * @return the filtered transactions list.
+     */
+    @Override
+    public List<Transaction> getTransactions(Predicate<Transaction> p) {
+        return getTransactions().stream().filter(p).collect(Collectors.toList());
+    }
+
+    /**
+     * Returns an unmodifiable list of the transactions dated between the given days, included, in
+     * ascending order of date and then of ID. The transactions are selected by the database on the index of the days,
+     * and are created only when they are requested.
+     *
+     * @param from the first day of the period.
+     * @param to   the last day of the period.
+     * @return the list of the transactions of the period.
+     */
+    @Override
+    public List<Transaction> getTransactions(LocalDate from, LocalDate to) {
+        if (Objects.requireNonNull(from).isAfter(Objects.requireNonNull(to)))
+            throw new IllegalArgumentException(Account.MESSAGE_WRONG_PERIOD);
+        return transactionList(read(() -> selectIDs("SELECT id FROM transactions WHERE day BETWEEN ? AND ? ORDER BY day, id",
+                Math.toIntExact(from.toEpochDay()), Math.toIntExact(to.toEpochDay()))));
+    }
+
+    /**
+     * Returns an iterator over all the transactions, from the most recent to the oldest one, sorted by the
+     * database on the index of the days. The transactions are created only when they are reached.
+     *
+     * @return the iterator over the transactions in reverse chronological order.
+     */
+    @Override
+    public Iterator<Transaction> descendingTransactions() {
+        return transactionList(read(() -> selectIDs("SELECT id FROM transactions ORDER BY day DESC, id DESC"))).iterator();
+    }
+
+    /**
+     * Returns an unmodifiable list of the transactions with the given IDs, created only when requested.
+     *
+     * @param IDs the IDs of the transactions.
+     * @return the list of the transactions.
+     */
+    private List<Transaction> transactionList(int[] IDs) {
+        return new RowList<>(IDs.length, i -> getTransactionByID(IDs[i]));
+    }
+
+    /**
+     * Returns the {@link Transaction} with the given ID, reading it from the database if it is not in the cache.
+     *
+     * @param ID the ID of the {@link Transaction} to search for.
+     * @return the {@link Transaction} with the given ID, or null if there is none.
+     */
+    @Override
+    public Transaction getTransactionByID(int ID) {
+        return read(() -> loadTransaction(ID));
+    }
+
+    /**
+     * Returns an unmodifiable list of all the movements of this {@link SqlLedger}, in ascending order of ID.
+     * The movements are created only when they are requested.
+     *
+     * @return the list of all movements of this {@link SqlLedger}.
+     */
+    @Override
+    public List<Movement> getMovements() {
+        if (Objects.isNull(movementsView)) {
+            int[][] rows = read(() -> selectColumns(2, "SELECT id, transaction_id FROM movements ORDER BY id"));
+            movementsView = new RowList<>(rows[0].length, i -> getMovement(rows[0][i], rows[1][i]));
+        }
+        return movementsView;
+    }
+
+    /**
+     * Returns the {@link Movement} with the given ID, through the {@link Transaction} it belongs to.
+     *
+     * @param ID the ID of the {@link Movement} to search for.
+     * @return the {@link Movement} with the given ID, or null if there is none.
+     */
+    @Override
+    public Movement getMovementByID(int ID) {
+        int[] transaction = read(() -> selectIDs("SELECT transaction_id FROM movements WHERE id = ?", ID));
+        return transaction.length == 0 ? null : getMovement(ID, transaction[0]);
+    }
+
+    /**
+     * Returns an unmodifiable list of all the tags associated with this
+     * {@link SqlLedger}, in ascending order of ID followed by the ones added later.
+     *
+     * @return the list of all tags of this {@link SqlLedger}.
+     */
+    @Override
+    public List<Tag> getTags() {
+        if (Objects.isNull(tagsView))
+            tagsView = Collections.unmodifiableList(new ArrayList<>(tagsMap.values()));
+        return tagsView;
+    }
+
+    /**
+     * Returns the {@link Tag} with the given ID in constant time.
+     *
+     * @param ID the ID of the {@link Tag} to search for.
+     * @return the {@link Tag} with the given ID, or null if there is none.
+     */
+    @Override
+    public Tag getTagByID(int ID) {
+        return tagsMap.get(ID);
+    }
+
+    /**
+     * Allows to create and add a new {@link Tag} to the database.
+     * The value of the {@code ID} field is generated by the class {@link Indexer}.
+     *
+     * @param name        the value used to set the {@code name} field in the {@link Tag}.
+     * @param description the value used to set the {@code description} field in the {@link Tag}.
+     */
+    @Override
+    public void addTag(String name, String description) {
+        insertTag(new BasicTag(Indexer.getInstance().generateTagID(), name, description));
+    }
+
+    /**
+     * Allows to create and add a new {@link Tag} to the database without automatically
+     * generating its ID.
+     *
+     * @param ID          the value used to set the {@code ID} field in the {@link Tag}.
+     * @param name        the value used to set the {@code name} field in the {@link Tag}.
+     * @param description the value used to set the {@code description} field in the {@link Tag}.
+     */
+    @Override
+    public void addTagWithID(int ID, String name, String description) {
+        insertTag(new BasicTag(ID, name, description));
+        Indexer.getInstance().observeTagID(ID);
+    }
+
+    /**
+     * Inserts the row of the given {@link Tag} and stores it, as long as no other {@link Tag}
+     * with the same ID or name is already stored.
+     *
+     * @param t the {@link Tag} to add.
+     */
+    private void insertTag(Tag t) {
+        if (tagsMap.containsKey(t.getID()) || tagsByName.containsKey(t.getName()))
+            throw new IllegalArgumentException(Tag.MESSAGE_TAG_ALREADY_EXISTS);
+        write(() -> {
+            PreparedStatement insert = prepare("INSERT INTO tags (id, name, description) VALUES (?, ?, ?)");
+            insert.setInt(1, t.getID());
+            insert.setString(2, t.getName());
+            insert.setString(3, t.getDescription());
+            return insert.executeUpdate();
+        });
+        storeTag(t);
+    }
+
+    /**
+     * Adds the given {@link Tag} to the {@code tagsMap} as long as no other {@link Tag}
+     * with the same ID or name is already stored.
+     *
+     * @param t the {@link Tag} to store.
+     */
+    private void storeTag(Tag t) {
+        if (tagsMap.containsKey(t.getID()) || tagsByName.containsKey(t.getName()))
+            throw new IllegalArgumentException(Tag.MESSAGE_TAG_ALREADY_EXISTS);
+        tagsMap.put(t.getID(), t);
+        tagsByName.put(t.getName(), t);
+        tagsView = null;
+    }
+
+    /**
+     * Allows to modify the given {@link Tag} with the given parameters, updating its row if it
+     * is stored in this ledger, as long as the new name does not belong to another {@link Tag}.
+     * The name index is updated so that the {@link Tag} can still be found by its new name.
+     *
+     * @param t           the {@link Tag} to modify.
+     * @param name        the new name to set.
+     * @param description the new description to set.
+     */
+    @Override
+    public void modifyTag(Tag t, String name, String description) {
+        Tag named = Objects.isNull(name) ? null : tagsByName.get(name.toUpperCase());
+        if (Objects.nonNull(named) && named.getID() != t.getID())
+            throw new IllegalArgumentException(Tag.MESSAGE_TAG_ALREADY_EXISTS);
+        String oldName = t.getName();
+        t.setName(name);
+        t.setDescription(description);
+        if (tagsMap.get(t.getID()) != t) return;
+        write(() -> {
+            PreparedStatement update = prepare("UPDATE tags SET name = ?, description = ? WHERE id = ?");
+            update.setString(1, t.getName());
+            update.setString(2, t.getDescription());
+            update.setInt(3, t.getID());
+            return update.executeUpdate();
+        });
+        if (tagsByName.get(oldName) == t) {
+            tagsByName.remove(oldName);
+            tagsByName.put(t.getName(), t);
+        }
+    }
+
+    /**
+     * Allows to remove a {@link Tag} from the database as long as the given parameter
+     * is not null and is stored in this ledger, deleting it from the transactions and movements
+     * in the same database transaction. The cache is emptied, because its elements carry the {@link Tag}.
+     *
+     * @param tag the {@link Tag} to remove.
+     */
+    @Override
+    public void removeTag(Tag tag) {
+        Tag stored = findStoredTag(controlTag(tag));
+        if (Objects.isNull(stored))
+            throw new IllegalArgumentException(Tag.MESSAGE_TAG_DOES_NOT_EXIST);
+        write(() -> {
+            execute("DELETE FROM movement_tags WHERE tag_id = ?", stored.getID());
+            execute("DELETE FROM transaction_tags WHERE tag_id = ?", stored.getID());
+            execute("DELETE FROM tags WHERE id = ?", stored.getID());
+            return null;
+        });
+        tagsMap.remove(stored.getID());
+        tagsByName.remove(stored.getName());
+        tagsView = null;
+        cache.clear();
+        budgetTracker.removeTag(stored);
+    }
+
+    /**
+     * Returns the list of the transactions whose tags satisfy the given {@link TagExpression}, in ascending
+     * order of ID. The expression is evaluated on the IDs of the tags read from the database, so only the
+     * matching transactions are created.
+     *
+     * @param expression the {@link TagExpression} to evaluate.
+     * @return the list of the matching transactions.
+     */
+    @Override
+    public List<Transaction> getTransactions(TagExpression expression) {
+        int[][] rows = read(() -> selectMatching(controlExpression(expression), "SELECT t.id, t.id, tt.tag_id FROM transactions t "
+                + "LEFT JOIN transaction_tags tt ON tt.transaction_id = t.id ORDER BY t.id"));
+        List<Transaction> result = new ArrayList<>(rows[0].length);
+        for (int ID : rows[0])
+            result.add(getTransactionByID(ID));
+        return result;
+    }
+
+    /**
+     * Returns the list of the movements whose tags satisfy the given {@link TagExpression}, in ascending
+     * order of ID. The expression is evaluated on the IDs of the tags read from the database, so only the
+     * matching movements are created.
+     *
+     * @param expression the {@link TagExpression} to evaluate.
+     * @return the list of the matching movements.
+     */
+    @Override
+    public List<Movement> getMovements(TagExpression expression) {
+        int[][] rows = read(() -> selectMatching(controlExpression(expression), "SELECT m.id, m.transaction_id, mt.tag_id "
+                + "FROM movements m LEFT JOIN movement_tags mt ON mt.movement_id = m.id ORDER BY m.id"));
+        List<Movement> result = new ArrayList<>(rows[0].length);
+        for (int i = 0; i < rows[0].length; i++)
+            result.add(getMovement(rows[0][i], rows[1][i]));
+        return result;
+    }
+
+    /**
+     * Runs the given query, whose rows are an ID, the ID of its {@link Transaction} and the ID of one of its
+     * tags, or null, sorted by ID, and returns the IDs whose stored tags satisfy the given {@link TagExpression}.
+     *
+     * @param expression the {@link TagExpression} to evaluate.
+     * @param sql        the SQL of the query.
+     * @return the matching IDs and the IDs of their transactions.
+     * @throws SQLException if something goes wrong.
+     */
+    private int[][] selectMatching(TagExpression expression, String sql) throws SQLException {
+        List<Tag> tags = new ArrayList<>();
+        IDBitmap matching = new IDBitmap();
+        Map<Integer, Integer> transactions = new HashMap<>();
+        try (ResultSet rows = prepare(sql).executeQuery()) {
+            int current = -1;
+            int transaction = -1;
+            while (rows.next()) {
+                int ID = rows.getInt(1);
+                if (ID != current) {
+                    if (current >= 0 && expression.matches(tags)) {
+                        matching.add(current);
+                        transactions.put(current, transaction);
+                    }
+                    current = ID;
+                    transaction = rows.getInt(2);
+                    tags.clear();
+                }
+                Tag t = tagsMap.get(rows.getInt(3));
+                if (!rows.wasNull() && Objects.nonNull(t)) tags.add(t);
+            }
+            if (current >= 0 && expression.matches(tags)) {
+                matching.add(current);
+                transactions.put(current, transaction);
+            }
+        }
+        int[] IDs = matching.toArray();
+        int[] owners = new int[IDs.length];
+        for (int i = 0; i < IDs.length; i++)
+            owners[i] = transactions.get(IDs[i]);
+        return new int[][]{IDs, owners};
+    }
+
+    /**
+     * Returns the number of movements carrying the given {@link Tag}, counted by the database on the
+     * index of the tags.
+     *
+     * @param tag the {@link Tag} to search for.
+     * @return the number of movements carrying the {@link Tag}.
+     */
+    @Override
+    public int countMovements(Tag tag) {
+        Tag stored = findStoredTag(controlTag(tag));
+        if (Objects.isNull(stored)) return 0;
+        return read(() -> selectIDs("SELECT COUNT(*) FROM movement_tags WHERE tag_id = ?", stored.getID())[0]);
+    }
+
+    /**
+     * Controls that the given {@link TagExpression} is not null.
+     *
+     * @param expression the value to control.
+     * @return the controlled {@link TagExpression}.
+     */
+    private TagExpression controlExpression(TagExpression expression) {
+        if (Objects.isNull(expression))
+            throw new NullPointerException(TagExpression.MESSAGE_NULL_EXPRESSION);
+        return expression;
+    }
+
+    /**
+     * Returns the stored {@link Tag} equal to the given one, that is the one with
+     * the same ID or, if there is none, the one with the same name.
+     *
+     * @param tag the {@link Tag} to search for.
+     * @return the stored {@link Tag}, or null if there is none.
+     */
+    private Tag findStoredTag(Tag tag) {
+        Tag stored = tagsMap.get(tag.getID());
+        if (Objects.isNull(stored))
+            stored = tagsByName.get(tag.getName());
+        return tag.equals(stored) ? stored : null;
+    }
+
+    /**
+     * Controls that the given {@link Tag} is not null.
+     *
+     * @param t the {@link Tag} to control.
+     */
+    private Tag controlTag(Tag t) {
+        if (t == null)
+            throw new NullPointerException(Tag.MESSAGE_NULL_TAG);
+        return t;
+    }
+
+    /**
+     * Discards the cached snapshots of all the lists so that they are rebuilt
+     * the next time they are requested.
+     */
+    private void invalidateViews() {
+        accountsView = null;
+        tagsView = null;
+        transactionsView = null;
+        movementsView = null;
+    }
+
+    /**
+     * Returns the {@link BudgetTracker} of this ledger.
+     *
+     * @return the {@link BudgetTracker} of this ledger.
+     */
+    @Override
+    public BudgetTracker getBudgetTracker() {
+        return budgetTracker;
+    }
+
+    /**
+     * Resets this ledger by deleting all the rows of the database, emptying all its maps and
+     * resetting the ID generators of the class {@link Indexer}.
+     */
+    @Override
+    public void resetLedger() {
+        write(() -> {
+            for (String table : SqlDatabase.TABLES)
+                execute("DELETE FROM " + table);
+            return null;
+        });
+        accountsMap.clear();
+        accountsByName.clear();
+        tagsMap.clear();
+        tagsByName.clear();
+        cache.clear();
+        budgetTracker.clear();
+        invalidateViews();
+        Indexer.getInstance().resetAll();
+    }
+
+    /**
+     * An unmodifiable list whose elements are created, from their position, only when they are requested.
+     *
+     * @param <T> the type of the elements.
+     */
+    private static final class RowList<T> extends AbstractList<T> implements RandomAccess {
+        private final int size;
+        private final IntFunction<T> element;
+
+        /**
+         * Constructs a new {@link RowList} with the given size.
+         *
+         * @param size    the number of elements.
+         * @param element the function creating the element in a position.
+         */
+        RowList(int size, IntFunction<T> element) {
+            this.size = size;
+            this.element = element;
+        }
+
+        @Override
+        public T get(int index) {
+            Objects.checkIndex(index, size);
+            return element.apply(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -1,19 +1,22 @@
 package it.unicam.cs.pa.jbudget105053.persistence;
 
 import it.unicam.cs.pa.jbudget105053.controller.Controller;
+import it.unicam.cs.pa.jbudget105053.model.*;
 
 import java.io.*;
-import java.text.SimpleDateFormat;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.List;
 
 /**
- * This class implements the interface {@link ExportManager} and has the responsibility to export all
- * data of the ledger in .txt files in a given path.
+ * This class implements the interfaces {@link ExportManager} and {@link SnapshotWriter} and has the
+ * responsibility to export all data of the ledger in .txt files in a given path.
  *
  * @author Tommaso Catervi
  */
-public class TextFileExporter implements ExportManager {
+public class TextFileExporter implements ExportManager, SnapshotWriter {
     private final Controller controller;
 
     /**
@@ -32,8 +35,8 @@ public class TextFileExporter implements ExportManager {
      * @param file the file to write in
      * @throws IOException if something goes wrong.
      */
-    private void writeToFile(List<String> list, File file) throws IOException {
-        BufferedWriter bw = new BufferedWriter(new FileWriter(file));
+    static void writeToFile(List<String> list, File file) throws IOException {
+        BufferedWriter bw = new BufferedWriter(new FileWriter(file, StandardCharsets.UTF_8));
         for (String s : list) {
             bw.append(s);
             bw.newLine();
@@ -42,17 +45,102 @@ public class TextFileExporter implements ExportManager {
     }
 
     /**
-     * Creates different files for accounts, tags, transactions and movements in the given
-     * path and then saves all data into them.
+     * Takes a {@link LedgerSnapshot} of the ledger and writes it into the files of the given path.
      *
      * @throws IOException if something goes wrong.
      */
     @Override
     public void exportAll(String path) throws IOException {
-        writeToFile(getStringListOfAccounts(), new File(path + "\\accounts.txt"));
-        writeToFile(getStringListOfTags(), new File(path + "\\tags.txt"));
-        writeToFile(getStringListOfTransaction(), new File(path + "\\transactions.txt"));
-        writeToFile(getStringListOfMovements(), new File(path + "\\movements.txt"));
+        write(LedgerSnapshot.of(controller), path);
+    }
+
+    /**
+     * Creates different files for accounts, tags, transactions and movements in the given
+     * path and then saves all data of the given snapshot into them, one line for each element.
+     * The lines are the same returned by the {@code toLine} methods. Each file is first written
+     * as a temporary file, and the existing files are replaced only once all of them are written.
+     *
+     * @param snapshot the snapshot to write.
+     * @param path     the path where the data will be saved.
+     * @throws IOException if something goes wrong.
+     */
+    @Override
+    public void write(LedgerSnapshot snapshot, String path) throws IOException {
+        File accounts = new File(path + "\\accounts.txt");
+        File tags = new File(path + "\\tags.txt");
+        File transactions = new File(path + "\\transactions.txt");
+        File movements = new File(path + "\\movements.txt");
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(temporary(accounts), StandardCharsets.UTF_8))) {
+            for (int i = 0; i < snapshot.accountIDs.length; i++) {
+                bw.append(String.valueOf(snapshot.accountIDs[i])).append(';').append(snapshot.accountTypes[i].toString())
+                        .append(';').append(snapshot.accountNames[i]).append(';')
+                        .append(String.valueOf(Money.toAmount(snapshot.accountInitialCents[i])));
+                bw.newLine();
+            }
+        }
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(temporary(tags), StandardCharsets.UTF_8))) {
+            for (int i = 0; i < snapshot.tagIDs.length; i++) {
+                bw.append(String.valueOf(snapshot.tagIDs[i])).append(';').append(snapshot.tagNames[i])
+                        .append(';').append(snapshot.tagDescriptions[i]);
+                bw.newLine();
+            }
+        }
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(temporary(transactions), StandardCharsets.UTF_8))) {
+            for (int i = 0; i < snapshot.transactionIDs.length; i++) {
+                bw.append(String.valueOf(snapshot.transactionIDs[i])).append(';')
+                        .append(EpochDays.format(snapshot.transactionDays[i])).append(';');
+                appendTagIDs(bw, snapshot.transactionTags[i]);
+                bw.newLine();
+            }
+        }
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(temporary(movements), StandardCharsets.UTF_8))) {
+            for (int i = 0; i < snapshot.movementIDs.length; i++) {
+                long cents = snapshot.movementCents[i];
+                bw.append(String.valueOf(snapshot.movementIDs[i])).append(';')
+                        .append((cents < 0 ? MovementType.DECREMENT : MovementType.INCREMENT).toString()).append(';')
+                        .append(String.valueOf(Money.toAmount(Math.abs(cents)))).append(';')
+                        .append(String.valueOf(snapshot.movementAccounts[i])).append(';')
+                        .append(String.valueOf(snapshot.movementTransactions[i])).append(';');
+                appendTagIDs(bw, snapshot.movementTags[i]);
+                bw.newLine();
+            }
+        }
+        replace(accounts);
+        replace(tags);
+        replace(transactions);
+        replace(movements);
+    }
+
+    /**
+     * Returns the temporary file in which the given file is written before replacing it.
+     *
+     * @param file the file to write.
+     * @return the temporary file.
+     */
+    private static File temporary(File file) {
+        return new File(file.getPath() + ".tmp");
+    }
+
+    /**
+     * Replaces the given file with its temporary file.
+     *
+     * @param file the file to replace.
+     * @throws IOException if something goes wrong.
+     */
+    private static void replace(File file) throws IOException {
+        Files.move(temporary(file).toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Appends the given tag IDs, each followed by ",", as returned by {@link Transaction#getTagsID()}.
+     *
+     * @param bw     the writer.
+     * @param tagIDs the IDs of the tags.
+     * @throws IOException if something goes wrong.
+     */
+    private void appendTagIDs(BufferedWriter bw, int[] tagIDs) throws IOException {
+        for (int ID : tagIDs)
+            bw.append(String.valueOf(ID)).append(',');
     }
 
     /**
@@ -63,12 +151,20 @@ public class TextFileExporter implements ExportManager {
      */
     public List<String> getStringListOfAccounts() {
         List<String> list = new ArrayList<>();
-        controller.getAccounts().forEach(a -> list.add(a.getID() +
-                ";" + a.getAccountType() + ";" + a.getName() +
-                ";" + a.getInitialBalance()));
+        controller.getAccounts().forEach(a -> list.add(toLine(a)));
         return list;
     }
 
+    /**
+     * Returns the line of the file of the accounts representing the given {@link Account}.
+     *
+     * @param a the {@link Account} to represent.
+     * @return the string representation of the {@link Account}.
+     */
+    static String toLine(Account a) {
+        return a.getID() + ";" + a.getAccountType() + ";" + a.getName() + ";" + a.getInitialBalance();
+    }
+
     /**
      * Creates and returns a list of string with a string representation of each tag of
      * the tags list.
@@ -77,11 +173,20 @@ public class TextFileExporter implements ExportManager {
      */
     public List<String> getStringListOfTags() {
         List<String> list = new ArrayList<>();
-        controller.getTags().forEach(t -> list.add(t.getID() +
-                ";" + t.getName() + ";" + t.getDescription()));
+        controller.getTags().forEach(t -> list.add(toLine(t)));
         return list;
     }
 
+    /**
+     * Returns the line of the file of the tags representing the given {@link Tag}.
+     *
+     * @param t the {@link Tag} to represent.
+     * @return the string representation of the {@link Tag}.
+     */
+    static String toLine(Tag t) {
+        return t.getID() + ";" + t.getName() + ";" + t.getDescription();
+    }
+
     /**
      * Creates and returns a list of strings with a string representation of each transaction
      * of the transactions list.
@@ -90,11 +195,20 @@ public class TextFileExporter implements ExportManager {
      */
     public List<String> getStringListOfTransaction() {
         List<String> list = new ArrayList<>();
-        controller.getTransactions().forEach(t -> list.add(t.getID() + ";" +
-                new SimpleDateFormat("dd-MM-yyyy").format(t.getDate()) + ";" + t.getTagsID()));
+        controller.getTransactions().forEach(t -> list.add(toLine(t)));
         return list;
     }
 
+    /**
+     * Returns the line of the file of the transactions representing the given {@link Transaction}.
+     *
+     * @param t the {@link Transaction} to represent.
+     * @return the string representation of the {@link Transaction}.
+     */
+    static String toLine(Transaction t) {
+        return t.getID() + ";" + EpochDays.format(t.getEpochDay()) + ";" + t.getTagsID();
+    }
+
     /**
      * Creates and returns a list of string with a string representation of each movement
      * of the movements list.
@@ -103,8 +217,18 @@ public class TextFileExporter implements ExportManager {
      */
     public List<String> getStringListOfMovements() {
         List<String> list = new ArrayList<>();
-        controller.getMovements().forEach(m -> list.add(m.getID() + ";" + m.getMovementType() + ";" + m.getAmount()
-                + ";" + m.getAccount().getID() + ";" + m.getTransaction().getID() + ";" + m.getTagsID()));
+        controller.getMovements().forEach(m -> list.add(toLine(m)));
         return list;
     }
+
+    /**
+     * Returns the line of the file of the movements representing the given {@link Movement}.
+     *
+     * @param m the {@link Movement} to represent.
+     * @return the string representation of the {@link Movement}.
+     */
+    static String toLine(Movement m) {
+        return m.getID() + ";" + m.getMovementType() + ";" + m.getAmount() + ";" + m.getAccount().getID()
+                + ";" + m.getTransaction().getID() + ";" + m.getTagsID();
+    }
 }
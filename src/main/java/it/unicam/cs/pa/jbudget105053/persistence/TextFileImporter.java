@@ -3,187 +3,368 @@ package it.unicam.cs.pa.jbudget105053.persistence;
 import it.unicam.cs.pa.jbudget105053.controller.Controller;
 import it.unicam.cs.pa.jbudget105053.model.*;
 
-import java.io.BufferedReader;
+import java.io.CharArrayReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.ArrayList;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.stream.Collectors;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 
 /**
  * This class implements the interface {@link ImportManager} and has the responsibility to import all
- * data from .txt files in a given path into a ledger.
+ * data from .txt files in a given path into a ledger. The files are read one line at a time by a
+ * {@link FieldReader}, so the memory used does not depend on their size.
+ * The import is a pipeline: accounts and tags are imported first, then the files of the transactions and
+ * of the movements are split into chunks of whole lines which are parsed at the same time on a
+ * {@link ForkJoinPool}. Movements are linked to their {@link Transaction} through a map by ID, and all the
+ * transactions are finally added to the ledger in a single batch.
  *
  * @author Tommaso Catervi
  */
 public class TextFileImporter implements ImportManager {
+    private static final int CHUNK_SIZE = 1 << 22;
     private final Controller controller;
-    private final List<Transaction> createdTransactions = new LinkedList<>();
+    private final ForkJoinPool pool;
 
     /**
-     * Constructs a new {@link TextFileImporter} with the given controller.
+     * Constructs a new {@link TextFileImporter} with the given controller, which parses
+     * the files on the common {@link ForkJoinPool}.
      *
      * @param controller the value used to set the {@code controller} field of the {@link TextFileImporter}.
      */
     public TextFileImporter(Controller controller) {
+        this(controller, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs a new {@link TextFileImporter} with the given controller, which parses
+     * the files on the given {@link ForkJoinPool}.
+     *
+     * @param controller the value used to set the {@code controller} field of the {@link TextFileImporter}.
+     * @param pool       the value used to set the {@code pool} field of the {@link TextFileImporter}.
+     */
+    public TextFileImporter(Controller controller, ForkJoinPool pool) {
         this.controller = controller;
+        this.pool = Objects.requireNonNull(pool);
     }
 
     /**
-     * Reads the given file and adds each line to a list of strings, then returns the list.
+     * Opens a {@link FieldReader} on the given file, decoded as UTF-8 or, if it is not valid UTF-8,
+     * as ISO-8859-1, the encoding of the files saved by the previous versions.
      *
      * @param f the file to read.
-     * @return the list of strings containing each line of the file.
+     * @return the {@link FieldReader} reading the file one line at a time.
      * @throws IOException if something goes wrong.
      */
-    private List<String> read(File f) throws IOException {
-        BufferedReader reader = new BufferedReader(new FileReader(f));
-        List<String> stringList = new ArrayList<>();
-        String st;
-        while ((st = reader.readLine()) != null) {
-            stringList.add(st);
-        }
-        return stringList;
+    private FieldReader open(File f) throws IOException {
+        return new FieldReader(new FileReader(f, isUTF8(f) ? StandardCharsets.UTF_8 : StandardCharsets.ISO_8859_1));
     }
 
     /**
-     * Gets a list of strings each of which contains the data of each {@link Account}. Then splits
-     * each string around the ";" to obtain all the string value of the required parameters for the
-     * construction and eventually constructs each {@link Account} making the appropriate type
-     * conversion from the strings.
+     * Returns true if the given file is valid UTF-8. The file is decoded in blocks, so the memory used
+     * does not depend on its size.
      *
+     * @param f the file to control.
+     * @return true if the file is valid UTF-8, false otherwise.
      * @throws IOException if something goes wrong.
      */
-    private void importAccounts(String path) throws IOException {
-        List<String> accountsString = read(new File(path + "\\accounts.txt"));
-        for (String s : accountsString) {
-            String[] splitString = s.split(";");
-            controller.addAccountWithID(Integer.parseInt(splitString[0]), AccountType.valueOf(splitString[1]),
-                    splitString[2], Double.parseDouble(splitString[3]));
+    private static boolean isUTF8(File f) throws IOException {
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT).onUnmappableCharacter(CodingErrorAction.REPORT);
+        ByteBuffer bytes = ByteBuffer.allocate(8192);
+        CharBuffer chars = CharBuffer.allocate(8192);
+        try (FileChannel channel = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+            boolean end = false;
+            while (!end) {
+                end = channel.read(bytes) < 0;
+                bytes.flip();
+                CoderResult result = decoder.decode(bytes, chars, end);
+                if (result.isError()) return false;
+                bytes.compact();
+                chars.clear();
+            }
+            return !decoder.flush(chars).isError();
         }
     }
 
     /**
-     * Gets a list of strings each of which contains the data of each {@link Tag}. Then splits each
-     * string around the ";" to obtain all the string value of the required parameters for the
-     * construction and eventually constructs each {@link Tag} making the appropriate type conversion
-     * from the strings.
+     * Reads the file of the accounts one line at a time. Each line contains the fields of an
+     * {@link Account} separated by ";", which are parsed straight from the line and used to add
+     * the {@link Account} with its ID.
      *
-     * @throws IOException if something goes wrong.
+     * @param f the file of the accounts.
+     * @throws IOException    if something goes wrong.
+     * @throws ParseException if a line contains a wrong field.
      */
-    private void importTags(String path) throws IOException {
-        List<String> tagsString = read(new File(path + "\\tags.txt"));
-        for (String s : tagsString) {
-            String[] splitString = s.split(";");
-            controller.addTagWithID(Integer.parseInt(splitString[0]), splitString[1], splitString[2]);
+    void importAccounts(File f) throws IOException, ParseException {
+        try (FieldReader reader = open(f)) {
+            while (reader.nextLine())
+                controller.addAccountWithID(reader.getInt(0), reader.getEnum(1, AccountType.values()),
+                        reader.getString(2), reader.getDouble(3));
         }
     }
 
     /**
-     * Gets a list of strings each of which contains the data of each {@link Transaction}. Then splits each
-     * string around the ";" to obtain all the string value of the required parameters for the
-     * construction and eventually constructs each {@link Transaction} making the appropriate type conversion
-     * from the strings. After its construction, a {@link Transaction} gets back all the tags it had (if it
-     * had any) through the apposite method and it is added to the list {@code createdTransactions}.
+     * Reads the file of the tags one line at a time. Each line contains the fields of a
+     * {@link Tag} separated by ";", which are parsed straight from the line and used to add
+     * the {@link Tag} with its ID.
      *
+     * @param f the file of the tags.
      * @throws IOException    if something goes wrong.
-     * @throws ParseException if something goes wrong.
+     * @throws ParseException if a line contains a wrong field.
      */
-    private void importTransactions(String path) throws IOException, ParseException {
-        List<String> transactionsString = read(new File(path + "\\transactions.txt"));
-        for (String s : transactionsString) {
-            String[] splitString = s.split(";");
-            Transaction newTransaction = (controller.createTransactionWithID(Integer.parseInt(splitString[0]),
-                    new SimpleDateFormat("yyyy-MM-dd").parse(splitString[1])));
-            if (splitString.length > 2) {
-                List<Tag> tagsToAdd = getTagsToAdd(splitString[2]);
-                tagsToAdd.forEach(newTransaction::addTag);
-            }
-            createdTransactions.add(newTransaction);
+    void importTags(File f) throws IOException, ParseException {
+        try (FieldReader reader = open(f)) {
+            while (reader.nextLine())
+                controller.addTagWithID(reader.getInt(0), reader.getString(1), reader.getString(2));
         }
     }
 
     /**
-     * Gets a list of strings each of which contains the data of each {@link Movement}. Then splits each
-     * string around the ";" to obtain all the string value of the required parameters for the
-     * construction and eventually constructs each {@link Movement} making the appropriate type conversion
-     * from the strings. After its construction, a {@link Movement} gets back all the tags it had (if it
-     * had any) through the apposite method and then it is added to the correct {@link Transaction}.
+     * Parses a chunk of the file of the transactions. Each line contains the fields of a {@link Transaction}
+     * separated by ";", which are parsed straight from the line and used to construct the {@link Transaction}.
+     * After its construction, a {@link Transaction} gets back all the tags it had (if it had any).
      *
-     * @throws IOException if something goes wrong.
+     * @param chunk the reader of the chunk.
+     * @return the transactions of the chunk, in the order they were read.
+     * @throws IOException    if something goes wrong.
+     * @throws ParseException if a line contains a wrong field.
      */
-    private void importMovements(String path) throws IOException {
-        List<String> movementsString = read(new File(path + "\\movements.txt"));
-        for (String s : movementsString) {
-            String[] splitString = s.split(";");
-            Movement newMovement = controller.createMovementWithID(Integer.parseInt(splitString[0]),
-                    MovementType.valueOf(splitString[1]), Double.parseDouble(splitString[2]), getMovementAccount(splitString[3]));
-            if (splitString.length > 5) {
-                List<Tag> tagsToAdd = getTagsToAdd(splitString[5]);
-                tagsToAdd.forEach(newMovement::addTag);
-            }
-            setTransaction(newMovement, Integer.parseInt(splitString[4]));
+    private List<Transaction> parseTransactions(FieldReader chunk) throws IOException, ParseException {
+        List<Transaction> transactions = new ArrayList<>();
+        while (chunk.nextLine()) {
+            Transaction newTransaction = controller.createTransactionWithID(chunk.getInt(0),
+                    EpochDays.toDate(chunk.getEpochDay(1)));
+            chunk.forEachInt(2, ID -> addTag(ID, newTransaction::addTag));
+            transactions.add(newTransaction);
         }
+        return transactions;
     }
 
     /**
-     * Finds the {@link Transaction} the {@link Movement} belongs to searching by
-     * its ID and then adds the {@link Movement} to it.
+     * Parses a chunk of the file of the movements. Each line contains the fields of a {@link Movement}
+     * separated by ";", which are parsed straight from the line and used to construct the {@link Movement}.
+     * After its construction, a {@link Movement} gets back all the tags it had (if it had any). The movements
+     * are returned together with the ID of their {@link Transaction}, since the transactions may still be
+     * being parsed.
      *
-     * @param m  the movement to add.
-     * @param ID the ID of the {@link Transaction} the {@link Movement} belongs to.
+     * @param chunk the reader of the chunk.
+     * @return the movements of the chunk, in the order they were read.
+     * @throws IOException    if something goes wrong.
+     * @throws ParseException if a line contains a wrong field.
      */
-    private void setTransaction(Movement m, int ID) {
-        createdTransactions.forEach(t -> {
-            if (t.getID() == ID) t.addMovement(m);
-        });
+    private ParsedMovements parseMovements(FieldReader chunk) throws IOException, ParseException {
+        ParsedMovements movements = new ParsedMovements();
+        while (chunk.nextLine()) {
+            Movement newMovement = controller.createMovementWithID(chunk.getInt(0),
+                    chunk.getEnum(1, MovementType.values()), chunk.getDouble(2), getMovementAccount(chunk.getInt(3)));
+            chunk.forEachInt(5, ID -> addTag(ID, newMovement::addTag));
+            movements.add(newMovement, chunk.getInt(4), chunk.getLineNumber());
+        }
+        movements.lines = chunk.getLineNumber();
+        return movements;
     }
 
     /**
-     * Reduce the accounts list to a list that contains the desired {@link Account}
-     * only and returns that {@link Account}.
-     * If any error occurs and the size of the list is not exactly equal to 1, an
-     * exception is thrown.
+     * Returns the {@link Account} with the given ID.
+     * If no {@link Account} with that ID exists, an exception is thrown.
      *
-     * @param s the string value of the ID to search for.
+     * @param ID the ID to search for.
      * @return the {@link Account} with the given ID.
-     * @throws IllegalStateException if something goes wrong.
+     * @throws RuntimeException if something goes wrong.
      */
-    private Account getMovementAccount(String s) {
-        List<Account> l = controller.getAccounts(a -> a.getID() == Integer.parseInt(s));
-        if ((l.size() != 1))
+    private Account getMovementAccount(int ID) {
+        Account account = controller.getAccountByID(ID);
+        if (Objects.isNull(account))
             throw new RuntimeException(MESSAGE_WRONG_ACCOUNT);
-        return l.get(0);
+        return account;
     }
 
     /**
-     * Returns a list containing all the tags with the IDs contained in the
-     * provided string.
+     * Passes the {@link Tag} with the given ID to the given consumer.
+     * The IDs of tags that do not exist are ignored.
      *
-     * @param s the string containing the IDs of the tags to return.
-     * @return a list with all the tags
+     * @param ID       the ID of the {@link Tag}.
+     * @param consumer the consumer of the {@link Tag}.
      */
-    private List<Tag> getTagsToAdd(String s) {
-        List<Integer> IDs = List.of(s.split(",")).stream().map(Integer::parseInt).collect(Collectors.toList());
-        return controller.getTags().parallelStream().filter(tag -> IDs.contains(tag.getID())).collect(Collectors.toList());
+    private void addTag(int ID, Consumer<Tag> consumer) {
+        Tag tag = controller.getTagByID(ID);
+        if (Objects.nonNull(tag)) consumer.accept(tag);
     }
 
     /**
-     * Imports all accounts, tags, transactions and movements and then adds
-     * each {@link Transaction} to the {@link Ledger}.
+     * Imports all accounts and tags, then all the transactions with their movements from the files
+     * in the given path.
      *
      * @throws IOException    if something goes wrong.
      * @throws ParseException if something goes wrong.
      */
     public void importAll(String path) throws IOException, ParseException {
-        importAccounts(path);
-        importTags(path);
-        importTransactions(path);
-        importMovements(path);
-        createdTransactions.forEach(controller::addTransaction);
+        importAccounts(new File(path + "\\accounts.txt"));
+        importTags(new File(path + "\\tags.txt"));
+        importTransactions(List.of(new File(path + "\\transactions.txt")), List.of(new File(path + "\\movements.txt")));
+    }
+
+    /**
+     * Parses the chunks of the given files of the transactions and of the movements at the same time on
+     * the {@code pool}. Each {@link Movement} is added to its {@link Transaction}, found by ID, and finally
+     * all the transactions are added to the {@link Ledger} in a single batch. Accounts and tags must
+     * already have been imported. If the {@link Transaction} of a {@link Movement} does not exist, nothing
+     * is added and a {@link ParseException} reports the line of the {@link Movement}.
+     *
+     * @param transactionFiles the files of the transactions.
+     * @param movementFiles    the files of the movements.
+     * @throws IOException    if something goes wrong.
+     * @throws ParseException if something goes wrong.
+     */
+    void importTransactions(List<File> transactionFiles, List<File> movementFiles) throws IOException, ParseException {
+        List<Future<List<Transaction>>> transactionChunks = new ArrayList<>();
+        List<Future<ParsedMovements>> movementChunks = new ArrayList<>();
+        BitSet firstChunks = new BitSet();
+        try {
+            for (File f : transactionFiles)
+                for (ByteBuffer chunk : split(f))
+                    transactionChunks.add(pool.submit(() -> parseTransactions(open(chunk))));
+            for (File f : movementFiles) {
+                firstChunks.set(movementChunks.size());
+                for (ByteBuffer chunk : split(f))
+                    movementChunks.add(pool.submit(() -> parseMovements(open(chunk))));
+            }
+            Map<Integer, Transaction> transactionsByID = new LinkedHashMap<>();
+            for (Future<List<Transaction>> chunk : transactionChunks)
+                join(chunk).forEach(t -> transactionsByID.put(t.getID(), t));
+            int lines = 0;
+            for (int i = 0; i < movementChunks.size(); i++) {
+                if (firstChunks.get(i)) lines = 0;
+                lines += join(movementChunks.get(i)).addTo(transactionsByID, lines);
+            }
+            controller.addTransactions(transactionsByID.values());
+        } finally {
+            transactionChunks.forEach(f -> f.cancel(false));
+            movementChunks.forEach(f -> f.cancel(false));
+        }
+    }
+
+    /**
+     * Maps the given file and splits it into chunks of about {@code CHUNK_SIZE} bytes, each of which
+     * ends at the end of a line.
+     *
+     * @param f the file to split.
+     * @return the chunks of the file, in order.
+     * @throws IOException if something goes wrong.
+     */
+    private List<ByteBuffer> split(File f) throws IOException {
+        try (FileChannel channel = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer file = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            List<ByteBuffer> chunks = new ArrayList<>();
+            int start = 0;
+            while (start < file.limit()) {
+                int end = Math.min(file.limit(), start + CHUNK_SIZE);
+                while (end < file.limit() && file.get(end - 1) != '\n') end++;
+                ByteBuffer chunk = file.duplicate();
+                chunk.position(start).limit(end);
+                chunks.add(chunk.slice());
+                start = end;
+            }
+            return chunks;
+        }
+    }
+
+    /**
+     * Decodes the given chunk as UTF-8 or, if it is not valid UTF-8, as ISO-8859-1, and opens a
+     * {@link FieldReader} on it. A chunk of only ASCII characters is decoded in the same way by both,
+     * so each chunk can be decoded on its own.
+     *
+     * @param chunk the chunk to read.
+     * @return the {@link FieldReader} reading the chunk one line at a time.
+     */
+    private FieldReader open(ByteBuffer chunk) {
+        CharBuffer chars;
+        try {
+            chars = StandardCharsets.UTF_8.newDecoder().onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT).decode(chunk.duplicate());
+        } catch (CharacterCodingException e) {
+            chars = StandardCharsets.ISO_8859_1.decode(chunk);
+        }
+        return new FieldReader(new CharArrayReader(chars.array(), chars.arrayOffset() + chars.position(), chars.remaining()));
+    }
+
+    /**
+     * Waits for the given chunk to be parsed and returns its result, throwing again
+     * the exception thrown while parsing it if there was one.
+     *
+     * @param chunk the chunk being parsed.
+     * @param <T>   the type of the result.
+     * @return the result of the parsing.
+     * @throws IOException    if something goes wrong.
+     * @throws ParseException if something goes wrong.
+     */
+    private <T> T join(Future<T> chunk) throws IOException, ParseException {
+        try {
+            return chunk.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(MESSAGE_FAILED_IMPORT, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            if (cause instanceof ParseException) throw (ParseException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            throw new IOException(MESSAGE_FAILED_IMPORT, cause);
+        }
+    }
+
+    /**
+     * The movements parsed from a chunk, each with the ID of its {@link Transaction} and the number
+     * of its line in the chunk.
+     */
+    private static final class ParsedMovements {
+        private final List<Movement> movements = new ArrayList<>();
+        private int[] transactionIDs = new int[64];
+        private int[] lineNumbers = new int[64];
+        private int lines;
+
+        private void add(Movement m, int transactionID, int lineNumber) {
+            if (movements.size() == transactionIDs.length) {
+                transactionIDs = Arrays.copyOf(transactionIDs, transactionIDs.length * 2);
+                lineNumbers = Arrays.copyOf(lineNumbers, lineNumbers.length * 2);
+            }
+            transactionIDs[movements.size()] = transactionID;
+            lineNumbers[movements.size()] = lineNumber;
+            movements.add(m);
+        }
+
+        /**
+         * Adds each movement to its {@link Transaction}.
+         *
+         * @param transactionsByID the transactions by ID.
+         * @param firstLine        the number of lines of the file before the chunk.
+         * @return the number of lines of the chunk.
+         * @throws ParseException if the {@link Transaction} of a movement does not exist.
+         */
+        private int addTo(Map<Integer, Transaction> transactionsByID, int firstLine) throws ParseException {
+            int i = 0;
+            for (Movement m : movements) {
+                Transaction t = transactionsByID.get(transactionIDs[i]);
+                if (Objects.isNull(t))
+                    throw new ParseException(MESSAGE_WRONG_TRANSACTION + (firstLine + lineNumbers[i]), 0);
+                t.addMovement(m);
+                i++;
+            }
+            return lines;
+        }
     }
-}
\ No newline at end of file
+}
@@ -15,6 +15,7 @@ class LedgerMenuControllerTest {
     @BeforeEach
     void init() {
         controller = new LedgerMenuController();
+        controller.resetLedger();
     }
 
     @Test
@@ -3,6 +3,7 @@ package it.unicam.cs.pa.jbudget105053.model;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.time.LocalDate;
 import java.util.Calendar;
 import java.util.GregorianCalendar;
 
@@ -44,6 +45,49 @@ class BasicAccountTest {
     @Test
     void getBalance() {
         assertEquals(16000, account.getBalance());
+        account.setAccountType(AccountType.LIABILITY);
+        assertEquals(14000, account.getBalance());
+    }
+
+    @Test
+    void getBalanceAt() {
+        assertEquals(15000, account.getBalanceAt(LocalDate.of(2020, 1, 14)));
+        assertEquals(16000, account.getBalanceAt(LocalDate.of(2020, 1, 15)));
+        assertEquals(16000, account.getBalanceAt(LocalDate.of(2049, 2, 20)));
+        assertEquals(17000, account.getBalanceAt(LocalDate.of(2049, 2, 21)));
+        assertThrows(NullPointerException.class, () -> account.getBalanceAt(null));
+    }
+
+    @Test
+    void getVariation() {
+        assertEquals(1000, account.getVariation(LocalDate.of(2020, 1, 15), LocalDate.of(2020, 1, 15)));
+        assertEquals(2000, account.getVariation(LocalDate.of(1990, 1, 1), LocalDate.of(2100, 1, 1)));
+        assertEquals(0, account.getVariation(LocalDate.of(2020, 1, 16), LocalDate.of(2049, 2, 20)));
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> account.getVariation(LocalDate.of(2021, 1, 1), LocalDate.of(2020, 1, 1)));
+        assertEquals(Account.MESSAGE_WRONG_PERIOD, e.getMessage());
+    }
+
+    @Test
+    void removeMovement() {
+        Movement m1 = t1.getMovements().get(0);
+        Movement m3 = t2.getMovements().get(0);
+        assertTrue(account.removeMovement(m1));
+        assertFalse(account.removeMovement(m1));
+        assertEquals(17000, account.getBalance());
+        // i movimenti futuri non incidono sul saldo
+        assertTrue(account.removeMovement(m3));
+        assertEquals(17000, account.getBalance());
+        assertEquals(2, account.getMovementsList().size());
+    }
+
+    @Test
+    void setDate() {
+        // spostando la transazione futura nel passato il saldo la include
+        t2.setDate(new GregorianCalendar(2019, Calendar.MARCH, 1).getTime());
+        assertEquals(17000, account.getBalance());
+        t1.setDate(new GregorianCalendar(2050, Calendar.MARCH, 1).getTime());
+        assertEquals(16000, account.getBalance());
     }
 
     @Test
@@ -0,0 +1,196 @@
+package it.unicam.cs.pa.jbudget105053.model;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BudgetTrackerTest {
+    private static final LocalDate GENNAIO = LocalDate.of(2020, 1, 10);
+    private static final LocalDate FEBBRAIO = LocalDate.of(2020, 2, 10);
+    private Ledger ledger;
+    private BudgetTracker tracker;
+    private Account conto;
+    private Tag spesa;
+    private int nextID;
+
+    @BeforeEach
+    void init() {
+        ledger = new IndexedLedger();
+        ledger.resetLedger();
+        ledger.addAccount(AccountType.ASSET, "CONTO CORRENTE", 1000);
+        ledger.addTagWithID(1, "SPESA", "bla bla bla");
+        conto = ledger.getAccountByID(1);
+        spesa = ledger.getTagByID(1);
+        tracker = ledger.getBudgetTracker();
+        nextID = 1;
+    }
+
+    // aggiunge al ledger una transazione con un solo movimento nel giorno dato
+    private Transaction spend(LocalDate day, MovementType type, double amount, Tag tag) {
+        BasicTransaction t = new BasicTransaction(nextID, EpochDays.toDate((int) day.toEpochDay()));
+        BasicMovement m = new BasicMovement(nextID++, type, amount, conto);
+        if (tag != null) m.addTag(tag);
+        t.addMovement(m);
+        ledger.addTransaction(t);
+        return t;
+    }
+
+    @Test
+    void addBudget() {
+        spend(GENNAIO, MovementType.DECREMENT, 50, spesa);
+        spend(GENNAIO, MovementType.INCREMENT, 500, null);
+        spend(FEBBRAIO, MovementType.DECREMENT, 20, null);
+        // la spesa gia' presente viene letta dai totali del ledger
+        Budget mensile = Budget.forAccount(conto, Granularity.MONTH, 100);
+        Budget annuale = Budget.forTag(spesa, Granularity.YEAR, 1000);
+        tracker.addBudget(mensile);
+        tracker.addBudget(annuale);
+        assertEquals(5000, tracker.getSpentInCents(mensile, GENNAIO));
+        assertEquals(2000, tracker.getSpentInCents(mensile, FEBBRAIO));
+        assertEquals(0, tracker.getSpentInCents(mensile, LocalDate.of(2020, 3, 1)));
+        assertEquals(5000, tracker.getSpentInCents(annuale, FEBBRAIO));
+        assertEquals(List.of(mensile, annuale), tracker.getBudgets());
+
+        assertThrows(NullPointerException.class, () -> tracker.addBudget(null));
+        Account altro = new BasicAccount(9, AccountType.ASSET, "ALTRO", 0);
+        IllegalArgumentException e1 = assertThrows(IllegalArgumentException.class, () -> tracker.addBudget(Budget.forAccount(altro, Granularity.DAY, 1)));
+        assertEquals(Account.MESSAGE_ACCOUNT_DOES_NOT_EXIST, e1.getMessage());
+        Tag casa = new BasicTag(9, "CASA", "bla bla bla");
+        IllegalArgumentException e2 = assertThrows(IllegalArgumentException.class, () -> tracker.addBudget(Budget.forTag(casa, Granularity.DAY, 1)));
+        assertEquals(Tag.MESSAGE_TAG_DOES_NOT_EXIST, e2.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> Budget.forAccount(conto, Granularity.DAY, 0));
+        assertThrows(IllegalArgumentException.class, () -> Budget.forAccount(conto, Granularity.DAY, 1).withThresholds(0.5, -1));
+    }
+
+    @Test
+    void removeBudget() {
+        Budget mensile = Budget.forAccount(conto, Granularity.MONTH, 100);
+        tracker.addBudget(mensile);
+        tracker.removeBudget(mensile);
+        assertTrue(tracker.getBudgets().isEmpty());
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> tracker.getSpentInCents(mensile, GENNAIO));
+        assertEquals(BudgetTracker.MESSAGE_BUDGET_DOES_NOT_EXIST, e.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> tracker.removeBudget(mensile));
+    }
+
+    @Test
+    void getSpentInCents() {
+        Budget mensile = Budget.forTag(spesa, Granularity.MONTH, 100);
+        tracker.addBudget(mensile);
+        // la spesa viene aggiornata ad ogni aggiunta e rimozione
+        Transaction t = spend(GENNAIO, MovementType.DECREMENT, 30, spesa);
+        spend(GENNAIO.plusDays(5), MovementType.DECREMENT, 12.5, spesa);
+        spend(GENNAIO, MovementType.DECREMENT, 40, null);
+        spend(GENNAIO, MovementType.INCREMENT, 40, spesa);
+        assertEquals(4250, tracker.getSpentInCents(mensile, GENNAIO));
+        assertEquals(57.5, tracker.getRemaining(mensile, GENNAIO));
+        ledger.removeTransaction(t);
+        assertEquals(1250, tracker.getSpentInCents(mensile, GENNAIO));
+        spend(FEBBRAIO, MovementType.DECREMENT, 150, spesa);
+        assertEquals(-50, tracker.getRemaining(mensile, FEBBRAIO));
+        assertEquals(1250, tracker.getSpentInCents(mensile, GENNAIO));
+    }
+
+    @Test
+    void addListener() {
+        Budget mensile = Budget.forAccount(conto, Granularity.MONTH, 100).withThresholds(1, 0.8);
+        tracker.addBudget(mensile);
+        List<String> events = new ArrayList<>();
+        tracker.addListener((budget, period, threshold, reached) -> {
+            assertSame(mensile, budget);
+            // il listener vede il ledger gia' modificato
+            assertEquals(tracker.getSpentInCents(budget, period) >= budget.getLimitCents() * threshold, reached);
+            events.add(period + " " + threshold + " " + reached);
+        });
+        spend(GENNAIO, MovementType.DECREMENT, 70, null);
+        assertTrue(events.isEmpty());
+        Transaction t = spend(GENNAIO, MovementType.DECREMENT, 10, null);
+        assertEquals(List.of("2020-01-01 0.8 true"), events);
+        spend(GENNAIO, MovementType.DECREMENT, 25, null);
+        assertEquals(List.of("2020-01-01 0.8 true", "2020-01-01 1.0 true"), events);
+        // una soglia viene notificata di nuovo solo dopo essere stata riattraversata
+        spend(GENNAIO, MovementType.DECREMENT, 5, null);
+        assertEquals(2, events.size());
+        events.clear();
+        ledger.removeTransaction(t);
+        assertTrue(events.isEmpty());
+        ledger.removeTransaction(ledger.getTransactionByID(3));
+        assertEquals(List.of("2020-01-01 0.8 false", "2020-01-01 1.0 false"), events);
+        // le soglie di ogni periodo sono indipendenti
+        events.clear();
+        spend(FEBBRAIO, MovementType.DECREMENT, 80, null);
+        assertEquals(List.of("2020-02-01 0.8 true"), events);
+        assertThrows(NullPointerException.class, () -> tracker.addListener(null));
+    }
+
+    @Test
+    void removeListener() {
+        Budget mensile = Budget.forAccount(conto, Granularity.MONTH, 100);
+        tracker.addBudget(mensile);
+        List<Budget> events = new ArrayList<>();
+        BudgetListener listener = (budget, period, threshold, reached) -> events.add(budget);
+        tracker.addListener(listener);
+        tracker.removeListener(listener);
+        spend(GENNAIO, MovementType.DECREMENT, 200, null);
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    void removeTag() {
+        Budget mensile = Budget.forTag(spesa, Granularity.MONTH, 100);
+        Budget conti = Budget.forAccount(conto, Granularity.MONTH, 100);
+        tracker.addBudget(mensile);
+        tracker.addBudget(conti);
+        spend(GENNAIO, MovementType.DECREMENT, 30, spesa);
+        // i budget del tag e dell'account rimossi vengono eliminati
+        ledger.removeTag(spesa);
+        assertEquals(List.of(conti), tracker.getBudgets());
+        ledger.removeAccount(conto);
+        assertTrue(tracker.getBudgets().isEmpty());
+    }
+
+    @Test
+    void resetLedger() {
+        Budget mensile = Budget.forAccount(conto, Granularity.MONTH, 100);
+        tracker.addBudget(mensile);
+        ledger.resetLedger();
+        assertTrue(tracker.getBudgets().isEmpty());
+    }
+
+    @Test
+    void getBudgetTracker() {
+        // tutti i ledger aggiornano la spesa dei budget
+        for (Ledger l : List.of(new LedgerMenu(), new MappedLedger(), new ConcurrentLedger())) {
+            ledger = l;
+            ledger.resetLedger();
+            ledger.addAccount(AccountType.ASSET, "CONTO CORRENTE", 1000);
+            ledger.addTagWithID(1, "SPESA", "bla bla bla");
+            conto = ledger.getAccountByID(1);
+            spesa = ledger.getTagByID(1);
+            tracker = ledger.getBudgetTracker();
+            nextID = 1;
+            spend(GENNAIO, MovementType.DECREMENT, 30, spesa);
+            Budget mensile = Budget.forTag(spesa, Granularity.MONTH, 100);
+            Budget conti = Budget.forAccount(conto, Granularity.MONTH, 100);
+            tracker.addBudget(mensile);
+            tracker.addBudget(conti);
+            assertEquals(3000, tracker.getSpentInCents(mensile, GENNAIO));
+            List<Boolean> events = new ArrayList<>();
+            tracker.addListener((budget, period, threshold, reached) -> events.add(reached));
+            Transaction t = spend(GENNAIO, MovementType.DECREMENT, 80, spesa);
+            assertEquals(11000, tracker.getSpentInCents(mensile, GENNAIO));
+            assertEquals(List.of(true, true), events);
+            ledger.removeTransaction(t);
+            assertEquals(3000, tracker.getSpentInCents(conti, GENNAIO));
+            assertEquals(List.of(true, true, false, false), events);
+            ledger.removeAccount(conto);
+            assertEquals(List.of(mensile), tracker.getBudgets());
+            assertEquals(0, tracker.getSpentInCents(mensile, GENNAIO));
+        }
+    }
+}
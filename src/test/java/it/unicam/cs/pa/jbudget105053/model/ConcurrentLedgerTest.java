@@ -0,0 +1,215 @@
+package it.unicam.cs.pa.jbudget105053.model;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentLedgerTest {
+    private ConcurrentLedger ledger;
+    private BasicTransaction t1;
+
+    @BeforeEach
+    void init() {
+        ledger = new ConcurrentLedger();
+        ledger.resetLedger();
+        t1 = new BasicTransaction(1, Date.from(Instant.now()));
+        ledger.addAccount(AccountType.ASSET, "CONTO CORRENTE", 1000);
+    }
+
+    @Test
+    void addAccount() {
+        assertEquals(1, ledger.getAccounts().size());
+        assertThrows(IllegalArgumentException.class, () -> ledger.addAccount(AccountType.ASSET, "conto corrente", 500));
+        assertThrows(IllegalArgumentException.class, () -> ledger.addAccountWithID(1, AccountType.ASSET, "PREPAGATA", 500));
+        // il nome dell'account rifiutato per l'ID resta disponibile
+        ledger.addAccount(AccountType.ASSET, "PREPAGATA", 500);
+        assertEquals(2, ledger.getAccounts().size());
+    }
+
+    @Test
+    void modifyAccount() {
+        ledger.addAccount(AccountType.ASSET, "PREPAGATA", 500);
+        Account a = ledger.getAccountByID(1);
+        // il nome di un altro account non puo' essere preso
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> ledger.modifyAccount(a, AccountType.ASSET, "prepagata", 200));
+        assertEquals(Account.MESSAGE_ACCOUNT_ALREADY_EXISTS, e.getMessage());
+        assertEquals("CONTO CORRENTE", a.getName());
+        assertThrows(IllegalArgumentException.class, () -> ledger.addAccount(AccountType.ASSET, "PREPAGATA", 500));
+        // una rinomina fallita non occupa il nuovo nome
+        assertThrows(IllegalArgumentException.class, () -> ledger.modifyAccount(a, AccountType.ASSET, "CASSA", -1));
+        ledger.addAccount(AccountType.ASSET, "CASSA", 500);
+        ledger.modifyAccount(a, AccountType.ASSET, "CONTO ARANCIO", 200);
+        ledger.addAccount(AccountType.ASSET, "CONTO CORRENTE", 500);
+        assertThrows(IllegalArgumentException.class, () -> ledger.addAccount(AccountType.ASSET, "CONTO ARANCIO", 500));
+    }
+
+    @Test
+    void modifyTag() {
+        ledger.addTag("CASA", "bla bla bla");
+        ledger.addTag("SVAGO", "bla bla bla");
+        Tag casa = ledger.getTags().get(0);
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> ledger.modifyTag(casa, "svago", ""));
+        assertEquals(Tag.MESSAGE_TAG_ALREADY_EXISTS, e.getMessage());
+        assertEquals("CASA", casa.getName());
+        ledger.modifyTag(casa, "AFFITTO", "");
+        ledger.addTag("CASA", "bla bla bla");
+    }
+
+    @Test
+    void removeAccount() {
+        ledger.addAccount(AccountType.ASSET, "CASSA CONTANTE", 1000);
+        Account a1 = ledger.getAccountByID(1);
+        Account a2 = ledger.getAccountByID(2);
+        t1.addMovement(new BasicMovement(1, MovementType.DECREMENT, 200, a1));
+        t1.addMovement(new BasicMovement(2, MovementType.INCREMENT, 200, a2));
+        ledger.addTransaction(t1);
+
+        ledger.removeAccount(a1);
+        assertNull(ledger.getMovementByID(1));
+        assertEquals(1, t1.getMovements().size());
+        ledger.removeAccount(a2);
+        assertNull(ledger.getTransactionByID(1));
+        assertTrue(ledger.getMovements().isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> ledger.removeAccount(a2));
+    }
+
+    @Test
+    void addTransaction() {
+        Account a = ledger.getAccountByID(1);
+        t1.addMovement(new BasicMovement(1, MovementType.INCREMENT, 250, a));
+        ledger.addTransaction(t1);
+        assertEquals(1250, a.getBalance());
+        assertEquals(List.of(t1), ledger.getTransactions());
+        assertEquals(1, ledger.getMovements().size());
+        assertThrows(IllegalArgumentException.class, () -> ledger.addTransaction(t1));
+        assertThrows(NullPointerException.class, () -> ledger.addTransaction(null));
+    }
+
+    @Test
+    void addTransactions() {
+        Account a = ledger.getAccountByID(1);
+        BasicTransaction t2 = new BasicTransaction(2, Date.from(Instant.now()));
+        t1.addMovement(new BasicMovement(1, MovementType.INCREMENT, 250, a));
+        t2.addMovement(new BasicMovement(2, MovementType.DECREMENT, 50, a));
+        ledger.addTransaction(t2);
+        // se una transazione esiste gia' nessuna transazione del lotto viene aggiunta
+        assertThrows(IllegalArgumentException.class, () -> ledger.addTransactions(List.of(t1, t2)));
+        assertEquals(List.of(t2), ledger.getTransactions());
+        assertEquals(950, a.getBalance());
+        ledger.removeTransaction(t2);
+        ledger.addTransactions(List.of(t1, t2));
+        assertEquals(1200, a.getBalance());
+        assertEquals(2, ledger.getMovements().size());
+
+        // un movimento con un ID gia' usato, nel ledger o nel lotto, o di un account esterno blocca tutto il lotto
+        BasicTransaction t3 = new BasicTransaction(3, Date.from(Instant.now()));
+        t3.addMovement(new BasicMovement(3, MovementType.INCREMENT, 10, a));
+        BasicTransaction t4 = new BasicTransaction(4, Date.from(Instant.now()));
+        t4.addMovement(new BasicMovement(2, MovementType.INCREMENT, 10, a));
+        assertThrows(IllegalArgumentException.class, () -> ledger.addTransactions(List.of(t3, t4)));
+        BasicTransaction t5 = new BasicTransaction(5, Date.from(Instant.now()));
+        t5.addMovement(new BasicMovement(3, MovementType.INCREMENT, 10, a));
+        assertThrows(IllegalArgumentException.class, () -> ledger.addTransactions(List.of(t3, t5)));
+        BasicTransaction t6 = new BasicTransaction(6, Date.from(Instant.now()));
+        t6.addMovement(new BasicMovement(6, MovementType.INCREMENT, 10, new BasicAccount(9, AccountType.ASSET, "ESTERNO", 0)));
+        assertThrows(IllegalArgumentException.class, () -> ledger.addTransactions(List.of(t3, t6)));
+        assertEquals(2, ledger.getTransactions().size());
+        assertEquals(2, ledger.getMovements().size());
+        assertNull(ledger.getMovementByID(3));
+        assertEquals(1200, a.getBalance());
+        assertEquals(2, ledger.getMovementByID(2).getTransaction().getID());
+    }
+
+    @Test
+    void removeTransaction() {
+        Account a = ledger.getAccountByID(1);
+        t1.addMovement(new BasicMovement(1, MovementType.DECREMENT, 250, a));
+        ledger.addTransaction(t1);
+        ledger.removeTransaction(t1);
+        assertEquals(1000, a.getBalance());
+        assertTrue(ledger.getTransactions().isEmpty());
+        assertNull(ledger.getMovementByID(1));
+        assertThrows(IllegalArgumentException.class, () -> ledger.removeTransaction(t1));
+    }
+
+    @Test
+    void getTransactions() {
+        List<Transaction> before = ledger.getTransactions();
+        t1.addMovement(new BasicMovement(1, MovementType.INCREMENT, 10, ledger.getAccountByID(1)));
+        ledger.addTransaction(t1);
+        // la lista letta in precedenza non cambia, quella nuova include la transazione
+        assertTrue(before.isEmpty());
+        assertSame(ledger.getTransactions(), ledger.getTransactions());
+        assertEquals(1, ledger.getTransactions().size());
+        // le liste lette dopo la stessa modifica appartengono alla stessa copia del ledger
+        List<Movement> movements = ledger.getMovements();
+        assertEquals(1, movements.size());
+        assertSame(movements, ledger.getMovements());
+        ledger.addAccount(AccountType.ASSET, "CASSA", 0);
+        assertNotSame(movements, ledger.getMovements());
+        assertThrows(UnsupportedOperationException.class, () -> ledger.getTransactions().clear());
+    }
+
+    @Test
+    void removeTag() {
+        ledger.addTag("CASA", "Spese per la casa");
+        Tag tag = ledger.getTags().get(0);
+        t1.addMovement(new BasicMovement(1, MovementType.INCREMENT, 10, ledger.getAccountByID(1)));
+        t1.addTag(tag);
+        ledger.addTransaction(t1);
+        assertEquals(1, ledger.countMovements(tag));
+        assertEquals(List.of(t1), ledger.getTransactions(TagExpression.of(tag)));
+        ledger.removeTag(tag);
+        assertTrue(ledger.getTags().isEmpty());
+        assertTrue(t1.getTag().isEmpty());
+        assertEquals(0, ledger.countMovements(tag));
+    }
+
+    @Test
+    void addTransactionConcurrently() throws Exception {
+        int accounts = 8;
+        int transactionsPerThread = 500;
+        int threads = 8;
+        for (int i = 2; i <= accounts; i++)
+            ledger.addAccount(AccountType.ASSET, "CONTO " + i, 1000);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < threads; thread++) {
+            int first = thread * transactionsPerThread;
+            futures.add(executor.submit(() -> {
+                for (int i = first; i < first + transactionsPerThread; i++) {
+                    // ogni transazione sposta un euro tra due account, in ordine diverso tra i thread
+                    Account from = ledger.getAccountByID(1 + i % accounts);
+                    Account to = ledger.getAccountByID(1 + (i * 7 + 3) % accounts);
+                    if (from.equals(to)) continue;
+                    BasicTransaction t = new BasicTransaction(i + 1, new Date());
+                    t.addMovement(new BasicMovement(2 * i + 1, MovementType.DECREMENT, 1, from));
+                    t.addMovement(new BasicMovement(2 * i + 2, MovementType.INCREMENT, 1, to));
+                    ledger.addTransaction(t);
+                    if (i % 3 == 0) ledger.removeTransaction(t);
+                }
+            }));
+        }
+        for (Future<?> f : futures)
+            f.get(30, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        double total = ledger.getAccounts().stream().mapToDouble(Account::getBalance).sum();
+        assertEquals(accounts * 1000, total);
+        for (Account a : ledger.getAccounts()) {
+            long variation = a.getMovementsList().stream().mapToLong(Movement::getSignedCents).sum();
+            assertEquals(1000 + Money.toAmount(variation), a.getBalance());
+        }
+        assertEquals(2 * ledger.getTransactions().size(), ledger.getMovements().size());
+    }
+}
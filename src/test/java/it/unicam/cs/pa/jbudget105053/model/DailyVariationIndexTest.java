@@ -0,0 +1,41 @@
+package it.unicam.cs.pa.jbudget105053.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DailyVariationIndexTest {
+
+    @Test
+    void sumUpTo() {
+        DailyVariationIndex index = new DailyVariationIndex();
+        assertEquals(0, index.sumUpTo(0));
+        long day = LocalDate.of(2020, 3, 1).toEpochDay();
+        index.add(day, 100);
+        index.add(day + 10, -30);
+        // variazioni molto lontane costringono l'indice ad allargarsi in entrambe le direzioni
+        index.add(day - 20000, 5);
+        index.add(day + 40000, 7);
+
+        assertEquals(0, index.sumUpTo(day - 20001));
+        assertEquals(5, index.sumUpTo(day - 1));
+        assertEquals(105, index.sumUpTo(day));
+        assertEquals(75, index.sumUpTo(day + 10));
+        assertEquals(75, index.sumUpTo(day + 39999));
+        assertEquals(82, index.sumUpTo(day + 40000));
+        assertEquals(82, index.sumUpTo(Long.MAX_VALUE));
+    }
+
+    @Test
+    void sumBetween() {
+        DailyVariationIndex index = new DailyVariationIndex();
+        for (int i = 0; i < 3000; i++)
+            index.add(i, 1);
+        assertEquals(3000, index.sumBetween(0, 2999));
+        assertEquals(11, index.sumBetween(100, 110));
+        index.add(105, -1);
+        assertEquals(10, index.sumBetween(100, 110));
+    }
+}
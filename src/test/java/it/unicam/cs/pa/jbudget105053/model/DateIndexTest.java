@@ -0,0 +1,66 @@
+package it.unicam.cs.pa.jbudget105053.model;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PrimitiveIterator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DateIndexTest {
+    private DateIndex index;
+    private BasicAccount account;
+
+    @BeforeEach
+    void init() {
+        index = new DateIndex();
+        account = new BasicAccount(1, AccountType.ASSET, "CONTO CORRENTE", 0);
+    }
+
+    /**
+     * Crea una transazione del giorno dato con un movimento con lo stesso ID.
+     */
+    private Transaction transaction(int ID, int day) {
+        BasicTransaction t = new BasicTransaction(ID, EpochDays.toDate(day));
+        t.addMovement(new BasicMovement(ID, MovementType.INCREMENT, 1, account));
+        return t;
+    }
+
+    private List<Integer> toList(PrimitiveIterator.OfInt IDs) {
+        List<Integer> list = new ArrayList<>();
+        IDs.forEachRemaining((int ID) -> list.add(ID));
+        return list;
+    }
+
+    @Test
+    void addTransactions() {
+        index.addTransactions(List.of(transaction(5, 10), transaction(2, 12), transaction(7, 10)));
+        // gli ID minori di quelli gia' presenti nello stesso giorno vengono fusi in ordine
+        index.addTransactions(List.of(transaction(6, 10), transaction(1, 10), transaction(9, 10)));
+        assertEquals(List.of(1, 5, 6, 7, 9, 2), toList(index.getTransactionIDs(0, 20)));
+        assertEquals(List.of(1, 5, 6, 7, 9), toList(index.getMovementIDs(10, 11)));
+        assertEquals(5, index.countMovements(10, 11));
+        assertTrue(toList(index.getTransactionIDs(11, 10)).isEmpty());
+    }
+
+    @Test
+    void removeTransaction() {
+        Transaction t = transaction(5, 10);
+        index.addTransactions(List.of(transaction(4, 10), t, transaction(6, 11)));
+        index.removeTransaction(t);
+        assertEquals(List.of(4, 6), toList(index.getTransactionIDs(0, 20)));
+        assertEquals(2, index.countMovements(0, 20));
+        index.removeTransaction(transaction(6, 11));
+        assertEquals(List.of(4), toList(index.getMovementIDs(0, 20)));
+    }
+
+    @Test
+    void descendingTransactionIDs() {
+        index.addTransactions(List.of(transaction(1, 10), transaction(2, 12), transaction(3, 10)));
+        assertEquals(List.of(2, 3, 1), toList(index.descendingTransactionIDs()));
+        index.clear();
+        assertFalse(index.descendingTransactionIDs().hasNext());
+    }
+}
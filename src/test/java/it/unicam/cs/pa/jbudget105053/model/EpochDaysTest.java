@@ -0,0 +1,51 @@
+package it.unicam.cs.pa.jbudget105053.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.text.ParseException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EpochDaysTest {
+
+    @Test
+    void format() {
+        assertEquals("01-01-1970", EpochDays.format(0));
+        assertEquals("29-02-2020", EpochDays.format((int) LocalDate.of(2020, 2, 29).toEpochDay()));
+        assertEquals("31-12-1969", EpochDays.format(-1));
+        assertEquals("15-01-2020", EpochDays.format(new GregorianCalendar(2020, Calendar.JANUARY, 15).getTime()));
+        // le stringhe dei giorni in cache vengono riutilizzate
+        assertSame(EpochDays.format(18000), EpochDays.format(18000));
+    }
+
+    @Test
+    void parse() throws ParseException {
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern(EpochDays.PATTERN);
+        for (int day = -1000; day < 60000; day += 7)
+            assertEquals(day, EpochDays.parse(formatter.format(LocalDate.ofEpochDay(day))));
+        assertEquals(18321, EpochDays.parse("x;29-02-2020;y", 2, 12));
+        assertThrows(ParseException.class, () -> EpochDays.parse("2020-02-29"));
+        assertThrows(ParseException.class, () -> EpochDays.parse("29-02-2019"));
+        assertThrows(ParseException.class, () -> EpochDays.parse("31-04-2020"));
+        assertThrows(ParseException.class, () -> EpochDays.parse("1a-04-2020"));
+    }
+
+    @Test
+    void toDate() {
+        int day = EpochDays.toEpochDay(new GregorianCalendar(2020, Calendar.JANUARY, 15, 18, 30).getTime());
+        assertEquals(LocalDate.of(2020, 1, 15).toEpochDay(), day);
+        assertEquals(new GregorianCalendar(2020, Calendar.JANUARY, 15).getTime(), EpochDays.toDate(day));
+    }
+
+    @Test
+    void toEpochDay() {
+        // java.sql.Date non supporta toInstant(), ma deve poter essere convertita
+        assertEquals(LocalDate.of(2020, 1, 10).toEpochDay(), EpochDays.toEpochDay(java.sql.Date.valueOf("2020-01-10")));
+        BasicTransaction t = new BasicTransaction(1, java.sql.Date.valueOf("2020-01-10"));
+        assertEquals(LocalDate.of(2020, 1, 10).toEpochDay(), t.getEpochDay());
+    }
+}
@@ -0,0 +1,75 @@
+package it.unicam.cs.pa.jbudget105053.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.TreeSet;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IDBitmapTest {
+
+    @Test
+    void add() {
+        IDBitmap bitmap = new IDBitmap();
+        assertTrue(bitmap.add(5));
+        assertFalse(bitmap.add(5));
+        assertTrue(bitmap.add(70000));
+        assertEquals(2, bitmap.cardinality());
+        assertArrayEquals(new int[]{5, 70000}, bitmap.toArray());
+    }
+
+    @Test
+    void remove() {
+        IDBitmap bitmap = new IDBitmap();
+        // abbastanza ID da rendere denso il primo blocco
+        IntStream.range(0, 10000).forEach(bitmap::add);
+        assertTrue(bitmap.remove(9999));
+        assertFalse(bitmap.remove(9999));
+        assertFalse(bitmap.contains(9999));
+        IntStream.range(0, 9000).forEach(bitmap::remove);
+        assertEquals(999, bitmap.cardinality());
+        assertTrue(bitmap.contains(9000));
+        IntStream.range(9000, 9999).forEach(bitmap::remove);
+        assertTrue(bitmap.isEmpty());
+    }
+
+    @Test
+    void and() {
+        IDBitmap a = new IDBitmap();
+        IDBitmap b = new IDBitmap();
+        IntStream.range(0, 10000).forEach(a::add);
+        IntStream.range(0, 200000).filter(i -> i % 3 == 0).forEach(b::add);
+        IDBitmap result = IDBitmap.and(a, b);
+        assertEquals(3334, result.cardinality());
+        assertTrue(result.contains(9999));
+        assertFalse(result.contains(9998));
+        assertEquals(3334, IDBitmap.and(b, a).cardinality());
+    }
+
+    @Test
+    void or() {
+        IDBitmap a = new IDBitmap();
+        IDBitmap b = new IDBitmap();
+        IntStream.range(0, 5000).forEach(a::add);
+        IntStream.range(4000, 70000).forEach(b::add);
+        IDBitmap result = IDBitmap.or(a, b);
+        assertEquals(70000, result.cardinality());
+        assertArrayEquals(IntStream.range(0, 70000).toArray(), result.toArray());
+    }
+
+    @Test
+    void andNot() {
+        IDBitmap a = new IDBitmap();
+        IDBitmap b = new IDBitmap();
+        TreeSet<Integer> expected = new TreeSet<>();
+        IntStream.range(0, 100000).filter(i -> i % 2 == 0).forEach(a::add);
+        IntStream.range(0, 100000).filter(i -> i % 4 == 0).forEach(b::add);
+        IntStream.range(0, 100000).filter(i -> i % 4 == 2).forEach(expected::add);
+        IDBitmap result = IDBitmap.andNot(a, b);
+        assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(), result.toArray());
+        // l'operazione non modifica gli operandi
+        assertEquals(50000, a.cardinality());
+        assertEquals(25000, b.cardinality());
+    }
+}
@@ -0,0 +1,444 @@
+package it.unicam.cs.pa.jbudget105053.model;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndexedLedgerTest {
+    private IndexedLedger ledger;
+    private BasicTransaction t1;
+
+    @BeforeEach
+    void init() {
+        ledger = new IndexedLedger();
+        ledger.resetLedger();
+        t1 = new BasicTransaction(1, Date.from(Instant.now()));
+        ledger.addAccount(AccountType.ASSET, "CONTO CORRENTE", 1000);
+    }
+
+    @Test
+    void addAccount() {
+        assertEquals(1, ledger.getAccounts().size());
+        IllegalArgumentException e1 = assertThrows(IllegalArgumentException.class, () -> ledger.addAccount(AccountType.ASSET, "conto corrente", 500));
+        assertEquals(Account.MESSAGE_ACCOUNT_ALREADY_EXISTS, e1.getMessage());
+        IllegalArgumentException e2 = assertThrows(IllegalArgumentException.class, () -> ledger.addAccountWithID(1, AccountType.ASSET, "PREPAGATA", 500));
+        assertEquals(Account.MESSAGE_ACCOUNT_ALREADY_EXISTS, e2.getMessage());
+    }
+
+    @Test
+    void modifyAccount() {
+        Account a = ledger.getAccountByID(1);
+        ledger.modifyAccount(a, AccountType.ASSET, "PREPAGATA", 200);
+        // il vecchio nome torna disponibile, il nuovo no
+        ledger.addAccount(AccountType.ASSET, "CONTO CORRENTE", 500);
+        assertThrows(IllegalArgumentException.class, () -> ledger.addAccount(AccountType.ASSET, "PREPAGATA", 500));
+        // il nome di un altro account non puo' essere preso
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> ledger.modifyAccount(a, AccountType.ASSET, "conto corrente", 200));
+        assertEquals(Account.MESSAGE_ACCOUNT_ALREADY_EXISTS, e.getMessage());
+        assertEquals("PREPAGATA", a.getName());
+        assertThrows(IllegalArgumentException.class, () -> ledger.addAccount(AccountType.ASSET, "PREPAGATA", 500));
+        assertThrows(IllegalArgumentException.class, () -> ledger.addAccount(AccountType.ASSET, "CONTO CORRENTE", 500));
+        ledger.modifyAccount(a, AccountType.LIABILITY, "PREPAGATA", 200);
+        assertEquals(AccountType.LIABILITY, a.getAccountType());
+    }
+
+    @Test
+    void modifyTag() {
+        ledger.addTag("CASA", "bla bla bla");
+        ledger.addTag("SVAGO", "bla bla bla");
+        Tag casa = ledger.getTagByID(1);
+        // il nome di un altro tag non puo' essere preso
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> ledger.modifyTag(casa, "svago", ""));
+        assertEquals(Tag.MESSAGE_TAG_ALREADY_EXISTS, e.getMessage());
+        assertEquals("CASA", casa.getName());
+        ledger.modifyTag(casa, "AFFITTO", "");
+        ledger.addTag("CASA", "bla bla bla");
+        assertThrows(IllegalArgumentException.class, () -> ledger.addTag("AFFITTO", ""));
+    }
+
+    @Test
+    void removeAccount() {
+        ledger.addAccount(AccountType.ASSET, "CASSA CONTANTE", 1000);
+        Account a1 = ledger.getAccountByID(1);
+        Account a2 = ledger.getAccountByID(2);
+        BasicMovement m1 = new BasicMovement(1, MovementType.DECREMENT, 200, a1);
+        BasicMovement m2 = new BasicMovement(2, MovementType.INCREMENT, 200, a2);
+        t1.addMovement(m1);
+        t1.addMovement(m2);
+        ledger.addTransaction(t1);
+
+        ledger.removeAccount(a1);
+        assertNull(ledger.getAccountByID(1));
+        assertNull(ledger.getMovementByID(1));
+        assertEquals(m2, ledger.getMovementByID(2));
+        assertEquals(1, t1.getMovements().size());
+
+        ledger.removeAccount(a2);
+        assertNull(ledger.getTransactionByID(1));
+        assertTrue(ledger.getMovements().isEmpty());
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> ledger.removeAccount(a2));
+        assertEquals(Account.MESSAGE_ACCOUNT_DOES_NOT_EXIST, e.getMessage());
+    }
+
+    @Test
+    void removeAccounts() {
+        ledger.addAccount(AccountType.ASSET, "CASSA CONTANTE", 1000);
+        ledger.addAccount(AccountType.ASSET, "PREPAGATA", 1000);
+        Account a1 = ledger.getAccountByID(1);
+        Account a2 = ledger.getAccountByID(2);
+        Account a3 = ledger.getAccountByID(3);
+        t1.addMovement(new BasicMovement(1, MovementType.DECREMENT, 200, a1));
+        t1.addMovement(new BasicMovement(2, MovementType.INCREMENT, 200, a2));
+        BasicTransaction t2 = new BasicTransaction(2, Date.from(Instant.now()));
+        t2.addMovement(new BasicMovement(3, MovementType.DECREMENT, 50, a1));
+        t2.addMovement(new BasicMovement(4, MovementType.INCREMENT, 50, a3));
+        ledger.addTransaction(t1);
+        ledger.addTransaction(t2);
+
+        assertThrows(IllegalArgumentException.class, () -> ledger.removeAccounts(List.of(a1, new BasicAccount(9, AccountType.ASSET, "ALTRO", 0))));
+        assertEquals(3, ledger.getAccounts().size());
+
+        ledger.removeAccounts(List.of(a1, a2));
+        assertEquals(List.of(a3), ledger.getAccounts());
+        assertNull(ledger.getTransactionByID(1));
+        assertEquals(List.of(t2), ledger.getTransactions());
+        assertEquals(1, ledger.getMovements().size());
+        assertEquals(4, t2.getMovements().get(0).getID());
+    }
+
+    @Test
+    void addTransaction() {
+        BasicMovement m1 = new BasicMovement(1, MovementType.DECREMENT, 200, ledger.getAccountByID(1));
+        t1.addMovement(m1);
+        ledger.addTransaction(t1);
+        assertEquals(t1, ledger.getTransactionByID(1));
+        assertEquals(m1, ledger.getMovementByID(1));
+        assertTrue(ledger.getAccountByID(1).getMovementsList().contains(m1));
+        assertThrows(IllegalArgumentException.class, () -> ledger.addTransaction(t1));
+        assertThrows(NullPointerException.class, () -> ledger.addTransaction(null));
+    }
+
+    @Test
+    void addTransactions() {
+        BasicTransaction t2 = new BasicTransaction(2, Date.from(Instant.now()));
+        BasicTransaction t3 = new BasicTransaction(3, Date.from(Instant.now()));
+        t1.addMovement(new BasicMovement(1, MovementType.DECREMENT, 200, ledger.getAccountByID(1)));
+        t2.addMovement(new BasicMovement(2, MovementType.INCREMENT, 50, ledger.getAccountByID(1)));
+        t3.addMovement(new BasicMovement(1, MovementType.INCREMENT, 50, ledger.getAccountByID(1)));
+        // un movimento duplicato nel lotto impedisce l'aggiunta di tutte le transazioni
+        assertThrows(IllegalArgumentException.class, () -> ledger.addTransactions(List.of(t1, t2, t3)));
+        // anche un movimento di un account che non appartiene al ledger
+        BasicTransaction t4 = new BasicTransaction(4, Date.from(Instant.now()));
+        t4.addMovement(new BasicMovement(4, MovementType.INCREMENT, 50, new BasicAccount(9, AccountType.ASSET, "ALTRO", 0)));
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> ledger.addTransactions(List.of(t1, t4)));
+        assertEquals(Account.MESSAGE_ACCOUNT_DOES_NOT_EXIST, e.getMessage());
+        assertTrue(ledger.getTransactions().isEmpty());
+        assertEquals(1000, ledger.getAccountByID(1).getBalance());
+
+        ledger.addTransactions(List.of(t1, t2));
+        assertEquals(List.of(t1, t2), ledger.getTransactions());
+        assertEquals(850, ledger.getAccountByID(1).getBalance());
+        assertEquals(3, Indexer.getInstance().generateMovementID());
+        assertThrows(IllegalArgumentException.class, () -> ledger.addTransactions(List.of(t2)));
+    }
+
+    @Test
+    void removeTransaction() {
+        BasicMovement m1 = new BasicMovement(1, MovementType.DECREMENT, 200, ledger.getAccountByID(1));
+        t1.addMovement(m1);
+        ledger.addTransaction(t1);
+        ledger.removeTransaction(t1);
+
+        assertNull(ledger.getTransactionByID(1));
+        assertNull(ledger.getMovementByID(1));
+        assertFalse(ledger.getAccountByID(1).getMovementsList().contains(m1));
+        assertThrows(IllegalArgumentException.class, () -> ledger.removeTransaction(t1));
+        // la transazione rimossa resta leggibile e puo' essere aggiunta di nuovo
+        Movement removed = t1.getMovements().get(0);
+        assertEquals(200, removed.getAmount());
+        assertEquals(MovementType.DECREMENT, removed.getMovementType());
+        assertSame(t1, removed.getTransaction());
+        assertEquals(t1.getEpochDay(), removed.getEpochDay());
+        assertNotNull(removed.toString());
+        ledger.addTransaction(t1);
+        assertEquals(800, ledger.getAccountByID(1).getBalance());
+    }
+
+    @Test
+    void removeTag() {
+        ledger.addTagWithID(1, "BOLLETTE", "bla bla bla");
+        Tag tag = ledger.getTagByID(1);
+        BasicMovement m1 = new BasicMovement(1, MovementType.DECREMENT, 200, ledger.getAccountByID(1));
+        t1.addMovement(m1);
+        t1.addTag(tag);
+        ledger.addTransaction(t1);
+
+        ledger.removeTag(tag);
+        assertNull(ledger.getTagByID(1));
+        assertTrue(t1.getTag().isEmpty());
+        assertTrue(m1.getTag().isEmpty());
+        assertEquals(0, ledger.countMovements(tag));
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> ledger.removeTag(tag));
+        assertEquals(Tag.MESSAGE_TAG_DOES_NOT_EXIST, e.getMessage());
+    }
+
+    @Test
+    void setDate() {
+        ledger.addTagWithID(1, "BOLLETTE", "bla bla bla");
+        Tag tag = ledger.getTagByID(1);
+        t1.addMovement(new BasicMovement(1, MovementType.DECREMENT, 200, ledger.getAccountByID(1)));
+        ledger.addTransaction(t1);
+        int day = t1.getEpochDay();
+        // una transazione registrata non puo' essere modificata senza aggiornare gli indici
+        assertThrows(IllegalStateException.class, () -> t1.setDate(EpochDays.toDate(day - 40)));
+        assertEquals(day, t1.getEpochDay());
+        assertEquals(day, ledger.getMovementByID(1).getEpochDay());
+        assertEquals(800, ledger.getAccountByID(1).getBalance());
+        assertThrows(IllegalStateException.class, () -> t1.addTag(tag));
+        assertTrue(t1.getTag().isEmpty());
+        assertEquals(0, ledger.countMovements(tag));
+        // rimuovendola e aggiungendola di nuovo la modifica e' possibile
+        ledger.removeTransaction(t1);
+        t1.setDate(EpochDays.toDate(day - 40));
+        t1.addTag(tag);
+        ledger.addTransaction(t1);
+        assertEquals(1, ledger.getTransactions(LocalDate.ofEpochDay(day - 40), LocalDate.ofEpochDay(day - 40)).size());
+        assertEquals(1, ledger.countMovements(tag));
+
+        // nemmeno la data di una transazione registrata senza movimenti puo' essere modificata
+        BasicTransaction empty = new BasicTransaction(9, EpochDays.toDate(day));
+        ledger.addTransaction(empty);
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> empty.setDate(EpochDays.toDate(day + 400)));
+        assertEquals(Transaction.MESSAGE_STORED_TRANSACTION, e.getMessage());
+        ledger.removeTransaction(empty);
+        assertFalse(ledger.getTransactions(LocalDate.ofEpochDay(day - 400), LocalDate.ofEpochDay(day + 400)).contains(null));
+        assertFalse(ledger.descendingTransactions().next().getID() == 9);
+    }
+
+    @Test
+    void getMovements() {
+        ledger.addTagWithID(1, "BOLLETTE", "bla bla bla");
+        ledger.addTagWithID(2, "CASA", "bla bla bla");
+        Tag bollette = ledger.getTagByID(1);
+        Tag casa = ledger.getTagByID(2);
+        BasicMovement m1 = new BasicMovement(1, MovementType.DECREMENT, 200, ledger.getAccountByID(1));
+        BasicMovement m2 = new BasicMovement(2, MovementType.DECREMENT, 100, ledger.getAccountByID(1));
+        BasicMovement m3 = new BasicMovement(3, MovementType.DECREMENT, 50, ledger.getAccountByID(1));
+        m1.addTag(casa);
+        m2.addTag(casa);
+        t1.addMovement(m1);
+        t1.addMovement(m2);
+        t1.addTag(bollette);
+        BasicTransaction t2 = new BasicTransaction(2, Date.from(Instant.now()));
+        t2.addMovement(m3);
+        ledger.addTransaction(t1);
+        ledger.addTransaction(t2);
+
+        assertEquals(List.of(m1, m2), ledger.getMovements(TagExpression.and(TagExpression.of(bollette), TagExpression.of(casa))));
+        assertEquals(List.of(m3), ledger.getMovements(TagExpression.not(TagExpression.or(TagExpression.of(bollette), TagExpression.of(casa)))));
+        assertEquals(List.of(t1), ledger.getTransactions(TagExpression.of(bollette)));
+        assertEquals(List.of(t2), ledger.getTransactions(TagExpression.not(TagExpression.of(bollette))));
+        assertEquals(2, ledger.countMovements(casa));
+        assertThrows(NullPointerException.class, () -> ledger.getMovements((TagExpression) null));
+
+        // l'indice segue le rimozioni
+        ledger.removeTransaction(t1);
+        assertEquals(0, ledger.countMovements(casa));
+        assertTrue(ledger.getTransactions(TagExpression.of(bollette)).isEmpty());
+        assertEquals(List.of(m3), ledger.getMovements(TagExpression.not(TagExpression.of(casa))));
+    }
+
+    @Test
+    void queryMovements() {
+        ledger.addAccount(AccountType.ASSET, "CASSA CONTANTE", 100);
+        ledger.addTagWithID(1, "RARO", "bla bla bla");
+        Account a1 = ledger.getAccountByID(1);
+        Account a2 = ledger.getAccountByID(2);
+        Tag raro = ledger.getTagByID(1);
+        LocalDate first = LocalDate.of(2020, 1, 1);
+        for (int i = 1; i <= 20; i++) {
+            BasicTransaction t = new BasicTransaction(i, EpochDays.toDate((int) first.plusDays(i - 1).toEpochDay()));
+            t.addMovement(new BasicMovement(i, i % 2 == 0 ? MovementType.INCREMENT : MovementType.DECREMENT, i, a1));
+            if (i == 7) t.getMovements().get(0).addTag(raro);
+            if (i > 18) t.addMovement(new BasicMovement(20 + i, MovementType.INCREMENT, 5, a2));
+            ledger.addTransaction(t);
+        }
+
+        // i due movimenti del conto poco usato si trovano attraverso il conto
+        QueryCursor<Movement> byAccount = ledger.queryMovements(LedgerQuery.all().withAccounts(a2));
+        assertEquals(QueryPlan.ACCOUNT, byAccount.getPlan());
+        assertEquals(List.of(39, 40), byAccount.toList().stream().map(Movement::getID).collect(Collectors.toList()));
+        // il tag e' piu' selettivo del conto con venti movimenti
+        QueryCursor<Movement> byTag = ledger.queryMovements(LedgerQuery.all().withAccounts(a1).withTags(TagExpression.of(raro)));
+        assertEquals(QueryPlan.TAG, byTag.getPlan());
+        assertEquals(7, byTag.next().getID());
+        assertFalse(byTag.hasNext());
+        // dieci giorni su venti si trovano attraverso le date
+        LedgerQuery query = LedgerQuery.all().withMovementType(MovementType.INCREMENT)
+                .withDates(first.plusDays(4), first.plusDays(13)).withAmounts(6, 100);
+        QueryCursor<Movement> byDate = ledger.queryMovements(query);
+        assertEquals(QueryPlan.DATE, byDate.getPlan());
+        assertEquals(List.of(6, 8, 10, 12, 14), byDate.toList().stream().map(Movement::getID).collect(Collectors.toList()));
+        // senza indici utili si visitano tutti i movimenti
+        QueryCursor<Movement> scan = ledger.queryMovements(LedgerQuery.all().withMovementType(MovementType.INCREMENT).withAmounts(6, 100));
+        assertEquals(QueryPlan.SCAN, scan.getPlan());
+        assertEquals(8, scan.toList().size());
+
+        // le pagine
+        QueryCursor<Movement> pages = ledger.queryMovements(LedgerQuery.all().withAccounts(a1, a2));
+        assertEquals(8, pages.nextPage(8).size());
+        assertEquals(10, pages.skip(10));
+        assertEquals(4, pages.nextPage(8).size());
+        assertTrue(pages.nextPage(8).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> pages.nextPage(0));
+        assertThrows(NullPointerException.class, () -> ledger.queryMovements(null));
+    }
+
+    @Test
+    void queryTransactions() {
+        ledger.addAccount(AccountType.ASSET, "CASSA CONTANTE", 100);
+        Account a1 = ledger.getAccountByID(1);
+        Account a2 = ledger.getAccountByID(2);
+        t1.addMovement(new BasicMovement(1, MovementType.DECREMENT, 10, a1));
+        t1.addMovement(new BasicMovement(2, MovementType.INCREMENT, 10, a2));
+        BasicTransaction t2 = new BasicTransaction(2, Date.from(Instant.now()));
+        t2.addMovement(new BasicMovement(3, MovementType.DECREMENT, 30, a2));
+        BasicTransaction t3 = new BasicTransaction(3, Date.from(Instant.now()));
+        t3.addMovement(new BasicMovement(4, MovementType.DECREMENT, 40, a1));
+        ledger.addTransactions(List.of(t1, t2, t3));
+
+        // una transazione con piu' movimenti che soddisfano la query compare una sola volta
+        QueryCursor<Transaction> both = ledger.queryTransactions(LedgerQuery.all().withAccounts(a1, a2));
+        assertEquals(List.of(t1, t2, t3), both.toList());
+        assertEquals(List.of(t2), ledger.queryTransactions(LedgerQuery.all().withAccounts(a2).withAmounts(20, 30)).toList());
+
+        // i risultati rimossi dopo la creazione del cursore vengono saltati
+        QueryCursor<Transaction> cursor = ledger.queryTransactions(LedgerQuery.all().withAccounts(a1));
+        assertEquals(t1, cursor.next());
+        ledger.removeTransaction(t3);
+        assertFalse(cursor.hasNext());
+    }
+
+    @Test
+    void getTransactionsByDate() {
+        Account a = ledger.getAccountByID(1);
+        LocalDate first = LocalDate.of(2010, 1, 1);
+        // le transazioni vengono aggiunte in ordine sparso
+        int[] offsets = {30, 0, 3650, 15, 15, 400};
+        for (int i = 0; i < offsets.length; i++) {
+            BasicTransaction t = new BasicTransaction(i + 1, EpochDays.toDate((int) first.plusDays(offsets[i]).toEpochDay()));
+            t.addMovement(new BasicMovement(i + 1, MovementType.INCREMENT, 10, a));
+            ledger.addTransaction(t);
+        }
+        assertEquals(List.of(2, 4, 5, 1), ledger.getTransactions(first, first.plusDays(30)).stream()
+                .map(Transaction::getID).collect(Collectors.toList()));
+        assertEquals(List.of(4, 5), ledger.getTransactions(first.plusDays(15), first.plusDays(15)).stream()
+                .map(Transaction::getID).collect(Collectors.toList()));
+        assertTrue(ledger.getTransactions(first.plusDays(31), first.plusDays(399)).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> ledger.getTransactions(first.plusDays(1), first));
+        assertThrows(NullPointerException.class, () -> ledger.getTransactions(null, first));
+
+        // un intervallo ristretto di date viene risolto attraverso l'indice
+        QueryCursor<Movement> lastMonth = ledger.queryMovements(LedgerQuery.all().withDates(first.plusDays(3620), first.plusDays(3650)));
+        assertEquals(QueryPlan.DATE, lastMonth.getPlan());
+        assertEquals(3, lastMonth.next().getID());
+        assertFalse(lastMonth.hasNext());
+
+        // l'indice segue le rimozioni
+        ledger.removeTransaction(ledger.getTransactionByID(4));
+        assertEquals(List.of(5), ledger.getTransactions(first.plusDays(15), first.plusDays(15)).stream()
+                .map(Transaction::getID).collect(Collectors.toList()));
+        ledger.removeAccount(a);
+        assertTrue(ledger.getTransactions(first, first.plusDays(3650)).isEmpty());
+        assertEquals(QueryPlan.SCAN, ledger.queryMovements(LedgerQuery.all().withDates(first, first)).getPlan());
+    }
+
+    @Test
+    void descendingTransactions() {
+        Account a = ledger.getAccountByID(1);
+        LocalDate first = LocalDate.of(2020, 1, 1);
+        int[] offsets = {5, 1, 9, 5};
+        for (int i = 0; i < offsets.length; i++) {
+            BasicTransaction t = new BasicTransaction(i + 1, EpochDays.toDate((int) first.plusDays(offsets[i]).toEpochDay()));
+            t.addMovement(new BasicMovement(i + 1, MovementType.INCREMENT, 10, a));
+            ledger.addTransaction(t);
+        }
+        Iterator<Transaction> i = ledger.descendingTransactions();
+        List<Integer> IDs = new ArrayList<>();
+        i.forEachRemaining(t -> IDs.add(t.getID()));
+        assertEquals(List.of(3, 4, 1, 2), IDs);
+    }
+
+    @Test
+    void getRollups() {
+        ledger.addAccount(AccountType.LIABILITY, "CARTA", 0);
+        ledger.addTagWithID(1, "SPESA", "bla bla bla");
+        ledger.addTagWithID(2, "CASA", "bla bla bla");
+        Account conto = ledger.getAccountByID(1);
+        Account carta = ledger.getAccountByID(2);
+        Tag spesa = ledger.getTagByID(1);
+        Tag casa = ledger.getTagByID(2);
+        LocalDate first = LocalDate.of(2019, 12, 1);
+        for (int i = 1; i <= 90; i++) {
+            BasicTransaction t = new BasicTransaction(i, EpochDays.toDate((int) first.plusDays(i).toEpochDay()));
+            t.addMovement(new BasicMovement(2 * i - 1, MovementType.DECREMENT, i, i % 2 == 0 ? conto : carta));
+            t.addMovement(new BasicMovement(2 * i, MovementType.INCREMENT, 1, conto));
+            if (i % 3 == 0) t.addTag(spesa);
+            if (i % 4 == 0) t.getMovements().get(0).addTag(casa);
+            ledger.addTransaction(t);
+        }
+        assertRollups();
+        ReportTable months = ledger.getRollups(Report.Key.ACCOUNT, Granularity.MONTH);
+        int january = months.find(conto.getID(), 2020 * 12);
+        assertEquals(31 + 15, months.getCount(january));
+        // la tabella viene riusata finche' il ledger non cambia
+        assertSame(months, ledger.getRollups(Report.Key.ACCOUNT, Granularity.MONTH));
+
+        // i totali seguono le rimozioni
+        ledger.removeTransaction(ledger.getTransactionByID(12));
+        assertRollups();
+        ledger.removeTag(spesa);
+        assertRollups();
+        assertEquals(-1, ledger.getRollups(Report.Key.TAG, Granularity.YEAR).find(spesa.getID(), 2020));
+        ledger.removeAccount(carta);
+        assertRollups();
+        ledger.modifyAccount(conto, AccountType.ASSET, "CONTO", 10);
+        assertRollups();
+        assertThrows(IllegalArgumentException.class, () -> ledger.getRollups(Report.Key.PERIOD, Granularity.DAY));
+    }
+
+    // controlla che i totali mantenuti dal ledger siano uguali a quelli calcolati da tutti i movimenti
+    private void assertRollups() {
+        for (Report.Key key : List.of(Report.Key.ACCOUNT, Report.Key.TAG)) {
+            for (Granularity granularity : Granularity.values()) {
+                ReportTable kept = ledger.getRollups(key, granularity);
+                ReportTable computed = new ReportEngine().compute(ledger, Report.by(key, Report.Key.PERIOD).withGranularity(granularity));
+                assertEquals(computed.size(), kept.size());
+                for (int i = 0; i < kept.size(); i++) {
+                    assertEquals(computed.getKey(i, key), kept.getKey(i, key));
+                    assertEquals(computed.getKey(i, Report.Key.PERIOD), kept.getKey(i, Report.Key.PERIOD));
+                    assertEquals(computed.getIncrementsInCents(i), kept.getIncrementsInCents(i));
+                    assertEquals(computed.getDecrementsInCents(i), kept.getDecrementsInCents(i));
+                    assertEquals(computed.getCount(i), kept.getCount(i));
+                }
+            }
+        }
+    }
+
+    @Test
+    void getAccounts() {
+        ledger.addAccount(AccountType.LIABILITY, "PRESTITO MACCHINA", 25000);
+        assertEquals(2, ledger.getAccounts().size());
+        assertEquals("PRESTITO MACCHINA", ledger.getAccounts().get(1).getName());
+        assertThrows(UnsupportedOperationException.class, () -> ledger.getAccounts().clear());
+    }
+}
@@ -7,6 +7,11 @@ import org.junit.jupiter.api.Test;
 
 import java.time.Instant;
 import java.util.Date;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -79,4 +84,37 @@ class IndexerTest {
         controller.addTransaction(t);
         assertEquals(3, Indexer.getInstance().generateMovementID());
     }
-}
\ No newline at end of file
+
+    @Test
+    void observeMovementID() {
+        Indexer.getInstance().observeMovementID(41);
+        Indexer.getInstance().observeMovementID(7);
+        assertEquals(42, Indexer.getInstance().generateMovementID());
+    }
+
+    @Test
+    void reserveMovementIDs() {
+        int first = Indexer.getInstance().reserveMovementIDs(100);
+        assertEquals(1, first);
+        assertEquals(101, Indexer.getInstance().generateMovementID());
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> Indexer.getInstance().reserveMovementIDs(0));
+        assertEquals(Indexer.MESSAGE_WRONG_BLOCK_SIZE, e.getMessage());
+    }
+
+    @Test
+    void generateTransactionIDConcurrently() throws InterruptedException {
+        int threads = 8;
+        int perThread = 10000;
+        Set<Integer> IDs = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int i = 0; i < threads; i++)
+            executor.execute(() -> {
+                for (int j = 0; j < perThread; j++)
+                    IDs.add(Indexer.getInstance().generateTransactionID());
+            });
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(threads * perThread, IDs.size());
+        assertEquals(threads * perThread + 1, Indexer.getInstance().generateTransactionID());
+    }
+}
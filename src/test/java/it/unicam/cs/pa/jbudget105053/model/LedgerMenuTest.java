@@ -4,9 +4,13 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -61,6 +65,32 @@ class LedgerMenuTest {
         assertThrows(NullPointerException.class, () -> ledge.addTransaction(null));
     }
 
+    @Test
+    void addTransactions() {
+        Account conto = ledge.getAccounts().get(0);
+        BasicTransaction t2 = new BasicTransaction(2, Date.from(Instant.now()));
+        BasicTransaction t3 = new BasicTransaction(3, Date.from(Instant.now()));
+        t1.addMovement(new BasicMovement(1, MovementType.DECREMENT, 200, conto));
+        t2.addMovement(new BasicMovement(2, MovementType.INCREMENT, 50, conto));
+        t3.addMovement(new BasicMovement(1, MovementType.INCREMENT, 50, conto));
+        // un movimento duplicato nel lotto impedisce l'aggiunta di tutte le transazioni
+        IllegalArgumentException e1 = assertThrows(IllegalArgumentException.class, () -> ledge.addTransactions(List.of(t1, t2, t3)));
+        assertEquals(MovementException.MESSAGE_MOVEMENT_ALREADY_EXISTS, e1.getMessage());
+        // anche un movimento di un account che non appartiene al ledger
+        BasicTransaction t4 = new BasicTransaction(4, Date.from(Instant.now()));
+        t4.addMovement(new BasicMovement(4, MovementType.INCREMENT, 50, new BasicAccount(9, AccountType.ASSET, "ALTRO", 0)));
+        IllegalArgumentException e2 = assertThrows(IllegalArgumentException.class, () -> ledge.addTransactions(List.of(t1, t4)));
+        assertEquals(Account.MESSAGE_ACCOUNT_DOES_NOT_EXIST, e2.getMessage());
+        assertTrue(ledge.getTransactions().isEmpty());
+        assertEquals(1000, conto.getBalance());
+
+        ledge.addTransactions(List.of(t1, t2));
+        assertEquals(List.of(t1, t2), ledge.getTransactions());
+        assertEquals(2, ledge.getMovements().size());
+        assertEquals(850, conto.getBalance());
+        assertThrows(IllegalArgumentException.class, () -> ledge.addTransactions(List.of(t2)));
+    }
+
     @Test
     void removeTransaction() {
         BasicMovement m1 = new BasicMovement(1, MovementType.DECREMENT, 200, ledge.getAccounts().get(0));
@@ -158,4 +188,21 @@ class LedgerMenuTest {
         assertEquals(2, ledge.getTransactions(transaction ->
                 transaction.getDate().compareTo(new GregorianCalendar(2014, Calendar.JANUARY, 15).getTime()) < 0).size());
     }
-}
\ No newline at end of file
+
+    @Test
+    void descendingTransactions() {
+        LocalDate first = LocalDate.of(2020, 1, 1);
+        int[] offsets = {5, 1, 9, 5};
+        for (int i = 0; i < offsets.length; i++) {
+            BasicTransaction t = new BasicTransaction(i + 1, EpochDays.toDate((int) first.plusDays(offsets[i]).toEpochDay()));
+            t.addMovement(new BasicMovement(i + 1, MovementType.INCREMENT, 10, ledge.getAccounts().get(0)));
+            ledge.addTransaction(t);
+        }
+        List<Integer> IDs = new ArrayList<>();
+        ledge.descendingTransactions().forEachRemaining(t -> IDs.add(t.getID()));
+        assertEquals(List.of(3, 4, 1, 2), IDs);
+        // l'implementazione predefinita ordina le transazioni del periodo
+        assertEquals(List.of(2, 1, 4), ledge.getTransactions(first, first.plusDays(5)).stream()
+                .map(Transaction::getID).collect(Collectors.toList()));
+    }
+}
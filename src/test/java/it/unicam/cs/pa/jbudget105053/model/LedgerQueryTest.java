@@ -0,0 +1,52 @@
+package it.unicam.cs.pa.jbudget105053.model;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LedgerQueryTest {
+    private Account account;
+    private Tag tag;
+    private BasicMovement movement;
+
+    @BeforeEach
+    void init() {
+        account = new BasicAccount(1, AccountType.ASSET, "CONTO CORRENTE", 1000);
+        tag = new BasicTag(1, "SPESA", "Spese alimentari");
+        BasicTransaction t = new BasicTransaction(1, EpochDays.toDate((int) LocalDate.of(2020, 3, 15).toEpochDay()));
+        movement = new BasicMovement(1, MovementType.DECREMENT, 12.5, account);
+        movement.addTag(tag);
+        t.addMovement(movement);
+    }
+
+    @Test
+    void matches() {
+        assertTrue(LedgerQuery.all().matches(movement));
+        assertTrue(LedgerQuery.all().withDates(LocalDate.of(2020, 3, 15), LocalDate.of(2020, 3, 15)).matches(movement));
+        assertFalse(LedgerQuery.all().withDates(LocalDate.of(2020, 3, 16), LocalDate.of(2020, 4, 1)).matches(movement));
+        assertTrue(LedgerQuery.all().withAccounts(account).matches(movement));
+        assertFalse(LedgerQuery.all().withAccounts(new BasicAccount(2, AccountType.ASSET, "CASSA", 0)).matches(movement));
+        assertTrue(LedgerQuery.all().withTags(TagExpression.of(tag)).matches(movement));
+        assertFalse(LedgerQuery.all().withTags(TagExpression.not(TagExpression.of(tag))).matches(movement));
+        assertFalse(LedgerQuery.all().withMovementType(MovementType.INCREMENT).matches(movement));
+        // l'intervallo degli importi comprende gli estremi
+        assertTrue(LedgerQuery.all().withAmounts(12.5, 12.5).matches(movement));
+        assertFalse(LedgerQuery.all().withAmounts(0, 12.49).matches(movement));
+        assertTrue(LedgerQuery.all().withAccounts(account).matches(movement.getTransaction()));
+    }
+
+    @Test
+    void withAmounts() {
+        LedgerQuery query = LedgerQuery.all().withAmounts(1, 2);
+        assertTrue(query.hasAmounts());
+        assertFalse(query.hasDates());
+        assertEquals(100, query.getMinCents());
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> LedgerQuery.all().withAmounts(2, 1));
+        assertEquals(LedgerQuery.MESSAGE_WRONG_AMOUNTS, e.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> LedgerQuery.all().withDates(LocalDate.of(2020, 2, 1), LocalDate.of(2020, 1, 1)));
+        assertThrows(NullPointerException.class, () -> LedgerQuery.all().withTags(null));
+    }
+}
@@ -0,0 +1,168 @@
+package it.unicam.cs.pa.jbudget105053.model;
+
+import it.unicam.cs.pa.jbudget105053.controller.LedgerMenuController;
+import it.unicam.cs.pa.jbudget105053.persistence.MappedLedgerExporter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.GregorianCalendar;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedLedgerTest {
+    private MappedLedger ledger;
+
+    @TempDir
+    Path directory;
+
+    @BeforeEach
+    void init() throws IOException {
+        LedgerMenuController controller = new LedgerMenuController();
+        controller.resetLedger();
+        controller.addAccount(AccountType.ASSET, "CONTO CORRENTE", 1000);
+        controller.addAccount(AccountType.LIABILITY, "MUTUO", 5000);
+        controller.addTag("CASA", "bla bla bla");
+        Account a1 = controller.getAccountByID(1);
+        Account a2 = controller.getAccountByID(2);
+        Tag casa = controller.getTagByID(1);
+        // le transazioni sono aggiunte in ordine diverso da quello degli ID
+        Transaction t1 = controller.createTransaction(new GregorianCalendar(2020, 0, 10).getTime());
+        Transaction t2 = controller.createTransaction(new GregorianCalendar(2020, 1, 10).getTime());
+        Transaction t3 = controller.createTransaction(new GregorianCalendar(2020, 2, 10).getTime());
+        t1.addMovement(controller.createMovement(MovementType.DECREMENT, 100, a1));
+        t2.addMovement(controller.createMovement(MovementType.DECREMENT, 200, a1));
+        t2.addMovement(controller.createMovement(MovementType.DECREMENT, 200, a2));
+        t2.addTag(casa);
+        t3.addMovement(controller.createMovement(MovementType.INCREMENT, 50, a1));
+        t3.getMovements().get(0).addTag(casa);
+        controller.addTransaction(t3);
+        controller.addTransaction(t1);
+        controller.addTransaction(t2);
+        new MappedLedgerExporter(controller).exportAll(directory.toString());
+        ledger = MappedLedger.open(directory.resolve(MappedLedgerFile.FILE_NAME));
+    }
+
+    @Test
+    void open() throws IOException {
+        assertEquals(2, ledger.getAccounts().size());
+        assertEquals(1, ledger.getTags().size());
+        assertEquals(750, ledger.getAccountByID(1).getBalance());
+        assertEquals(5200, ledger.getAccountByID(2).getBalance());
+        assertEquals(900, ledger.getAccountByID(1).getBalanceAt(LocalDate.of(2020, 1, 31)));
+        assertEquals(3, ledger.getAccountByID(1).getMovementsList().size());
+        assertEquals(-200, ledger.getMovementByID(3).getSignedCents() / 100);
+
+        Path wrong = Files.writeString(directory.resolve("sbagliato.jbm"), "NON E' UN LEDGER");
+        assertThrows(IOException.class, () -> MappedLedger.open(wrong));
+    }
+
+    @Test
+    void modifyAccount() {
+        Account a = ledger.getAccountByID(1);
+        // il nome di un altro account non puo' essere preso
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> ledger.modifyAccount(a, AccountType.ASSET, "mutuo", 1000));
+        assertEquals(Account.MESSAGE_ACCOUNT_ALREADY_EXISTS, e.getMessage());
+        assertEquals("CONTO CORRENTE", a.getName());
+        ledger.modifyAccount(a, AccountType.ASSET, "CONTO ARANCIO", 1000);
+        ledger.addAccount(AccountType.ASSET, "CONTO CORRENTE", 500);
+        assertThrows(IllegalArgumentException.class, () -> ledger.addAccount(AccountType.ASSET, "CONTO ARANCIO", 500));
+        assertThrows(IllegalArgumentException.class, () -> ledger.addAccount(AccountType.ASSET, "MUTUO", 500));
+    }
+
+    @Test
+    void modifyTag() {
+        ledger.addTag("SVAGO", "bla bla bla");
+        Tag casa = ledger.getTagByID(1);
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> ledger.modifyTag(casa, "svago", ""));
+        assertEquals(Tag.MESSAGE_TAG_ALREADY_EXISTS, e.getMessage());
+        assertEquals("CASA", casa.getName());
+    }
+
+    @Test
+    void getTransactions() {
+        List<Transaction> transactions = ledger.getTransactions();
+        assertEquals(3, transactions.size());
+        assertEquals(4, ledger.getMovements().size());
+        // le righe del file sono ordinate per ID
+        assertEquals(1, transactions.get(0).getID());
+        assertEquals(2, transactions.get(1).getMovements().size());
+        assertSame(transactions.get(1), ledger.getTransactionByID(2));
+        assertSame(transactions.get(1), ledger.getMovementByID(3).getTransaction());
+        assertEquals(List.of(ledger.getTagByID(1)), transactions.get(1).getTag());
+    }
+
+    @Test
+    void addTransaction() {
+        Transaction t = new BasicTransaction(Indexer.getInstance().generateTransactionID(), new GregorianCalendar(2020, 3, 10).getTime());
+        t.addMovement(new BasicMovement(Indexer.getInstance().generateMovementID(), MovementType.DECREMENT, 50, ledger.getAccountByID(1)));
+        ledger.addTransaction(t);
+        assertEquals(4, t.getID());
+        assertEquals(5, t.getMovements().get(0).getID());
+        assertEquals(4, ledger.getTransactions().size());
+        assertSame(t, ledger.getTransactions().get(3));
+        assertEquals(700, ledger.getAccountByID(1).getBalance());
+        assertEquals(4, ledger.getAccountByID(1).getMovementsList().size());
+
+        Transaction duplicated = new BasicTransaction(2, new GregorianCalendar(2020, 3, 10).getTime());
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> ledger.addTransaction(duplicated));
+        assertEquals(Transaction.MESSAGE_TRANSACTION_ALREADY_EXISTS, e.getMessage());
+        // un movimento di un account che non fa parte del ledger non viene aggiunto
+        Transaction orphan = new BasicTransaction(Indexer.getInstance().generateTransactionID(), new GregorianCalendar(2020, 3, 10).getTime());
+        orphan.addMovement(new BasicMovement(Indexer.getInstance().generateMovementID(), MovementType.DECREMENT, 50,
+                new BasicAccount(9, AccountType.ASSET, "ALTRO", 0)));
+        e = assertThrows(IllegalArgumentException.class, () -> ledger.addTransactions(List.of(orphan)));
+        assertEquals(Account.MESSAGE_ACCOUNT_DOES_NOT_EXIST, e.getMessage());
+        assertEquals(4, ledger.getTransactions().size());
+    }
+
+    @Test
+    void removeTransaction() {
+        List<Transaction> before = ledger.getTransactions();
+        ledger.removeTransaction(ledger.getTransactionByID(2));
+        // la lista restituita prima della rimozione non cambia
+        assertEquals(3, before.size());
+        assertEquals(2, ledger.getTransactions().size());
+        assertEquals(3, ledger.getTransactions().get(1).getID());
+        assertNull(ledger.getTransactionByID(2));
+        assertNull(ledger.getMovementByID(2));
+        assertEquals(950, ledger.getAccountByID(1).getBalance());
+        assertEquals(5000, ledger.getAccountByID(2).getBalance());
+        assertEquals(2, ledger.getAccountByID(1).getMovementsList().size());
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> ledger.removeTransaction(before.get(1)));
+        assertEquals(Transaction.MESSAGE_TRANSACTION_DOES_NOT_EXIST, e.getMessage());
+    }
+
+    @Test
+    void removeAccount() {
+        ledger.removeAccount(ledger.getAccountByID(1));
+        assertNull(ledger.getAccountByID(1));
+        // la transazione con un movimento del conto rimasto viene tenuta in memoria
+        assertEquals(1, ledger.getTransactions().size());
+        assertEquals(1, ledger.getMovements().size());
+        Transaction t = ledger.getTransactionByID(2);
+        assertEquals(1, t.getMovements().size());
+        assertEquals(5200, ledger.getAccountByID(2).getBalance());
+        assertEquals(1, ledger.getAccountByID(2).getMovementsList().size());
+    }
+
+    @Test
+    void getTransactionsByTag() {
+        Tag casa = ledger.getTagByID(1);
+        assertEquals(List.of(ledger.getTransactionByID(2)), ledger.getTransactions(TagExpression.of(casa)));
+        assertEquals(2, ledger.getTransactions(TagExpression.not(TagExpression.of(casa))).size());
+        // il tag della transazione e' stato aggiunto anche ai suoi movimenti
+        assertEquals(List.of(ledger.getMovementByID(2), ledger.getMovementByID(3), ledger.getMovementByID(4)),
+                ledger.getMovements(TagExpression.of(casa)));
+        assertEquals(3, ledger.countMovements(casa));
+
+        ledger.removeTag(casa);
+        assertEquals(0, ledger.countMovements(casa));
+        assertTrue(ledger.getTransactionByID(2).getTag().isEmpty());
+    }
+}
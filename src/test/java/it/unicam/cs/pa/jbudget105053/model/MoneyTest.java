@@ -0,0 +1,47 @@
+package it.unicam.cs.pa.jbudget105053.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoneyTest {
+
+    @Test
+    void toCents() {
+        assertEquals(1999, Money.toCents(19.99));
+        assertEquals(-1050, Money.toCents(-10.5));
+        assertEquals(-250, Money.toSignedCents(MovementType.DECREMENT, 2.5));
+        assertEquals(250, Money.toSignedCents(MovementType.INCREMENT, 2.5));
+        // un importo inferiore al centesimo non e' un importo valido per un movimento
+        assertThrows(IllegalArgumentException.class, () -> new BasicMovement(1, MovementType.INCREMENT, 0.001,
+                new BasicAccount(1, AccountType.ASSET, "CONTO", 0)));
+    }
+
+    @Test
+    void sum() {
+        long[] cents = new long[1001];
+        for (int i = 0; i < cents.length; i++)
+            cents[i] = Money.toCents(0.1);
+        // la somma in centesimi e' esatta, a differenza di quella in double
+        assertEquals(100.1, Money.toAmount(Money.sum(cents, 0, cents.length)));
+        assertEquals(30, Money.sum(cents, 5, 8));
+        assertEquals(0, Money.sum(cents, 3, 3));
+    }
+
+    @Test
+    void sumWhere() {
+        long[] cents = {100, -50, 25, 10, -5};
+        int[] keys = {1, 2, 1, 3, 1};
+        assertEquals(120, Money.sumWhere(cents, keys, 1, 0, cents.length));
+        assertEquals(-50, Money.sumWhere(cents, keys, 2, 0, cents.length));
+        assertEquals(0, Money.sumWhere(cents, keys, 4, 0, cents.length));
+        assertEquals(20, Money.sumWhere(cents, keys, 1, 2, cents.length));
+        // le chiavi negative, e quelle che differiscono solo nel bit di segno, non vengono confuse
+        int[] negative = {-1, 0, Integer.MIN_VALUE, -1, Integer.MAX_VALUE};
+        assertEquals(110, Money.sumWhere(cents, negative, -1, 0, cents.length));
+        assertEquals(-50, Money.sumWhere(cents, negative, 0, 0, cents.length));
+        assertEquals(25, Money.sumWhere(cents, negative, Integer.MIN_VALUE, 0, cents.length));
+        assertEquals(-5, Money.sumWhere(cents, negative, Integer.MAX_VALUE, 0, cents.length));
+        assertEquals(0, Money.sumWhere(cents, negative, -2, 0, cents.length));
+    }
+}
@@ -0,0 +1,141 @@
+package it.unicam.cs.pa.jbudget105053.model;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MovementStoreTest {
+    private MovementStore store;
+    private BasicAccount a1;
+    private BasicTransaction t1;
+
+    @BeforeEach
+    void init() {
+        a1 = new BasicAccount(1, AccountType.ASSET, "CONTO CORRENTE", 1000);
+        t1 = new BasicTransaction(1, Date.from(Instant.now()));
+        store = new MovementStore(ID -> ID == 1 ? a1 : null, ID -> ID == 1 ? t1 : null);
+    }
+
+    @Test
+    void add() {
+        BasicMovement m1 = new BasicMovement(1, MovementType.DECREMENT, 200, a1);
+        BasicTag tag = new BasicTag(1, "BOLLETTE", "bla bla bla");
+        t1.addMovement(m1);
+        m1.addTag(tag);
+        Movement view = store.add(m1);
+
+        assertEquals(m1, view);
+        assertEquals(MovementType.DECREMENT, view.getMovementType());
+        assertEquals(200, view.getAmount());
+        assertEquals(t1.getDate(), view.getMovementDate());
+        assertSame(a1, view.getAccount());
+        assertSame(t1, view.getTransaction());
+        assertEquals(List.of(tag), view.getTag());
+        assertEquals("1,", view.getTagsID());
+        assertThrows(IllegalArgumentException.class, () -> store.add(m1));
+
+        // un ID molto grande non fa crescere la memoria occupata
+        BasicMovement big = new BasicMovement(Integer.MAX_VALUE, MovementType.INCREMENT, 10, a1);
+        t1.addMovement(big);
+        assertEquals(10, store.add(big).getAmount());
+        assertEquals(big, store.get(Integer.MAX_VALUE));
+    }
+
+    @Test
+    void remove() {
+        for (int i = 1; i <= 64; i++) {
+            BasicMovement m = new BasicMovement(i, MovementType.INCREMENT, i, a1);
+            t1.addMovement(m);
+            store.add(m);
+        }
+        Movement view = store.get(64);
+        // abbastanza rimozioni da compattare le colonne al prossimo inserimento
+        for (int i = 1; i <= 40; i++)
+            assertTrue(store.remove(i));
+        assertFalse(store.remove(1));
+        BasicMovement m65 = new BasicMovement(65, MovementType.INCREMENT, 65, a1);
+        t1.addMovement(m65);
+        store.add(m65);
+
+        assertEquals(25, store.size());
+        assertNull(store.get(1));
+        assertEquals(64, view.getAmount());
+        assertEquals(41, store.getMovements().get(0).getID());
+        assertEquals(65, store.getMovements().get(24).getID());
+    }
+
+    @Test
+    void detach() {
+        BasicMovement m1 = new BasicMovement(1, MovementType.DECREMENT, 200, a1);
+        BasicTag tag = new BasicTag(1, "BOLLETTE", "bla bla bla");
+        t1.addMovement(m1);
+        m1.addTag(tag);
+        Movement view = store.add(m1);
+        Movement copy = store.detach(1);
+
+        // la copia non dipende piu' dalle colonne
+        assertFalse(store.contains(1));
+        assertThrows(IllegalArgumentException.class, view::getAmount);
+        assertEquals(view, copy);
+        assertEquals(-20000, copy.getSignedCents());
+        assertEquals(t1.getEpochDay(), copy.getEpochDay());
+        assertSame(a1, copy.getAccount());
+        assertSame(t1, copy.getTransaction());
+        assertEquals(List.of(tag), copy.getTag());
+        assertNull(store.detach(1));
+    }
+
+    @Test
+    void setDate() {
+        BasicMovement m1 = new BasicMovement(1, MovementType.DECREMENT, 200, a1);
+        t1.addMovement(m1);
+        Movement view = store.add(m1);
+        Date date = new GregorianCalendar(2019, Calendar.MARCH, 1).getTime();
+        // le viste dei movimenti registrati non possono essere modificate
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> view.setDate(date));
+        assertEquals(MovementException.MESSAGE_STORED_MOVEMENT, e.getMessage());
+        assertEquals(t1.getDate(), store.get(1).getMovementDate());
+        BasicTag tag = new BasicTag(1, "BOLLETTE", "bla bla bla");
+        assertThrows(IllegalStateException.class, () -> view.addTag(tag));
+        assertThrows(IllegalStateException.class, () -> view.setTransaction(t1));
+        assertThrows(UnsupportedOperationException.class, () -> view.getTag().add(tag));
+    }
+
+    @Test
+    void removeTag() {
+        BasicMovement m1 = new BasicMovement(1, MovementType.DECREMENT, 200, a1);
+        BasicTag tag = new BasicTag(1, "BOLLETTE", "bla bla bla");
+        t1.addMovement(m1);
+        m1.addTag(tag);
+        Movement view = store.add(m1);
+        assertThrows(IllegalStateException.class, () -> view.removeTag(tag));
+        store.removeTag(1, tag);
+        assertTrue(view.getTag().isEmpty());
+    }
+
+    @Test
+    void getVariationInCents() {
+        BasicAccount a2 = new BasicAccount(2, AccountType.ASSET, "CASSA", 0);
+        BasicMovement m1 = new BasicMovement(1, MovementType.DECREMENT, 200, a1);
+        BasicMovement m2 = new BasicMovement(2, MovementType.INCREMENT, 50, a1);
+        BasicMovement m3 = new BasicMovement(3, MovementType.INCREMENT, 200, a2);
+        t1.addMovement(m1);
+        t1.addMovement(m2);
+        t1.addMovement(m3);
+        store.add(m1);
+        store.add(m2);
+        store.add(m3);
+        assertEquals(-15000, store.getVariationInCents(1));
+        assertEquals(20000, store.getVariationInCents(2));
+        assertEquals(5000, store.getTotalInCents());
+        store.remove(1);
+        assertEquals(5000, store.getVariationInCents(1));
+    }
+}
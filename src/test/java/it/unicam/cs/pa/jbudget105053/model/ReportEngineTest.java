@@ -0,0 +1,119 @@
+package it.unicam.cs.pa.jbudget105053.model;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReportEngineTest {
+    private IndexedLedger ledger;
+    private Account conto;
+    private Account carta;
+    private Tag spesa;
+
+    @BeforeEach
+    void init() {
+        ledger = new IndexedLedger();
+        ledger.resetLedger();
+        ledger.addAccount(AccountType.ASSET, "CONTO CORRENTE", 1000);
+        ledger.addAccount(AccountType.LIABILITY, "CARTA", 0);
+        ledger.addTag("SPESA", "Spese alimentari");
+        ledger.addTag("CASA", "Spese per la casa");
+        conto = ledger.getAccountByID(1);
+        carta = ledger.getAccountByID(2);
+        spesa = ledger.getTagByID(1);
+        Tag casa = ledger.getTagByID(2);
+        // un anno di movimenti: ogni giorno una spesa con la carta, ogni mese uno stipendio sul conto
+        LocalDate first = LocalDate.of(2020, 1, 1);
+        int ID = 1;
+        for (int day = 0; day < 366; day++) {
+            BasicTransaction t = new BasicTransaction(ID, EpochDays.toDate((int) first.plusDays(day).toEpochDay()));
+            BasicMovement m = new BasicMovement(ID++, MovementType.DECREMENT, 10, carta);
+            m.addTag(spesa);
+            if (day % 7 == 0) m.addTag(casa);
+            t.addMovement(m);
+            ledger.addTransaction(t);
+        }
+        for (int month = 0; month < 12; month++) {
+            BasicTransaction t = new BasicTransaction(ID, EpochDays.toDate((int) first.plusMonths(month).toEpochDay()));
+            t.addMovement(new BasicMovement(ID++, MovementType.INCREMENT, 1500, conto));
+            ledger.addTransaction(t);
+        }
+    }
+
+    @Test
+    void compute() {
+        ReportEngine engine = new ReportEngine(new ForkJoinPool(4));
+        ReportTable table = engine.compute(ledger, Report.by(Report.Key.PERIOD, Report.Key.TAG));
+        // dodici mesi con le spese e i movimenti senza tag
+        int february = 2020 * 12 + 1;
+        int cell = table.find(february, spesa.getID());
+        assertEquals(29, table.getCount(cell));
+        assertEquals(29 * 1000, table.getDecrementsInCents(cell));
+        assertEquals(-290, table.getNet(cell));
+        int salary = table.find(february, Report.NONE);
+        assertEquals(150000, table.getIncrementsInCents(salary));
+        assertEquals(-1, table.find(2021 * 12, spesa.getID()));
+        assertEquals(LocalDate.of(2020, 2, 1), table.getReport().getGranularity().firstDayOf(table.getKey(cell, Report.Key.PERIOD)));
+        // le celle sono ordinate per chiave
+        for (int i = 1; i < table.size(); i++)
+            assertTrue(table.getKey(i - 1, Report.Key.PERIOD) <= table.getKey(i, Report.Key.PERIOD));
+        assertThrows(IllegalArgumentException.class, () -> table.getKey(0, Report.Key.ACCOUNT));
+
+        // senza chiavi il report ha una sola cella con i totali
+        ReportTable totals = engine.compute(ledger, Report.by());
+        assertEquals(1, totals.size());
+        assertEquals(378, totals.getCount(0));
+        assertEquals(12 * 150000 - 366 * 1000, totals.getNetInCents(0));
+    }
+
+    @Test
+    void computeInParallel() {
+        // abbastanza movimenti da dividere il lavoro tra piu' task
+        LocalDate first = LocalDate.of(2010, 1, 1);
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < 30000; i++) {
+            BasicTransaction t = new BasicTransaction(1000 + i, EpochDays.toDate((int) first.plusDays(i % 3650).toEpochDay()));
+            BasicMovement m = new BasicMovement(1000 + i, i % 3 == 0 ? MovementType.INCREMENT : MovementType.DECREMENT, 1 + i % 50, i % 2 == 0 ? conto : carta);
+            if (i % 5 == 0) m.addTag(spesa);
+            t.addMovement(m);
+            transactions.add(t);
+        }
+        ledger.addTransactions(transactions);
+        ReportTable table = new ReportEngine(new ForkJoinPool(4)).compute(ledger,
+                Report.by(Report.Key.PERIOD, Report.Key.ACCOUNT).withGranularity(Granularity.YEAR));
+        Map<List<Integer>, Long> expected = ledger.getMovements().stream().collect(Collectors.groupingBy(
+                m -> List.of(m.getMovementDate().toInstant().atZone(ZoneId.systemDefault()).getYear(), m.getAccount().getID()),
+                Collectors.summingLong(Movement::getSignedCents)));
+        assertEquals(expected.size(), table.size());
+        expected.forEach((key, cents) -> assertEquals(cents, table.getNetInCents(table.find(key.get(0), key.get(1)))));
+        int total = 0;
+        for (int i = 0; i < table.size(); i++) total += table.getCount(i);
+        assertEquals(ledger.getMovements().size(), total);
+    }
+
+    @Test
+    void computeWithQuery() {
+        ReportEngine engine = new ReportEngine();
+        Report byAccount = Report.by(Report.Key.ACCOUNT, Report.Key.MOVEMENT_TYPE).withGranularity(Granularity.YEAR);
+        ReportTable all = engine.compute(ledger, byAccount);
+        assertEquals(2, all.size());
+        assertEquals(366, all.getCount(all.find(carta.getID(), MovementType.DECREMENT.ordinal())));
+        // la query seleziona i movimenti del report
+        ReportTable march = engine.compute(ledger, byAccount.withQuery(LedgerQuery.all()
+                .withDates(LocalDate.of(2020, 3, 1), LocalDate.of(2020, 3, 31))));
+        assertEquals(31, march.getCount(march.find(carta.getID(), MovementType.DECREMENT.ordinal())));
+        assertEquals(1, march.getCount(march.find(conto.getID(), MovementType.INCREMENT.ordinal())));
+        ReportTable increments = engine.compute(ledger, byAccount.withQuery(LedgerQuery.all().withMovementType(MovementType.INCREMENT)));
+        assertEquals(1, increments.size());
+        assertThrows(IllegalArgumentException.class, () -> Report.by(Report.Key.TAG, Report.Key.TAG));
+    }
+}
@@ -0,0 +1,66 @@
+package it.unicam.cs.pa.jbudget105053.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SlotMapTest {
+
+    @Test
+    void put() {
+        SlotMap map = new SlotMap();
+        map.put(5, 0);
+        map.put(Integer.MAX_VALUE, 1);
+        map.put(5, 2);
+        assertEquals(2, map.size());
+        assertEquals(2, map.get(5));
+        assertEquals(1, map.get(Integer.MAX_VALUE));
+        assertEquals(-1, map.get(6));
+        assertThrows(IllegalArgumentException.class, () -> map.put(0, 3));
+    }
+
+    @Test
+    void remove() {
+        SlotMap map = new SlotMap();
+        Map<Integer, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+        // inserimenti e rimozioni casuali, confrontati con una HashMap
+        for (int i = 0; i < 20000; i++) {
+            int ID = 1 + random.nextInt(2000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(ID) != null, map.remove(ID));
+            } else {
+                map.put(ID, i);
+                expected.put(ID, i);
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        for (int ID = 1; ID <= 2000; ID++)
+            assertEquals(expected.getOrDefault(ID, -1), map.get(ID));
+        assertFalse(map.remove(-1));
+    }
+
+    @Test
+    void toSlotArray() {
+        SlotMap map = new SlotMap();
+        map.put(7, 2);
+        map.put(3, 0);
+        map.put(9, 3);
+        map.remove(9);
+        // gli slot senza ID restano a zero
+        assertArrayEquals(new int[]{3, 0, 7, 0}, map.toSlotArray(4));
+    }
+
+    @Test
+    void clear() {
+        SlotMap map = new SlotMap();
+        for (int ID = 1; ID <= 100; ID++) map.put(ID, ID);
+        map.clear();
+        assertEquals(0, map.size());
+        assertEquals(-1, map.get(50));
+    }
+}
@@ -0,0 +1,152 @@
+package it.unicam.cs.pa.jbudget105053.persistence;
+
+import it.unicam.cs.pa.jbudget105053.controller.LedgerMenuController;
+import it.unicam.cs.pa.jbudget105053.model.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AutosaveServiceTest {
+    private LedgerMenuController controller;
+    private AutosaveService autosave;
+    private final AtomicInteger writes = new AtomicInteger();
+
+    @TempDir
+    Path directory;
+
+    @BeforeEach
+    void init() {
+        controller = new LedgerMenuController();
+        controller.resetLedger();
+        controller.setExportManager(new BinarySnapshotExporter(controller) {
+            @Override
+            public void write(LedgerSnapshot snapshot, String path) throws IOException {
+                writes.incrementAndGet();
+                super.write(snapshot, path);
+            }
+        });
+        autosave = new AutosaveService(controller, Runnable::run, 100);
+    }
+
+    @AfterEach
+    void close() throws IOException {
+        autosave.close();
+    }
+
+    @Test
+    void requestSave() throws Exception {
+        CountDownLatch saved = new CountDownLatch(1);
+        autosave.setListener(e -> saved.countDown());
+        // una raffica di modifiche produce un solo salvataggio
+        for (int i = 0; i < 10; i++) {
+            controller.addAccount(AccountType.ASSET, "CONTO " + i, 100);
+            autosave.requestSave(directory.toString());
+        }
+        assertFalse(autosave.isSaved());
+        assertTrue(saved.await(5, TimeUnit.SECONDS));
+        assertTrue(autosave.isSaved());
+        assertEquals(1, writes.get());
+        autosave.requestSave(directory.toString());
+        Thread.sleep(200);
+        assertEquals(1, writes.get());
+
+        LedgerMenuController imported = new LedgerMenuController();
+        imported.resetLedger();
+        imported.setImportManager(new BinarySnapshotImporter(imported));
+        imported.importData(directory.toString());
+        assertEquals(10, imported.getAccounts().size());
+    }
+
+    @Test
+    void save() throws Exception {
+        MutationJournal journal = new MutationJournal(directory.resolve("ledger.journal"));
+        controller.setJournal(journal);
+        controller.addAccount(AccountType.ASSET, "CONTO CORRENTE", 1000);
+        Transaction t = controller.createTransaction(new Date());
+        t.addMovement(controller.createMovement(MovementType.DECREMENT, 200, controller.getAccountByID(1)));
+        controller.addTransaction(t);
+        autosave.save(directory.toString()).get();
+        // le modifiche salvate vengono rimosse dal journal
+        assertEquals(1, writes.get());
+        assertEquals(0, journal.countRecords());
+        // le modifiche successive alla copia non vengono salvate
+        controller.removeTransaction(t);
+        assertFalse(autosave.isSaved());
+        assertEquals(1, journal.countRecords());
+        journal.close();
+
+        LedgerMenuController imported = new LedgerMenuController();
+        imported.resetLedger();
+        imported.setImportManager(new BinarySnapshotImporter(imported));
+        imported.importData(directory.toString());
+        assertEquals(1, imported.getTransactions().size());
+        assertEquals(800, imported.getAccountByID(1).getBalance());
+    }
+
+    @Test
+    void saveFailure() throws Exception {
+        CountDownLatch failed = new CountDownLatch(1);
+        autosave.setListener(e -> {
+            if (e != null) failed.countDown();
+        });
+        controller.addAccount(AccountType.ASSET, "CONTO CORRENTE", 1000);
+        autosave.save(directory.resolve("inesistente").toString()).get();
+        assertTrue(failed.await(5, TimeUnit.SECONDS));
+        assertFalse(autosave.isSaved());
+
+        // anche un'eccezione inattesa viene comunicata al listener
+        AtomicReference<IOException> failure = new AtomicReference<>();
+        autosave.setListener(failure::set);
+        controller.setExportManager(new BinarySnapshotExporter(controller) {
+            @Override
+            public void write(LedgerSnapshot snapshot, String path) {
+                throw new IllegalStateException();
+            }
+        });
+        autosave.save(directory.toString()).get();
+        assertEquals(AutosaveService.MESSAGE_FAILED_SAVE, failure.get().getMessage());
+        assertTrue(failure.get().getCause() instanceof IllegalStateException);
+        assertFalse(autosave.isSaved());
+    }
+
+    @Test
+    void saveSegmented() throws Exception {
+        List<Runnable> steps = new ArrayList<>();
+        autosave.close();
+        autosave = new AutosaveService(controller, steps::add, 100);
+        controller.setExportManager(new SegmentedExporter(controller));
+        controller.addAccount(AccountType.ASSET, "CONTO CORRENTE", 1000);
+        Transaction t = controller.createTransaction(new Date());
+        for (int i = 0; i < AutosaveService.STEP; i++)
+            t.addMovement(controller.createMovement(MovementType.DECREMENT, 0.01, controller.getAccountByID(1)));
+        controller.addTransaction(t);
+        Future<?> saved = autosave.save(directory.toString());
+        // il primo passo non basta a preparare il salvataggio, il successivo viene eseguito dopo
+        assertEquals(1, steps.size());
+        assertFalse(saved.isDone());
+        steps.remove(0).run();
+        saved.get();
+        assertTrue(autosave.isSaved());
+
+        LedgerMenuController imported = new LedgerMenuController();
+        imported.resetLedger();
+        imported.setImportManager(new SegmentedImporter(imported));
+        imported.importData(directory.toString());
+        assertEquals(AutosaveService.STEP, imported.getMovements().size());
+        assertEquals(500, imported.getAccountByID(1).getBalance(), 0.001);
+    }
+}
@@ -0,0 +1,143 @@
+package it.unicam.cs.pa.jbudget105053.persistence;
+
+import it.unicam.cs.pa.jbudget105053.controller.LedgerMenuController;
+import it.unicam.cs.pa.jbudget105053.model.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinarySnapshotImporterTest {
+    private LedgerMenuController controller;
+
+    @TempDir
+    Path directory;
+
+    @BeforeEach
+    void init() {
+        controller = new LedgerMenuController();
+        controller.resetLedger();
+        controller.setExportManager(new BinarySnapshotExporter(controller));
+        controller.setImportManager(new BinarySnapshotImporter(controller));
+    }
+
+    @Test
+    void importAll() throws Exception {
+        controller.addAccount(AccountType.ASSET, "CONTO CORRENTE", 1000.5);
+        controller.addAccount(AccountType.LIABILITY, "MUTUO", 20000);
+        controller.addTag("CASA", "Spese per la casa è €");
+        Account a1 = controller.getAccountByID(1);
+        Account a2 = controller.getAccountByID(2);
+        Tag tag = controller.getTagByID(1);
+        Transaction t = controller.createTransactionWithID(7, new GregorianCalendar(2020, Calendar.MARCH, 15).getTime());
+        t.addTag(tag);
+        t.addMovement(controller.createMovementWithID(3, MovementType.DECREMENT, 500.25, a1));
+        t.addMovement(controller.createMovementWithID(4, MovementType.DECREMENT, 500.25, a2));
+        controller.addTransaction(t);
+        controller.exportData(directory.toString());
+
+        controller.resetLedger();
+        controller.importData(directory.toString());
+        // i dati importati sono uguali a quelli esportati
+        assertEquals(2, controller.getAccounts().size());
+        assertEquals(500.25, controller.getAccountByID(1).getBalance());
+        assertEquals(AccountType.LIABILITY, controller.getAccountByID(2).getAccountType());
+        assertEquals(20500.25, controller.getAccountByID(2).getBalance());
+        assertEquals("Spese per la casa è €", controller.getTagByID(1).getDescription());
+        Transaction imported = controller.getTransactionByID(7);
+        assertEquals(t.getEpochDay(), imported.getEpochDay());
+        assertEquals(2, imported.getMovements().size());
+        assertEquals(1, controller.getTransactions(TagExpression.of(controller.getTagByID(1))).size());
+        assertEquals(-500.25, controller.getMovementByID(3).getSignedCents() / 100.0);
+    }
+
+    @Test
+    void importAllWrongSnapshot() throws Exception {
+        controller.addAccount(AccountType.ASSET, "CONTO CORRENTE", 1000);
+        controller.exportData(directory.toString());
+        File file = new File(directory.toFile(), BinarySnapshot.FILE_NAME);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            // un file troncato o di una versione diversa non viene importato
+            raf.setLength(raf.length() - 3);
+            controller.resetLedger();
+            IOException e = assertThrows(IOException.class, () -> controller.importData(directory.toString()));
+            assertEquals(BinarySnapshotImporter.MESSAGE_WRONG_SNAPSHOT, e.getMessage());
+            raf.seek(4);
+            raf.writeShort(BinarySnapshot.VERSION + 1);
+        }
+        IOException e = assertThrows(IOException.class, () -> controller.importData(directory.toString()));
+        assertEquals(BinarySnapshotImporter.MESSAGE_WRONG_SNAPSHOT, e.getMessage());
+    }
+
+    @Test
+    void importAllWrongReference() throws Exception {
+        controller.addAccount(AccountType.ASSET, "CONTO CORRENTE", 1000);
+        Account account = controller.getAccountByID(1);
+        Transaction t = controller.createTransaction(new GregorianCalendar(2020, Calendar.MARCH, 15).getTime());
+        // un tag che non fa parte del libro contabile non viene scritto nello snapshot
+        t.addTag(new BasicTag(9, "ALTRO", ""));
+        t.addMovement(controller.createMovement(MovementType.DECREMENT, 100, account));
+        controller.addTransaction(t);
+        controller.exportData(directory.toString());
+        controller.resetLedger();
+        IOException e = assertThrows(IOException.class, () -> controller.importData(directory.toString()));
+        assertEquals(BinarySnapshotImporter.MESSAGE_WRONG_SNAPSHOT, e.getMessage());
+
+        controller.resetLedger();
+        controller.addAccount(AccountType.ASSET, "CONTO CORRENTE", 1000);
+        t = controller.createTransaction(new GregorianCalendar(2020, Calendar.MARCH, 15).getTime());
+        t.addMovement(controller.createMovement(MovementType.DECREMENT, 100, controller.getAccountByID(1)));
+        controller.addTransaction(t);
+        controller.exportData(directory.toString());
+        try (RandomAccessFile raf = new RandomAccessFile(new File(directory.toFile(), BinarySnapshot.FILE_NAME), "rw")) {
+            // nemmeno un movimento di un account inesistente: l'ultimo movimento termina con
+            // account, transazione e numero di tag
+            raf.seek(raf.length() - 12);
+            raf.writeInt(9);
+        }
+        controller.resetLedger();
+        e = assertThrows(IOException.class, () -> controller.importData(directory.toString()));
+        assertEquals(BinarySnapshotImporter.MESSAGE_WRONG_SNAPSHOT, e.getMessage());
+    }
+
+    @Test
+    void importAllUnorderedMovements() throws Exception {
+        controller.addAccount(AccountType.ASSET, "CONTO CORRENTE", 1000);
+        Account account = controller.getAccountByID(1);
+        for (int ID = 1; ID <= 3; ID++) {
+            Transaction t = controller.createTransactionWithID(ID, new GregorianCalendar(2020, Calendar.MARCH, ID).getTime());
+            t.addMovement(controller.createMovementWithID(ID, MovementType.DECREMENT, 10, account));
+            controller.addTransaction(t);
+        }
+        controller.exportData(directory.toString());
+        File file = new File(directory.toFile(), BinarySnapshot.FILE_NAME);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            // l'ultimo movimento viene spostato nella prima transazione, che non e' quella dei movimenti vicini
+            raf.seek(raf.length() - 8);
+            raf.writeInt(1);
+        }
+        controller.resetLedger();
+        controller.importData(directory.toString());
+        assertEquals(2, controller.getTransactionByID(1).getMovements().size());
+        assertEquals(1, controller.getMovementByID(3).getTransaction().getID());
+        assertTrue(controller.getTransactionByID(3).getMovements().isEmpty());
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            // una transazione inesistente rende lo snapshot non valido
+            raf.seek(raf.length() - 8);
+            raf.writeInt(9);
+        }
+        controller.resetLedger();
+        IOException e = assertThrows(IOException.class, () -> controller.importData(directory.toString()));
+        assertEquals(BinarySnapshotImporter.MESSAGE_WRONG_SNAPSHOT, e.getMessage());
+        assertTrue(controller.getTransactions().isEmpty());
+    }
+}
@@ -0,0 +1,99 @@
+package it.unicam.cs.pa.jbudget105053.persistence;
+
+import it.unicam.cs.pa.jbudget105053.controller.LedgerMenuController;
+import it.unicam.cs.pa.jbudget105053.model.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvImporterTest {
+    private LedgerMenuController controller;
+
+    @TempDir
+    Path directory;
+
+    @BeforeEach
+    void init() {
+        controller = new LedgerMenuController();
+        controller.resetLedger();
+        controller.addAccount(AccountType.ASSET, "CONTO CORRENTE", 1000);
+        controller.addAccount(AccountType.LIABILITY, "CARTA", 0);
+        controller.addTag("SPESA", "Spese alimentari");
+    }
+
+    @Test
+    void importAll() throws Exception {
+        // l'estratto conto di un solo conto, senza la colonna dell'account
+        StringBuilder csv = new StringBuilder("﻿Data;Descrizione;Importo;Categoria\n");
+        for (int day = 1; day <= 28; day++)
+            csv.append(String.format("%02d/02/2020;\"Supermercato; filiale %d\";-10,50;SPESA\n", day, day));
+        csv.append("01/03/2020;Stipendio;\"1.500,00\";\n");
+        csv.append("02/03/2020;Saldo;0,00;\n");
+        Files.writeString(directory.resolve("conto.csv"), csv);
+        CsvMapping mapping = new CsvMapping(0, 2, CsvMapping.NO_COLUMN, 3).withDefaultAccount("CONTO CORRENTE");
+        controller.setImportManager(new CsvImporter(controller, mapping, new ForkJoinPool(4)));
+        controller.importData(directory.resolve("conto.csv").toString());
+        // la riga con importo zero viene saltata
+        assertEquals(29, controller.getTransactions().size());
+        assertEquals(1000 - 28 * 10.5 + 1500, controller.getAccountByID(1).getBalance());
+        Tag spesa = controller.getTagByID(1);
+        assertEquals(28, controller.countMovements(spesa));
+        // gli ID seguono l'ordine delle righe
+        List<Transaction> transactions = controller.getTransactions();
+        assertEquals(LocalDate.of(2020, 2, 1).toEpochDay(), controller.getTransactionByID(transactions.get(0).getID()).getEpochDay());
+        assertEquals(MovementType.INCREMENT, controller.getMovementByID(29).getMovementType());
+    }
+
+    @Test
+    void importAllWithAccountColumn() throws Exception {
+        Files.writeString(directory.resolve("a.csv"), "2020-03-01,CARTA,-20.00\n2020-03-02,CONTO CORRENTE,5\n");
+        Files.writeString(directory.resolve("b.csv"), "2020-03-03,CARTA,-30.00\n");
+        CsvMapping mapping = new CsvMapping(0, 2, 1, CsvMapping.NO_COLUMN).withDecimalSeparator('.')
+                .withSeparator(',').withDateOrder(CsvMapping.DateOrder.YEAR_MONTH_DAY).withHeader(false);
+        new CsvImporter(controller, mapping).importAll(directory.toString());
+        assertEquals(3, controller.getTransactions().size());
+        // una spesa con la carta aumenta il suo debito
+        assertEquals(50, controller.getAccountByID(2).getBalance());
+        assertEquals(1005, controller.getAccountByID(1).getBalance());
+    }
+
+    @Test
+    void importAllWrongLine() throws IOException {
+        Files.writeString(directory.resolve("conto.csv"), "Data;Importo\n01/03/2020;-10\n02/03/2020;dieci\n");
+        CsvImporter importer = new CsvImporter(controller, new CsvMapping(0, 1, CsvMapping.NO_COLUMN, CsvMapping.NO_COLUMN)
+                .withDefaultAccount("CONTO CORRENTE"));
+        ParseException e = assertThrows(ParseException.class, () -> importer.importAll(directory.toString()));
+        assertEquals(FieldReader.MESSAGE_WRONG_FIELD + 3, e.getMessage());
+        // nessuna riga viene importata
+        assertTrue(controller.getTransactions().isEmpty());
+
+        Files.writeString(directory.resolve("conto.csv"), "Data;Importo;Conto\n01/03/2020;-10;carta\n02/03/2020;-5;ALTRO\n");
+        CsvImporter unknown = new CsvImporter(controller, new CsvMapping(0, 1, 2, CsvMapping.NO_COLUMN));
+        e = assertThrows(ParseException.class, () -> unknown.importAll(directory.toString()));
+        assertEquals(CsvImporter.MESSAGE_UNKNOWN_ACCOUNT + 3, e.getMessage());
+        assertTrue(controller.getTransactions().isEmpty());
+    }
+
+    @Test
+    void importAllIgnoringCase() throws Exception {
+        // i nomi degli account e dei tag sono confrontati senza distinguere maiuscole e minuscole
+        Files.writeString(directory.resolve("conto.csv"),
+                "Data;Importo;Conto;Categoria\n01/03/2020;-10;Carta;spesa\n02/03/2020;-5;carta;Spesa\n03/03/2020;-1;;spesa\n");
+        CsvMapping mapping = new CsvMapping(0, 1, 2, 3).withDefaultAccount("Conto Corrente");
+        new CsvImporter(controller, mapping).importAll(directory.toString());
+        assertEquals(3, controller.getTransactions().size());
+        assertEquals(15, controller.getAccountByID(2).getBalance());
+        assertEquals(999, controller.getAccountByID(1).getBalance());
+        assertEquals(3, controller.countMovements(controller.getTagByID(1)));
+    }
+}
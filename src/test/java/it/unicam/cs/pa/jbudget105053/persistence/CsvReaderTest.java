@@ -0,0 +1,64 @@
+package it.unicam.cs.pa.jbudget105053.persistence;
+
+import org.junit.jupiter.api.Test;
+
+import java.text.ParseException;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvReaderTest {
+
+    private CsvReader reader(String text) {
+        return new CsvReader(text.toCharArray(), 0, text.length(), ';', 1);
+    }
+
+    @Test
+    void nextLine() throws ParseException {
+        // i campi tra virgolette possono contenere separatori, a capo e virgolette doppie
+        CsvReader reader = reader("a;\"b;c\"\r\n\n\"riga\ndoppia\";\"un \"\"nome\"\"\"\nfine");
+        assertTrue(reader.nextLine());
+        assertEquals("a", reader.getString(0));
+        assertEquals("b;c", reader.getString(1));
+        assertTrue(reader.nextLine());
+        assertEquals(3, reader.getLineNumber());
+        assertEquals("riga\ndoppia", reader.getString(0));
+        assertEquals("un \"nome\"", reader.getString(1));
+        assertTrue(reader.fieldEquals(1, "un \"nome\""));
+        assertTrue(reader.nextLine());
+        assertEquals(5, reader.getLineNumber());
+        assertTrue(reader.fieldEquals(0, "fine"));
+        assertTrue(reader.fieldEqualsUpperCase(0, "FINE"));
+        assertFalse(reader.fieldEqualsUpperCase(0, "fine"));
+        assertFalse(reader.nextLine());
+
+        CsvReader wrong = reader("\"non chiuso;1");
+        assertThrows(ParseException.class, wrong::nextLine);
+    }
+
+    @Test
+    void getCents() throws ParseException {
+        CsvReader reader = reader("-1.234,56; 12,5 ;+3;0,05;1,234;x");
+        assertTrue(reader.nextLine());
+        assertEquals(-123456, reader.getCents(0, ','));
+        assertEquals(1250, reader.getCents(1, ','));
+        assertEquals(300, reader.getCents(2, ','));
+        assertEquals(5, reader.getCents(3, ','));
+        assertEquals(123400, reader.getCents(4, '.'));
+        assertThrows(ParseException.class, () -> reader.getCents(4, ','));
+        assertThrows(ParseException.class, () -> reader.getCents(5, ','));
+        assertThrows(ParseException.class, () -> reader.getCents(6, ','));
+    }
+
+    @Test
+    void getEpochDay() throws ParseException {
+        CsvReader reader = reader("29/02/2020;2020-02-29T10:00;2/29/2020;31.04.2020;29/02/20");
+        assertTrue(reader.nextLine());
+        long day = LocalDate.of(2020, 2, 29).toEpochDay();
+        assertEquals(day, reader.getEpochDay(0, CsvMapping.DateOrder.DAY_MONTH_YEAR));
+        assertEquals(day, reader.getEpochDay(1, CsvMapping.DateOrder.YEAR_MONTH_DAY));
+        assertEquals(day, reader.getEpochDay(2, CsvMapping.DateOrder.MONTH_DAY_YEAR));
+        assertThrows(ParseException.class, () -> reader.getEpochDay(3, CsvMapping.DateOrder.DAY_MONTH_YEAR));
+        assertThrows(ParseException.class, () -> reader.getEpochDay(4, CsvMapping.DateOrder.DAY_MONTH_YEAR));
+    }
+}
@@ -0,0 +1,76 @@
+package it.unicam.cs.pa.jbudget105053.persistence;
+
+import it.unicam.cs.pa.jbudget105053.model.AccountType;
+import it.unicam.cs.pa.jbudget105053.model.EpochDays;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FieldReaderTest {
+
+    @Test
+    void nextLine() throws IOException, ParseException {
+        // un buffer piu' piccolo delle righe viene ingrandito e riempito piu' volte
+        FieldReader reader = new FieldReader(new StringReader("1;CONTO CORRENTE LUNGO\r\n\n2;B;\n3;C"), 4);
+        List<String> names = new ArrayList<>();
+        int IDs = 0;
+        while (reader.nextLine()) {
+            IDs += reader.getInt(0);
+            names.add(reader.getString(1));
+        }
+        assertEquals(6, IDs);
+        assertEquals(List.of("CONTO CORRENTE LUNGO", "B", "C"), names);
+        assertFalse(reader.nextLine());
+    }
+
+    @Test
+    void getDouble() throws IOException, ParseException {
+        FieldReader reader = new FieldReader(new StringReader("1000.5;-0.05;1.0E7;0.1;12345678901234567.5;x1"));
+        assertTrue(reader.nextLine());
+        assertEquals(1000.5, reader.getDouble(0));
+        assertEquals(-0.05, reader.getDouble(1));
+        assertEquals(1.0E7, reader.getDouble(2));
+        assertEquals(0.1, reader.getDouble(3));
+        assertEquals(12345678901234567.5, reader.getDouble(4));
+        assertThrows(ParseException.class, () -> reader.getDouble(5));
+    }
+
+    @Test
+    void getEpochDay() throws IOException, ParseException {
+        FieldReader reader = new FieldReader(new StringReader("29-02-2020;2020-02-29;2019-02-29;2020/02/29"));
+        assertTrue(reader.nextLine());
+        assertEquals(EpochDays.parse("29-02-2020"), reader.getEpochDay(0));
+        // anche le date salvate dalle versioni precedenti vengono lette
+        assertEquals(EpochDays.parse("29-02-2020"), reader.getEpochDay(1));
+        assertThrows(ParseException.class, () -> reader.getEpochDay(2));
+        assertThrows(ParseException.class, () -> reader.getEpochDay(3));
+    }
+
+    @Test
+    void getEnum() throws IOException, ParseException {
+        FieldReader reader = new FieldReader(new StringReader("LIABILITY;ASSETS"));
+        assertTrue(reader.nextLine());
+        assertEquals(AccountType.LIABILITY, reader.getEnum(0, AccountType.values()));
+        assertThrows(ParseException.class, () -> reader.getEnum(1, AccountType.values()));
+    }
+
+    @Test
+    void forEachInt() throws IOException, ParseException {
+        FieldReader reader = new FieldReader(new StringReader("1;2,3,;\n2;;"));
+        List<Integer> tags = new ArrayList<>();
+        assertTrue(reader.nextLine());
+        reader.forEachInt(1, tags::add);
+        assertTrue(reader.nextLine());
+        assertFalse(reader.hasField(1));
+        reader.forEachInt(1, tags::add);
+        reader.forEachInt(5, tags::add);
+        assertEquals(List.of(2, 3), tags);
+        assertThrows(ParseException.class, () -> reader.getInt(5));
+    }
+}
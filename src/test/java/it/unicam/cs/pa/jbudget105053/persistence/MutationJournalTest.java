@@ -0,0 +1,178 @@
+package it.unicam.cs.pa.jbudget105053.persistence;
+
+import it.unicam.cs.pa.jbudget105053.controller.LedgerMenuController;
+import it.unicam.cs.pa.jbudget105053.model.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MutationJournalTest {
+    private LedgerMenuController controller;
+    private Path file;
+
+    @TempDir
+    Path directory;
+
+    @BeforeEach
+    void init() {
+        controller = new LedgerMenuController();
+        controller.resetLedger();
+        file = directory.resolve("ledger.journal");
+    }
+
+    /**
+     * Registra alcune modifiche del ledger nel journal dato.
+     */
+    private void recordChanges(MutationJournal journal) {
+        controller.setJournal(journal);
+        controller.addAccount(AccountType.ASSET, "CONTO CORRENTE", 1000.5);
+        controller.addAccount(AccountType.LIABILITY, "MUTUO", 20000);
+        controller.addTag("CASA", "Spese per la casa è €");
+        Account a1 = controller.getAccountByID(1);
+        Account a2 = controller.getAccountByID(2);
+        Tag tag = controller.getTagByID(1);
+        Transaction t = controller.createTransaction(new GregorianCalendar(2020, Calendar.MARCH, 15).getTime());
+        Movement m = controller.createMovement(MovementType.DECREMENT, 500.25, a2);
+        m.addTag(tag);
+        t.addMovement(controller.createMovement(MovementType.DECREMENT, 500.25, a1));
+        t.addMovement(m);
+        controller.addTransaction(t);
+        controller.modifyAccount(a1, AccountType.ASSET, "CONTO ARANCIO", 1200);
+        controller.addTag("SVAGO", "");
+        controller.removeTag(controller.getTagByID(2));
+    }
+
+    @Test
+    void replay() throws Exception {
+        try (MutationJournal journal = new MutationJournal(file)) {
+            recordChanges(journal);
+        }
+        controller = new LedgerMenuController();
+        try (MutationJournal journal = new MutationJournal(file)) {
+            controller.setJournal(journal);
+            controller.recoverData(null);
+            // le modifiche recuperate devono ancora essere salvate
+            assertFalse(controller.getIsSaved());
+        }
+        assertEquals(2, controller.getAccounts().size());
+        assertEquals("CONTO ARANCIO", controller.getAccountByID(1).getName());
+        assertEquals(699.75, controller.getAccountByID(1).getBalance());
+        assertEquals(20500.25, controller.getAccountByID(2).getBalance());
+        assertEquals(1, controller.getTags().size());
+        assertEquals(1, controller.getTransactions().size());
+        assertEquals(2, controller.getMovements().size());
+        assertEquals(1, controller.countMovements(controller.getTagByID(1)));
+        // il ripristino non viene registrato di nuovo nel journal
+        try (MutationJournal journal = new MutationJournal(file)) {
+            assertEquals(7, journal.countRecords());
+        }
+    }
+
+    @Test
+    void truncateTornTail() throws Exception {
+        try (MutationJournal journal = new MutationJournal(file)) {
+            recordChanges(journal);
+        }
+        long size = Files.size(file);
+        // un record scritto solo in parte da un crash viene scartato
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.seek(size);
+            raf.writeInt(64);
+            raf.write(new byte[]{1, 2, 3});
+        }
+        try (MutationJournal journal = new MutationJournal(file)) {
+            assertEquals(size, Files.size(file));
+            assertEquals(7, journal.countRecords());
+        }
+        // anche un record con il CRC sbagliato e tutti i successivi
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.seek(size - 1);
+            int last = raf.read();
+            raf.seek(size - 1);
+            raf.write(last ^ 0xFF);
+        }
+        try (MutationJournal journal = new MutationJournal(file)) {
+            assertEquals(6, journal.countRecords());
+        }
+    }
+
+    @Test
+    void sync() throws Exception {
+        try (MutationJournal journal = new MutationJournal(file, 1000)) {
+            controller.setJournal(journal);
+            controller.addAccount(AccountType.ASSET, "CONTO CORRENTE", 1000);
+            journal.sync();
+            assertTrue(journal.isDurable());
+            // il journal non sostituisce il salvataggio dei dati
+            assertFalse(controller.getIsSaved());
+            assertTrue(Files.size(file) > 0);
+        }
+    }
+
+    @Test
+    void checkpoint() throws Exception {
+        controller.setExportManager(new BinarySnapshotExporter(controller));
+        controller.setImportManager(new BinarySnapshotImporter(controller));
+        try (MutationJournal journal = new MutationJournal(file)) {
+            recordChanges(journal);
+            controller.exportData(directory.toString());
+            assertEquals(0, Files.size(file));
+            controller.addAccount(AccountType.ASSET, "CASSA CONTANTE", 50);
+        }
+        controller = new LedgerMenuController();
+        controller.setImportManager(new BinarySnapshotImporter(controller));
+        try (MutationJournal journal = new MutationJournal(file)) {
+            controller.setJournal(journal);
+            controller.recoverData(directory.toString());
+            assertEquals(1, journal.countRecords());
+        }
+        assertEquals(3, controller.getAccounts().size());
+        assertEquals("CASSA CONTANTE", controller.getAccountByID(3).getName());
+        assertEquals(1, controller.getTransactions().size());
+        // le modifiche registrate durante il checkpoint non vengono perse
+        Files.delete(file);
+        int count = 2000;
+        AtomicInteger done = new AtomicInteger();
+        Object turn = new Object();
+        int started = 0;
+        try (MutationJournal journal = new MutationJournal(file, 1)) {
+            Thread writer = new Thread(() -> {
+                for (int i = 1; i <= count; i++) {
+                    synchronized (turn) {
+                        journal.recordAddAccount(new BasicAccount(i, AccountType.ASSET, "CONTO " + i, i));
+                        done.set(i);
+                    }
+                }
+            });
+            writer.start();
+            while (writer.isAlive()) {
+                long mark;
+                synchronized (turn) {
+                    started = done.get();
+                    mark = journal.mark();
+                }
+                journal.checkpoint(mark);
+            }
+            writer.join();
+        }
+        controller = new LedgerMenuController();
+        try (MutationJournal journal = new MutationJournal(file)) {
+            controller.setJournal(journal);
+            controller.recoverData(null);
+        }
+        // il journal contiene esattamente le modifiche registrate dopo l'ultimo checkpoint
+        int kept = controller.getAccounts().size();
+        assertEquals(count - started, kept);
+        for (int i = count - kept + 1; i <= count; i++)
+            assertNotNull(controller.getAccountByID(i));
+    }
+}
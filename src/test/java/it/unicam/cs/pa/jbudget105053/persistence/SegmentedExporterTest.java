@@ -0,0 +1,170 @@
+package it.unicam.cs.pa.jbudget105053.persistence;
+
+import it.unicam.cs.pa.jbudget105053.controller.LedgerMenuController;
+import it.unicam.cs.pa.jbudget105053.model.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SegmentedExporterTest {
+    private LedgerMenuController controller;
+    private SegmentedExporter exporter;
+    private Account account;
+
+    @TempDir
+    Path directory;
+
+    @BeforeEach
+    void init() {
+        controller = new LedgerMenuController();
+        controller.resetLedger();
+        exporter = new SegmentedExporter(controller);
+        controller.setExportManager(exporter);
+        controller.addAccount(AccountType.ASSET, "CONTO CORRENTE", 1000);
+        controller.addTag("CASA", "bla bla bla");
+        account = controller.getAccountByID(1);
+        addTransaction(Calendar.JANUARY, 100);
+        addTransaction(Calendar.MARCH, 50);
+    }
+
+    /**
+     * Aggiunge una transazione nel mese dato del 2020 con un solo movimento.
+     */
+    private Transaction addTransaction(int month, double amount) {
+        Transaction t = controller.createTransaction(new GregorianCalendar(2020, month, 10).getTime());
+        t.addMovement(controller.createMovement(MovementType.DECREMENT, amount, account));
+        controller.addTransaction(t);
+        return t;
+    }
+
+    /**
+     * Sostituisce il contenuto del file dato, per verificare se viene riscritto.
+     */
+    private void mark(String name) throws Exception {
+        Files.writeString(directory.resolve(name), "NON RISCRITTO");
+    }
+
+    private String read(String name) throws Exception {
+        return Files.readString(directory.resolve(name));
+    }
+
+    /**
+     * Restituisce le parti elencate nel manifest con la loro generazione.
+     */
+    private Map<String, Integer> manifest(Path path) throws Exception {
+        return SegmentedExporter.readManifest(path.toFile());
+    }
+
+    @Test
+    void exportAll() throws Exception {
+        controller.exportData(directory.toString());
+        assertEquals(Map.of("accounts", 1, "tags", 1, "2020-01", 1, "2020-03", 1), manifest(directory));
+        assertFalse(exporter.getTracker().isDirty());
+
+        mark("accounts-1.txt");
+        mark("tags-1.txt");
+        mark("transactions-2020-01-1.txt");
+        addTransaction(Calendar.MARCH, 25);
+        controller.exportData(directory.toString());
+        // viene riscritto solo il segmento di marzo, con una nuova generazione
+        assertEquals(Map.of("accounts", 1, "tags", 1, "2020-01", 1, "2020-03", 2), manifest(directory));
+        assertEquals("NON RISCRITTO", read("accounts-1.txt"));
+        assertEquals("NON RISCRITTO", read("tags-1.txt"));
+        assertEquals("NON RISCRITTO", read("transactions-2020-01-1.txt"));
+        assertEquals(2, read("transactions-2020-03-2.txt").lines().count());
+        assertEquals(2, read("movements-2020-03-2.txt").lines().count());
+        // i file sostituiti vengono eliminati dopo il manifest
+        assertFalse(Files.exists(directory.resolve("transactions-2020-03-1.txt")));
+        assertFalse(Files.exists(directory.resolve("movements-2020-03-1.txt")));
+
+        controller.modifyTag(controller.getTagByID(1), "BOLLETTE", "");
+        controller.exportData(directory.toString());
+        assertTrue(read("tags-3.txt").contains("BOLLETTE"));
+        assertFalse(Files.exists(directory.resolve("tags-1.txt")));
+        assertEquals("NON RISCRITTO", read("accounts-1.txt"));
+    }
+
+    @Test
+    void removeSegment() throws Exception {
+        controller.exportData(directory.toString());
+        controller.removeTransaction(controller.getTransactionByID(1));
+        controller.exportData(directory.toString());
+        assertEquals(Map.of("accounts", 1, "tags", 1, "2020-03", 1), manifest(directory));
+        assertFalse(Files.exists(directory.resolve("transactions-2020-01-1.txt")));
+        assertFalse(Files.exists(directory.resolve("movements-2020-01-1.txt")));
+    }
+
+    @Test
+    void exportToAnotherPath() throws Exception {
+        controller.exportData(directory.toString());
+        Path other = Files.createDirectory(directory.resolve("altro"));
+        addTransaction(Calendar.MARCH, 25);
+        controller.exportData(other.toString());
+        // in un percorso diverso vengono scritti tutti i segmenti
+        assertEquals(Map.of("accounts", 1, "tags", 1, "2020-01", 1, "2020-03", 1), manifest(other));
+        assertTrue(Files.exists(other.resolve("accounts-1.txt")));
+    }
+
+    @Test
+    void writeManifest() throws Exception {
+        controller.exportData(directory.toString());
+        Map<String, Integer> saved = manifest(directory);
+        String transactions = read("transactions-2020-03-1.txt");
+        addTransaction(Calendar.MARCH, 25);
+        // il salvataggio si interrompe prima di sostituire il manifest
+        Files.createDirectory(directory.resolve("movements-2020-03-2.txt"));
+        assertThrows(IOException.class, () -> exporter.exportAll(directory.toString()));
+        assertEquals(saved, manifest(directory));
+        assertEquals(transactions, read("transactions-2020-03-1.txt"));
+        assertFalse(Files.exists(directory.resolve("transactions-2020-03-2.txt")));
+        assertTrue(exporter.getTracker().isDirty());
+
+        exporter.exportAll(directory.toString());
+        assertEquals(2, read("movements-2020-03-2.txt").lines().count());
+    }
+
+    @Test
+    void prepareExport() throws Exception {
+        controller.exportData(directory.toString());
+        addTransaction(Calendar.MARCH, 25);
+        ExportPreparation preparation = exporter.prepareExport(directory.toString());
+        // un passo gestisce al massimo il numero di elementi dato
+        assertFalse(preparation.step(1));
+        assertThrows(IllegalStateException.class, preparation::getTask);
+        // le modifiche fatte tra due passi vengono aggiunte a quelle gia' prese
+        addTransaction(Calendar.JANUARY, 10);
+        assertTrue(preparation.step(Integer.MAX_VALUE));
+        assertEquals(controller.getVersion(), preparation.getTask().run());
+        assertEquals(Map.of("accounts", 1, "tags", 1, "2020-01", 2, "2020-03", 2), manifest(directory));
+        assertEquals(2, read("transactions-2020-01-2.txt").lines().count());
+        assertEquals(2, read("movements-2020-03-2.txt").lines().count());
+        assertFalse(exporter.getTracker().isDirty());
+    }
+
+    @Test
+    void importAll() throws Exception {
+        Transaction t = addTransaction(Calendar.JANUARY, 25);
+        controller.exportData(directory.toString());
+        controller.removeTransaction(t);
+        controller.exportData(directory.toString());
+
+        LedgerMenuController imported = new LedgerMenuController();
+        imported.resetLedger();
+        imported.setImportManager(new SegmentedImporter(imported));
+        imported.importData(directory.toString());
+        assertEquals(1, imported.getAccounts().size());
+        assertEquals(1, imported.getTags().size());
+        assertEquals(2, imported.getTransactions().size());
+        assertEquals(2, imported.getMovements().size());
+        assertEquals(850, imported.getAccountByID(1).getBalance());
+    }
+}
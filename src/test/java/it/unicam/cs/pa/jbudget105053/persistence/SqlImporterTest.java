@@ -0,0 +1,75 @@
+package it.unicam.cs.pa.jbudget105053.persistence;
+
+import it.unicam.cs.pa.jbudget105053.controller.LedgerMenuController;
+import it.unicam.cs.pa.jbudget105053.model.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.GregorianCalendar;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class SqlImporterTest {
+    private LedgerMenuController controller;
+    private LedgerMenuController imported;
+
+    @TempDir
+    Path directory;
+
+    @BeforeEach
+    void init() throws IOException {
+        assumeTrue(SqlLedgerTest.driverAvailable());
+        controller = new LedgerMenuController();
+        controller.resetLedger();
+        controller.addAccount(AccountType.ASSET, "CONTO CORRENTE", 1000);
+        controller.addAccount(AccountType.LIABILITY, "MUTUO", 20000);
+        controller.addTag("CASA", "Spese per la casa è €");
+        Account a1 = controller.getAccountByID(1);
+        Account a2 = controller.getAccountByID(2);
+        // una transazione al giorno per tutto il 2020, piu' righe di un batch
+        for (int day = 365; day >= 0; day--) {
+            GregorianCalendar date = new GregorianCalendar(2020, 0, 1);
+            date.add(GregorianCalendar.DAY_OF_YEAR, day);
+            Transaction t = controller.createTransaction(date.getTime());
+            t.addMovement(controller.createMovement(MovementType.DECREMENT, 1, a1));
+            t.addMovement(controller.createMovement(MovementType.DECREMENT, 1, a2));
+            if (day % 2 == 0) t.addTag(controller.getTagByID(1));
+            controller.addTransaction(t);
+        }
+        controller.setExportManager(new SqlExporter(controller));
+        controller.exportData(directory.toString());
+        imported = new LedgerMenuController();
+        imported.resetLedger();
+    }
+
+    @Test
+    void importAll() throws Exception {
+        imported.setImportManager(new SqlImporter(imported));
+        imported.importData(directory.toString());
+        assertEquals(2, imported.getAccounts().size());
+        assertEquals("Spese per la casa è €", imported.getTagByID(1).getDescription());
+        assertEquals(366, imported.getTransactions().size());
+        assertEquals(732, imported.getMovements().size());
+        assertEquals(controller.getAccountByID(1).getBalance(), imported.getAccountByID(1).getBalance());
+        assertEquals(controller.getAccountByID(2).getBalance(), imported.getAccountByID(2).getBalance());
+        assertEquals(183, imported.getTransactions(TagExpression.of(imported.getTagByID(1))).size());
+        assertEquals(366, imported.getMovements(TagExpression.of(imported.getTagByID(1))).size());
+    }
+
+    @Test
+    void importBetween() throws Exception {
+        SqlImporter importer = new SqlImporter(imported);
+        importer.importBetween(directory.toString(), LocalDate.of(2020, 3, 1), LocalDate.of(2020, 3, 31));
+        assertEquals(2, imported.getAccounts().size());
+        assertEquals(31, imported.getTransactions().size());
+        assertEquals(62, imported.getMovements().size());
+        assertTrue(imported.getTransactions().stream().allMatch(t -> LocalDate.ofEpochDay(t.getEpochDay()).getMonthValue() == 3));
+        assertThrows(IllegalArgumentException.class,
+                () -> importer.importBetween(directory.toString(), LocalDate.of(2020, 3, 31), LocalDate.of(2020, 3, 1)));
+    }
+}
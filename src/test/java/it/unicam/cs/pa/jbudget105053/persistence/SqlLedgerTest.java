@@ -0,0 +1,202 @@
+package it.unicam.cs.pa.jbudget105053.persistence;
+
+import it.unicam.cs.pa.jbudget105053.controller.LedgerMenuController;
+import it.unicam.cs.pa.jbudget105053.model.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.GregorianCalendar;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class SqlLedgerTest {
+    private SqlLedger ledger;
+
+    @TempDir
+    Path directory;
+
+    // senza il driver di H2 sul classpath i test vengono saltati
+    static boolean driverAvailable() {
+        try {
+            Class.forName("org.h2.Driver");
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    @BeforeEach
+    void init() throws IOException {
+        assumeTrue(driverAvailable());
+        LedgerMenuController controller = new LedgerMenuController();
+        controller.resetLedger();
+        controller.addAccount(AccountType.ASSET, "CONTO CORRENTE", 1000);
+        controller.addAccount(AccountType.LIABILITY, "MUTUO", 5000);
+        controller.addTag("CASA", "bla bla bla");
+        Account a1 = controller.getAccountByID(1);
+        Account a2 = controller.getAccountByID(2);
+        Tag casa = controller.getTagByID(1);
+        Transaction t1 = controller.createTransaction(new GregorianCalendar(2020, 0, 10).getTime());
+        Transaction t2 = controller.createTransaction(new GregorianCalendar(2020, 1, 10).getTime());
+        Transaction t3 = controller.createTransaction(new GregorianCalendar(2020, 2, 10).getTime());
+        t1.addMovement(controller.createMovement(MovementType.DECREMENT, 100, a1));
+        t2.addMovement(controller.createMovement(MovementType.DECREMENT, 200, a1));
+        t2.addMovement(controller.createMovement(MovementType.DECREMENT, 200, a2));
+        t2.addTag(casa);
+        t3.addMovement(controller.createMovement(MovementType.INCREMENT, 50, a1));
+        t3.getMovements().get(0).addTag(casa);
+        controller.addTransaction(t3);
+        controller.addTransaction(t1);
+        controller.addTransaction(t2);
+        new SqlExporter(controller).exportAll(directory.toString());
+        ledger = SqlLedger.open(directory.toString());
+    }
+
+    @AfterEach
+    void close() throws IOException {
+        if (ledger != null) ledger.close();
+    }
+
+    @Test
+    void open() {
+        assertEquals(2, ledger.getAccounts().size());
+        assertEquals(1, ledger.getTags().size());
+        // i saldi sono calcolati dal database
+        assertEquals(750, ledger.getAccountByID(1).getBalance());
+        assertEquals(5200, ledger.getAccountByID(2).getBalance());
+        assertEquals(900, ledger.getAccountByID(1).getBalanceAt(LocalDate.of(2020, 1, 31)));
+        assertEquals(-150, ledger.getAccountByID(1).getVariation(LocalDate.of(2020, 2, 1), LocalDate.of(2020, 3, 31)));
+        assertEquals(3, ledger.getAccountByID(1).getMovementsList().size());
+        assertEquals(-200, ledger.getMovementByID(3).getSignedCents() / 100);
+    }
+
+    @Test
+    void modifyAccount() throws IOException {
+        Account a = ledger.getAccountByID(1);
+        // il nome di un altro account non puo' essere preso
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> ledger.modifyAccount(a, AccountType.ASSET, "mutuo", 1000));
+        assertEquals(Account.MESSAGE_ACCOUNT_ALREADY_EXISTS, e.getMessage());
+        assertEquals("CONTO CORRENTE", a.getName());
+        ledger.modifyAccount(a, AccountType.ASSET, "CONTO ARANCIO", 1000);
+        ledger.close();
+        ledger = SqlLedger.open(directory.toString());
+        assertEquals("CONTO ARANCIO", ledger.getAccountByID(1).getName());
+        assertEquals("MUTUO", ledger.getAccountByID(2).getName());
+    }
+
+    @Test
+    void modifyTag() {
+        ledger.addTag("SVAGO", "bla bla bla");
+        Tag casa = ledger.getTagByID(1);
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> ledger.modifyTag(casa, "svago", ""));
+        assertEquals(Tag.MESSAGE_TAG_ALREADY_EXISTS, e.getMessage());
+        assertEquals("CASA", casa.getName());
+    }
+
+    @Test
+    void getTransactions() {
+        List<Transaction> transactions = ledger.getTransactions();
+        assertEquals(3, transactions.size());
+        assertEquals(4, ledger.getMovements().size());
+        assertEquals(1, transactions.get(0).getID());
+        assertEquals(2, transactions.get(1).getMovements().size());
+        assertSame(transactions.get(1), ledger.getTransactionByID(2));
+        assertSame(transactions.get(1), ledger.getMovementByID(3).getTransaction());
+        assertEquals(List.of(ledger.getTagByID(1)), transactions.get(1).getTag());
+    }
+
+    @Test
+    void getTransactionsByDate() {
+        List<Transaction> transactions = ledger.getTransactions(LocalDate.of(2020, 2, 1), LocalDate.of(2020, 3, 31));
+        assertEquals(2, transactions.size());
+        assertEquals(2, transactions.get(0).getID());
+        assertEquals(3, transactions.get(1).getID());
+        assertThrows(IllegalArgumentException.class,
+                () -> ledger.getTransactions(LocalDate.of(2020, 3, 31), LocalDate.of(2020, 2, 1)));
+    }
+
+    @Test
+    void addTransaction() throws IOException {
+        Transaction t = new BasicTransaction(Indexer.getInstance().generateTransactionID(), new GregorianCalendar(2020, 3, 10).getTime());
+        t.addMovement(new BasicMovement(Indexer.getInstance().generateMovementID(), MovementType.DECREMENT, 50, ledger.getAccountByID(1)));
+        ledger.addTransaction(t);
+        assertEquals(4, t.getID());
+        assertEquals(5, t.getMovements().get(0).getID());
+        assertEquals(4, ledger.getTransactions().size());
+        assertEquals(700, ledger.getAccountByID(1).getBalance());
+
+        Transaction duplicated = new BasicTransaction(2, new GregorianCalendar(2020, 3, 10).getTime());
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> ledger.addTransaction(duplicated));
+        assertEquals(Transaction.MESSAGE_TRANSACTION_ALREADY_EXISTS, e.getMessage());
+
+        // le modifiche sono gia' salvate nel database
+        ledger.close();
+        ledger = SqlLedger.open(directory.toString());
+        assertEquals(4, ledger.getTransactions().size());
+        assertEquals(700, ledger.getAccountByID(1).getBalance());
+    }
+
+    @Test
+    void removeTransaction() {
+        List<Transaction> before = ledger.getTransactions();
+        ledger.removeTransaction(ledger.getTransactionByID(2));
+        assertEquals(3, before.size());
+        assertEquals(2, ledger.getTransactions().size());
+        assertNull(ledger.getTransactionByID(2));
+        assertNull(ledger.getMovementByID(2));
+        assertEquals(950, ledger.getAccountByID(1).getBalance());
+        assertEquals(5000, ledger.getAccountByID(2).getBalance());
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> ledger.removeTransaction(before.get(1)));
+        assertEquals(Transaction.MESSAGE_TRANSACTION_DOES_NOT_EXIST, e.getMessage());
+    }
+
+    @Test
+    void removeAccount() {
+        ledger.removeAccount(ledger.getAccountByID(1));
+        assertNull(ledger.getAccountByID(1));
+        // resta solo la transazione con un movimento del conto rimasto
+        assertEquals(1, ledger.getTransactions().size());
+        assertEquals(1, ledger.getMovements().size());
+        assertEquals(1, ledger.getTransactionByID(2).getMovements().size());
+        assertEquals(5200, ledger.getAccountByID(2).getBalance());
+    }
+
+    @Test
+    void getTransactionsByTag() {
+        Tag casa = ledger.getTagByID(1);
+        assertEquals(List.of(ledger.getTransactionByID(2)), ledger.getTransactions(TagExpression.of(casa)));
+        assertEquals(2, ledger.getTransactions(TagExpression.not(TagExpression.of(casa))).size());
+        assertEquals(List.of(ledger.getMovementByID(2), ledger.getMovementByID(3), ledger.getMovementByID(4)),
+                ledger.getMovements(TagExpression.of(casa)));
+        assertEquals(3, ledger.countMovements(casa));
+
+        ledger.removeTag(casa);
+        assertEquals(0, ledger.countMovements(casa));
+        assertTrue(ledger.getTransactionByID(2).getTag().isEmpty());
+    }
+
+    @Test
+    void getBudgetTracker() {
+        // la spesa dei budget viene letta dal database e poi aggiornata
+        BudgetTracker tracker = ledger.getBudgetTracker();
+        Budget mensile = Budget.forAccount(ledger.getAccountByID(1), Granularity.MONTH, 250);
+        tracker.addBudget(mensile);
+        LocalDate febbraio = LocalDate.of(2020, 2, 10);
+        assertEquals(20000, tracker.getSpentInCents(mensile, febbraio));
+        Transaction t = new BasicTransaction(10, new GregorianCalendar(2020, 1, 20).getTime());
+        t.addMovement(new BasicMovement(10, MovementType.DECREMENT, 100, ledger.getAccountByID(1)));
+        ledger.addTransaction(t);
+        assertEquals(30000, tracker.getSpentInCents(mensile, febbraio));
+        ledger.removeTransaction(ledger.getTransactionByID(10));
+        assertEquals(20000, tracker.getSpentInCents(mensile, febbraio));
+        ledger.removeAccount(ledger.getAccountByID(1));
+        assertTrue(tracker.getBudgets().isEmpty());
+    }
+}
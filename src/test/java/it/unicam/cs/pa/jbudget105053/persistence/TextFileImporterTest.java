@@ -0,0 +1,81 @@
+package it.unicam.cs.pa.jbudget105053.persistence;
+
+import it.unicam.cs.pa.jbudget105053.controller.LedgerMenuController;
+import it.unicam.cs.pa.jbudget105053.model.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.text.ParseException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TextFileImporterTest {
+    private LedgerMenuController controller;
+    private TextFileImporter importer;
+
+    @TempDir
+    Path directory;
+
+    @BeforeEach
+    void init() {
+        controller = new LedgerMenuController();
+        controller.resetLedger();
+        importer = new TextFileImporter(controller);
+        controller.addAccount(AccountType.ASSET, "CONTO CORRENTE", 1000);
+    }
+
+    private File write(String name, String content) throws Exception {
+        Path file = directory.resolve(name);
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+        return file.toFile();
+    }
+
+    @Test
+    void importTags() throws Exception {
+        // i file vengono sempre letti come UTF-8
+        importer.importTags(write("tags.txt", "1;CASA;Spese per la casa è €\n"));
+        assertEquals("Spese per la casa è €", controller.getTagByID(1).getDescription());
+
+        // i file salvati dalle versioni precedenti in ISO-8859-1 vengono ancora letti correttamente
+        Path latin = directory.resolve("latin.txt");
+        Files.writeString(latin, "2;SPESA;Beni di prima necessità\n", StandardCharsets.ISO_8859_1);
+        importer.importTags(latin.toFile());
+        assertEquals("Beni di prima necessità", controller.getTagByID(2).getDescription());
+    }
+
+    @Test
+    void importTransactions() throws Exception {
+        File transactions = write("transactions.txt", "1;15-03-2020;\n2;16-03-2020;\n");
+        File movements = write("movements.txt", "1;DECREMENT;200.0;1;1;\n\n2;INCREMENT;50.0;1;3;\n");
+        // un movimento di una transazione inesistente viene segnalato con la sua riga
+        ParseException e = assertThrows(ParseException.class,
+                () -> importer.importTransactions(List.of(transactions), List.of(movements)));
+        assertEquals(ImportManager.MESSAGE_WRONG_TRANSACTION + 3, e.getMessage());
+        assertTrue(controller.getTransactions().isEmpty());
+
+        write("movements.txt", "1;DECREMENT;200.0;1;1;\n\n2;INCREMENT;50.0;1;2;\n");
+        importer.importTransactions(List.of(transactions), List.of(movements));
+        assertEquals(2, controller.getTransactions().size());
+        assertEquals(850, controller.getAccountByID(1).getBalance());
+    }
+
+    @Test
+    void importAll() throws Exception {
+        // i dati di esempio salvati dalle versioni precedenti, con le date nel formato aaaa-mm-gg, vengono importati
+        LedgerMenuController sample = new LedgerMenuController();
+        sample.resetLedger();
+        TextFileImporter importer = new TextFileImporter(sample);
+        importer.importAccounts(new File("data", "accounts.txt"));
+        importer.importTags(new File("data", "tags.txt"));
+        importer.importTransactions(List.of(new File("data", "transactions.txt")), List.of(new File("data", "movements.txt")));
+        assertEquals(LocalDate.of(2020, 4, 10).toEpochDay(), sample.getTransactionByID(1).getEpochDay());
+        assertTrue(sample.getTagByID(3).getDescription().endsWith("necessità"));
+    }
+}